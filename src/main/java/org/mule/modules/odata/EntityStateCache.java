@@ -0,0 +1,180 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.odata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.odata4j.core.OProperty;
+import org.odata4j.edm.EdmSimpleType;
+
+/**
+ * A bounded, least recently used cache of the last known state of entities, used to
+ * send only the properties that changed when updating them.
+ *
+ * The state of an entity is the value of each of its simple properties, by OData property name.
+ * Complex and collection properties are not tracked and are always considered changed.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class EntityStateCache {
+
+	private final Map<List<Object>, Map<String, Object>> states;
+
+	public EntityStateCache(final int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("maxEntries must be positive");
+		}
+
+		this.states = new LinkedHashMap<List<Object>, Map<String, Object>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<Object>, Map<String, Object>> eldest) {
+				return this.size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Returns the last known state of an entity, or null if it's not known
+	 */
+	public Map<String, Object> get(String entitySetName, Object key) {
+		synchronized (this.states) {
+			return this.states.get(this.toCacheKey(entitySetName, key));
+		}
+	}
+
+	/**
+	 * Remembers the state of an entity, replacing the one known so far.
+	 * Nothing is remembered if the properties don't include the key property
+	 *
+	 * @param entitySetName the name of the entity's set
+	 * @param keyName the OData name of the key property
+	 * @param properties the properties of the entity
+	 */
+	public void put(String entitySetName, String keyName, Collection<OProperty<?>> properties) {
+		Object key = null;
+
+		for (OProperty<?> property : properties) {
+			if (property.getName().equals(keyName)) {
+				key = property.getValue();
+				break;
+			}
+		}
+
+		if (key != null) {
+			Map<String, Object> state = toState(properties);
+
+			synchronized (this.states) {
+				this.states.put(this.toCacheKey(entitySetName, key), state);
+			}
+		}
+	}
+
+	/**
+	 * Updates the known state of an entity with the properties that were written to it
+	 */
+	public void merge(String entitySetName, Object key, Collection<OProperty<?>> properties) {
+		List<Object> cacheKey = this.toCacheKey(entitySetName, key);
+
+		synchronized (this.states) {
+			Map<String, Object> current = this.states.get(cacheKey);
+			Map<String, Object> state = new HashMap<String, Object>();
+
+			if (current != null) {
+				state.putAll(current);
+			}
+
+			state.putAll(toState(properties));
+			this.states.put(cacheKey, Collections.unmodifiableMap(state));
+		}
+	}
+
+	/**
+	 * Forgets the state of an entity
+	 */
+	public void remove(String entitySetName, Object key) {
+		synchronized (this.states) {
+			this.states.remove(this.toCacheKey(entitySetName, key));
+		}
+	}
+
+	public int size() {
+		synchronized (this.states) {
+			return this.states.size();
+		}
+	}
+
+	/**
+	 * Returns the state of an entity with the given properties
+	 */
+	public static Map<String, Object> toState(Collection<OProperty<?>> properties) {
+		Map<String, Object> state = new HashMap<String, Object>();
+
+		for (OProperty<?> property : properties) {
+			if (property.getType() instanceof EdmSimpleType && property.getValue() != null) {
+				state.put(property.getName(), property.getValue());
+			}
+		}
+
+		return Collections.unmodifiableMap(state);
+	}
+
+	/**
+	 * Returns the properties which value differs from the original state, and the key property
+	 *
+	 * @param properties the current properties of the entity
+	 * @param original the original state of the entity
+	 * @param keyName the OData name of the key property, which is always kept
+	 */
+	public static Collection<OProperty<?>> diff(Collection<OProperty<?>> properties, Map<String, Object> original, String keyName) {
+		Collection<OProperty<?>> changed = new ArrayList<OProperty<?>>();
+
+		for (OProperty<?> property : properties) {
+			if (property.getName().equals(keyName) || !isUnchanged(property, original)) {
+				changed.add(property);
+			}
+		}
+
+		return changed;
+	}
+
+	private static boolean isUnchanged(OProperty<?> property, Map<String, Object> original) {
+		if (!(property.getType() instanceof EdmSimpleType)) {
+			return false;
+		}
+
+		Object value = property.getValue();
+		Object originalValue = original.get(property.getName());
+
+		if (value == null || originalValue == null) {
+			return false;
+		}
+
+		if (value instanceof byte[] && originalValue instanceof byte[]) {
+			return Arrays.equals((byte[]) value, (byte[]) originalValue);
+		}
+
+		return value.equals(originalValue);
+	}
+
+	private List<Object> toCacheKey(String entitySetName, Object key) {
+		return Arrays.asList(entitySetName, key);
+	}
+}
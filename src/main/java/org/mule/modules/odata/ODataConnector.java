@@ -9,12 +9,18 @@
 
 package org.mule.modules.odata;
 
+import java.math.BigInteger;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import javax.inject.Inject;
 
@@ -42,11 +48,14 @@ import org.mule.modules.odata.exception.NotAuthorizedException;
 import org.mule.modules.odata.factory.ODataConsumerFactory;
 import org.mule.modules.odata.factory.ODataConsumerFactoryImpl;
 import org.mule.modules.odata.odata4j.extensions.OBatchRequest;
+import org.mule.modules.odata.reflection.EntityExtractor;
 import org.mule.modules.odata.reflection.FieldDescriptor;
-import org.mule.modules.odata.reflection.ReflectionUtils;
 import org.mule.util.ClassUtils;
 import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.consumer.EntityLoader;
 import org.odata4j.consumer.ODataConsumer;
+import org.odata4j.consumer.RetryPolicy;
+import org.odata4j.consumer.behaviors.OClientBehavior;
 import org.odata4j.core.Guid;
 import org.odata4j.core.OCollection;
 import org.odata4j.core.OCollections;
@@ -54,6 +63,7 @@ import org.odata4j.core.OComplexObjects;
 import org.odata4j.core.OCreateRequest;
 import org.odata4j.core.ODataVersion;
 import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
 import org.odata4j.core.OModifyRequest;
 import org.odata4j.core.OObject;
 import org.odata4j.core.OProperties;
@@ -62,13 +72,22 @@ import org.odata4j.core.OQueryRequest;
 import org.odata4j.core.OSimpleObjects;
 import org.odata4j.edm.EdmCollectionType;
 import org.odata4j.edm.EdmComplexType;
+import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.edm.EdmProperty.CollectionKind;
 import org.odata4j.edm.EdmSimpleType;
 import org.odata4j.edm.EdmType;
 import org.odata4j.format.FormatType;
 import org.odata4j.format.FormatWriter;
+import org.odata4j.internal.InternalUtil;
 import org.odata4j.jersey.consumer.ConsumerDeleteEntityRequest;
 import org.odata4j.jersey.consumer.JerseyClientUtil;
+import org.odata4j.jersey.consumer.behaviors.AsyncExecutionBehavior;
+import org.odata4j.jersey.consumer.behaviors.CircuitBreakerBehavior;
+import org.odata4j.jersey.consumer.behaviors.CompressionBehavior;
+import org.odata4j.jersey.consumer.behaviors.RateLimitBehavior;
+import org.odata4j.jersey.consumer.behaviors.RequestCoalescingBehavior;
+import org.odata4j.jersey.consumer.behaviors.ResponseCacheBehavior;
+import org.odata4j.jersey.consumer.behaviors.RetryBehavior;
 import org.odata4j.producer.resources.BatchBodyPart;
 import org.odata4j.producer.resources.BatchResult;
 import org.odata4j.producer.resources.ODataBatchProvider.HTTP_METHOD;
@@ -87,8 +106,7 @@ public class ODataConnector {
 	
 	private static final Logger logger = Logger.getLogger(ODataConnector.class);
 	public static final String BATCH_PARTS = "ODATA_CONNECTOR_BATCH_BODY_PARTS";
-	
-	private Map<Class<?>, Collection<FieldDescriptor>> propertiesCache = new HashMap<Class<?>, Collection<FieldDescriptor>>();
+	public static final String LOADED_ENTITIES = "ODATA_CONNECTOR_LOADED_ENTITIES";
 	
 	/**
 	 * The url of the target OData service
@@ -100,6 +118,16 @@ public class ODataConnector {
 	 */
 	private String user;
 	
+	/**
+	 * A digest of the current credentials, shared by the connections that can batch their lookups together
+	 */
+	private String credentials;
+	
+	/**
+	 * Whether this connection retains the executor shared by asynchronous requests, which is shut down once no connection does
+	 */
+	private boolean retainsAsyncExecutor;
+	
 	/**
 	 * An instance of {@link org.mule.modules.odata.factory.ODataConsumerFactory}
 	 * to intanciate the {@link org.odata4j.consumer.ODataConsumer}. Normally you don't
@@ -151,6 +179,287 @@ public class ODataConnector {
 	@Default("JSON")
 	private FormatType formatType = FormatType.JSON;
 	
+	/**
+	 * If true, the connector remembers the last known state of the entities it reads and updates,
+	 * and update-entity only sends the properties which value changed since. Entities are remembered by
+	 * set and key, and only for sets with a single key property.
+	 * 
+	 * The remembered state is only as current as the last read or update made through this config, so only
+	 * enable this if changes made by other clients in the meantime don't need to be overwritten.
+	 */
+	@Configurable
+	@Optional
+	@Default("false")
+	private boolean partialUpdates = false;
+	
+	/**
+	 * The maximum number of entities which state is remembered when partialUpdates is enabled.
+	 * When full, the least recently used entities are forgotten
+	 */
+	@Configurable
+	@Optional
+	@Default("1000")
+	private int partialUpdatesCacheSize = 1000;
+	
+	private EntityStateCache entityStates;
+	
+	/**
+	 * If true, insert/update/delete operations outside of a batch are not sent right away. They're
+	 * queued instead and sent in the background as batch requests, each one holding a single changeset.
+	 * A batch is sent when it reaches writeBehindBatchSize operations or writeBehindFlushInterval
+	 * milliseconds after its first operation, whichever happens first. Pending operations are sent on disconnect.
+	 * 
+	 * Since operations are sent after the processor returns, failures are not thrown. They're reported
+	 * to the writeBehindListener, or logged if there's none.
+	 */
+	@Configurable
+	@Optional
+	@Default("false")
+	private boolean writeBehind = false;
+	
+	/**
+	 * The maximum number of operations per write behind batch
+	 */
+	@Configurable
+	@Optional
+	@Default("100")
+	private int writeBehindBatchSize = 100;
+	
+	/**
+	 * The maximum time in milliseconds a write behind operation waits before its batch is sent
+	 */
+	@Configurable
+	@Optional
+	@Default("1000")
+	private long writeBehindFlushInterval = 1000;
+	
+	/**
+	 * The maximum number of write behind operations waiting to be sent. When reached,
+	 * operations block until there's room for them
+	 */
+	@Configurable
+	@Optional
+	@Default("1000")
+	private int writeBehindCapacity = 1000;
+	
+	/**
+	 * An instance of {@link org.mule.modules.odata.WriteBehindListener} to be notified
+	 * of the outcome of each write behind operation
+	 */
+	@Configurable
+	@Optional
+	private WriteBehindListener writeBehindListener;
+	
+	private WriteBehindQueue writeBehindQueue;
+	
+	/**
+	 * If true, the service is asked for gzip or deflate encoded responses, which are decoded as they're read
+	 */
+	@Configurable
+	@Optional
+	@Default("false")
+	private boolean compression = false;
+	
+	/**
+	 * Request bodies of at least this many characters, such as large inserts or batches, are sent gzip encoded.
+	 * Only set this if the service accepts encoded requests. A negative value never encodes request bodies
+	 */
+	@Configurable
+	@Optional
+	@Default("-1")
+	private int requestCompressionThreshold = -1;
+	
+	/**
+	 * The maximum sustained number of requests per second sent to the service, shared by every
+	 * config that uses the same service uri. Zero means no limit. When the service answers 429 or 503
+	 * with a Retry-After header, requests are held back for as long as it asks
+	 */
+	@Configurable
+	@Optional
+	@Default("0")
+	private double maxRequestsPerSecond = 0;
+	
+	/**
+	 * The number of requests that can be sent at once after a quiet period, when maxRequestsPerSecond is set
+	 */
+	@Configurable
+	@Optional
+	@Default("1")
+	private int rateLimitBurst = 1;
+	
+	/**
+	 * The maximum number of requests in flight to the service, shared by every
+	 * config that uses the same service uri. Zero means no limit
+	 */
+	@Configurable
+	@Optional
+	@Default("0")
+	private int maxConcurrentRequests = 0;
+	
+	/**
+	 * If true, requests held back by maxRequestsPerSecond or maxConcurrentRequests are let through in arrival order
+	 */
+	@Configurable
+	@Optional
+	@Default("false")
+	private boolean fairRateLimiting = false;
+	
+	/**
+	 * The maximum number of attempts for idempotent requests, such as reads, page requests and deletes,
+	 * that fail with an I/O error or one of the retryStatuses. One means requests are not retried.
+	 * Reading a page that fails midway is also resumed from the page's request
+	 */
+	@Configurable
+	@Optional
+	@Default("1")
+	private int retryMaxAttempts = 1;
+	
+	/**
+	 * The wait in milliseconds before the first retry. It doubles with each retry, with some random jitter,
+	 * and is at least what the service asks for with a Retry-After header
+	 */
+	@Configurable
+	@Optional
+	@Default("500")
+	private long retryInitialBackoff = 500;
+	
+	/**
+	 * The maximum wait in milliseconds between retries
+	 */
+	@Configurable
+	@Optional
+	@Default("30000")
+	private long retryMaxBackoff = 30000;
+	
+	/**
+	 * Comma separated list of the response statuses to retry
+	 */
+	@Configurable
+	@Optional
+	@Default("408,429,500,502,503,504")
+	private String retryStatuses = "408,429,500,502,503,504";
+	
+	/**
+	 * Whether to stop sending requests to the service for a while when too many of them fail or are slow,
+	 * failing fast with a CircuitBreakerOpenException instead. The breaker is shared by every connector
+	 * configured with the same service uri
+	 */
+	@Configurable
+	@Optional
+	@Default("false")
+	private boolean circuitBreaker = false;
+	
+	/**
+	 * The percentage of failed requests, those that throw or answer a 5xx status, that opens the circuit breaker
+	 */
+	@Configurable
+	@Optional
+	@Default("50")
+	private int circuitBreakerFailureRate = 50;
+	
+	/**
+	 * The percentage of slow requests that opens the circuit breaker
+	 */
+	@Configurable
+	@Optional
+	@Default("100")
+	private int circuitBreakerSlowCallRate = 100;
+	
+	/**
+	 * The time in milliseconds from which a request counts as slow
+	 */
+	@Configurable
+	@Optional
+	@Default("10000")
+	private long circuitBreakerSlowCallDuration = 10000;
+	
+	/**
+	 * The number of recent requests the failure and slow call rates are computed from
+	 */
+	@Configurable
+	@Optional
+	@Default("20")
+	private int circuitBreakerWindowSize = 20;
+	
+	/**
+	 * The time in milliseconds the circuit breaker stays open before letting trial requests through
+	 */
+	@Configurable
+	@Optional
+	@Default("30000")
+	private long circuitBreakerOpenDuration = 30000;
+	
+	/**
+	 * The number of trial requests let through after the open duration. The breaker closes again
+	 * if they are below the thresholds and opens again otherwise
+	 */
+	@Configurable
+	@Optional
+	@Default("3")
+	private int circuitBreakerHalfOpenCalls = 3;
+	
+	/**
+	 * Whether concurrent identical reads of entities, with the same url and query, share a single request.
+	 * Each read still gets its own copy of the results
+	 */
+	@Configurable
+	@Optional
+	@Default("false")
+	private boolean coalesceReads = false;
+	
+	/**
+	 * How long in milliseconds the response of a coalesced read is also shared with the identical reads
+	 * that follow it. Zero only shares it with the reads made while it was in flight
+	 */
+	@Configurable
+	@Optional
+	@Default("0")
+	private long coalescedReadTtl = 0;
+	
+	/**
+	 * Whether to cache entity reads following the service's Cache-Control, Expires, ETag and Last-Modified headers.
+	 * Fresh reads are answered without asking the service, stale ones are revalidated and only sent again if changed.
+	 * Creating, updating or deleting entities through the connector invalidates the cached reads of their entity set
+	 */
+	@Configurable
+	@Optional
+	@Default("false")
+	private boolean cacheReads = false;
+	
+	/**
+	 * The maximum number of cached reads, shared by every connector configured with the same service uri
+	 */
+	@Configurable
+	@Optional
+	@Default("1000")
+	private int readCacheSize = 1000;
+	
+	/**
+	 * Whether the get-entity lookups made at about the same time are gathered into a single request
+	 * filtering the entity set by their keys, and whether the entities looked up while processing a message
+	 * are kept in it until it is used to write to the service
+	 */
+	@Configurable
+	@Optional
+	@Default("false")
+	private boolean keyLookupBatching = false;
+	
+	/**
+	 * The maximum number of distinct keys read by a single batched lookup request
+	 */
+	@Configurable
+	@Optional
+	@Default("50")
+	private int keyLookupBatchSize = 50;
+	
+	/**
+	 * How long in milliseconds the first lookup of a batch waits for other lookups to join it
+	 */
+	@Configurable
+	@Optional
+	@Default("10")
+	private long keyLookupWindow = 10;
+	
 	/**
 	 * @param username the authorization username
 	 * @param password the authorization password
@@ -163,12 +472,14 @@ public class ODataConnector {
 			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN_HOST, "", "Service Uri was not configured");
 		}
 		if (StringUtils.isBlank(username) && StringUtils.isBlank(password)) {
-			this.consumer = this.getConsumerFactory().newConsumer(serviceUri, this.getFormatType(), null, null, this.getConsumerVersion());
+			this.consumer = this.getConsumerFactory().newConsumer(serviceUri, this.getFormatType(), null, null, this.getConsumerVersion(), this.getClientBehaviors(serviceUri));
 			this.user = "<<anonymous>>";
+			this.credentials = this.user;
 			this.baseServiceUri = serviceUri;
 		} else if (!StringUtils.isBlank(username) && !StringUtils.isBlank(password)) {
-			this.consumer = this.getConsumerFactory().newConsumer(serviceUri, this.getFormatType(), username, password, this.getConsumerVersion());
+			this.consumer = this.getConsumerFactory().newConsumer(serviceUri, this.getFormatType(), username, password, this.getConsumerVersion(), this.getClientBehaviors(serviceUri));
 			this.user = username;
+			this.credentials = this.digest(username + ":" + password);
 			this.baseServiceUri = serviceUri;
 		} else {
 			throw new ConnectionException(ConnectionExceptionCode.INCORRECT_CREDENTIALS, "", "username and password must either be both blank for anonymous access or both not blank for basic authentication");
@@ -178,6 +489,26 @@ public class ODataConnector {
 		}catch(Exception ex){
 			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, "", "Unexpected error\n"+ex.getMessage(),ex.getCause());
 		}
+		
+		if (this.writeBehindQueue != null) {
+			this.writeBehindQueue.close();
+			this.writeBehindQueue = null;
+		}
+		
+		if (this.writeBehind) {
+			this.writeBehindQueue = new WriteBehindQueue(
+										this.consumer.createBatch(this.baseServiceUri),
+										this.formatType,
+										this.writeBehindCapacity,
+										this.writeBehindBatchSize,
+										this.writeBehindFlushInterval,
+										this.writeBehindListener);
+		}
+		
+		if (!this.retainsAsyncExecutor) {
+			AsyncExecutionBehavior.retainDefaultExecutor();
+			this.retainsAsyncExecutor = true;
+		}
 	}
 	
 	@ConnectionIdentifier
@@ -192,8 +523,19 @@ public class ODataConnector {
 	
 	@Disconnect
 	public void disconnect() {
+		if (this.writeBehindQueue != null) {
+			this.writeBehindQueue.close();
+			this.writeBehindQueue = null;
+		}
+		
+		if (this.retainsAsyncExecutor) {
+			AsyncExecutionBehavior.releaseDefaultExecutor();
+			this.retainsAsyncExecutor = false;
+		}
+		
 		this.consumer = null;
 		this.user = null;
+		this.credentials = null;
 		this.baseServiceUri = null;
 	}
 	
@@ -257,7 +599,99 @@ public class ODataConnector {
     		request.top(top);
     	}
 
-    	return (List<Object>) request.execute().toList();
+    	List<Object> entities = (List<Object>) request.execute().toList();
+    	
+    	if (this.partialUpdates) {
+    		this.rememberEntityStates(entitySetName, entities);
+    	}
+    	
+    	return entities;
+    }
+
+    /**
+     * Reads a single entity by key. You can optionally provide a returnClass parameter which will allow you to
+     * get the result as a pojo (as long as that class is compliant with the Bean contract). If you don't specify it,
+     * you'll get a generic ${org.odata4j.core.OEntity} object.
+     * 
+     * If keyLookupBatching is enabled, the lookups made at about the same time on the same set are read
+     * with a single request, and looking up the same entity again while processing the same message doesn't
+     * read it again, until the message is used to write to the service
+     *
+     * {@sample.xml ../../../doc/OData-connector.xml.sample odata:get-entity}
+     *
+     * @param message the current mule message
+     * @param returnClass the canonical class name for the pojo instance to be returned. If none especified then generic OEntity
+     * 		  class will be returned
+     * @param entitySetName the name of the set to be read
+     * @param key the entity's key. For composite keys, a map of the key property names to their values
+     * @return an object of class "returnClass" representing the entity, or null if there is none with that key
+     */
+    @Processor
+    @InvalidateConnectionOn(exception = NotAuthorizedException.class)
+    @Inject
+    @SuppressWarnings("unchecked")
+    public Object getEntity(MuleMessage message,
+    						@Default("org.odata4j.core.OEntity") @Optional String returnClass,
+    						String entitySetName,
+    						Object key) {
+    	
+    	Class<?> clazz = this.getClass(returnClass);
+    	OEntityKey entityKey = key instanceof Map ? OEntityKey.create((Map<String, Object>) key) : OEntityKey.create(key);
+    	
+    	OEntity entity = this.keyLookupBatching
+    						? this.loadEntity(message, entitySetName, key, entityKey)
+    						: this.consumer.getEntity(entitySetName, entityKey).execute();
+    	
+    	if (entity == null) {
+    		return null;
+    	}
+    	
+    	Object result = InternalUtil.toEntity(clazz, entity);
+    	
+    	if (this.partialUpdates) {
+    		this.rememberEntityStates(entitySetName, Collections.singletonList(result));
+    	}
+    	
+    	return result;
+    }
+    
+    // the entities loaded while processing a message are kept in it, so that looking them up again doesn't read them again
+    @SuppressWarnings("unchecked")
+    private OEntity loadEntity(MuleMessage message, String entitySetName, Object key, OEntityKey entityKey) {
+    	String loadedKey = entitySetName + " " + (key instanceof Map ? new TreeMap<String, Object>((Map<String, Object>) key) : key);
+    	Map<String, OEntity> loaded = message.getInvocationProperty(LOADED_ENTITIES);
+    	
+    	if (loaded != null && loaded.containsKey(loadedKey)) {
+    		return loaded.get(loadedKey);
+    	}
+    	
+    	// shared by every pooled connection to the service with the same credentials, so that their lookups are batched together
+    	EntityLoader loader = EntityLoader.forService(this.baseServiceUri, this.credentials, entitySetName, this.keyLookupBatchSize, this.keyLookupWindow);
+    	OEntity entity = loader.load(this.consumer, entityKey);
+    	
+    	if (loaded == null) {
+    		loaded = new HashMap<String, OEntity>();
+    		message.setInvocationProperty(LOADED_ENTITIES, loaded);
+    	}
+    	
+    	loaded.put(loadedKey, entity);
+    	return entity;
+    }
+    
+    // entities loaded earlier may have changed
+    private void forgetLoadedEntities(MuleMessage message) {
+    	if (message.getInvocationProperty(LOADED_ENTITIES) != null) {
+    		message.removeProperty(LOADED_ENTITIES, PropertyScope.INVOCATION);
+    	}
+    }
+    
+    private String digest(String value) {
+    	try {
+    		byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes("UTF-8"));
+    		return new BigInteger(1, hash).toString(16);
+    	} catch (Exception e) {
+    		throw new RuntimeException(e);
+    	}
     }
 
     /**
@@ -286,6 +720,8 @@ public class ODataConnector {
 			request.properties(properties.values());
 		}
 		
+		this.forgetLoadedEntities(message);
+		
 		if (!this.isBatchOperation(message, request.getRawRequest(this.baseServiceUri))) {
 			request.execute(this.baseServiceUri);
 		}
@@ -303,6 +739,8 @@ public class ODataConnector {
      * @param entity an object representing the entity
      * @param entitySetName the name of the set. If not specified then it's inferred by adding the suffix 'Set' to the objects simple class name
      * @param keyAttribute the name of the pojo's attribute that holds the entity's key. The attribute cannot hold a null value
+     * @param original an object representing the entity as it was before the changes. If specified, only the properties
+     * 		  which value differs from it are sent. If not, and partialUpdates is enabled, the last known state of the entity is used instead
      */
     @Processor
     @InvalidateConnectionOn(exception = NotAuthorizedException.class)
@@ -310,24 +748,51 @@ public class ODataConnector {
     public void updateEntity(MuleMessage message,
     						@Optional @Default("#[payload]") Object entity,
     						@Optional String entitySetName,
-    						String keyAttribute) {
+    						String keyAttribute,
+    						@Optional Object original) {
     	
     	Map<String, OProperty<?>> properties = this.populateODataProperties(entity);
     	
     	OProperty<?> key = properties.get(keyAttribute);
+    	String setName = this.getEntitySetName(entity, entitySetName);
+    	Collection<OProperty<?>> values = properties.values();
+    	Map<String, Object> originalState = this.getOriginalState(setName, key.getValue(), original);
+    	
+    	if (originalState != null) {
+    		values = EntityStateCache.diff(values, originalState, key.getName());
+    		
+    		if (values.size() == 1) {
+    			if (logger.isDebugEnabled()) {
+    				logger.debug(String.format("Entity %s(%s) has no changes, skipping update", setName, key.getValue()));
+    			}
+    			return;
+    		}
+    	}
     	
     	OModifyRequest<OEntity> request = this.consumer.mergeEntity(
-    											this.getEntitySetName(entity, entitySetName),
+    											setName,
     											key.getValue(),
     											key.getType().equals(EdmSimpleType.GUID));
     	
 		if (properties != null) {
-			request.properties(properties.values());
+			request.properties(values);
 		}
 		
-		if (!this.isBatchOperation(message, request.getRawRequest(this.baseServiceUri))) {
+		this.forgetLoadedEntities(message);
+		boolean batch = this.isBatchOperation(message, request.getRawRequest(this.baseServiceUri));
+		
+		if (!batch) {
 			request.execute(this.baseServiceUri);
 		}
+		
+		if (this.partialUpdates) {
+			// a batched change may still fail, so its outcome is not known
+			if (batch) {
+				this.getEntityStates().remove(setName, key.getValue());
+			} else {
+				this.getEntityStates().merge(setName, key.getValue(), values);
+			}
+		}
     }
     
     
@@ -357,14 +822,21 @@ public class ODataConnector {
     	Map<String, OProperty<?>> properties = this.populateODataProperties(entity);
     	OProperty<?> key = properties.get(keyAttribute);
     	
+    	String setName = this.getEntitySetName(entity, entitySetName);
     	ConsumerDeleteEntityRequest request = this.consumer.deleteEntity(
-    												this.getEntitySetName(entity, entitySetName),
+    												setName,
     												key.getValue(),
     												key.getType().equals(EdmSimpleType.GUID));
     	
+    	this.forgetLoadedEntities(message);
+    	
     	if (!this.isBatchOperation(message, request.getRawRequest(this.baseServiceUri))) {
 			request.execute(this.baseServiceUri);
 		}
+    	
+    	if (this.partialUpdates) {
+    		this.getEntityStates().remove(setName, key.getValue());
+    	}
     }
     
     /**
@@ -417,6 +889,11 @@ public class ODataConnector {
     		return true;
     	}
     	
+    	if (this.writeBehindQueue != null) {
+    		this.writeBehindQueue.add(this.toBatchBodyPart(request));
+    		return true;
+    	}
+    	
     	return false;
     	
     }
@@ -439,6 +916,85 @@ public class ODataConnector {
 		return part;
     }
     
+    private OClientBehavior[] getClientBehaviors(String serviceUri) {
+    	List<OClientBehavior> behaviors = new ArrayList<OClientBehavior>();
+    	
+    	if (this.compression || this.requestCompressionThreshold >= 0) {
+    		behaviors.add(CompressionBehavior.compression(this.requestCompressionThreshold));
+    	}
+    	
+    	if (this.maxRequestsPerSecond > 0 || this.maxConcurrentRequests > 0) {
+    		behaviors.add(RateLimitBehavior.rateLimit(serviceUri, this.maxRequestsPerSecond, this.rateLimitBurst, this.maxConcurrentRequests, this.fairRateLimiting));
+    	}
+    	
+    	if (this.cacheReads) {
+    		behaviors.add(ResponseCacheBehavior.responseCache(serviceUri, this.readCacheSize));
+    	}
+    	
+    	if (this.coalesceReads) {
+    		behaviors.add(RequestCoalescingBehavior.coalesceRequests(serviceUri, this.coalescedReadTtl));
+    	}
+    	
+    	// outside the rate limiter so that rejected requests don't use its permits; durations are still measured from the limiter
+    	if (this.circuitBreaker) {
+    		behaviors.add(CircuitBreakerBehavior.circuitBreaker(serviceUri, this.circuitBreakerFailureRate, this.circuitBreakerSlowCallRate, this.circuitBreakerWindowSize,
+    				this.circuitBreakerSlowCallDuration, this.circuitBreakerOpenDuration, this.circuitBreakerHalfOpenCalls));
+    	}
+    	
+    	// added last so that every attempt goes through the other behaviors
+    	if (this.retryMaxAttempts > 1) {
+    		behaviors.add(RetryBehavior.retry(new RetryPolicy(this.retryMaxAttempts, this.retryInitialBackoff, this.retryMaxBackoff, this.parseStatuses(this.retryStatuses))));
+    	}
+    	
+    	return behaviors.toArray(new OClientBehavior[behaviors.size()]);
+    }
+    
+    private Set<Integer> parseStatuses(String statuses) {
+    	Set<Integer> result = new HashSet<Integer>();
+    	
+    	for (String status : StringUtils.split(statuses, ", ")) {
+    		result.add(Integer.valueOf(status));
+    	}
+    	
+    	return result;
+    }
+    
+    private Map<String, Object> getOriginalState(String entitySetName, Object key, Object original) {
+    	if (original != null) {
+    		Map<String, OProperty<?>> properties = this.populateODataProperties(original);
+    		return properties != null ? EntityStateCache.toState(properties.values()) : null;
+    	}
+    	
+    	return this.partialUpdates ? this.getEntityStates().get(entitySetName, key) : null;
+    }
+    
+    private void rememberEntityStates(String entitySetName, List<Object> entities) {
+    	if (entities.isEmpty()) {
+    		return;
+    	}
+    	
+    	EdmEntitySet entitySet = this.consumer.getMetadata().findEdmEntitySet(entitySetName);
+    	
+    	if (entitySet == null || entitySet.getType().getKeys().size() != 1) {
+    		return;
+    	}
+    	
+    	String keyName = entitySet.getType().getKeys().get(0);
+    	EntityStateCache states = this.getEntityStates();
+    	
+    	for (Object entity : entities) {
+    		if (entity instanceof OEntity) {
+    			states.put(entitySetName, keyName, ((OEntity) entity).getProperties());
+    		} else {
+    			Map<String, OProperty<?>> properties = this.populateODataProperties(entity);
+    			
+    			if (properties != null) {
+    				states.put(entitySetName, keyName, properties.values());
+    			}
+    		}
+    	}
+    }
+    
     private String getEntitySetName(Object pojo, String entitySetName) {
     	if (pojo == null) {
     		throw new IllegalArgumentException("cannot use a null pojo");
@@ -448,38 +1004,34 @@ public class ODataConnector {
     }
      
     private <T> Map<String, OProperty<?>> populateODataProperties(T object) {
-		Class<?> clazz = object.getClass();
-    	Collection<FieldDescriptor> fields = this.propertiesCache.get(clazz);
-		
-		if (fields == null) {
-			fields = ReflectionUtils.getFieldDescriptors(object);
-			this.propertiesCache.put(clazz, fields);
-		}
+		EntityExtractor extractor = EntityExtractor.forClass(object.getClass());
 		
-		if (fields.isEmpty()) {
+		if (extractor.isEmpty()) {
 			return null;
 		}
 		
-		Map<String, OProperty<?>> result = new HashMap<String, OProperty<?>>();
+		FieldDescriptor[] fields = extractor.getFields();
+		PropertyNamingFormat format = this.namingFormat;
+		Map<String, OProperty<?>> result = new HashMap<String, OProperty<?>>(fields.length * 2);
 		
 		try {
 			for (FieldDescriptor field : fields) {
 				Object value = field.getValue(object);
-				String name = field.getName();
 				
 				if (value != null) {
-					String key = this.namingFormat.toOData(name);
+					String key = field.getODataName(format);
 					
 					OProperty<?> property = null;
 					
 					if (field.isGuid()) {
 						property = OProperties.guid(key, Guid.fromString(value.toString()));
 					} else {
-						property = this.toOProperty(key, value);
+						EdmSimpleType<?> type = field.getSimpleType(value);
+						property = type != null ? OProperties.simple(key, type, value) : this.toOProperty(key, value);
 					}
 					
 					if (property != null) {
-						result.put(name, property);
+						result.put(field.getName(), property);
 					}
 				}
 			}
@@ -597,6 +1149,15 @@ public class ODataConnector {
 	public void setConsumerFactory(ODataConsumerFactory consumerFactory) {
 		this.consumerFactory = consumerFactory;
 	}
+	
+	public synchronized EntityStateCache getEntityStates() {
+		
+		if (this.entityStates == null) {
+			this.entityStates = new EntityStateCache(this.partialUpdatesCacheSize);
+		}
+		
+		return entityStates;
+	}
 
 	public PropertyNamingFormat getNamingFormat() {
 		return namingFormat;
@@ -621,5 +1182,253 @@ public class ODataConnector {
 	public void setConsumerVersion(ODataVersion consumerVersion) {
 		this.consumerVersion = consumerVersion;
 	}
+
+	public boolean isPartialUpdates() {
+		return partialUpdates;
+	}
+
+	public void setPartialUpdates(boolean partialUpdates) {
+		this.partialUpdates = partialUpdates;
+	}
+
+	public int getPartialUpdatesCacheSize() {
+		return partialUpdatesCacheSize;
+	}
+
+	public void setPartialUpdatesCacheSize(int partialUpdatesCacheSize) {
+		this.partialUpdatesCacheSize = partialUpdatesCacheSize;
+	}
+
+	public boolean isWriteBehind() {
+		return writeBehind;
+	}
+
+	public void setWriteBehind(boolean writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
+	public int getWriteBehindBatchSize() {
+		return writeBehindBatchSize;
+	}
+
+	public void setWriteBehindBatchSize(int writeBehindBatchSize) {
+		this.writeBehindBatchSize = writeBehindBatchSize;
+	}
+
+	public long getWriteBehindFlushInterval() {
+		return writeBehindFlushInterval;
+	}
+
+	public void setWriteBehindFlushInterval(long writeBehindFlushInterval) {
+		this.writeBehindFlushInterval = writeBehindFlushInterval;
+	}
+
+	public int getWriteBehindCapacity() {
+		return writeBehindCapacity;
+	}
+
+	public void setWriteBehindCapacity(int writeBehindCapacity) {
+		this.writeBehindCapacity = writeBehindCapacity;
+	}
+
+	public boolean isCompression() {
+		return compression;
+	}
+
+	public void setCompression(boolean compression) {
+		this.compression = compression;
+	}
+
+	public int getRequestCompressionThreshold() {
+		return requestCompressionThreshold;
+	}
+
+	public void setRequestCompressionThreshold(int requestCompressionThreshold) {
+		this.requestCompressionThreshold = requestCompressionThreshold;
+	}
+
+	public double getMaxRequestsPerSecond() {
+		return maxRequestsPerSecond;
+	}
+
+	public void setMaxRequestsPerSecond(double maxRequestsPerSecond) {
+		this.maxRequestsPerSecond = maxRequestsPerSecond;
+	}
+
+	public int getRateLimitBurst() {
+		return rateLimitBurst;
+	}
+
+	public void setRateLimitBurst(int rateLimitBurst) {
+		this.rateLimitBurst = rateLimitBurst;
+	}
+
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		this.maxConcurrentRequests = maxConcurrentRequests;
+	}
+
+	public boolean isFairRateLimiting() {
+		return fairRateLimiting;
+	}
+
+	public void setFairRateLimiting(boolean fairRateLimiting) {
+		this.fairRateLimiting = fairRateLimiting;
+	}
+
+	public int getRetryMaxAttempts() {
+		return retryMaxAttempts;
+	}
+
+	public void setRetryMaxAttempts(int retryMaxAttempts) {
+		this.retryMaxAttempts = retryMaxAttempts;
+	}
+
+	public long getRetryInitialBackoff() {
+		return retryInitialBackoff;
+	}
+
+	public void setRetryInitialBackoff(long retryInitialBackoff) {
+		this.retryInitialBackoff = retryInitialBackoff;
+	}
+
+	public long getRetryMaxBackoff() {
+		return retryMaxBackoff;
+	}
+
+	public void setRetryMaxBackoff(long retryMaxBackoff) {
+		this.retryMaxBackoff = retryMaxBackoff;
+	}
+
+	public String getRetryStatuses() {
+		return retryStatuses;
+	}
+
+	public void setRetryStatuses(String retryStatuses) {
+		this.retryStatuses = retryStatuses;
+	}
+
+	public boolean isCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public void setCircuitBreaker(boolean circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	public int getCircuitBreakerFailureRate() {
+		return circuitBreakerFailureRate;
+	}
+
+	public void setCircuitBreakerFailureRate(int circuitBreakerFailureRate) {
+		this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+	}
+
+	public int getCircuitBreakerSlowCallRate() {
+		return circuitBreakerSlowCallRate;
+	}
+
+	public void setCircuitBreakerSlowCallRate(int circuitBreakerSlowCallRate) {
+		this.circuitBreakerSlowCallRate = circuitBreakerSlowCallRate;
+	}
+
+	public long getCircuitBreakerSlowCallDuration() {
+		return circuitBreakerSlowCallDuration;
+	}
+
+	public void setCircuitBreakerSlowCallDuration(long circuitBreakerSlowCallDuration) {
+		this.circuitBreakerSlowCallDuration = circuitBreakerSlowCallDuration;
+	}
+
+	public int getCircuitBreakerWindowSize() {
+		return circuitBreakerWindowSize;
+	}
+
+	public void setCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+		this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+	}
+
+	public long getCircuitBreakerOpenDuration() {
+		return circuitBreakerOpenDuration;
+	}
+
+	public void setCircuitBreakerOpenDuration(long circuitBreakerOpenDuration) {
+		this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+	}
+
+	public int getCircuitBreakerHalfOpenCalls() {
+		return circuitBreakerHalfOpenCalls;
+	}
+
+	public void setCircuitBreakerHalfOpenCalls(int circuitBreakerHalfOpenCalls) {
+		this.circuitBreakerHalfOpenCalls = circuitBreakerHalfOpenCalls;
+	}
+
+	public boolean isCoalesceReads() {
+		return coalesceReads;
+	}
+
+	public void setCoalesceReads(boolean coalesceReads) {
+		this.coalesceReads = coalesceReads;
+	}
+
+	public long getCoalescedReadTtl() {
+		return coalescedReadTtl;
+	}
+
+	public void setCoalescedReadTtl(long coalescedReadTtl) {
+		this.coalescedReadTtl = coalescedReadTtl;
+	}
+
+	public boolean isCacheReads() {
+		return cacheReads;
+	}
+
+	public void setCacheReads(boolean cacheReads) {
+		this.cacheReads = cacheReads;
+	}
+
+	public int getReadCacheSize() {
+		return readCacheSize;
+	}
+
+	public void setReadCacheSize(int readCacheSize) {
+		this.readCacheSize = readCacheSize;
+	}
+
+	public boolean isKeyLookupBatching() {
+		return keyLookupBatching;
+	}
+
+	public void setKeyLookupBatching(boolean keyLookupBatching) {
+		this.keyLookupBatching = keyLookupBatching;
+	}
+
+	public int getKeyLookupBatchSize() {
+		return keyLookupBatchSize;
+	}
+
+	public void setKeyLookupBatchSize(int keyLookupBatchSize) {
+		this.keyLookupBatchSize = keyLookupBatchSize;
+	}
+
+	public long getKeyLookupWindow() {
+		return keyLookupWindow;
+	}
+
+	public void setKeyLookupWindow(long keyLookupWindow) {
+		this.keyLookupWindow = keyLookupWindow;
+	}
+
+	public WriteBehindListener getWriteBehindListener() {
+		return writeBehindListener;
+	}
+
+	public void setWriteBehindListener(WriteBehindListener writeBehindListener) {
+		this.writeBehindListener = writeBehindListener;
+	}
 	
 }
@@ -0,0 +1,41 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.odata;
+
+import org.odata4j.producer.resources.BatchBodyPart;
+import org.odata4j.producer.resources.BatchPartResponse;
+
+/**
+ * Gets notified of the outcome of each operation sent by a {@link WriteBehindQueue}.
+ * Notifications happen on the queue's flushing thread
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public interface WriteBehindListener {
+
+	/**
+	 * Called when the service accepted an operation
+	 *
+	 * @param part the operation
+	 * @param response the service's response to the operation
+	 */
+	public void onSuccess(BatchBodyPart part, BatchPartResponse response);
+
+	/**
+	 * Called when an operation failed
+	 *
+	 * @param part the operation
+	 * @param response the service's response to the operation, or its changeset. Null if no response was received
+	 * @param cause the exception that prevented the batch from being sent. Null if a response was received
+	 */
+	public void onFailure(BatchBodyPart part, BatchPartResponse response, Exception cause);
+
+}
@@ -0,0 +1,290 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.odata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+import org.mule.modules.odata.odata4j.extensions.OBatchRequest;
+import org.odata4j.format.FormatType;
+import org.odata4j.producer.resources.BatchBodyPart;
+import org.odata4j.producer.resources.BatchPartResponse;
+import org.odata4j.producer.resources.BatchResult;
+
+/**
+ * Collects insert/update/delete operations and sends them in the background as batch requests,
+ * each one holding a single changeset.
+ *
+ * A batch is sent as soon as it holds batchSize operations, or flushInterval milliseconds after its
+ * first operation was added, whichever happens first. Batches are sent one at a time by a single thread,
+ * so operations reach the service in the order they were added.
+ *
+ * The queue holds at most capacity operations. When it's full, adding an operation blocks until
+ * the flushing thread makes room for it.
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class WriteBehindQueue {
+
+	private static final Logger logger = Logger.getLogger(WriteBehindQueue.class);
+
+	// added by close() after every other operation, so the flusher sends them all and stops when it takes it
+	private static final BatchBodyPart CLOSE = new BatchBodyPart();
+
+	private final OBatchRequest batchRequest;
+	private final FormatType formatType;
+	private final int batchSize;
+	private final long flushInterval;
+	private final WriteBehindListener listener;
+	private final BlockingQueue<BatchBodyPart> queue;
+	private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+	private final Thread flusher;
+	private boolean closed = false;
+
+	/**
+	 * @param batchRequest the request used to send the batches
+	 * @param formatType the format of the operations' payloads
+	 * @param capacity the maximum number of operations to hold
+	 * @param batchSize the maximum number of operations per batch
+	 * @param flushInterval the maximum time in milliseconds an operation waits before its batch is sent
+	 * @param listener gets notified of each operation's outcome. If null, failures are logged
+	 */
+	public WriteBehindQueue(OBatchRequest batchRequest, FormatType formatType, int capacity, int batchSize, long flushInterval, WriteBehindListener listener) {
+		if (capacity < 1 || batchSize < 1 || flushInterval < 0) {
+			throw new IllegalArgumentException("capacity and batchSize must be positive and flushInterval cannot be negative");
+		}
+
+		this.batchRequest = batchRequest;
+		this.formatType = formatType;
+		this.batchSize = batchSize;
+		this.flushInterval = flushInterval;
+		this.listener = listener;
+		this.queue = new ArrayBlockingQueue<BatchBodyPart>(capacity);
+
+		this.flusher = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				flushLoop();
+			}
+		}, "odata-write-behind");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * Adds an operation, waiting for room if the queue is full
+	 *
+	 * @throws IllegalStateException if the queue was closed
+	 */
+	public void add(BatchBodyPart part) {
+		this.closeLock.readLock().lock();
+
+		try {
+			if (this.closed) {
+				throw new IllegalStateException("Write behind queue is closed");
+			}
+
+			this.queue.put(part);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for room in the write behind queue", e);
+		} finally {
+			this.closeLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of operations waiting to be sent
+	 */
+	public int size() {
+		return this.queue.size();
+	}
+
+	/**
+	 * Stops accepting operations and sends the pending ones before returning.
+	 * A batch being sent is not interrupted
+	 */
+	public void close() {
+		this.closeLock.writeLock().lock();
+
+		try {
+			if (this.closed) {
+				return;
+			}
+
+			this.closed = true;
+		} finally {
+			this.closeLock.writeLock().unlock();
+		}
+
+		try {
+			// timed, so that a full queue doesn't block closing if the flusher died
+			while (this.flusher.isAlive() && !this.queue.offer(CLOSE, 100, TimeUnit.MILLISECONDS)) {
+			}
+
+			this.flusher.join();
+		} catch (InterruptedException e) {
+			// the flusher still sends the pending operations
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		List<BatchBodyPart> parts = new ArrayList<BatchBodyPart>(this.batchSize);
+
+		while (this.queue.drainTo(parts, this.batchSize) > 0) {
+			parts.remove(CLOSE);
+
+			if (!parts.isEmpty()) {
+				this.flush(parts);
+			}
+
+			parts.clear();
+		}
+	}
+
+	private void flushLoop() {
+		List<BatchBodyPart> parts = new ArrayList<BatchBodyPart>(this.batchSize);
+		boolean closing = false;
+
+		try {
+			while (!closing) {
+				BatchBodyPart first = this.queue.take();
+
+				if (first == CLOSE) {
+					break;
+				}
+
+				parts.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.flushInterval);
+
+				while (parts.size() < this.batchSize) {
+					this.queue.drainTo(parts, this.batchSize - parts.size());
+
+					// nothing is added after the close marker, so it can only be the last part drained
+					if (parts.get(parts.size() - 1) == CLOSE) {
+						parts.remove(parts.size() - 1);
+						closing = true;
+						break;
+					}
+
+					long remaining = deadline - System.nanoTime();
+
+					if (parts.size() >= this.batchSize || remaining <= 0) {
+						break;
+					}
+
+					BatchBodyPart part = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+					if (part == null) {
+						break;
+					}
+
+					if (part == CLOSE) {
+						closing = true;
+						break;
+					}
+
+					parts.add(part);
+				}
+
+				this.flush(parts);
+				parts.clear();
+			}
+		} catch (InterruptedException e) {
+			// not interrupted by close(), which sends the rest
+		} finally {
+			if (!parts.isEmpty()) {
+				this.flush(parts);
+			}
+		}
+	}
+
+	private void flush(List<BatchBodyPart> parts) {
+		if (logger.isDebugEnabled()) {
+			logger.debug(String.format("Sending batch of %d write behind operations", parts.size()));
+		}
+
+		BatchResult result = null;
+
+		try {
+			result = this.batchRequest.execute(parts, this.formatType);
+		} catch (Exception e) {
+			for (BatchBodyPart part : parts) {
+				this.notifyFailure(part, null, e);
+			}
+			return;
+		}
+
+		List<BatchPartResponse> responses = result.getPartResponses();
+
+		if (responses.size() == parts.size()) {
+			for (int i = 0; i < parts.size(); i++) {
+				BatchPartResponse response = responses.get(i);
+
+				if (this.isSuccess(response)) {
+					this.notifySuccess(parts.get(i), response);
+				} else {
+					this.notifyFailure(parts.get(i), response, null);
+				}
+			}
+		} else {
+			// a failed changeset is answered with a single response and none of its operations are applied
+			BatchPartResponse failure = null;
+
+			for (BatchPartResponse response : responses) {
+				if (!this.isSuccess(response)) {
+					failure = response;
+					break;
+				}
+			}
+
+			for (BatchBodyPart part : parts) {
+				this.notifyFailure(part, failure, failure == null ? new IllegalStateException(String.format("Expected %d batch responses but got %d", parts.size(), responses.size())) : null);
+			}
+		}
+	}
+
+	private boolean isSuccess(BatchPartResponse response) {
+		return response.getStatus() >= 200 && response.getStatus() < 300;
+	}
+
+	private void notifySuccess(BatchBodyPart part, BatchPartResponse response) {
+		if (this.listener != null) {
+			try {
+				this.listener.onSuccess(part, response);
+			} catch (Exception e) {
+				logger.warn("Write behind listener failed", e);
+			}
+		}
+	}
+
+	private void notifyFailure(BatchBodyPart part, BatchPartResponse response, Exception cause) {
+		if (this.listener == null) {
+			logger.error(String.format("Write behind %s %s failed: %s", part.getHttpMethod(), part.getUri(),
+					response != null ? response.getMessage() : String.valueOf(cause)), cause);
+			return;
+		}
+
+		try {
+			this.listener.onFailure(part, response, cause);
+		} catch (Exception e) {
+			logger.warn("Write behind listener failed", e);
+		}
+	}
+
+}
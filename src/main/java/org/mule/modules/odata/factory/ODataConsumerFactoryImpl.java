@@ -9,6 +9,10 @@
 
 package org.mule.modules.odata.factory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.commons.lang.StringUtils;
 import org.odata4j.consumer.ODataConsumer;
 import org.odata4j.consumer.behaviors.OClientBehavior;
@@ -26,15 +30,25 @@ import org.odata4j.jersey.consumer.ODataJerseyConsumer.Builder;
 public class ODataConsumerFactoryImpl implements ODataConsumerFactory {
 
 	/**
-	 * @see org.mule.modules.odata.factory.ODataConsumerFactory#newConsumer(java.lang.String, org.odata4j.format.FormatType, java.lang.String, java.lang.String)
+	 * @see org.mule.modules.odata.factory.ODataConsumerFactory#newConsumer(java.lang.String, org.odata4j.format.FormatType, java.lang.String, java.lang.String, org.odata4j.core.ODataVersion, org.odata4j.consumer.behaviors.OClientBehavior[])
 	 */
 	@Override
-	public ODataConsumer newConsumer(String baseServiceUri, FormatType formatType, String username, String password, ODataVersion version) {
+	public ODataConsumer newConsumer(String baseServiceUri, FormatType formatType, String username, String password, ODataVersion version, OClientBehavior... behaviors) {
 		OClientBehavior auth = this.getAuthBehaviour(username, password);
 		Builder builder = ODataJerseyConsumer.newBuilder(baseServiceUri, version).setFormatType(formatType);
 		
+		List<OClientBehavior> clientBehaviors = new ArrayList<OClientBehavior>();
+		
 		if (auth != null) {
-			builder.setClientBehaviors(auth);
+			clientBehaviors.add(auth);
+		}
+		
+		if (behaviors != null) {
+			clientBehaviors.addAll(Arrays.asList(behaviors));
+		}
+		
+		if (!clientBehaviors.isEmpty()) {
+			builder.setClientBehaviors(clientBehaviors.toArray(new OClientBehavior[clientBehaviors.size()]));
 		}
 		
 		return builder.build();
@@ -105,7 +105,11 @@ public class ConsumerBatchRequest implements OBatchRequest {
 		return new MediaType(type, subType, parameters);
 	}
 	
-	private BatchResult parseResponse(String response, String batchId, String changeSetId) {
+	/**
+	 * Parses a batch response into one part response per operation. Each operation of a changeset is answered
+	 * in its own part of the changeset response, except when the changeset fails, which is answered with a single part
+	 */
+	BatchResult parseResponse(String response, String batchId, String changeSetId) {
 		String[] lines = response.split("\n");
 		BatchResult result = new BatchResult();
 		result.setBatchId(batchId);
@@ -123,7 +127,8 @@ public class ConsumerBatchRequest implements OBatchRequest {
 				
 				for (; i < top; i++) {
 					line = lines[i];
-					if (line.startsWith("--batch")) {
+					// a part ends at the next boundary, of the batch or of the changeset
+					if (line.startsWith("--batch") || line.startsWith("--changeset")) {
 						break;
 					}
 					message.append(line).append("\n");
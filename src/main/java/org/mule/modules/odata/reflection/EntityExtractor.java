@@ -0,0 +1,76 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.odata.reflection;
+
+import java.lang.ref.SoftReference;
+import java.util.Collection;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Holds the introspected fields of a pojo class, so that reading the values of an instance
+ * doesn't need to introspect the class again. Extractors are built once per class
+ * and can be shared between threads
+ *
+ * @author mariano.gonzalez@mulesoft.com
+ *
+ */
+public class EntityExtractor {
+
+	// classes are weakly held and extractors softly, as the fields of an extractor reference its class: neither
+	// keeps the classes of a redeployed application, nor their class loader, from being collected
+	private static final Map<Class<?>, SoftReference<EntityExtractor>> extractors = new WeakHashMap<Class<?>, SoftReference<EntityExtractor>>();
+
+	private FieldDescriptor[] fields;
+
+	private EntityExtractor(Class<?> clazz) {
+		Collection<FieldDescriptor> descriptors = ReflectionUtils.getFieldDescriptors(clazz);
+		this.fields = descriptors.toArray(new FieldDescriptor[descriptors.size()]);
+	}
+
+	/**
+	 * Returns the extractor for the given class, building it on first use
+	 */
+	public static EntityExtractor forClass(Class<?> clazz) {
+		EntityExtractor extractor = get(clazz);
+
+		if (extractor == null) {
+			// introspected out of the lock, the first extractor registered wins
+			extractor = new EntityExtractor(clazz);
+
+			synchronized (extractors) {
+				EntityExtractor existing = get(clazz);
+
+				if (existing != null) {
+					return existing;
+				}
+
+				extractors.put(clazz, new SoftReference<EntityExtractor>(extractor));
+			}
+		}
+
+		return extractor;
+	}
+
+	private static EntityExtractor get(Class<?> clazz) {
+		synchronized (extractors) {
+			SoftReference<EntityExtractor> ref = extractors.get(clazz);
+			return ref == null ? null : ref.get();
+		}
+	}
+
+	public FieldDescriptor[] getFields() {
+		return fields;
+	}
+
+	public boolean isEmpty() {
+		return this.fields.length == 0;
+	}
+}
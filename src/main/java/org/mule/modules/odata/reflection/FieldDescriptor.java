@@ -12,11 +12,14 @@ package org.mule.modules.odata.reflection;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
+import org.mule.modules.odata.PropertyNamingFormat;
 import org.mule.modules.odata.annotation.Guid;
+import org.odata4j.edm.EdmSimpleType;
 
 /**
- * 
+ *
  * @author mariano.gonzalez@mulesoft.com
  *
  */
@@ -24,32 +27,69 @@ public class FieldDescriptor {
 
 	private Field field;
 	private PropertyDescriptor property;
+	private Method readMethod;
 	private boolean isGuid;
-	
-	
+	private String[] odataNames;
+	private Class<?> valueClass;
+	private EdmSimpleType<?> simpleType;
+
+
 	public FieldDescriptor(Field field, PropertyDescriptor property) {
 		this.field = field;
 		this.property = property;
 		this.isGuid = this.field.getAnnotation(Guid.class) != null;
+
+		this.readMethod = property.getReadMethod();
+		if (!this.readMethod.isAccessible()) {
+			this.readMethod.setAccessible(true);
+		}
+
+		PropertyNamingFormat[] formats = PropertyNamingFormat.values();
+		this.odataNames = new String[formats.length];
+		for (PropertyNamingFormat format : formats) {
+			this.odataNames[format.ordinal()] = format.toOData(field.getName());
+		}
+
+		this.valueClass = this.readMethod.getReturnType();
+		this.simpleType = EdmSimpleType.forJavaType(this.valueClass);
 	}
-	
+
 	public Field getField() {
 		return field;
 	}
 	public PropertyDescriptor getProperty() {
 		return property;
 	}
-	
+
 	public Object getValue(Object target) throws InvocationTargetException, IllegalAccessException {
-		return this.property.getReadMethod().invoke(target, (Object[]) null);
+		return this.readMethod.invoke(target, (Object[]) null);
 	}
-	
+
 	public String getName() {
 		return this.field.getName();
 	}
-	
+
 	public boolean isGuid() {
 		return isGuid;
 	}
-	
+
+	/**
+	 * Returns the name of this field in the given naming format
+	 */
+	public String getODataName(PropertyNamingFormat format) {
+		return this.odataNames[format.ordinal()];
+	}
+
+	/**
+	 * Returns the edm type of the given value of this field, if it is the simple type
+	 * the getter declares. Otherwise, returns null and the type must be inferred from the value
+	 */
+	public EdmSimpleType<?> getSimpleType(Object value) {
+		if (this.simpleType != null && (this.valueClass.isPrimitive() || value.getClass() == this.valueClass)) {
+			return this.simpleType;
+		}
+
+		return null;
+	}
+
 }
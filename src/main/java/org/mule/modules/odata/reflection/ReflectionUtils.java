@@ -29,7 +29,10 @@ public class ReflectionUtils {
 
 	
 	public static Collection<FieldDescriptor> getFieldDescriptors(Object object) {
-		Class<?> clazz = object.getClass();
+		return getFieldDescriptors(object.getClass());
+	}
+	
+	public static Collection<FieldDescriptor> getFieldDescriptors(Class<?> clazz) {
 		Map<String, PropertyDescriptor> properties = getProperties(clazz);
 		Collection<FieldDescriptor> result = new ArrayList<FieldDescriptor>(properties.size());
 		
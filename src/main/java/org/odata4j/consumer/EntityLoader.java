@@ -0,0 +1,238 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.odata4j.core.NamedValue;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OProperty;
+import org.odata4j.core.Throwables;
+import org.odata4j.expression.Expression;
+
+/**
+ * Loads entities of an entity set by key, gathering the lookups made at about the same time into a
+ * single request.
+ *
+ * <p>The first lookup of a batch waits up to the batch window for other lookups to join it, or until the
+ * batch is full, and then reads every key of the batch with one <code>$filter</code> query, such as
+ * <code>Id eq 1 or Id eq 2</code>, or <code>(A eq 1 and B eq 2) or ...</code> for composite keys.  Each
+ * lookup then gets its entity, or null if there is none with its key.  Lookups of the same key in a
+ * batch share its entity, which must not be modified.  Failures of the query are thrown to every lookup
+ * of the batch.</p>
+ *
+ * <p>Each lookup is given the consumer of its caller, and a batch is read with the consumer of its first
+ * lookup, so a loader holds no consumer between batches.  Use {@link #forService(String, String, String, int, long)}
+ * to share one loader between every consumer of the same entity set and credentials, so that their lookups
+ * are batched together.</p>
+ */
+public class EntityLoader {
+
+  private static final ConcurrentMap<String, EntityLoader> LOADERS = new ConcurrentHashMap<String, EntityLoader>();
+
+  private final String entitySetName;
+  private final int maxBatchSize;
+  private final long windowNanos;
+
+  private Batch current;
+  private List<String> keyNames;
+
+  /**
+   * Creates a new loader.
+   *
+   * @param entitySetName  the entity set to read
+   * @param maxBatchSize  the maximum number of distinct keys read at once
+   * @param windowMillis  how long the first lookup of a batch waits for others, in milliseconds
+   */
+  public EntityLoader(String entitySetName, int maxBatchSize, long windowMillis) {
+    if (maxBatchSize < 1)
+      throw new IllegalArgumentException("maxBatchSize must be positive");
+    if (windowMillis < 0)
+      throw new IllegalArgumentException("windowMillis cannot be negative");
+    this.entitySetName = entitySetName;
+    this.maxBatchSize = maxBatchSize;
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+  }
+
+  /**
+   * Gets the loader shared by every consumer of an entity set with the same credentials and settings,
+   * creating it on first use.  A batch is read with the consumer of its first lookup, so the consumers
+   * sharing a loader must be configured alike.
+   *
+   * @param serviceUri  the service root uri
+   * @param credentials  identifies the credentials the consumers send, such as a digest of them
+   * @see #EntityLoader(String, int, long)
+   */
+  public static EntityLoader forService(String serviceUri, String credentials, String entitySetName, int maxBatchSize, long windowMillis) {
+    String key = serviceUri + " " + credentials + " " + entitySetName + " " + maxBatchSize + " " + windowMillis;
+    EntityLoader rt = LOADERS.get(key);
+    if (rt == null) {
+      rt = new EntityLoader(entitySetName, maxBatchSize, windowMillis);
+      EntityLoader existing = LOADERS.putIfAbsent(key, rt);
+      if (existing != null)
+        rt = existing;
+    }
+    return rt;
+  }
+
+  public String getEntitySetName() {
+    return entitySetName;
+  }
+
+  /**
+   * Loads an entity.
+   *
+   * @param consumer  the consumer of the caller, which reads the batch if this lookup starts it
+   * @param key  the key of the entity
+   * @return the entity, or null if there is none with that key
+   */
+  public OEntity load(ODataConsumer consumer, OEntityKey key) {
+    String matchKey = toMatchKey(key);
+    Batch batch;
+    boolean dispatching = false;
+    synchronized (this) {
+      if (current == null) {
+        current = new Batch();
+        dispatching = true;
+      }
+      batch = current;
+      batch.keys.put(matchKey, key);
+      if (batch.keys.size() >= maxBatchSize) {
+        current = null;
+        notifyAll();
+      }
+    }
+
+    if (dispatching) {
+      waitForBatch(batch);
+      batch.dispatch(consumer);
+    }
+    return batch.get(matchKey);
+  }
+
+  private synchronized void waitForBatch(Batch batch) {
+    long deadline = System.nanoTime() + windowNanos;
+    try {
+      for (long remaining = windowNanos; current == batch && remaining > 0; remaining = deadline - System.nanoTime())
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+    } catch (InterruptedException e) {
+      // dispatch right away, the lookups that joined the batch are waiting for it
+      Thread.currentThread().interrupt();
+    } finally {
+      if (current == batch)
+        current = null;
+    }
+  }
+
+  private synchronized List<String> getKeyNames(ODataConsumer consumer) {
+    if (keyNames == null)
+      keyNames = consumer.getMetadata().getEdmEntitySet(entitySetName).getType().getKeys();
+    return keyNames;
+  }
+
+  private String toFilter(List<String> keyNames, OEntityKey key) {
+    if (key.getKeyType() == OEntityKey.KeyType.SINGLE)
+      return keyNames.get(0) + " eq " + toLiteral(key.asSingleValue());
+
+    StringBuilder filter = new StringBuilder("(");
+    for (NamedValue<?> value : key.asComplexValue()) {
+      if (filter.length() > 1)
+        filter.append(" and ");
+      filter.append(value.getName()).append(" eq ").append(toLiteral(value.getValue()));
+    }
+    return filter.append(')').toString();
+  }
+
+  private static String toLiteral(Object value) {
+    if (value instanceof NamedValue<?>)
+      value = ((NamedValue<?>) value).getValue();
+    return Expression.asFilterString(Expression.literal(value));
+  }
+
+  // keys are matched by value, as the key of a returned entity may not have the type of the requested one
+  private static String toMatchKey(OEntityKey key) {
+    if (key.getKeyType() == OEntityKey.KeyType.SINGLE) {
+      Object value = key.asSingleValue();
+      return String.valueOf(value instanceof NamedValue<?> ? ((NamedValue<?>) value).getValue() : value);
+    }
+    Map<String, Object> values = new TreeMap<String, Object>();
+    for (NamedValue<?> value : key.asComplexValue())
+      values.put(value.getName(), value.getValue());
+    return values.toString();
+  }
+
+  private static String toMatchKey(List<String> names, OEntity entity) {
+    if (names.size() == 1) {
+      OProperty<?> property = entity.getProperty(names.get(0));
+      return String.valueOf(property.getValue());
+    }
+    Map<String, Object> values = new TreeMap<String, Object>();
+    for (String name : names)
+      values.put(name, entity.getProperty(name).getValue());
+    return values.toString();
+  }
+
+  private class Batch {
+
+    private final Map<String, OEntityKey> keys = new LinkedHashMap<String, OEntityKey>();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private Map<String, OEntity> entities;
+    private RuntimeException failure;
+
+    void dispatch(ODataConsumer consumer) {
+      try {
+        List<OEntityKey> batchKeys;
+        synchronized (EntityLoader.this) {
+          batchKeys = new ArrayList<OEntityKey>(keys.values());
+        }
+        List<String> keyNames = getKeyNames(consumer);
+        StringBuilder filter = new StringBuilder();
+        for (OEntityKey key : batchKeys) {
+          if (filter.length() > 0)
+            filter.append(" or ");
+          filter.append(toFilter(keyNames, key));
+        }
+
+        Map<String, OEntity> rt = new HashMap<String, OEntity>();
+        for (OEntity entity : consumer.getEntities(entitySetName).filter(filter.toString()).execute())
+          rt.put(toMatchKey(keyNames, entity), entity);
+        entities = rt;
+      } catch (RuntimeException e) {
+        failure = e;
+      } finally {
+        done.countDown();
+      }
+    }
+
+    OEntity get(String matchKey) {
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw Throwables.propagate(e);
+      }
+      if (failure != null)
+        throw failure;
+      return entities.get(matchKey);
+    }
+
+  }
+
+}
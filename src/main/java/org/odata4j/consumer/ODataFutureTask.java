@@ -0,0 +1,94 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+import org.odata4j.core.ODataCallback;
+import org.odata4j.core.ODataFuture;
+
+/**
+ * An {@link ODataFuture} that runs a request, for consumers to send requests asynchronously on an executor.
+ *
+ * @param <T>  the java-type of the request response
+ */
+public class ODataFutureTask<T> extends FutureTask<T> implements ODataFuture<T> {
+
+  private static final Logger logger = Logger.getLogger(ODataFutureTask.class);
+
+  private final List<ODataCallback<? super T>> callbacks = new ArrayList<ODataCallback<? super T>>();
+  private boolean notified;
+
+  public ODataFutureTask(Callable<T> request) {
+    super(request);
+  }
+
+  @Override
+  public ODataFuture<T> addCallback(ODataCallback<? super T> callback) {
+    synchronized (callbacks) {
+      if (!notified) {
+        callbacks.add(callback);
+        return this;
+      }
+    }
+    notifyCallback(callback);
+    return this;
+  }
+
+  @Override
+  protected void done() {
+    List<ODataCallback<? super T>> toNotify;
+    synchronized (callbacks) {
+      notified = true;
+      toNotify = new ArrayList<ODataCallback<? super T>>(callbacks);
+      callbacks.clear();
+    }
+    for (ODataCallback<? super T> callback : toNotify)
+      notifyCallback(callback);
+  }
+
+  private void notifyCallback(ODataCallback<? super T> callback) {
+    T result;
+    try {
+      // already done, so this doesn't block
+      result = get();
+    } catch (ExecutionException e) {
+      notifyFailure(callback, e.getCause());
+      return;
+    } catch (CancellationException e) {
+      notifyFailure(callback, e);
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      notifyFailure(callback, e);
+      return;
+    }
+    try {
+      callback.onSuccess(result);
+    } catch (RuntimeException e) {
+      logger.warn("Callback failed handling a response", e);
+    }
+  }
+
+  private void notifyFailure(ODataCallback<? super T> callback, Throwable cause) {
+    try {
+      callback.onFailure(cause);
+    } catch (RuntimeException e) {
+      logger.warn("Callback failed handling a failure", e);
+    }
+  }
+
+}
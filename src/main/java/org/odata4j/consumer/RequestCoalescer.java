@@ -0,0 +1,152 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.odata4j.core.Throwables;
+
+/**
+ * Lets concurrent identical requests share a single execution.
+ *
+ * <p>The first caller for a key executes the request while later callers for the same key wait for
+ * its result, or its failure, instead of executing it again.  A successful result can also be kept
+ * for a short time so that a burst of identical requests shares it as well.  Failures are never kept.</p>
+ *
+ * @param <K>  the type of the keys identifying identical requests
+ * @param <V>  the type of the results
+ */
+public class RequestCoalescer<K, V> {
+
+  private static final ConcurrentMap<String, RequestCoalescer<String, Object>> COALESCERS = new ConcurrentHashMap<String, RequestCoalescer<String, Object>>();
+
+  private final ConcurrentMap<K, Flight> flights = new ConcurrentHashMap<K, Flight>();
+  private final long resultTtlNanos;
+
+  /**
+   * Creates a new coalescer.
+   *
+   * @param resultTtlMillis  how long a successful result is shared after its request completes, in milliseconds,
+   *        or 0 to only share it with the requests made while it was in flight
+   */
+  public RequestCoalescer(long resultTtlMillis) {
+    if (resultTtlMillis < 0)
+      throw new IllegalArgumentException("resultTtlMillis cannot be negative");
+    this.resultTtlNanos = TimeUnit.MILLISECONDS.toNanos(resultTtlMillis);
+  }
+
+  /**
+   * Gets the coalescer shared by every consumer of a service with the same settings, creating it on first use.
+   * Consumers sending different credentials must tell their requests apart in the keys.
+   *
+   * @param serviceUri  the service root uri
+   * @param resultTtlMillis  how long a successful result is shared after its request completes, in milliseconds
+   * @see #RequestCoalescer(long)
+   */
+  public static RequestCoalescer<String, Object> forService(String serviceUri, long resultTtlMillis) {
+    String key = serviceUri + " " + resultTtlMillis;
+    RequestCoalescer<String, Object> rt = COALESCERS.get(key);
+    if (rt == null) {
+      rt = new RequestCoalescer<String, Object>(resultTtlMillis);
+      RequestCoalescer<String, Object> existing = COALESCERS.putIfAbsent(key, rt);
+      if (existing != null)
+        rt = existing;
+    }
+    return rt;
+  }
+
+  /**
+   * Gets the result of a request, executing it only if no identical request is in flight or was
+   * completed less than the result ttl ago.
+   *
+   * @param key  identifies the request
+   * @param request  executes the request
+   * @return the result of the request
+   */
+  public V execute(K key, Callable<V> request) {
+    Flight flight = flights.get(key);
+    if (flight != null && flight.isExpired(System.nanoTime())) {
+      flights.remove(key, flight);
+      flight = null;
+    }
+
+    if (flight == null) {
+      Flight newFlight = new Flight(request);
+      flight = flights.putIfAbsent(key, newFlight);
+      if (flight == null) {
+        flight = newFlight;
+        try {
+          flight.run();
+        } finally {
+          flight.completedAt = System.nanoTime();
+          flight.completed = true;
+          if (resultTtlNanos == 0 || flight.isFailed())
+            flights.remove(key, flight);
+          else
+            evictExpired(flight.completedAt);
+        }
+      }
+    }
+
+    try {
+      return flight.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Gets the number of requests in flight or whose result is still shared.
+   */
+  public int size() {
+    return flights.size();
+  }
+
+  private void evictExpired(long now) {
+    for (Iterator<Flight> it = flights.values().iterator(); it.hasNext();) {
+      if (it.next().isExpired(now))
+        it.remove();
+    }
+  }
+
+  private class Flight extends FutureTask<V> {
+
+    private volatile boolean completed;
+    private volatile long completedAt;
+
+    Flight(Callable<V> request) {
+      super(request);
+    }
+
+    boolean isExpired(long now) {
+      return completed && now - completedAt >= resultTtlNanos;
+    }
+
+    boolean isFailed() {
+      try {
+        get();
+        return false;
+      } catch (Exception e) {
+        return true;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,328 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, least recently used cache of parsed read responses, following http caching rules.
+ *
+ * <p>A response is fresh for the <code>max-age</code> of its <code>Cache-Control</code> header, or until
+ * its <code>Expires</code> date.  Fresh responses are used without asking the service.  Stale responses
+ * are revalidated with their <code>ETag</code> or <code>Last-Modified</code> validators, and used again
+ * when the service answers <code>304 Not Modified</code>.  Responses with <code>no-store</code>, or with
+ * neither freshness nor validators, are not cached.</p>
+ *
+ * <p>Entries are tagged with the entity sets they were read from so that writing to a set invalidates
+ * them.  Use {@link #forService(String, int)} to share one cache between every consumer of the same service
+ * and settings.  Writing through any of the caches of a service invalidates them all.</p>
+ */
+public class ResponseCache {
+
+  private static final ConcurrentMap<String, ResponseCache> CACHES = new ConcurrentHashMap<String, ResponseCache>();
+  // guarded by CACHES
+  private static final Map<String, List<ResponseCache>> SERVICE_CACHES = new HashMap<String, List<ResponseCache>>();
+
+  private final Map<String, Entry> entries;
+  private final List<ResponseCache> serviceCaches;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Creates a new cache.
+   *
+   * @param maxEntries  the maximum number of responses kept
+   */
+  public ResponseCache(int maxEntries) {
+    this(maxEntries, null);
+  }
+
+  private ResponseCache(final int maxEntries, List<ResponseCache> serviceCaches) {
+    if (maxEntries < 1)
+      throw new IllegalArgumentException("maxEntries must be positive");
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ResponseCache.Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+    this.serviceCaches = serviceCaches == null ? Collections.singletonList(this) : serviceCaches;
+  }
+
+  /**
+   * Gets the cache shared by every consumer of a service with the same settings, creating it on first use.
+   * Consumers configured with other settings, such as after a configuration change, get a cache of their own,
+   * which is still invalidated along with the other caches of the service.
+   *
+   * @param serviceUri  the service root uri
+   * @param maxEntries  the maximum number of responses kept
+   */
+  public static ResponseCache forService(String serviceUri, int maxEntries) {
+    String key = serviceUri + " " + maxEntries;
+    ResponseCache rt = CACHES.get(key);
+    if (rt == null) {
+      synchronized (CACHES) {
+        rt = CACHES.get(key);
+        if (rt == null) {
+          List<ResponseCache> serviceCaches = SERVICE_CACHES.get(serviceUri);
+          if (serviceCaches == null) {
+            serviceCaches = new CopyOnWriteArrayList<ResponseCache>();
+            SERVICE_CACHES.put(serviceUri, serviceCaches);
+          }
+          rt = new ResponseCache(maxEntries, serviceCaches);
+          serviceCaches.add(rt);
+          CACHES.put(key, rt);
+        }
+      }
+    }
+    return rt;
+  }
+
+  /**
+   * Gets the cached response of a request, fresh or not, or null if none.
+   *
+   * @param key  identifies the request, including whose credentials it is sent with
+   */
+  public Entry get(String key) {
+    synchronized (entries) {
+      return entries.get(key);
+    }
+  }
+
+  /**
+   * Caches a response, if its headers allow it.
+   *
+   * @param key  identifies the request, including whose credentials it is sent with
+   * @param value  the parsed response, which must not be modified once cached
+   * @param entitySetNames  the entity sets the response was read from, or null if they are not known,
+   *        in which case any write invalidates it
+   * @param cacheControl  the <code>Cache-Control</code> header, or null
+   * @param expires  the <code>Expires</code> header, or null
+   * @param date  the <code>Date</code> header, or null
+   * @param etag  the <code>ETag</code> header, or null
+   * @param lastModified  the <code>Last-Modified</code> header, or null
+   * @return whether the response was cached
+   */
+  public boolean put(String key, Object value, Collection<String> entitySetNames, String cacheControl, String expires, String date, String etag, String lastModified) {
+    long freshUntil = getFreshUntil(cacheControl, expires, date, System.currentTimeMillis());
+    if (freshUntil < 0 || (freshUntil <= System.currentTimeMillis() && etag == null && lastModified == null)) {
+      remove(key);
+      return false;
+    }
+    Set<String> sets = entitySetNames == null ? null : Collections.unmodifiableSet(new HashSet<String>(entitySetNames));
+    synchronized (entries) {
+      entries.put(key, new Entry(value, sets, etag, lastModified, freshUntil));
+    }
+    return true;
+  }
+
+  /**
+   * Marks a stale response as fresh again after the service answered <code>304 Not Modified</code>,
+   * with the freshness headers of that answer.
+   */
+  public void revalidated(Entry entry, String cacheControl, String expires, String date) {
+    long freshUntil = getFreshUntil(cacheControl, expires, date, System.currentTimeMillis());
+    entry.freshUntil = Math.max(freshUntil, 0);
+    revalidations.incrementAndGet();
+  }
+
+  public void remove(String key) {
+    synchronized (entries) {
+      entries.remove(key);
+    }
+  }
+
+  /**
+   * Removes the responses read from the given entity sets, and those whose entity sets are not known,
+   * from every cache of the service.
+   */
+  public void invalidate(String... entitySetNames) {
+    for (ResponseCache cache : serviceCaches)
+      cache.removeEntitySets(entitySetNames);
+  }
+
+  /**
+   * Removes every response from every cache of the service.
+   */
+  public void invalidateAll() {
+    for (ResponseCache cache : serviceCaches)
+      cache.clear();
+  }
+
+  private void removeEntitySets(String... entitySetNames) {
+    synchronized (entries) {
+      for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+        Set<String> sets = it.next().entitySetNames;
+        if (sets == null) {
+          it.remove();
+          continue;
+        }
+        for (String entitySetName : entitySetNames) {
+          if (sets.contains(entitySetName)) {
+            it.remove();
+            break;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes every response from this cache only.
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * Gets the number of reads answered by a fresh response, without asking the service.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of reads answered by a stale response the service reported unchanged.
+   */
+  public long getRevalidatedCount() {
+    return revalidations.get();
+  }
+
+  /**
+   * Gets the number of reads that had to be sent and parsed in full.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Records the outcome of a read: a hit if the response was fresh, a miss otherwise.
+   * Revalidations are recorded by {@link #revalidated(Entry, String, String, String)}.
+   */
+  public void record(boolean hit) {
+    if (hit)
+      hits.incrementAndGet();
+    else
+      misses.incrementAndGet();
+  }
+
+  /**
+   * Gets until when a response is fresh.
+   *
+   * @return the time in milliseconds until which the response is fresh, which is not after
+   *         <code>now</code> if it must be revalidated before use, or -1 if it must not be stored
+   */
+  static long getFreshUntil(String cacheControl, String expires, String date, long now) {
+    if (cacheControl != null) {
+      long maxAge = -1;
+      for (String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+        directive = directive.trim();
+        if (directive.equals("no-store"))
+          return -1;
+        if (directive.equals("no-cache"))
+          return now;
+        if (directive.startsWith("max-age=")) {
+          try {
+            maxAge = Long.parseLong(directive.substring("max-age=".length()).trim());
+          } catch (NumberFormatException e) {
+            return now;
+          }
+        }
+      }
+      if (maxAge >= 0)
+        return now + maxAge * 1000;
+    }
+
+    if (expires != null) {
+      // invalid dates, such as 0, mean already expired
+      long expiresAt = parseDate(expires);
+      long sentAt = date == null ? -1 : parseDate(date);
+      if (expiresAt < 0)
+        return now;
+      return now + Math.max(0, expiresAt - (sentAt < 0 ? now : sentAt));
+    }
+    return now;
+  }
+
+  private static long parseDate(String value) {
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    try {
+      return format.parse(value.trim()).getTime();
+    } catch (ParseException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * A cached response.
+   */
+  public static class Entry {
+
+    private final Object value;
+    private final Set<String> entitySetNames;
+    private final String etag;
+    private final String lastModified;
+    private volatile long freshUntil;
+
+    private Entry(Object value, Set<String> entitySetNames, String etag, String lastModified, long freshUntil) {
+      this.value = value;
+      this.entitySetNames = entitySetNames;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.freshUntil = freshUntil;
+    }
+
+    public Object getValue() {
+      return value;
+    }
+
+    public String getETag() {
+      return etag;
+    }
+
+    public String getLastModified() {
+      return lastModified;
+    }
+
+    public boolean isFresh() {
+      return System.currentTimeMillis() < freshUntil;
+    }
+
+  }
+
+}
@@ -0,0 +1,156 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.odata4j.core.Throwables;
+
+/**
+ * When and how long to wait before retrying a failed request.
+ *
+ * <p>Only idempotent requests are retried, on I/O errors or on one of the retryable response statuses.
+ * The wait doubles with every retry, up to a maximum, and is randomized between half and all of it so
+ * that clients failing together don't retry together.  A longer wait asked by a <code>Retry-After</code>
+ * header is honored up to the maximum; requests asked to wait longer than that are not retried.</p>
+ */
+public class RetryPolicy {
+
+  /** The statuses retried by default: 408, 429, 500, 502, 503 and 504. */
+  public static final Set<Integer> DEFAULT_RETRYABLE_STATUSES = Collections.unmodifiableSet(new HashSet<Integer>(Arrays.asList(408, 429, 500, 502, 503, 504)));
+
+  private static final Set<String> IDEMPOTENT_METHODS = new HashSet<String>(Arrays.asList("GET", "HEAD", "OPTIONS", "PUT", "DELETE"));
+
+  private final int maxAttempts;
+  private final long initialBackoffMillis;
+  private final long maxBackoffMillis;
+  private final Set<Integer> retryableStatuses;
+  private final Random random = new Random();
+
+  /**
+   * Creates a new retry policy.
+   *
+   * @param maxAttempts  the maximum number of attempts per request, including the first one
+   * @param initialBackoffMillis  the wait before the first retry, in milliseconds
+   * @param maxBackoffMillis  the maximum wait between attempts, in milliseconds
+   * @param retryableStatuses  the response statuses to retry, or null for {@link #DEFAULT_RETRYABLE_STATUSES}
+   */
+  public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, Set<Integer> retryableStatuses) {
+    if (maxAttempts < 1)
+      throw new IllegalArgumentException("maxAttempts must be positive");
+    if (initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis)
+      throw new IllegalArgumentException("backoffs cannot be negative and maxBackoffMillis cannot be less than initialBackoffMillis");
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffMillis = initialBackoffMillis;
+    this.maxBackoffMillis = maxBackoffMillis;
+    this.retryableStatuses = retryableStatuses == null
+        ? DEFAULT_RETRYABLE_STATUSES
+        : Collections.unmodifiableSet(new HashSet<Integer>(retryableStatuses));
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getInitialBackoffMillis() {
+    return initialBackoffMillis;
+  }
+
+  public long getMaxBackoffMillis() {
+    return maxBackoffMillis;
+  }
+
+  public Set<Integer> getRetryableStatuses() {
+    return retryableStatuses;
+  }
+
+  /**
+   * Tells whether a request with the given http method can be sent again without side effects.
+   */
+  public boolean isIdempotent(String method) {
+    return method != null && IDEMPOTENT_METHODS.contains(method.toUpperCase());
+  }
+
+  public boolean isRetryableStatus(int status) {
+    return retryableStatuses.contains(status);
+  }
+
+  /**
+   * Tells whether a request can be retried after the wait asked by a <code>Retry-After</code> header,
+   * that is, whether the wait is no longer than the maximum backoff.
+   *
+   * @param retryAfterMillis  the wait asked by the service, or a negative number if none
+   */
+  public boolean canRetryAfter(long retryAfterMillis) {
+    return retryAfterMillis <= maxBackoffMillis;
+  }
+
+  /**
+   * Tells whether a failure was caused by an I/O error, such as a reset connection or a read timeout.
+   */
+  public boolean isTransient(Throwable failure) {
+    for (Throwable t = failure; t != null; t = getCause(t)) {
+      if (t instanceof IOException)
+        return true;
+      if (getCause(t) == t)
+        break;
+    }
+    return false;
+  }
+
+  // the stax parser keeps the I/O error of a failed read as nested exception, not as cause
+  private static Throwable getCause(Throwable t) {
+    if (t.getCause() == null && t instanceof XMLStreamException)
+      return ((XMLStreamException) t).getNestedException();
+    return t.getCause();
+  }
+
+  /**
+   * Gets the time to wait before a retry.
+   *
+   * @param retry  the number of the retry, starting at 1
+   * @param retryAfterMillis  the wait asked by the service, or a negative number if none
+   * @return the time to wait in milliseconds, never more than the maximum backoff
+   */
+  public long getBackoffMillis(int retry, long retryAfterMillis) {
+    long backoff = initialBackoffMillis;
+    for (int i = 1; i < retry && backoff < maxBackoffMillis; i++)
+      backoff *= 2;
+    backoff = Math.min(backoff, maxBackoffMillis);
+    long half = backoff / 2;
+    long rt;
+    synchronized (random) {
+      rt = half + (long) (random.nextDouble() * (backoff - half));
+    }
+    return Math.min(Math.max(rt, retryAfterMillis), maxBackoffMillis);
+  }
+
+  /**
+   * Waits before a retry.
+   *
+   * @see #getBackoffMillis(int, long)
+   */
+  public void backoff(int retry, long retryAfterMillis) {
+    try {
+      Thread.sleep(getBackoffMillis(retry, retryAfterMillis));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    }
+  }
+
+}
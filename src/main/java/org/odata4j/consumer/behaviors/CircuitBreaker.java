@@ -0,0 +1,247 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer.behaviors;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Stops sending requests to a service that keeps failing or answering slowly, so that callers fail fast
+ * instead of waiting on it.
+ *
+ * <p>While <b>closed</b>, the outcome of the last calls is kept in a sliding window.  Once at least half
+ * the window is filled, the breaker <b>opens</b> if the rate of failed calls or of slow calls reaches its
+ * threshold.  While open, every call is rejected with a {@link CircuitBreakerOpenException}.  After the open
+ * duration the breaker is <b>half open</b> and lets a few trial calls through: it closes again if they go
+ * well, and opens again otherwise.</p>
+ *
+ * <p>Breakers are thread-safe.  Use {@link #forService(String, int, int, int, long, long, int)} to share one
+ * breaker between every consumer of the same service and settings.</p>
+ */
+public class CircuitBreaker {
+
+  /**
+   * The states of a breaker.
+   */
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private static final Logger logger = Logger.getLogger(CircuitBreaker.class);
+  private static final ConcurrentMap<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<String, CircuitBreaker>();
+
+  private static final int FAILED = 1;
+  private static final int SLOW = 2;
+
+  private final String name;
+  private final int failureRateThreshold;
+  private final int slowCallRateThreshold;
+  private final long slowCallDurationNanos;
+  private final long openDurationNanos;
+  private final int halfOpenCalls;
+  private final int[] window;
+  private final AtomicLong[] transitions = new AtomicLong[State.values().length];
+  private final AtomicLong rejectedCalls = new AtomicLong();
+
+  private State state = State.CLOSED;
+  private long generation;
+  private long openedAt;
+  private int next;
+  private int recorded;
+  private int failed;
+  private int slow;
+  private int halfOpenPermits;
+
+  /**
+   * Creates a new breaker.
+   *
+   * @param name  identifies the breaker in logs and exceptions, such as the service uri
+   * @param failureRateThreshold  the percentage of failed calls that opens the breaker
+   * @param slowCallRateThreshold  the percentage of slow calls that opens the breaker
+   * @param windowSize  the number of recent calls the rates are computed from
+   * @param slowCallDurationMillis  the duration from which a call counts as slow, in milliseconds
+   * @param openDurationMillis  how long the breaker stays open before letting trial calls through, in milliseconds
+   * @param halfOpenCalls  the number of trial calls let through while half open
+   */
+  public CircuitBreaker(String name, int failureRateThreshold, int slowCallRateThreshold, int windowSize, long slowCallDurationMillis, long openDurationMillis, int halfOpenCalls) {
+    if (failureRateThreshold < 1 || failureRateThreshold > 100 || slowCallRateThreshold < 1 || slowCallRateThreshold > 100)
+      throw new IllegalArgumentException("rate thresholds must be between 1 and 100");
+    if (windowSize < 1 || halfOpenCalls < 1 || slowCallDurationMillis < 0 || openDurationMillis < 0)
+      throw new IllegalArgumentException("windowSize and halfOpenCalls must be positive and durations cannot be negative");
+    this.name = name;
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDurationMillis);
+    this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+    this.halfOpenCalls = halfOpenCalls;
+    this.window = new int[windowSize];
+    for (int i = 0; i < transitions.length; i++)
+      transitions[i] = new AtomicLong();
+  }
+
+  /**
+   * Gets the breaker shared by every consumer of a service with the same settings, creating it on first use.
+   * Consumers configured with other settings, such as after a configuration change, get a breaker of their own.
+   *
+   * @param serviceUri  the service root uri
+   * @see #CircuitBreaker(String, int, int, int, long, long, int)
+   */
+  public static CircuitBreaker forService(String serviceUri, int failureRateThreshold, int slowCallRateThreshold, int windowSize, long slowCallDurationMillis, long openDurationMillis, int halfOpenCalls) {
+    String key = serviceUri + " " + failureRateThreshold + " " + slowCallRateThreshold + " " + windowSize + " " + slowCallDurationMillis
+        + " " + openDurationMillis + " " + halfOpenCalls;
+    CircuitBreaker rt = BREAKERS.get(key);
+    if (rt == null) {
+      rt = new CircuitBreaker(serviceUri, failureRateThreshold, slowCallRateThreshold, windowSize, slowCallDurationMillis, openDurationMillis, halfOpenCalls);
+      CircuitBreaker existing = BREAKERS.putIfAbsent(key, rt);
+      if (existing != null)
+        rt = existing;
+    }
+    return rt;
+  }
+
+  /**
+   * Asks to make a call.  The outcome of the call must then be passed to {@link #record(Permit, boolean)}.
+   *
+   * @return the permission to make the call
+   * @throws CircuitBreakerOpenException if the breaker rejects the call
+   */
+  public synchronized Permit acquire() {
+    if (state == State.OPEN && System.nanoTime() - openedAt >= openDurationNanos)
+      transitionTo(State.HALF_OPEN);
+    if (state == State.OPEN || (state == State.HALF_OPEN && halfOpenPermits == 0)) {
+      rejectedCalls.incrementAndGet();
+      throw new CircuitBreakerOpenException(name, state);
+    }
+    if (state == State.HALF_OPEN)
+      halfOpenPermits--;
+    return new Permit(generation, System.nanoTime());
+  }
+
+  /**
+   * Records the outcome of a call.
+   *
+   * @param permit  the permission the call was made with
+   * @param failed  whether the call failed
+   */
+  public void record(Permit permit, boolean failed) {
+    record(permit, failed, permit.startedAt);
+  }
+
+  /**
+   * Records the outcome of a call that was sent some time after its permit was given, for example after
+   * waiting for a {@link RateLimiter}.  Its duration is measured from when it was sent.
+   *
+   * @param permit  the permission the call was made with
+   * @param failed  whether the call failed
+   * @param sentAt  the {@link System#nanoTime()} at which the call was sent
+   */
+  public synchronized void record(Permit permit, boolean failed, long sentAt) {
+    // calls made before the last transition say nothing about the current state
+    if (permit.generation != generation)
+      return;
+    int outcome = (failed ? FAILED : 0) | (System.nanoTime() - sentAt >= slowCallDurationNanos ? SLOW : 0);
+
+    int evicted = recorded == window.length ? window[next] : 0;
+    if (recorded < window.length)
+      recorded++;
+    window[next] = outcome;
+    next = (next + 1) % window.length;
+    this.failed += ((outcome & FAILED) - (evicted & FAILED));
+    this.slow += ((outcome & SLOW) - (evicted & SLOW)) / SLOW;
+
+    if (state == State.HALF_OPEN) {
+      if (recorded >= Math.min(halfOpenCalls, window.length))
+        transitionTo(isAboveThresholds() ? State.OPEN : State.CLOSED);
+    } else if (state == State.CLOSED && recorded * 2 >= window.length && isAboveThresholds()) {
+      transitionTo(State.OPEN);
+    }
+  }
+
+  private boolean isAboveThresholds() {
+    return failed * 100 >= failureRateThreshold * recorded || slow * 100 >= slowCallRateThreshold * recorded;
+  }
+
+  private void transitionTo(State newState) {
+    if (newState == State.OPEN)
+      logger.warn(String.format("Circuit breaker %s opened: %d%% failed and %d%% slow calls", name, getFailureRate(), getSlowCallRate()));
+    else if (logger.isInfoEnabled())
+      logger.info(String.format("Circuit breaker %s is now %s", name, newState));
+
+    state = newState;
+    generation++;
+    transitions[newState.ordinal()].incrementAndGet();
+    next = 0;
+    recorded = 0;
+    failed = 0;
+    slow = 0;
+    if (newState == State.OPEN)
+      openedAt = System.nanoTime();
+    if (newState == State.HALF_OPEN)
+      halfOpenPermits = halfOpenCalls;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the current state.  An open breaker whose open duration has elapsed is reported open until the next call.
+   */
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * Gets the percentage of failed calls among the calls recorded in the current state.
+   */
+  public synchronized int getFailureRate() {
+    return recorded == 0 ? 0 : failed * 100 / recorded;
+  }
+
+  /**
+   * Gets the percentage of slow calls among the calls recorded in the current state.
+   */
+  public synchronized int getSlowCallRate() {
+    return recorded == 0 ? 0 : slow * 100 / recorded;
+  }
+
+  /**
+   * Gets the number of times the breaker went into a state.
+   */
+  public long getTransitionCount(State state) {
+    return transitions[state.ordinal()].get();
+  }
+
+  /**
+   * Gets the number of calls rejected so far.
+   */
+  public long getRejectedCount() {
+    return rejectedCalls.get();
+  }
+
+  /**
+   * The permission to make a call, given by {@link CircuitBreaker#acquire()}.
+   */
+  public static class Permit {
+
+    private final long generation;
+    private final long startedAt;
+
+    private Permit(long generation, long startedAt) {
+      this.generation = generation;
+      this.startedAt = startedAt;
+    }
+  }
+
+}
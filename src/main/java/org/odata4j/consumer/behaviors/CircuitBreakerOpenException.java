@@ -0,0 +1,36 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer.behaviors;
+
+/**
+ * Thrown instead of sending a request while a {@link CircuitBreaker} is open.
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String breakerName;
+  private final CircuitBreaker.State state;
+
+  public CircuitBreakerOpenException(String breakerName, CircuitBreaker.State state) {
+    super(String.format("Circuit breaker %s is %s, request not sent", breakerName, state));
+    this.breakerName = breakerName;
+    this.state = state;
+  }
+
+  public String getBreakerName() {
+    return breakerName;
+  }
+
+  public CircuitBreaker.State getState() {
+    return state;
+  }
+
+}
@@ -10,7 +10,6 @@
 package org.odata4j.consumer.behaviors;
 
 import org.odata4j.consumer.ODataClientRequest;
-import org.odata4j.core.Throwables;
 
 /**
  * A static factory to create built-in {@link OClientBehavior} instances.
@@ -52,20 +51,28 @@ public class OClientBehaviors {
   }
 
   /**
-   * Creates a behavior that sleeps a specified amount of time before each client request.
+   * Creates a behavior that lets at most one client request through every specified amount of time,
+   * across all the threads using it.
    *
-   * @param millis  the time to sleep in milliseconds
-   * @return a behavior that sleeps a specified amount of time before each client request
+   * @param millis  the minimum time between requests in milliseconds, or zero or less to let requests through unlimited
+   * @return a behavior that spaces client requests by a specified amount of time
+   * @see RateLimiter
    */
   public static OClientBehavior rateLimit(final long millis) {
+    if (millis <= 0) {
+      return new OClientBehavior() {
+        @Override
+        public ODataClientRequest transform(ODataClientRequest request) {
+          return request;
+        }
+      };
+    }
+    final RateLimiter limiter = new RateLimiter(1000d / millis, 1, 0, true);
     return new OClientBehavior() {
       @Override
       public ODataClientRequest transform(ODataClientRequest request) {
-        try {
-          Thread.sleep(millis);
-        } catch (InterruptedException e) {
-          throw Throwables.propagate(e);
-        }
+        limiter.acquire();
+        limiter.release();
         return request;
       }
     };
@@ -0,0 +1,165 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer.behaviors;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.odata4j.core.Throwables;
+
+/**
+ * Limits the rate and the concurrency of the requests sent to a service.
+ *
+ * <p>The rate is limited by a token bucket: tokens are added at a steady rate up to a maximum burst,
+ * and each request takes one, waiting for it if the bucket is empty.  Concurrency is limited by a number
+ * of in-flight permits.  A limiter can also be paused, for example when the service answers
+ * <code>429 Too Many Requests</code> with a <code>Retry-After</code> header.</p>
+ *
+ * <p>Limiters are thread-safe.  Use {@link #forService(String, double, int, int, boolean)} to share one
+ * limiter between every consumer of the same service and settings, since they share its quota.</p>
+ */
+public class RateLimiter {
+
+  private static final ConcurrentMap<String, RateLimiter> LIMITERS = new ConcurrentHashMap<String, RateLimiter>();
+
+  private final double permitsPerNano;
+  private final int burst;
+  private final int maxConcurrent;
+  private final Semaphore inFlight;
+  private final ReentrantLock waiters;
+  private double tokens;
+  private long lastRefill;
+  private long pausedUntil;
+
+  /**
+   * Creates a new limiter.
+   *
+   * @param permitsPerSecond  the sustained number of requests per second, or 0 for no rate limit
+   * @param burst  the maximum number of requests that can be sent at once after a quiet period
+   * @param maxConcurrent  the maximum number of requests in flight, or 0 for no concurrency limit
+   * @param fair  whether waiting requests are let through in arrival order
+   */
+  public RateLimiter(double permitsPerSecond, int burst, int maxConcurrent, boolean fair) {
+    if (permitsPerSecond < 0 || maxConcurrent < 0)
+      throw new IllegalArgumentException("permitsPerSecond and maxConcurrent cannot be negative");
+    this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.burst = Math.max(1, burst);
+    this.maxConcurrent = maxConcurrent;
+    this.inFlight = maxConcurrent == 0 ? null : new Semaphore(maxConcurrent, fair);
+    this.waiters = new ReentrantLock(fair);
+    this.tokens = this.burst;
+    this.lastRefill = System.nanoTime();
+    this.pausedUntil = lastRefill;
+  }
+
+  /**
+   * Gets the limiter shared by every consumer of a service with the same settings, creating it on first use.
+   * Consumers configured with other settings, such as after a configuration change, get a limiter of their own.
+   *
+   * @param serviceUri  the service root uri
+   * @see #RateLimiter(double, int, int, boolean)
+   */
+  public static RateLimiter forService(String serviceUri, double permitsPerSecond, int burst, int maxConcurrent, boolean fair) {
+    String key = serviceUri + " " + permitsPerSecond + " " + burst + " " + maxConcurrent + " " + fair;
+    RateLimiter rt = LIMITERS.get(key);
+    if (rt == null) {
+      rt = new RateLimiter(permitsPerSecond, burst, maxConcurrent, fair);
+      RateLimiter existing = LIMITERS.putIfAbsent(key, rt);
+      if (existing != null)
+        rt = existing;
+    }
+    return rt;
+  }
+
+  /**
+   * Waits until a request can be sent.  Every call must be followed by a call to {@link #release()}.
+   */
+  public void acquire() {
+    try {
+      if (inFlight != null)
+        inFlight.acquire();
+      try {
+        takeToken();
+      } catch (InterruptedException e) {
+        if (inFlight != null)
+          inFlight.release();
+        throw e;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Signals that a request acquired with {@link #acquire()} is no longer in flight.
+   */
+  public void release() {
+    if (inFlight != null)
+      inFlight.release();
+  }
+
+  /**
+   * Holds back every request for a time, for example as asked by a <code>Retry-After</code> header.
+   *
+   * @param millis  the time to pause for, in milliseconds
+   */
+  public void pauseFor(long millis) {
+    long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    synchronized (this) {
+      if (until - pausedUntil > 0)
+        pausedUntil = until;
+      // requests held back by a pause do not come back as a burst
+      tokens = Math.min(tokens, 1);
+    }
+  }
+
+  /**
+   * Gets the number of requests in flight, or 0 if concurrency is not limited.
+   */
+  public int getInFlight() {
+    return inFlight == null ? 0 : maxConcurrent - inFlight.availablePermits();
+  }
+
+  // only one thread waits for a token at a time; with a fair lock, threads get tokens in arrival order
+  private void takeToken() throws InterruptedException {
+    waiters.lockInterruptibly();
+    try {
+      long wait;
+      while ((wait = tryTakeToken()) > 0)
+        TimeUnit.NANOSECONDS.sleep(wait);
+    } finally {
+      waiters.unlock();
+    }
+  }
+
+  // takes a token and returns 0, or returns the time to wait for one
+  private synchronized long tryTakeToken() {
+    long now = System.nanoTime();
+    long wait = pausedUntil - now;
+    if (wait > 0)
+      return wait;
+    if (permitsPerNano == 0)
+      return 0;
+    // no tokens are added while paused
+    long from = lastRefill - pausedUntil < 0 ? pausedUntil : lastRefill;
+    tokens = Math.min(burst, tokens + (now - from) * permitsPerNano);
+    lastRefill = now;
+    if (tokens >= 1) {
+      tokens -= 1;
+      return 0;
+    }
+    return Math.max(1, (long) Math.ceil((1 - tokens) / permitsPerNano));
+  }
+
+}
@@ -0,0 +1,224 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer.streams;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.core4j.Func;
+
+/**
+ * A {@link Publisher} of the elements of an iterator, pulled only as subscribers ask for them.
+ *
+ * <p>Each subscription gets a new iterator, and pulls elements on the executor, one at a time, until the
+ * demand of its subscriber is met.  A lazy iterator, such as the paging iterator of a query, thus only
+ * reads the next page once it is asked for.  Signals to a subscriber are never concurrent, not even with
+ * <code>onSubscribe</code>, as the elements asked for from it are only pulled once it returns, and a
+ * subscriber asking for more elements from <code>onNext</code> does not cause recursion.</p>
+ *
+ * <p>Cancelling a subscription closes its iterator if it is {@link Closeable}, which can abort the read in
+ * progress on the executor.  Failures of the iterator are signalled with <code>onError</code>, unless the
+ * subscription was cancelled.</p>
+ *
+ * @param <T>  the type of the published elements
+ */
+public class IteratorPublisher<T> implements Publisher<T> {
+
+  private static final Logger logger = Logger.getLogger(IteratorPublisher.class);
+
+  private final Func<? extends Iterator<? extends T>> source;
+  private final Executor executor;
+
+  /**
+   * Creates a new publisher.
+   *
+   * @param source  creates the iterator of each subscription, when its first element is asked for
+   * @param executor  the executor pulling the elements and signalling subscribers
+   */
+  public IteratorPublisher(Func<? extends Iterator<? extends T>> source, Executor executor) {
+    if (source == null || executor == null)
+      throw new IllegalArgumentException("source and executor are required");
+    this.source = source;
+    this.executor = executor;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null)
+      throw new NullPointerException("subscriber is required");
+    IteratorSubscription<T> subscription = new IteratorSubscription<T>(source, executor, subscriber);
+    try {
+      subscriber.onSubscribe(subscription);
+    } catch (RuntimeException e) {
+      logger.warn("Subscriber failed in onSubscribe, cancelling its subscription", e);
+      subscription.cancel();
+    }
+    subscription.start();
+  }
+
+  private static class IteratorSubscription<T> implements Subscription, Runnable {
+
+    private final Func<? extends Iterator<? extends T>> source;
+    private final Executor executor;
+    private final Subscriber<? super T> subscriber;
+    private final AtomicLong requested = new AtomicLong();
+    // held at one until onSubscribe returns, so that requests made from it don't start the drain yet
+    private final AtomicInteger pending = new AtomicInteger(1);
+
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    private volatile Iterator<? extends T> iterator;
+
+    IteratorSubscription(Func<? extends Iterator<? extends T>> source, Executor executor, Subscriber<? super T> subscriber) {
+      this.source = source;
+      this.executor = executor;
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        if (invalidRequest == null)
+          invalidRequest = new IllegalArgumentException("request must ask for a positive number of elements, was " + n);
+      } else {
+        // the demand is capped, Long.MAX_VALUE meaning unbounded
+        for (;;) {
+          long current = requested.get();
+          long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+          if (current == Long.MAX_VALUE || requested.compareAndSet(current, next))
+            break;
+        }
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      if (cancelled)
+        return;
+      cancelled = true;
+      close();
+    }
+
+    private void schedule() {
+      // only the first pending call starts the drain, the others are picked up by its loop
+      if (pending.getAndIncrement() == 0)
+        drain();
+    }
+
+    // releases the hold taken until onSubscribe returned, draining the requests made from it
+    void start() {
+      if (pending.decrementAndGet() != 0)
+        drain();
+    }
+
+    private void drain() {
+      try {
+        executor.execute(this);
+      } catch (RuntimeException e) {
+        pending.set(0);
+        terminate(e);
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      for (;;) {
+        if (cancelled)
+          return;
+        if (invalidRequest != null) {
+          terminate(invalidRequest);
+          return;
+        }
+
+        long demand = requested.get();
+        long emitted = 0;
+        while (emitted != demand) {
+          if (cancelled)
+            return;
+          T element;
+          try {
+            if (iterator == null) {
+              iterator = source.apply();
+              // cancel may have missed the new iterator
+              if (cancelled) {
+                close();
+                return;
+              }
+            }
+            if (!iterator.hasNext()) {
+              complete();
+              return;
+            }
+            element = iterator.next();
+          } catch (Throwable e) {
+            // a failure caused by cancelling is not reported
+            if (!cancelled)
+              terminate(e);
+            return;
+          }
+          try {
+            subscriber.onNext(element);
+          } catch (RuntimeException e) {
+            logger.warn("Subscriber failed in onNext, cancelling its subscription", e);
+            cancel();
+            return;
+          }
+          emitted++;
+        }
+
+        if (emitted > 0 && demand != Long.MAX_VALUE)
+          requested.addAndGet(-emitted);
+        missed = pending.addAndGet(-missed);
+        if (missed == 0)
+          return;
+      }
+    }
+
+    private void complete() {
+      cancelled = true;
+      close();
+      try {
+        subscriber.onComplete();
+      } catch (RuntimeException e) {
+        logger.warn("Subscriber failed in onComplete", e);
+      }
+    }
+
+    private void terminate(Throwable cause) {
+      cancelled = true;
+      close();
+      try {
+        subscriber.onError(cause);
+      } catch (RuntimeException e) {
+        logger.warn("Subscriber failed in onError", e);
+      }
+    }
+
+    private void close() {
+      Iterator<? extends T> it = iterator;
+      if (it instanceof Closeable) {
+        try {
+          ((Closeable) it).close();
+        } catch (IOException e) {
+          logger.warn("Could not close the iterator of a cancelled subscription", e);
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,30 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer.streams;
+
+/**
+ * A provider of a potentially unbounded number of elements, published according to the demand
+ * received from its subscribers.
+ *
+ * <p>Mirrors <code>org.reactivestreams.Publisher</code> and follows the Reactive Streams specification,
+ * so that it can be bridged to any Reactive Streams implementation.</p>
+ *
+ * @param <T>  the type of the published elements
+ */
+public interface Publisher<T> {
+
+  /**
+   * Asks the publisher to start streaming elements to a subscriber.  Each call starts a new stream.
+   *
+   * @param subscriber  the subscriber that will consume the elements
+   */
+  void subscribe(Subscriber<? super T> subscriber);
+
+}
@@ -0,0 +1,42 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer.streams;
+
+/**
+ * Receives the elements of a {@link Publisher} once it asks for them with {@link Subscription#request(long)}.
+ *
+ * <p>Mirrors <code>org.reactivestreams.Subscriber</code>.  Signals are never sent concurrently, and no
+ * signal follows {@link #onError(Throwable)} or {@link #onComplete()}.</p>
+ *
+ * @param <T>  the type of the received elements
+ */
+public interface Subscriber<T> {
+
+  /**
+   * Called first, with the subscription used to ask for elements.  No element is sent before it is asked for.
+   */
+  void onSubscribe(Subscription subscription);
+
+  /**
+   * Called with each element asked for.
+   */
+  void onNext(T element);
+
+  /**
+   * Called once if the stream fails.
+   */
+  void onError(Throwable cause);
+
+  /**
+   * Called once after the last element.
+   */
+  void onComplete();
+
+}
@@ -0,0 +1,31 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer.streams;
+
+/**
+ * The link between a {@link Publisher} and one of its {@link Subscriber}s, used to ask for elements or stop the stream.
+ *
+ * <p>Mirrors <code>org.reactivestreams.Subscription</code>.</p>
+ */
+public interface Subscription {
+
+  /**
+   * Asks for more elements.  The publisher sends at most the total number asked for so far.
+   *
+   * @param n  the number of elements, which must be positive
+   */
+  void request(long n);
+
+  /**
+   * Stops the stream.  Elements already being sent may still arrive.
+   */
+  void cancel();
+
+}
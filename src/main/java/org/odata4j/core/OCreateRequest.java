@@ -90,6 +90,13 @@ public interface OCreateRequest<T> {
    */
   T execute(String serviceUri);
 
+  /**
+   * Sends the create-request to the OData service without blocking the calling thread.
+   * 
+   * @return the pending newly created entity
+   */
+  ODataFuture<T> executeAsync(String serviceUri);
+
   /**
    * Returns a locally-built entity and does not send the create-request
    * to the service. The locally-built entity can be used inline as part of
@@ -0,0 +1,34 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.core;
+
+/**
+ * Receives the outcome of an asynchronous request.
+ *
+ * @param <T>  the java-type of the request response
+ * @see ODataFuture#addCallback(ODataCallback)
+ */
+public interface ODataCallback<T> {
+
+  /**
+   * Called when the request completes.
+   *
+   * @param result  the request response
+   */
+  void onSuccess(T result);
+
+  /**
+   * Called when the request fails or is cancelled.
+   *
+   * @param cause  the failure, or a {@link java.util.concurrent.CancellationException} if the request was cancelled
+   */
+  void onFailure(Throwable cause);
+
+}
@@ -41,6 +41,9 @@ public class ODataConstants {
     public static final String DATA_SERVICE_VERSION = "DataServiceVersion";
     public static final String CONTENT_TYPE = "Content-Type";
     public static final String USER_AGENT = "User-Agent";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String RETRY_AFTER = "Retry-After";
   }
 
 }
@@ -0,0 +1,31 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.core;
+
+import java.util.concurrent.Future;
+
+/**
+ * The pending response of a request sent asynchronously, such as by {@link OQueryRequest#executeAsync()}.
+ *
+ * @param <T>  the java-type of the request response
+ */
+public interface ODataFuture<T> extends Future<T> {
+
+  /**
+   * Registers a callback to be notified when the request completes, fails or is cancelled.
+   * Callbacks are called on the thread completing the request, or right away on the calling thread
+   * if the request is already done.
+   *
+   * @param callback  the callback
+   * @return this future
+   */
+  ODataFuture<T> addCallback(ODataCallback<? super T> callback);
+
+}
@@ -9,18 +9,27 @@
 
 package org.odata4j.core;
 
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.core4j.Enumerable;
 import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmStructuralType;
 import org.odata4j.edm.EdmType;
 
 /**
  * A static factory to create immutable {@link OEntity} instances.
+ *
+ * <p>When an entity has exactly the properties of its entity type, in order, it keeps them in one array,
+ * positioned as in {@link EdmStructuralType#getProperties()}, and finds properties by name through the type's
+ * shared slot layout.  Entities created from values keep only the values until a property is first read.
+ * Other entities, such as those projected with $select, keep their property list.</p>
  */
 public class OEntities {
 
@@ -67,6 +76,28 @@ public class OEntities {
     return new OEntityImpl(entitySet, entityType, entityKey, true, properties, links);
   }
 
+  /**
+   * Creates a new entity from its property values, without creating the properties up front.
+   *
+   * @param entitySet  the entity-set
+   * @param entityKey  the entity-key
+   * @param values  a value for every property of the entity type, positioned as in {@link EdmStructuralType#getProperties()}
+   *                and already of the property types; the array is kept, and must not be modified afterwards
+   * @param links  the entity links, if any
+   * @param extensions  entity extensions, if any
+   * @return the new entity
+   */
+  public static OEntity createFromValues(EdmEntitySet entitySet, OEntityKey entityKey, Object[] values, List<OLink> links, Object... extensions) {
+    if (entitySet == null)
+      throw new IllegalArgumentException("entitySet cannot be null");
+    if (values.length != entitySet.getType().getPropertyCount())
+      throw new IllegalArgumentException("Expected " + entitySet.getType().getPropertyCount() + " values, got " + values.length);
+    for (Object value : values)
+      if (value instanceof OProperty)
+        throw new IllegalArgumentException("values cannot be properties");
+    return new OEntityImpl(entitySet, null, entityKey, true, values, null, links, extensions);
+  }
+
   /**
    * Creates a new request-entity.
    * <p>A request-entity is a new entity that has not yet been created in an OData service, and therefore allowed to not have an entity-key.</p>
@@ -138,11 +169,17 @@ public class OEntities {
     private final EdmEntitySet entitySet;
     private final EdmEntityType entityType;
     private final OEntityKey entityKey;
+    private final EdmStructuralType layout;
+    private final Object[] slots;
     private final List<OProperty<?>> properties;
     private final List<OLink> links;
     private final Collection<Object> extensions;
 
     OEntityImpl(EdmEntitySet entitySet, EdmEntityType entityType, OEntityKey entityKey, boolean entityKeyRequired, List<OProperty<?>> properties, List<OLink> links, Object... extensions) {
+      this(entitySet, entityType, entityKey, entityKeyRequired, toSlots(entityType != null ? entityType : entitySet != null ? entitySet.getType() : null, properties), properties, links, extensions);
+    }
+
+    OEntityImpl(EdmEntitySet entitySet, EdmEntityType entityType, OEntityKey entityKey, boolean entityKeyRequired, Object[] slots, List<OProperty<?>> properties, List<OLink> links, Object... extensions) {
       if (entitySet == null)
         throw new IllegalArgumentException("entitySet cannot be null");
       if (entityKeyRequired && entityKey == null)
@@ -151,7 +188,9 @@ public class OEntities {
       this.entitySet = entitySet;
       this.entityType = entityType;
       this.entityKey = entityKey;
-      this.properties = Collections.unmodifiableList(properties);
+      this.slots = slots;
+      this.layout = slots == null ? null : getEntityType();
+      this.properties = slots == null ? Collections.unmodifiableList(properties) : new PropertyList();
       this.links = links == null ? Collections.<OLink>emptyList() : Collections.unmodifiableList(links);
       this.extensions = Arrays.asList(extensions);
     }
@@ -188,7 +227,16 @@ public class OEntities {
 
     @Override
     public OProperty<?> getProperty(String propName) {
-      return Enumerable.create(properties).first(OPredicates.propertyNameEquals(propName));
+      if (layout != null) {
+        int slot = layout.getPropertySlot(propName);
+        if (slot >= 0)
+          return properties.get(slot);
+      } else {
+        for (OProperty<?> property : properties)
+          if (property.getName().equals(propName))
+            return property;
+      }
+      throw new IllegalArgumentException("No property with name: " + propName);
     }
 
     @SuppressWarnings("unchecked")
@@ -226,6 +274,51 @@ public class OEntities {
       return null;
     }
 
+    /**
+     * Gets the properties by slot, if they match the layout of the type exactly.
+     *
+     * @return the slots, or null if the properties must be kept as they are
+     */
+    private static Object[] toSlots(EdmStructuralType type, List<OProperty<?>> properties) {
+      if (type == null)
+        return null;
+      int count = type.getPropertyCount();
+      if (properties.size() != count)
+        return null;
+      Object[] rt = new Object[count];
+      int slot = 0;
+      for (OProperty<?> property : properties) {
+        EdmProperty edmProperty = type.getProperty(slot);
+        if (!edmProperty.getName().equals(property.getName()) || edmProperty.getType() == null || !edmProperty.getType().equals(property.getType()))
+          return null;
+        rt[slot++] = property;
+      }
+      return rt;
+    }
+
+    /**
+     * An immutable view of the slots.  A slot still holding a raw value is replaced by its property on first access,
+     * so iterating again does not allocate; racing threads may both create the same immutable property, and either one is kept.
+     */
+    private class PropertyList extends AbstractList<OProperty<?>> implements RandomAccess {
+
+      @Override
+      public OProperty<?> get(int index) {
+        Object slot = slots[index];
+        if (slot instanceof OProperty)
+          return (OProperty<?>) slot;
+        EdmProperty edmProperty = layout.getProperty(index);
+        OProperty<?> rt = OProperties.create(edmProperty.getName(), edmProperty.getType(), slot);
+        slots[index] = rt;
+        return rt;
+      }
+
+      @Override
+      public int size() {
+        return slots.length;
+      }
+    }
+
   }
 
 }
@@ -25,6 +25,13 @@ public interface OEntityRequest<T> {
    */
   T execute();
 
+  /**
+   * Sends the entity-request to the OData service without blocking the calling thread.
+   *
+   * @return the pending operation response
+   */
+  ODataFuture<T> executeAsync();
+
   /**
    * Navigates to a related entity using a collection navigation property.
    *
@@ -59,6 +59,13 @@ public interface OModifyRequest<T> {
   */
   boolean execute(String serviceUri);
 
+  /**
+  * Sends the modification-request to the OData service without blocking the calling thread.
+  * 
+  * @return the pending success or failure
+  */
+  ODataFuture<Boolean> executeAsync(String serviceUri);
+
   /**
    * Select a new modification entity by navigating to a referenced entity in a child collection.
    * 
@@ -397,6 +397,11 @@ public class OProperties {
     return new Impl<Byte>(name, EdmSimpleType.SBYTE, value);
   }
 
+  /** Recreates a property from values already known to be valid, without conversion. */
+  static OProperty<?> create(String name, EdmType type, Object value) {
+    return new Impl<Object>(name, type, value);
+  }
+
   private static class Impl<T> implements OProperty<T> {
 
     private final String name;
@@ -9,7 +9,10 @@
 
 package org.odata4j.core;
 
+import java.util.List;
+
 import org.core4j.Enumerable;
+import org.odata4j.consumer.streams.Publisher;
 
 /**
  * A consumer-side query-request builder.  Call {@link #execute()} or simply iterate to issue the request.
@@ -27,6 +30,23 @@ public interface OQueryRequest<T> extends Iterable<T> {
    */
   Enumerable<T> execute();
 
+  /**
+   * Sends the query-request to the OData service without blocking the calling thread.
+   * <p>Unlike {@link #execute()}, every page of the response is read before the returned future completes.</p>
+   *
+   * @return the pending response, as a list
+   */
+  ODataFuture<List<T>> executeAsync();
+
+  /**
+   * Gets a publisher streaming the response to its subscribers, without blocking their threads.
+   * <p>Each subscription sends the query-request again, and only reads the next page of the response once
+   * its subscriber asks for more items.  Cancelling a subscription aborts the page being read.</p>
+   *
+   * @return the response as a publisher
+   */
+  Publisher<T> publish();
+
   /**
    * Sets the number of items to return.
    *
@@ -10,7 +10,9 @@
 package org.odata4j.edm;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.core4j.Enumerable;
 import org.core4j.Predicate1;
@@ -24,7 +26,8 @@ import org.odata4j.producer.exceptions.NotFoundException;
 /**
  * The &lt;edmx:DataServices&gt; element contains the service metadata of a Data Service. This service metadata contains zero or more EDM conceptual schemas.
  *
- * <p>Since this is the root of a large metadata tree, convenience methods are included to help locate child metadata elements.</p>
+ * <p>Since this is the root of a large metadata tree, convenience methods are included to help locate child metadata elements.
+ * Lookups by name are answered from hash indexes that are built on first use.</p>
  *
  * @see <a href="http://msdn.microsoft.com/en-us/library/dd541087(v=prot.10).aspx">[msdn] 2.2 &lt;edmx:DataServices&gt;</a>
  */
@@ -35,6 +38,7 @@ public class EdmDataServices {
   private final ODataVersion version;
   private final ImmutableList<EdmSchema> schemas;
   private final ImmutableList<PrefixedNamespace> namespaces;
+  private volatile Indexes indexes;
 
   protected EdmDataServices(ODataVersion version, ImmutableList<EdmSchema> schemas, ImmutableList<PrefixedNamespace> namespaces) {
     this.version = version;
@@ -80,71 +84,68 @@ public class EdmDataServices {
   }
 
   public EdmEntitySet findEdmEntitySet(String entitySetName) {
-    for (EdmSchema schema : this.schemas) {
-      for (EdmEntityContainer eec : schema.getEntityContainers()) {
-        for (EdmEntitySet ees : eec.getEntitySets()) {
-          if (ees.getName().equals(entitySetName)) {
-            return ees;
-          }
-        }
-      }
-    }
-    return null;
+    return getIndexes().entitySets.get(entitySetName);
   }
 
   public EdmFunctionImport findEdmFunctionImport(String functionImportName) {
-    for (EdmSchema schema : this.schemas) {
-      for (EdmEntityContainer eec : schema.getEntityContainers()) {
-        for (EdmFunctionImport efi : eec.getFunctionImports()) {
-          if (efi.getName().equals(functionImportName)) {
-            return efi;
-          }
-        }
-      }
-    }
-    return null;
+    return getIndexes().functionImports.get(functionImportName);
   }
 
   public EdmComplexType findEdmComplexType(String complexTypeFQName) {
-    for (EdmSchema schema : this.schemas) {
-      for (EdmComplexType ect : schema.getComplexTypes()) {
-        if (ect.getFullyQualifiedTypeName().equals(complexTypeFQName)) {
-          return ect;
-        }
-      }
-    }
-    return null;
+    return getIndexes().complexTypes.get(complexTypeFQName);
   }
 
   public EdmType findEdmEntityType(String fqName) {
-    for (EdmSchema schema : this.schemas) {
-      for (EdmEntityType et : schema.getEntityTypes()) {
-        if (et.getFullyQualifiedTypeName().equals(fqName)) {
-          return et;
-        }
-      }
-    }
-    return null;
+    return getIndexes().entityTypes.get(fqName);
   }
 
   public EdmPropertyBase findEdmProperty(String propName) {
-    for (EdmSchema schema : this.schemas) {
-      for (EdmEntityContainer eec : schema.getEntityContainers()) {
-        for (EdmEntitySet ees : eec.getEntitySets()) {
-          for (EdmNavigationProperty ep : ees.getType().getNavigationProperties()) {
-            if (ep.getName().equals(propName)) {
-              return ep;
-            }
-          }
-          for (final EdmProperty ep : ees.getType().getProperties()) {
-            if (ep.getName().equals(propName)) {
-              return ep;
-            }
+    return getIndexes().properties.get(propName);
+  }
+
+  private Indexes getIndexes() {
+    // the metadata tree is immutable, so building twice on a race is harmless
+    Indexes rt = indexes;
+    if (rt == null) {
+      rt = new Indexes(schemas);
+      indexes = rt;
+    }
+    return rt;
+  }
+
+  /** Name-keyed lookup tables; where names collide, the first element in document order wins, as with a scan. */
+  private static class Indexes {
+
+    final Map<String, EdmEntitySet> entitySets = new HashMap<String, EdmEntitySet>();
+    final Map<String, EdmFunctionImport> functionImports = new HashMap<String, EdmFunctionImport>();
+    final Map<String, EdmComplexType> complexTypes = new HashMap<String, EdmComplexType>();
+    final Map<String, EdmEntityType> entityTypes = new HashMap<String, EdmEntityType>();
+    final Map<String, EdmPropertyBase> properties = new HashMap<String, EdmPropertyBase>();
+
+    Indexes(List<EdmSchema> schemas) {
+      for (EdmSchema schema : schemas) {
+        for (EdmEntityContainer eec : schema.getEntityContainers()) {
+          for (EdmEntitySet ees : eec.getEntitySets()) {
+            putIfAbsent(entitySets, ees.getName(), ees);
+            for (EdmNavigationProperty ep : ees.getType().getNavigationProperties())
+              putIfAbsent(properties, ep.getName(), ep);
+            for (EdmProperty ep : ees.getType().getProperties())
+              putIfAbsent(properties, ep.getName(), ep);
           }
+          for (EdmFunctionImport efi : eec.getFunctionImports())
+            putIfAbsent(functionImports, efi.getName(), efi);
         }
+        for (EdmComplexType ect : schema.getComplexTypes())
+          putIfAbsent(complexTypes, ect.getFullyQualifiedTypeName(), ect);
+        for (EdmEntityType et : schema.getEntityTypes())
+          putIfAbsent(entityTypes, et.getFullyQualifiedTypeName(), et);
       }
     }
-    return null;
+
+    private static <T> void putIfAbsent(Map<String, T> map, String key, T value) {
+      if (!map.containsKey(key))
+        map.put(key, value);
+    }
   }
 
   public Iterable<EdmEntityType> getEntityTypes() {
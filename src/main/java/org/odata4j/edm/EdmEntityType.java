@@ -12,12 +12,12 @@ package org.odata4j.edm;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.core4j.Enumerable;
 import org.core4j.Func;
 import org.odata4j.core.ImmutableList;
 import org.odata4j.core.Named;
-import org.odata4j.core.OPredicates;
 
 /**
  * A CSDL EntityType element.
@@ -43,6 +43,8 @@ public class EdmEntityType extends EdmStructuralType {
   private final Boolean hasStream;
   private final List<String> keys;
   private final List<EdmNavigationProperty> navigationProperties;
+  private volatile Map<String, EdmNavigationProperty> navigationPropertiesByName;
+  private volatile Map<String, EdmNavigationProperty> declaredNavigationPropertiesByName;
 
   private EdmEntityType(String namespace, String alias, String name, Boolean hasStream,
       ImmutableList<String> keys, EdmEntityType baseType, List<EdmProperty.Builder> properties,
@@ -83,7 +85,12 @@ public class EdmEntityType extends EdmStructuralType {
    * Finds a navigation property by name, searching up the type hierarchy if necessary.
    */
   public EdmNavigationProperty findNavigationProperty(String name) {
-    return getNavigationProperties().firstOrNull(OPredicates.nameEquals(EdmNavigationProperty.class, name));
+    Map<String, EdmNavigationProperty> rt = navigationPropertiesByName;
+    if (rt == null) {
+      rt = indexByName(getNavigationProperties());
+      navigationPropertiesByName = rt;
+    }
+    return rt.get(name);
   }
 
   /**
@@ -97,7 +104,12 @@ public class EdmEntityType extends EdmStructuralType {
    * Finds a navigation property by name on this entity type <i>not including</i> inherited properties.
    */
   public EdmNavigationProperty findDeclaredNavigationProperty(String name) {
-    return getDeclaredNavigationProperties().firstOrNull(OPredicates.nameEquals(EdmNavigationProperty.class, name));
+    Map<String, EdmNavigationProperty> rt = declaredNavigationPropertiesByName;
+    if (rt == null) {
+      rt = indexByName(navigationProperties);
+      declaredNavigationPropertiesByName = rt;
+    }
+    return rt.get(name);
   }
 
   /**
@@ -11,7 +11,10 @@ package org.odata4j.edm;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.core4j.Enumerable;
 import org.odata4j.core.ImmutableList;
@@ -36,6 +39,8 @@ public abstract class EdmStructuralType extends EdmNonSimpleType implements Name
   private final List<EdmProperty> declaredProperties;
   private final Boolean isAbstract;
   private EdmEntityType baseType;
+  private volatile PropertyLayout propertyLayout;
+  private volatile Map<String, EdmProperty> declaredPropertiesByName;
 
   protected EdmStructuralType(EdmEntityType baseType, String namespace, String name, List<EdmProperty.Builder> declaredProperties,
       EdmDocumentation doc, ImmutableList<EdmAnnotation<?>> annotations, Boolean isAbstract) {
@@ -72,7 +77,37 @@ public abstract class EdmStructuralType extends EdmNonSimpleType implements Name
    * Finds a property by name, searching up the type hierarchy if necessary.
    */
   public EdmProperty findProperty(String name) {
-    return getProperties().firstOrNull(OPredicates.edmPropertyNameEquals(name));
+    int slot = getPropertySlot(name);
+    return slot < 0 ? null : getPropertyLayout().properties[slot];
+  }
+
+  /**
+   * Gets the position of a property in {@link #getProperties()}, searching up the type hierarchy if necessary.
+   * Properties of all instances of this type can be stored by position, and found by name in constant time.
+   *
+   * @param name  the property name
+   * @return the position, or -1 if there is no such property
+   */
+  public int getPropertySlot(String name) {
+    Integer rt = getPropertyLayout().slots.get(name);
+    return rt == null ? -1 : rt;
+  }
+
+  /**
+   * Gets the property at a position in {@link #getProperties()}.
+   *
+   * @param slot  the position
+   * @see #getPropertySlot(String)
+   */
+  public EdmProperty getProperty(int slot) {
+    return getPropertyLayout().properties[slot];
+  }
+
+  /**
+   * Gets the number of properties defined for this structural type <i>including</i> inherited properties.
+   */
+  public int getPropertyCount() {
+    return getPropertyLayout().properties.length;
   }
 
   /**
@@ -86,7 +121,12 @@ public abstract class EdmStructuralType extends EdmNonSimpleType implements Name
    * Finds a property by name on this structural type <i>not including</i> inherited properties.
    */
   public EdmProperty findDeclaredProperty(String name) {
-    return getDeclaredProperties().firstOrNull(OPredicates.edmPropertyNameEquals(name));
+    Map<String, EdmProperty> rt = declaredPropertiesByName;
+    if (rt == null) {
+      rt = indexByName(declaredProperties);
+      declaredPropertiesByName = rt;
+    }
+    return rt.get(name);
   }
 
   /**
@@ -102,6 +142,44 @@ public abstract class EdmStructuralType extends EdmNonSimpleType implements Name
     return baseType == null;
   }
 
+  private PropertyLayout getPropertyLayout() {
+    PropertyLayout rt = propertyLayout;
+    if (rt == null) {
+      rt = new PropertyLayout(getProperties().toList());
+      propertyLayout = rt;
+    }
+    return rt;
+  }
+
+  /** The properties of a type in order, with the position of each name; where names collide, the first one wins. */
+  private static class PropertyLayout {
+
+    final EdmProperty[] properties;
+    final Map<String, Integer> slots;
+
+    PropertyLayout(List<EdmProperty> properties) {
+      this.properties = properties.toArray(new EdmProperty[properties.size()]);
+      this.slots = new HashMap<String, Integer>(this.properties.length * 4 / 3 + 1);
+      for (int i = 0; i < this.properties.length; i++) {
+        if (!slots.containsKey(this.properties[i].getName()))
+          slots.put(this.properties[i].getName(), i);
+      }
+    }
+  }
+
+  /**
+   * Indexes members by name, the first one winning as with a scan.  Types are immutable once built,
+   * so the find methods build their indexes on first use and a race merely builds one twice.
+   */
+  static <T extends Named> Map<String, T> indexByName(Iterable<T> members) {
+    Map<String, T> rt = new HashMap<String, T>();
+    for (T member : members) {
+      if (!rt.containsKey(member.getName()))
+        rt.put(member.getName(), member);
+    }
+    return Collections.unmodifiableMap(rt);
+  }
+
   /** Mutable builder for {@link EdmStructuralType} objects. */
   public abstract static class Builder<T, TBuilder> extends EdmType.Builder<T, TBuilder> {
 
@@ -0,0 +1,202 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.expression;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, concurrent, least-recently-used cache of parsed query options.
+ *
+ * <p>Parsing <code>$filter</code>, <code>$orderby</code>, <code>$expand</code> and <code>$select</code> strings
+ * through the {@link ExpressionParser} is comparatively expensive, and clients tend to send the same few
+ * option strings over and over.  Expression trees are immutable and lists are returned unmodifiable,
+ * so a parsed option can safely be shared between threads and requests.</p>
+ *
+ * <p>The cache is split into independently locked segments, each holding its own least-recently-used
+ * entries, so that concurrent lookups rarely contend.  Strings that fail to parse are not cached.</p>
+ */
+public class ExpressionCache {
+
+  private static final int SEGMENTS = 16;
+  private static final ExpressionCache DEFAULT = new ExpressionCache(1024);
+
+  private enum Kind {
+    EXPRESSION, ORDER_BY, EXPAND
+  }
+
+  private static class Key {
+    final Kind kind;
+    final String value;
+
+    Key(Kind kind, String value) {
+      this.kind = kind;
+      this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return value.hashCode() * 31 + kind.ordinal();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key))
+        return false;
+      Key other = (Key) obj;
+      return kind == other.kind && value.equals(other.value);
+    }
+  }
+
+  private static class Segment extends LinkedHashMap<Key, Object> {
+    private static final long serialVersionUID = 1L;
+    private final int capacity;
+
+    Segment(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+      return size() > capacity;
+    }
+  }
+
+  private final Segment[] segments;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Creates a new cache.
+   *
+   * @param maxSize  the approximate maximum number of parsed options to keep
+   */
+  public ExpressionCache(int maxSize) {
+    if (maxSize < 1)
+      throw new IllegalArgumentException("maxSize must be positive");
+    int segmentCount = Math.min(SEGMENTS, maxSize);
+    segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++)
+      segments[i] = new Segment((maxSize + segmentCount - 1) / segmentCount);
+  }
+
+  /**
+   * Gets the cache shared by the producer resources.
+   */
+  public static ExpressionCache getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Parses an expression, such as a <code>$filter</code> value.
+   *
+   * @see ExpressionParser#parse(String)
+   */
+  public CommonExpression parse(String value) {
+    return (CommonExpression) get(Kind.EXPRESSION, value);
+  }
+
+  /**
+   * Parses an <code>$orderby</code> value.
+   *
+   * @see ExpressionParser#parseOrderBy(String)
+   */
+  @SuppressWarnings("unchecked")
+  public List<OrderByExpression> parseOrderBy(String value) {
+    return (List<OrderByExpression>) get(Kind.ORDER_BY, value);
+  }
+
+  /**
+   * Parses an <code>$expand</code> or <code>$select</code> value.
+   *
+   * @see ExpressionParser#parseExpand(String)
+   */
+  @SuppressWarnings("unchecked")
+  public List<EntitySimpleProperty> parseExpand(String value) {
+    return (List<EntitySimpleProperty>) get(Kind.EXPAND, value);
+  }
+
+  /**
+   * Gets the number of lookups answered from the cache.
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of lookups that had to parse.
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Gets the number of parsed options currently cached.
+   */
+  public int size() {
+    int rt = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        rt += segment.size();
+      }
+    }
+    return rt;
+  }
+
+  /**
+   * Discards all cached options.  Hit and miss counts are kept.
+   */
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  private Object get(Kind kind, String value) {
+    Key key = new Key(kind, value);
+    int hash = key.hashCode();
+    Segment segment = segments[((hash ^ (hash >>> 16)) & 0x7fffffff) % segments.length];
+
+    Object rt;
+    synchronized (segment) {
+      rt = segment.get(key);
+    }
+    if (rt != null) {
+      hits.incrementAndGet();
+      return rt;
+    }
+
+    // parse outside the lock; concurrent misses on the same string may parse twice, which is harmless
+    misses.incrementAndGet();
+    rt = parse(kind, value);
+    synchronized (segment) {
+      segment.put(key, rt);
+    }
+    return rt;
+  }
+
+  private static Object parse(Kind kind, String value) {
+    switch (kind) {
+    case ORDER_BY:
+      return Collections.unmodifiableList(ExpressionParser.parseOrderBy(value));
+    case EXPAND:
+      return Collections.unmodifiableList(ExpressionParser.parseExpand(value));
+    default:
+      return ExpressionParser.parse(value);
+    }
+  }
+
+}
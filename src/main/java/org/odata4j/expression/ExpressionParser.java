@@ -16,7 +16,6 @@ import java.util.Set;
 
 import org.core4j.Enumerable;
 import org.core4j.Func1;
-import org.core4j.Func2;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDateTime;
 import org.joda.time.LocalTime;
@@ -70,19 +69,16 @@ public class ExpressionParser {
   public static boolean DUMP_EXPRESSION_INFO = false;
 
   public static CommonExpression parse(String value) {
-    List<Token> tokens = tokenize(value);
-    // dump(value,tokens,null);
-
-    CommonExpression rt = readExpression(tokens);
-
+    Parser parser = new Parser(tokenize(value));
+    CommonExpression rt = parser.readOrderByExpression();
+    if (!parser.atEnd()) {
+      throw new RuntimeException("Unable to read expression: " + value);
+    }
     return rt;
   }
 
   public static List<OrderByExpression> parseOrderBy(String value) {
-    List<Token> tokens = tokenize(value);
-    // dump(value,tokens,null);
-
-    List<CommonExpression> expressions = readExpressions(tokens);
+    List<CommonExpression> expressions = new Parser(tokenize(value)).readExpressions();
 
     return Enumerable.create(expressions).select(new Func1<CommonExpression, OrderByExpression>() {
       public OrderByExpression apply(CommonExpression input) {
@@ -96,10 +92,7 @@ public class ExpressionParser {
 
 
   public static List<EntitySimpleProperty> parseExpand(String value) {
-    List<Token> tokens = tokenize(value);
-    // dump(value,tokens,null);
-
-    List<CommonExpression> expressions = readExpressions(tokens);
+    List<CommonExpression> expressions = new Parser(tokenize(value)).readExpressions();
 
     //  since we support currently simple properties only we have to
     //  confine ourselves to EntitySimpleProperties.
@@ -112,43 +105,6 @@ public class ExpressionParser {
     }).toList();
   }
 
-  private static CommonExpression processBinaryExpression(List<Token> tokens, String op, Func2<CommonExpression, CommonExpression, CommonExpression> fn) {
-
-    int ts = tokens.size();
-    for (int i = 0; i < ts; i++) {
-      Token t = tokens.get(i);
-      if (i < ts - 2) {
-        if (t.type == TokenType.WHITESPACE && tokens.get(i + 2).type == TokenType.WHITESPACE && tokens.get(i + 1).type == TokenType.WORD) {
-          Token wordToken = tokens.get(i + 1);
-          if (wordToken.value.equals(op)) {
-            CommonExpression lhs = readExpression(tokens.subList(0, i));
-            CommonExpression rhs = readExpression(tokens.subList(i + 3, ts));
-            return fn.apply(lhs, rhs);
-          }
-        }
-      }
-    }
-    return null;
-  }
-
-  private static CommonExpression processUnaryExpression(List<Token> tokens, String op, boolean whitespaceRequired, Func1<CommonExpression, CommonExpression> fn) {
-
-    int ts = tokens.size();
-    for (int i = 0; i < ts; i++) {
-      Token t = tokens.get(i);
-      if (i < ts - 1) {
-        if ((t.type == TokenType.WORD || t.type == TokenType.SYMBOL) && (!whitespaceRequired || tokens.get(i + 1).type == TokenType.WHITESPACE)) {
-          Token wordToken = t;
-          if (wordToken.value.equals(op)) {
-            CommonExpression expression = readExpression(tokens.subList(i + (whitespaceRequired ? 2 : 1), ts));
-            return fn.apply(expression);
-          }
-        }
-      }
-    }
-    return null;
-  }
-
   private static CommonExpression methodCall(String methodName, List<CommonExpression> methodArguments) {
     if (methodName.equals(Methods.CAST) && methodArguments.size() == 1) {
       CommonExpression arg = methodArguments.get(0);
@@ -253,496 +209,346 @@ public class ExpressionParser {
     }
   }
 
-  private static List<CommonExpression> readExpressions(List<Token> tokens) {
-    List<CommonExpression> rt = new ArrayList<CommonExpression>();
-
-    int stack = 0;
-    int start = 0;
-    for (int i = 0; i < tokens.size(); i++) {
-      Token token = tokens.get(i);
-      if (token.type == TokenType.OPENPAREN) {
-        stack++;
-      } else if (token.type == TokenType.CLOSEPAREN) {
-        stack--;
-      } else if (stack == 0 && token.type == TokenType.SYMBOL && token.value.equals(",")) {
-        List<Token> tokensInsideComma = tokens.subList(start, i);
-        CommonExpression expressionInsideComma = readExpression(tokensInsideComma);
-        rt.add(expressionInsideComma);
-        start = i + 1;
-      } else if (i == tokens.size() - 1) {
-        List<Token> tokensInside = tokens.subList(start, i + 1);
-        CommonExpression expressionInside = readExpression(tokensInside);
-        rt.add(expressionInside);
-      }
-
-    }
-    return rt;
-  }
-
-  public static List<Token> processParentheses(List<Token> tokens) {
-
-    List<Token> rt = new ArrayList<Token>();
-
-    for (int i = 0; i < tokens.size(); i++) {
-      Token openToken = tokens.get(i);
-      if (openToken.type == TokenType.OPENPAREN) {
-        int afterParenIdx = i + 1;
-        // is this a method call or any/all aggregate function?
-        String methodName = null;
-        String aggregateSource = null;
-        String aggregateVariable = null;
-        AggregateFunction aggregateFunction = AggregateFunction.none;
-        int k = i - 1;
-        while (k > 0 && tokens.get(k).type == TokenType.WHITESPACE) {
-          k--;
-        }
-        if (k >= 0) {
-          Token methodNameToken = tokens.get(k);
-          if (methodNameToken.type == TokenType.WORD) {
-            if (METHODS.contains(methodNameToken.value)) {
-              methodName = methodNameToken.value;
-
-              // this isn't strictly correct.  I think the parser has issues
-              // with sequences of WORD, WHITESPACE, WORD, etc.  I'm not sure I've
-              // ever seen a token type of WHITESPACE producer by a lexer..
-            } else if (methodNameToken.value.endsWith("/any") || methodNameToken.value.endsWith("/all")) {
-              aggregateSource = methodNameToken.value.substring(0, methodNameToken.value.length() - 4);
-              aggregateFunction = Enum.valueOf(AggregateFunction.class, methodNameToken.value.substring(methodNameToken.value.length() - 3));
-              // to get things rolling I'm going to lookahead and require a very strict
-              // sequence of tokens:
-              // i + 1 must be a WORD
-              // i + 2 must be a SYMBOL ':'
-              // or, for any, i + 1 can be CLOSEPAREN
-              int ni = i + 1;
-              Token ntoken = ni < tokens.size() ? tokens.get(ni) : null;
-              if (ntoken == null ||
-                  (aggregateFunction == AggregateFunction.all && ntoken.type != TokenType.WORD) ||
-                  (aggregateFunction == AggregateFunction.any && ntoken.type != TokenType.WORD && ntoken.type != TokenType.CLOSEPAREN)) {
-                throw new RuntimeException("unexpected token: " + (ntoken == null ? "eof" : ntoken.toString()));
-              }
-              if (ntoken.type == TokenType.WORD) {
-                aggregateVariable = ntoken.value;
-                ni += 1;
-                ntoken = ni < tokens.size() ? tokens.get(ni) : null;
-                if (ntoken == null || ntoken.type != TokenType.SYMBOL || !ntoken.value.equals(":")) {
-                  throw new RuntimeException("expected ':', found: " + (ntoken == null ? "eof" : ntoken.toString()));
-                }
-                // now we can parse the predicate, starting after the ':'
-                afterParenIdx = ni + 1;
-              } else {
-                // any(), easiest to early out here
-                List<Token> tokensIncludingParens = tokens.subList(k, ni + 1);
-                CommonExpression any = Expression.any(
-                    Expression.simpleProperty(aggregateSource));
-
-                ExpressionToken et = new ExpressionToken(any, tokensIncludingParens);
-                rt.subList(rt.size() - (i - k), rt.size()).clear();
-                rt.add(et);
-                return rt;
-              }
-
-            }
-          }
-        }
-
-        // find matching close paren
-        int stack = 0;
-        int start = i;
-        List<CommonExpression> methodArguments = new ArrayList<CommonExpression>();
-        for (int j = afterParenIdx; j < tokens.size(); j++) {
-          Token closeToken = tokens.get(j);
-          if (closeToken.type == TokenType.OPENPAREN) {
-            stack++;
-          } else if (methodName != null && stack == 0 && closeToken.type == TokenType.SYMBOL && closeToken.value.equals(",")) {
-            List<Token> tokensInsideComma = tokens.subList(start + 1, j);
-            CommonExpression expressionInsideComma = readExpression(tokensInsideComma);
-            methodArguments.add(expressionInsideComma);
-            start = j;
-          } else if (closeToken.type == TokenType.CLOSEPAREN) {
-            if (stack > 0) {
-              stack--;
-              continue;
-            }
-
-            if (methodName != null) {
-              List<Token> tokensIncludingParens = tokens.subList(k, j + 1);
-              List<Token> tokensInsideParens = tokens.subList(start + 1, j);
-              CommonExpression expressionInsideParens = readExpression(tokensInsideParens);
-              methodArguments.add(expressionInsideParens);
-
-              // method call expression: replace t mn ( t t , t t ) t with t et t
-              CommonExpression methodCall = methodCall(methodName, methodArguments);
-
-              ExpressionToken et = new ExpressionToken(methodCall, tokensIncludingParens);
-              rt.subList(rt.size() - (i - k), rt.size()).clear();
-              rt.add(et);
-
-            } else if (aggregateVariable != null) {
-              List<Token> tokensIncludingParens = tokens.subList(k, j + 1);
-              List<Token> tokensInsideParens = tokens.subList(afterParenIdx, j);
-              CommonExpression expressionInsideParens = readExpression(tokensInsideParens);
-              if (!(expressionInsideParens instanceof BoolCommonExpression)) {
-                throw new RuntimeException("illegal any predicate");
-              }
-              CommonExpression any = Expression.aggregate(
-                  aggregateFunction,
-                  Expression.simpleProperty(aggregateSource),
-                  aggregateVariable,
-                  (BoolCommonExpression) expressionInsideParens);
-
-              ExpressionToken et = new ExpressionToken(any, tokensIncludingParens);
-              rt.subList(rt.size() - (i - k), rt.size()).clear();
-              rt.add(et);
-            } else {
-
-              List<Token> tokensIncludingParens = tokens.subList(i, j + 1);
-              List<Token> tokensInsideParens = tokens.subList(i + 1, j);
-              // paren expression: replace t ( t t t ) t with t et t
-              CommonExpression expressionInsideParens = readExpression(tokensInsideParens);
-              CommonExpression exp = null;
-              if (expressionInsideParens instanceof BoolCommonExpression) {
-                exp = Expression.boolParen(expressionInsideParens);
-              } else {
-                exp = Expression.paren(expressionInsideParens);
-              }
-
-              ExpressionToken et = new ExpressionToken(exp, tokensIncludingParens);
-              rt.add(et);
-            }
-
-            i = j;
-          }
-        }
-      } else {
-        rt.add(openToken);
-      }
-    }
-
-    return rt;
-
-  }
-
   private static <T extends CommonExpression> void assertType(CommonExpression expression, Class<T> type) {
     if (!type.isAssignableFrom(expression.getClass())) {
       throw new RuntimeException("Expected " + type.getSimpleName());
     }
   }
 
-  private static CommonExpression readExpression(List<Token> tokens) {
+  // binary operators, from least to highest precedence.  Operators of equal precedence
+  // associate to the right, and each operator has a precedence of its own.
+  private static final String[] BINARY_OPERATORS = { "or", "and", "eq", "ne", "lt", "gt", "le", "ge", "add", "sub", "mul", "div", "mod" };
+
+  private static CommonExpression binaryExpression(int operator, CommonExpression lhs, CommonExpression rhs) {
+    switch (operator) {
+    case 0:
+      assertType(lhs, BoolCommonExpression.class);
+      assertType(rhs, BoolCommonExpression.class);
+      return Expression.or((BoolCommonExpression) lhs, (BoolCommonExpression) rhs);
+    case 1:
+      assertType(lhs, BoolCommonExpression.class);
+      assertType(rhs, BoolCommonExpression.class);
+      return Expression.and((BoolCommonExpression) lhs, (BoolCommonExpression) rhs);
+    case 2: return Expression.eq(lhs, rhs);
+    case 3: return Expression.ne(lhs, rhs);
+    case 4: return Expression.lt(lhs, rhs);
+    case 5: return Expression.gt(lhs, rhs);
+    case 6: return Expression.le(lhs, rhs);
+    case 7: return Expression.ge(lhs, rhs);
+    case 8: return Expression.add(lhs, rhs);
+    case 9: return Expression.sub(lhs, rhs);
+    case 10: return Expression.mul(lhs, rhs);
+    case 11: return Expression.div(lhs, rhs);
+    default: return Expression.mod(lhs, rhs);
+    }
+  }
 
-    CommonExpression rt = null;
+  /**
+   * A single-pass precedence-climbing parser over the tokens of an expression.
+   */
+  private static class Parser {
 
-    tokens = trimWhitespace(tokens);
+    private final List<Token> tokens;
+    private int position;
 
-    // OrderBy asc, desc
-    Token lastToken = tokens.get(tokens.size() - 1);
-    if (lastToken.type == TokenType.WORD && (lastToken.value.equals("asc") || lastToken.value.equals("desc"))) {
-      return Expression.orderBy(
-          readExpression(tokens.subList(0, tokens.size() - 1)),
-          lastToken.value.equals("asc") ? Direction.ASCENDING : Direction.DESCENDING);
+    Parser(List<Token> tokens) {
+      this.tokens = tokens;
     }
 
-    // Grouping (highest precedence)
-    tokens = processParentheses(tokens);
-
-    // now we have a list of tokens with no explicit parens
-
-    // process literals
-
-    // literals with prefixes
-    if (tokens.size() == 2 && tokens.get(0).type == TokenType.WORD && tokens.get(1).type == TokenType.QUOTED_STRING) {
-      String word = tokens.get(0).value;
-      String value = unquote(tokens.get(1).value);
-      if (word.equals("datetime")) {
-        DateTime dt = InternalUtil.parseDateTime(value);
-        return Expression.dateTime(new LocalDateTime(dt));
-      } else if (word.equals("time")) {
-        LocalTime t = InternalUtil.parseTime(value);
-        return Expression.time(t);
-      } else if (word.equals("datetimeoffset")) {
-        DateTime dt = InternalUtil.parseDateTime(value);
-        return Expression.dateTimeOffset(dt);
-      } else if (word.equals("guid")) {
-        // odata: dddddddd-dddd-dddd-dddddddddddd
-        // java: dddddddd-dd-dd-dddd-dddddddddddd
-        // value = value.substring(0, 11) + "-" + value.substring(11);
-        return Expression.guid(Guid.fromString(value));
-      } else if (word.equals("decimal")) {
-        return Expression.decimal(new BigDecimal(value));
-      } else if (word.equals("X") || word.equals("binary")) {
-        try {
-          byte[] bValue = Hex.decodeHex(value.toCharArray());
-          return Expression.binary(bValue);
-        } catch (DecoderException e) {
-          throw Throwables.propagate(e);
-        }
-      }
-    }
-    // long literal: 1234L
-    if (tokens.size() == 2 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.WORD && tokens.get(1).value.equals("L")) {
-      long longValue = Long.parseLong(tokens.get(0).value);
-      return Expression.int64(longValue);
-    }
-    // single literal: 2f
-    if (tokens.size() == 2 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.WORD && tokens.get(1).value.equals("f")) {
-      float floatValue = Float.parseFloat(tokens.get(0).value);
-      return Expression.single(floatValue);
+    private Token peek(int offset) {
+      int i = position + offset;
+      return i < tokens.size() ? tokens.get(i) : null;
     }
-    // single literal: 2.0f
-    if (tokens.size() == 4 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.SYMBOL && tokens.get(1).value.equals(".") && tokens.get(2).type == TokenType.NUMBER && tokens.get(3).value.equals("f")) {
-      float floatValue = Float.parseFloat(tokens.get(0).value + "." + tokens.get(2).value);
-      return Expression.single(floatValue);
-    }
-    // double literal: 2.0
-    if (tokens.size() == 3 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.SYMBOL && tokens.get(1).value.equals(".") && tokens.get(2).type == TokenType.NUMBER) {
-      double doubleValue = Double.parseDouble(tokens.get(0).value + "." + tokens.get(2).value);
-      return Expression.double_(doubleValue);
-    }
-    // double literal: 1E+10
-    if (tokens.size() == 4 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.WORD && tokens.get(1).value.equals("E") && tokens.get(2).type == TokenType.SYMBOL && tokens.get(2).value.equals("+") && tokens.get(3).type == TokenType.NUMBER) {
-      double doubleValue = Double.parseDouble(tokens.get(0).value + "E+" + tokens.get(3).value);
-      return Expression.double_(doubleValue);
-    }
-    // double literal: 1E-10
-    if (tokens.size() == 3 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.WORD && tokens.get(1).value.equals("E") && tokens.get(2).type == TokenType.NUMBER) {
-      int e = Integer.parseInt(tokens.get(2).value);
-      if (e < 1) {
-        double doubleValue = Double.parseDouble(tokens.get(0).value + "E" + tokens.get(2).value);
-        return Expression.double_(doubleValue);
-      }
-    }
-    // double literal: 1.2E+10
-    if (tokens.size() == 6 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.SYMBOL && tokens.get(1).value.equals(".") && tokens.get(2).type == TokenType.NUMBER && tokens.get(3).type == TokenType.WORD && tokens.get(3).value.equals("E") && tokens.get(4).type == TokenType.SYMBOL && tokens.get(4).value.equals("+") && tokens.get(5).type == TokenType.NUMBER) {
-      double doubleValue = Double.parseDouble(tokens.get(0).value + "." + tokens.get(2).value + "E+" + tokens.get(5).value);
-      return Expression.double_(doubleValue);
-    }
-    // double literal: 1.2E-10
-    if (tokens.size() == 5 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.SYMBOL && tokens.get(1).value.equals(".") && tokens.get(2).type == TokenType.NUMBER && tokens.get(3).type == TokenType.WORD && tokens.get(3).value.equals("E") && tokens.get(4).type == TokenType.NUMBER) {
-      int e = Integer.parseInt(tokens.get(4).value);
-      if (e < 1) {
-        double doubleValue = Double.parseDouble(tokens.get(0).value + "." + tokens.get(2).value + "E" + tokens.get(4).value);
-        return Expression.double_(doubleValue);
-      }
-    }
-    // decimal literal: 1234M or 1234m
-    if (tokens.size() == 2 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.WORD && tokens.get(1).value.equalsIgnoreCase("M")) {
-      BigDecimal decimalValue = new BigDecimal(tokens.get(0).value);
-      return Expression.decimal(decimalValue);
-    }
-    // decimal literal: 2.0m
-    if (tokens.size() == 4 && tokens.get(0).type == TokenType.NUMBER && tokens.get(1).type == TokenType.SYMBOL && tokens.get(1).value.equals(".") && tokens.get(2).type == TokenType.NUMBER && tokens.get(3).value.equalsIgnoreCase("m")) {
-      BigDecimal decimalValue = new BigDecimal(tokens.get(0).value + "." + tokens.get(2).value);
-      return Expression.decimal(decimalValue);
-    }
-    // TODO literals: byteLiteral, sbyteliteral
 
-    // single token expression
-    if (tokens.size() == 1) {
-      final Token token = tokens.get(0);
-      if (token.type == TokenType.QUOTED_STRING) {
-        return Expression.string(unquote(token.value));
-      } else if (token.type == TokenType.WORD) {
-        if (token.value.equals("null")) {
-          return Expression.null_();
-        }
-        if (token.value.equals("true")) {
-          return Expression.boolean_(true);
-        }
-        if (token.value.equals("false")) {
-          return Expression.boolean_(false);
-        }
-        return Expression.simpleProperty(token.value);
-      } else if (token.type == TokenType.NUMBER) {
-        try {
-          int value = Integer.parseInt(token.value);
-          return Expression.integral(value);
-        } catch (NumberFormatException e) {
-          long value = Long.parseLong(token.value);
-          return Expression.int64(value);
-        }
-      } else if (token.type == TokenType.EXPRESSION) {
-        return ((ExpressionToken) token).expression;
-      } else {
-        throw new RuntimeException("Unexpected");
-      }
+    private boolean at(int offset, TokenType type) {
+      Token token = peek(offset);
+      return token != null && token.type == type;
     }
 
-    // process operators from least to highest precedence
-
-    // Conditional OR: or
-    rt = processBinaryExpression(tokens, "or", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
-
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        assertType(lhs, BoolCommonExpression.class);
-        assertType(rhs, BoolCommonExpression.class);
-        return Expression.or((BoolCommonExpression) lhs, (BoolCommonExpression) rhs);
-      }
-    });
-    if (rt != null) {
-      return rt;
+    private boolean at(int offset, TokenType type, String value) {
+      Token token = peek(offset);
+      return token != null && token.type == type && token.value.equals(value);
     }
 
-    // Conditional AND: and
-    rt = processBinaryExpression(tokens, "and", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
-
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        assertType(lhs, BoolCommonExpression.class);
-        assertType(rhs, BoolCommonExpression.class);
-        return Expression.and((BoolCommonExpression) lhs, (BoolCommonExpression) rhs);
-      }
-    });
-    if (rt != null) {
-      return rt;
+    private void skipWhitespace() {
+      while (at(0, TokenType.WHITESPACE))
+        position++;
     }
 
-    // Equality: eq ne
-    rt = processBinaryExpression(tokens, "eq", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
+    private void expect(TokenType type) {
+      skipWhitespace();
+      if (!at(0, type))
+        throw new RuntimeException("Unable to read expression with tokens: " + tokens + ", expected " + type + " at " + position);
+      position++;
+    }
 
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.eq(lhs, rhs);
-      }
-    });
-    if (rt != null) {
-      return rt;
+    boolean atEnd() {
+      skipWhitespace();
+      return position == tokens.size();
     }
-    rt = processBinaryExpression(tokens, "ne", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
 
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.ne(lhs, rhs);
+    /**
+     * Reads comma-separated expressions up to the end of the tokens.
+     */
+    List<CommonExpression> readExpressions() {
+      List<CommonExpression> rt = new ArrayList<CommonExpression>();
+      if (atEnd())
+        return rt;
+      while (true) {
+        rt.add(readOrderByExpression());
+        if (atEnd())
+          return rt;
+        expect(TokenType.SYMBOL);
+        if (!tokens.get(position - 1).value.equals(","))
+          throw new RuntimeException("Unable to read expression with tokens: " + tokens);
+        // a trailing comma is tolerated
+        if (atEnd())
+          return rt;
       }
-    });
-    if (rt != null) {
-      return rt;
     }
 
-    // Relational and type testing: lt, gt, le, ge, isof(T) , isof(x,T)
-    rt = processBinaryExpression(tokens, "lt", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
-
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.lt(lhs, rhs);
+    /**
+     * Reads an expression, optionally followed by asc or desc.
+     */
+    CommonExpression readOrderByExpression() {
+      CommonExpression rt = readExpression(0);
+      int mark = position;
+      skipWhitespace();
+      if (at(0, TokenType.WORD, "asc") || at(0, TokenType.WORD, "desc")) {
+        Direction direction = tokens.get(position++).value.equals("asc") ? Direction.ASCENDING : Direction.DESCENDING;
+        return Expression.orderBy(rt, direction);
       }
-    });
-    if (rt != null) {
+      position = mark;
       return rt;
     }
-    rt = processBinaryExpression(tokens, "gt", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
 
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.gt(lhs, rhs);
+    private CommonExpression readExpression(int minPrecedence) {
+      CommonExpression rt = readUnaryExpression();
+      while (true) {
+        int operator = binaryOperator();
+        if (operator < minPrecedence)
+          return rt;
+        position += 3;
+        // operators of equal precedence associate to the right
+        rt = binaryExpression(operator, rt, readExpression(operator));
       }
-    });
-    if (rt != null) {
-      return rt;
     }
-    rt = processBinaryExpression(tokens, "le", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
 
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.le(lhs, rhs);
+    // binary operators are words surrounded by whitespace
+    private int binaryOperator() {
+      if (!at(0, TokenType.WHITESPACE) || !at(1, TokenType.WORD) || !at(2, TokenType.WHITESPACE))
+        return -1;
+      String word = peek(1).value;
+      for (int i = 0; i < BINARY_OPERATORS.length; i++) {
+        if (BINARY_OPERATORS[i].equals(word))
+          return i;
       }
-    });
-    if (rt != null) {
-      return rt;
+      return -1;
     }
-    rt = processBinaryExpression(tokens, "ge", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
 
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.ge(lhs, rhs);
+    private CommonExpression readUnaryExpression() {
+      skipWhitespace();
+      if (at(0, TokenType.WORD, "not") && (at(1, TokenType.WHITESPACE) || at(1, TokenType.OPENPAREN))) {
+        position++;
+        return Expression.not(readUnaryExpression());
+      }
+      if (at(0, TokenType.SYMBOL, "-")) {
+        position++;
+        return Expression.negate(readUnaryExpression());
+      }
+      return readPrimaryExpression();
+    }
+
+    private CommonExpression readPrimaryExpression() {
+      Token token = peek(0);
+      if (token == null)
+        throw new RuntimeException("Unable to read expression with tokens: " + tokens + ", unexpected end");
+      position++;
+
+      switch (token.type) {
+      case OPENPAREN: {
+        CommonExpression expression = readOrderByExpression();
+        expect(TokenType.CLOSEPAREN);
+        return expression instanceof BoolCommonExpression
+            ? Expression.boolParen(expression)
+            : Expression.paren(expression);
+      }
+      case QUOTED_STRING:
+        return Expression.string(unquote(token.value));
+      case NUMBER:
+        return readNumber(token.value);
+      case WORD:
+        return readWord(token.value);
+      default:
+        throw new RuntimeException("Unable to read expression with tokens: " + tokens + ", unexpected " + token);
       }
-    });
-    if (rt != null) {
-      return rt;
     }
 
-    // Additive: add, sub
-    rt = processBinaryExpression(tokens, "add", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
+    private CommonExpression readWord(String word) {
+      // literals with prefixes
+      if (at(0, TokenType.QUOTED_STRING)) {
+        CommonExpression rt = prefixedLiteral(word, unquote(peek(0).value));
+        if (rt != null) {
+          position++;
+          return rt;
+        }
+      }
 
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.add(lhs, rhs);
+      // method calls and any/all aggregate functions
+      int paren = 0;
+      while (at(paren, TokenType.WHITESPACE))
+        paren++;
+      if (at(paren, TokenType.OPENPAREN)) {
+        if (METHODS.contains(word)) {
+          position += paren + 1;
+          return methodCall(word, readArguments());
+        }
+        if (word.endsWith("/any") || word.endsWith("/all")) {
+          position += paren + 1;
+          return readAggregate(word);
+        }
       }
-    });
-    if (rt != null) {
-      return rt;
-    }
-    rt = processBinaryExpression(tokens, "sub", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
 
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.sub(lhs, rhs);
+      if (word.equals("null"))
+        return Expression.null_();
+      if (word.equals("true"))
+        return Expression.boolean_(true);
+      if (word.equals("false"))
+        return Expression.boolean_(false);
+      return Expression.simpleProperty(word);
+    }
+
+    private List<CommonExpression> readArguments() {
+      List<CommonExpression> rt = new ArrayList<CommonExpression>();
+      while (true) {
+        rt.add(readOrderByExpression());
+        skipWhitespace();
+        if (at(0, TokenType.SYMBOL, ",")) {
+          position++;
+          continue;
+        }
+        expect(TokenType.CLOSEPAREN);
+        return rt;
       }
-    });
-    if (rt != null) {
-      return rt;
     }
 
-    // Multiplicative: mul, div, mod
-    rt = processBinaryExpression(tokens, "mul", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
+    private CommonExpression readAggregate(String word) {
+      String source = word.substring(0, word.length() - 4);
+      AggregateFunction function = Enum.valueOf(AggregateFunction.class, word.substring(word.length() - 3));
 
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.mul(lhs, rhs);
+      // a very strict sequence of tokens: either any() or any(x: predicate)
+      Token token = peek(0);
+      if (token == null
+          || (function == AggregateFunction.all && token.type != TokenType.WORD)
+          || (function == AggregateFunction.any && token.type != TokenType.WORD && token.type != TokenType.CLOSEPAREN)) {
+        throw new RuntimeException("unexpected token: " + (token == null ? "eof" : token.toString()));
       }
-    });
-    if (rt != null) {
-      return rt;
-    }
-    rt = processBinaryExpression(tokens, "div", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
-
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.div(lhs, rhs);
+      position++;
+      if (token.type == TokenType.CLOSEPAREN)
+        return Expression.any(Expression.simpleProperty(source));
+
+      String variable = token.value;
+      token = peek(0);
+      if (token == null || token.type != TokenType.SYMBOL || !token.value.equals(":")) {
+        throw new RuntimeException("expected ':', found: " + (token == null ? "eof" : token.toString()));
       }
-    });
-    if (rt != null) {
-      return rt;
+      position++;
+      CommonExpression predicate = readOrderByExpression();
+      expect(TokenType.CLOSEPAREN);
+      if (!(predicate instanceof BoolCommonExpression)) {
+        throw new RuntimeException("illegal any predicate");
+      }
+      return Expression.aggregate(function, Expression.simpleProperty(source), variable, (BoolCommonExpression) predicate);
     }
-    rt = processBinaryExpression(tokens, "mod", new Func2<CommonExpression, CommonExpression, CommonExpression>() {
 
-      public CommonExpression apply(CommonExpression lhs, CommonExpression rhs) {
-        return Expression.mod(lhs, rhs);
+    private CommonExpression readNumber(String number) {
+      // 2.0, 2.0f, 2.0m, 1.2E+10, 1.2E-10
+      if (at(0, TokenType.SYMBOL, ".") && at(1, TokenType.NUMBER)) {
+        String decimal = number + "." + peek(1).value;
+        position += 2;
+        if (at(0, TokenType.WORD, "f")) {
+          position++;
+          return Expression.single(Float.parseFloat(decimal));
+        }
+        if (at(0, TokenType.WORD) && peek(0).value.equalsIgnoreCase("m")) {
+          position++;
+          return Expression.decimal(new BigDecimal(decimal));
+        }
+        String exponent = readExponent();
+        return Expression.double_(Double.parseDouble(exponent == null ? decimal : decimal + exponent));
+      }
+      // 1234L, 2f, 1234M, 1E+10, 1E-10
+      if (at(0, TokenType.WORD, "L")) {
+        position++;
+        return Expression.int64(Long.parseLong(number));
+      }
+      if (at(0, TokenType.WORD, "f")) {
+        position++;
+        return Expression.single(Float.parseFloat(number));
+      }
+      if (at(0, TokenType.WORD) && peek(0).value.equalsIgnoreCase("M")) {
+        position++;
+        return Expression.decimal(new BigDecimal(number));
+      }
+      String exponent = readExponent();
+      if (exponent != null)
+        return Expression.double_(Double.parseDouble(number + exponent));
+      try {
+        return Expression.integral(Integer.parseInt(number));
+      } catch (NumberFormatException e) {
+        return Expression.int64(Long.parseLong(number));
       }
-    });
-    if (rt != null) {
-      return rt;
     }
 
-    // Unary: not x, -x, cast(T), cast(x,T)
-    rt = processUnaryExpression(tokens, "not", true, new Func1<CommonExpression, CommonExpression>() {
-
-      public CommonExpression apply(CommonExpression expression) {
-        return Expression.not(expression);
+    // E+10 comes as a word, a symbol and a number, E-10 as a word and a negative number
+    private String readExponent() {
+      if (!at(0, TokenType.WORD, "E"))
+        return null;
+      if (at(1, TokenType.SYMBOL, "+") && at(2, TokenType.NUMBER)) {
+        String rt = "E+" + peek(2).value;
+        position += 3;
+        return rt;
       }
-    });
-    if (rt != null) {
-      return rt;
+      if (at(1, TokenType.NUMBER) && Integer.parseInt(peek(1).value) < 1) {
+        String rt = "E" + peek(1).value;
+        position += 2;
+        return rt;
+      }
+      return null;
     }
-    rt = processUnaryExpression(tokens, "-", false, new Func1<CommonExpression, CommonExpression>() {
+  }
 
-      public CommonExpression apply(CommonExpression expression) {
-        return Expression.negate(expression);
+  private static CommonExpression prefixedLiteral(String word, String value) {
+    if (word.equals("datetime")) {
+      DateTime dt = InternalUtil.parseDateTime(value);
+      return Expression.dateTime(new LocalDateTime(dt));
+    } else if (word.equals("time")) {
+      LocalTime t = InternalUtil.parseTime(value);
+      return Expression.time(t);
+    } else if (word.equals("datetimeoffset")) {
+      DateTime dt = InternalUtil.parseDateTime(value);
+      return Expression.dateTimeOffset(dt);
+    } else if (word.equals("guid")) {
+      // odata: dddddddd-dddd-dddd-dddddddddddd
+      // java: dddddddd-dd-dd-dddd-dddddddddddd
+      // value = value.substring(0, 11) + "-" + value.substring(11);
+      return Expression.guid(Guid.fromString(value));
+    } else if (word.equals("decimal")) {
+      return Expression.decimal(new BigDecimal(value));
+    } else if (word.equals("X") || word.equals("binary")) {
+      try {
+        byte[] bValue = Hex.decodeHex(value.toCharArray());
+        return Expression.binary(bValue);
+      } catch (DecoderException e) {
+        throw Throwables.propagate(e);
       }
-    });
-    if (rt != null) {
-      return rt;
     }
-
-    throw new RuntimeException("Unable to read expression with tokens: " + tokens);
-
+    return null;
   }
-
   private static String unquote(String singleQuotedValue) {
     return singleQuotedValue.substring(1, singleQuotedValue.length() - 1).replace("''", "'");
   }
 
-  private static List<Token> trimWhitespace(List<Token> tokens) {
-    int start = 0;
-    while (tokens.get(start).type == TokenType.WHITESPACE) {
-      start++;
-    }
-    int end = tokens.size() - 1;
-    while (tokens.get(end).type == TokenType.WHITESPACE) {
-      end--;
-    }
-    return tokens.subList(start, end + 1);
-
-  }
-
   // tokenizer
   public static List<Token> tokenize(String value) {
     List<Token> rt = new ArrayList<Token>();
@@ -852,21 +658,4 @@ public class ExpressionParser {
       return "[" + value + "]";
     }
   }
-
-  private static class ExpressionToken extends Token {
-
-    public final CommonExpression expression;
-    private final List<Token> tokens;
-
-    public ExpressionToken(CommonExpression expression, List<Token> tokens) {
-      super(TokenType.EXPRESSION, null);
-      this.expression = expression;
-      this.tokens = tokens;
-    }
-
-    @Override
-    public String toString() {
-      return Enumerable.create(tokens).join("");
-    }
-  }
 }
@@ -111,7 +111,7 @@ public class FormatParserFactory {
 
     @Override
     public FormatParser<Feed> getFeedFormatParser(Settings settings) {
-      return new AtomFeedFormatParser(settings.metadata, settings.entitySetName, settings.entityKey, settings.fcMapping);
+      return new AtomFeedFormatParser(settings.metadata, settings.entitySetName, settings.entityKey, settings.fcMapping, settings.pojoMapper);
     }
 
     @Override
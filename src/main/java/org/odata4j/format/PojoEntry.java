@@ -0,0 +1,23 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.format;
+
+/**
+ * An entry a feed parser has bound straight to a POJO, as requested by {@link Settings#pojoMapper}.
+ * Bound entries have no entity: {@link #getEntity()} returns null.
+ */
+public interface PojoEntry extends Entry {
+
+  /**
+   * Gets the POJO, or null if the entry could not be bound and carries an entity instead.
+   */
+  Object getPojo();
+
+}
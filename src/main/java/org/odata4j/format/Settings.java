@@ -14,6 +14,7 @@ import org.odata4j.core.OEntityKey;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmType;
 import org.odata4j.internal.FeedCustomizationMapping;
+import org.odata4j.internal.PojoMapper;
 
 public class Settings {
 
@@ -24,6 +25,8 @@ public class Settings {
   public final FeedCustomizationMapping fcMapping;
   public final boolean isResponse;
   public final EdmType parseType;
+  /** When set, feed parsers bind top-level entries straight to new instances instead of building entities; see {@link PojoEntry}. */
+  public final PojoMapper<?> pojoMapper;
 
   public Settings(ODataVersion version, EdmDataServices metadata,
       String entitySetName, OEntityKey entityKey, FeedCustomizationMapping fcMapping) {
@@ -39,6 +42,12 @@ public class Settings {
   public Settings(ODataVersion version, EdmDataServices metadata,
       String entitySetName, OEntityKey entityKey, FeedCustomizationMapping fcMapping,
       boolean isResponse, EdmType parseType) {
+    this(version, metadata, entitySetName, entityKey, fcMapping, isResponse, parseType, null);
+  }
+
+  public Settings(ODataVersion version, EdmDataServices metadata,
+      String entitySetName, OEntityKey entityKey, FeedCustomizationMapping fcMapping,
+      boolean isResponse, EdmType parseType, PojoMapper<?> pojoMapper) {
     this.version = version;
     this.metadata = metadata;
     this.entitySetName = entitySetName;
@@ -46,6 +55,7 @@ public class Settings {
     this.fcMapping = fcMapping;
     this.isResponse = isResponse;
     this.parseType = parseType;
+    this.pojoMapper = pojoMapper;
   }
 
 }
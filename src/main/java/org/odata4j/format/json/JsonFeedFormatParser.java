@@ -25,9 +25,11 @@ import org.odata4j.edm.EdmEntityType;
 import org.odata4j.format.Entry;
 import org.odata4j.format.Feed;
 import org.odata4j.format.FormatParser;
+import org.odata4j.format.PojoEntry;
 import org.odata4j.format.Settings;
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamReader;
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamReader.JsonEvent;
+import org.odata4j.internal.PojoMapper;
 
 public class JsonFeedFormatParser extends JsonFormatParser implements FormatParser<Feed> {
 
@@ -48,7 +50,7 @@ public class JsonFeedFormatParser extends JsonFormatParser implements FormatPars
 
   }
 
-  static class JsonEntry implements Entry {
+  static class JsonEntry implements PojoEntry {
 
     private EdmEntitySet entitySet;
     private EdmEntityType entityType;
@@ -57,6 +59,8 @@ public class JsonFeedFormatParser extends JsonFormatParser implements FormatPars
     List<OProperty<?>> properties;
     List<OLink> links;
     OEntity oentity;
+    PojoMapper<?> mapper;
+    Object pojo;
 
     public JsonEntry(EdmEntitySet eset) {
       this(eset, null);
@@ -103,6 +107,11 @@ public class JsonFeedFormatParser extends JsonFormatParser implements FormatPars
       return oentity;
     }
 
+    @Override
+    public Object getPojo() {
+      return pojo;
+    }
+
     public OEntityKey getEntityKey() {
       String uri = getUri();
       if (uri == null)
@@ -137,12 +146,12 @@ public class JsonFeedFormatParser extends JsonFormatParser implements FormatPars
       JsonEvent event = jsr.nextEvent();
       JsonFeed feed;
       if (event.isStartArray()) {
-        feed = parseFeed(metadata.getEdmEntitySet(entitySetName), jsr);
+        feed = parseFeed(metadata.getEdmEntitySet(entitySetName), jsr, pojoMapper);
         // ] already processed by parseFeed
       } else {
         feed = new JsonFeed();
         feed.entries = new ArrayList<Entry>();
-        feed.entries.add(parseEntry(metadata.getEdmEntitySet(entitySetName), jsr));
+        feed.entries.add(parseEntry(metadata.getEdmEntitySet(entitySetName), jsr, pojoMapper));
         // } already processed by parseEntry
       }
 
@@ -44,6 +44,7 @@ import org.odata4j.format.json.JsonFeedFormatParser.JsonEntry;
 import org.odata4j.format.json.JsonFeedFormatParser.JsonFeed;
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamReader;
 import org.odata4j.format.json.JsonStreamReaderFactory.JsonStreamReader.JsonEvent;
+import org.odata4j.internal.PojoMapper;
 
 public class JsonFormatParser {
 
@@ -79,6 +80,7 @@ public class JsonFormatParser {
   protected OEntityKey entityKey;
   protected boolean isResponse;
   protected EdmType parseType;
+  protected PojoMapper<?> pojoMapper;
 
   protected JsonFormatParser(Settings settings) {
     this.version = settings == null ? null : settings.version;
@@ -87,9 +89,17 @@ public class JsonFormatParser {
     this.entityKey = settings == null ? null : settings.entityKey;
     this.isResponse = settings == null ? false : settings.isResponse;
     this.parseType = settings == null ? null : settings.parseType;
+    this.pojoMapper = settings == null ? null : settings.pojoMapper;
   }
 
   protected JsonFeed parseFeed(EdmEntitySet ees, JsonStreamReader jsr) {
+    return parseFeed(ees, jsr, null);
+  }
+
+  /**
+   * Parses a feed, binding its entries straight to new POJO instances if a mapper is given.
+   */
+  protected JsonFeed parseFeed(EdmEntitySet ees, JsonStreamReader jsr, PojoMapper<?> mapper) {
     JsonFeed feed = new JsonFeed();
     feed.entries = new ArrayList<Entry>();
 
@@ -97,7 +107,7 @@ public class JsonFormatParser {
       JsonEvent event = jsr.nextEvent();
 
       if (event.isStartObject()) {
-        JsonEntry entry = parseEntry(ees, jsr);
+        JsonEntry entry = parseEntry(ees, jsr, mapper);
         feed.entries.add(entry);
       } else if (event.isEndArray()) {
         break;
@@ -141,9 +151,21 @@ public class JsonFormatParser {
   }
 
   protected JsonEntry parseEntry(EdmEntitySet ees, JsonStreamReader jsr) {
+    return parseEntry(ees, jsr, null);
+  }
+
+  /**
+   * Parses an entry, binding it straight to a new POJO instance if a mapper is given.
+   * Inlined related entities are still parsed as entities, and bound once the entry is complete.
+   */
+  protected JsonEntry parseEntry(EdmEntitySet ees, JsonStreamReader jsr, PojoMapper<?> mapper) {
     JsonEntry entry = new JsonEntry(ees);
     entry.properties = new ArrayList<OProperty<?>>();
     entry.links = new ArrayList<OLink>();
+    if (mapper != null) {
+      entry.mapper = mapper;
+      entry.pojo = mapper.newInstance();
+    }
 
     while (jsr.hasNext()) {
       JsonEvent event = jsr.nextEvent();
@@ -155,7 +177,10 @@ public class JsonFormatParser {
       }
     }
 
-    entry.oentity = toOEntity(ees, entry.getEntityType(), entry.getEntityKey(), entry.properties, entry.links);
+    if (entry.pojo != null)
+      mapper.setLinks(entry.pojo, entry.links);
+    else
+      entry.oentity = toOEntity(ees, entry.getEntityType(), entry.getEntityKey(), entry.properties, entry.links);
     return entry;
   }
 
@@ -240,7 +265,10 @@ public class JsonFormatParser {
       // TODO support complex type properties
       if (!ep.getType().isSimple())
         throw new UnsupportedOperationException("Only simple properties supported");
-      entry.properties.add(JsonTypeConverter.parse(name, (EdmSimpleType<?>) ep.getType(), event.asEndProperty().getValue()));
+      if (entry.pojo != null)
+        entry.mapper.setProperty(entry.pojo, name, JsonTypeConverter.parseValue((EdmSimpleType<?>) ep.getType(), event.asEndProperty().getValue()));
+      else
+        entry.properties.add(JsonTypeConverter.parse(name, (EdmSimpleType<?>) ep.getType(), event.asEndProperty().getValue()));
     } else if (event.isStartObject()) {
       // reference deferred or inlined
 
@@ -262,10 +290,16 @@ public class JsonFormatParser {
         entry.links.add(OLinks.relatedEntitiesInline(name, name, entry.getUri() + "/" + name,
             val.entities));
       } else if (val.collection != null) {
-        entry.properties.add(OProperties.collection(name, val.collectionType, val.collection));
+        if (entry.pojo != null)
+          entry.mapper.setProperty(entry.pojo, name, val.collection);
+        else
+          entry.properties.add(OProperties.collection(name, val.collectionType, val.collection));
       } else if (val.complexObject != null) {
-        entry.properties.add(OProperties.complex(name, (EdmComplexType) val.complexObject.getType(),
-            val.complexObject.getProperties()));
+        if (entry.pojo != null)
+          entry.mapper.setProperty(entry.pojo, name, val.complexObject.getProperties());
+        else
+          entry.properties.add(OProperties.complex(name, (EdmComplexType) val.complexObject.getType(),
+              val.complexObject.getProperties()));
       }
     } else if (event.isStartArray()) {
       ensureNext(jsr);
@@ -24,40 +24,41 @@ import org.odata4j.repack.org.apache.commons.codec.binary.Base64;
 public class JsonTypeConverter {
 
   public static OProperty<?> parse(String name, EdmSimpleType<?> type, String value) {
+    EdmSimpleType<?> edmType = type == null ? EdmSimpleType.STRING : type;
+    return OProperties.simple(name, edmType, parseValue(type, value));
+  }
+
+  /**
+   * Parses a JSON property value, without creating a property.
+   *
+   * @param type  the property type, or null for strings
+   * @param value  the JSON value
+   * @return the java value
+   */
+  public static Object parseValue(EdmSimpleType<?> type, String value) {
 
     if (EdmSimpleType.GUID.equals(type)) {
-      Guid uValue = value == null ? null : Guid.fromString(value.substring(5, value.length() - 1));
-      return OProperties.guid(name, uValue);
+      return value == null ? null : Guid.fromString(value.substring(5, value.length() - 1));
     } else if (EdmSimpleType.BOOLEAN.equals(type)) {
-      Boolean bValue = value == null ? null : Boolean.parseBoolean(value);
-      return OProperties.boolean_(name, bValue);
+      return value == null ? null : Boolean.parseBoolean(value);
     } else if (EdmSimpleType.BYTE.equals(type)) {
-      UnsignedByte bValue = value == null ? null : UnsignedByte.parseUnsignedByte(value);
-      return OProperties.byte_(name, bValue);
+      return value == null ? null : UnsignedByte.parseUnsignedByte(value);
     } else if (EdmSimpleType.SBYTE.equals(type)) {
-      Byte bValue = value == null ? null : Byte.parseByte(value);
-      return OProperties.sbyte_(name, bValue);
+      return value == null ? null : Byte.parseByte(value);
     } else if (EdmSimpleType.INT16.equals(type)) {
-      Short sValue = value == null ? null : Short.parseShort(value);
-      return OProperties.int16(name, sValue);
+      return value == null ? null : Short.parseShort(value);
     } else if (EdmSimpleType.INT32.equals(type)) {
-      Integer iValue = value == null ? null : Integer.parseInt(value);
-      return OProperties.int32(name, iValue);
+      return value == null ? null : Integer.parseInt(value);
     } else if (EdmSimpleType.INT64.equals(type)) {
-      Long lValue = value == null ? null : Long.parseLong(value);
-      return OProperties.int64(name, lValue);
+      return value == null ? null : Long.parseLong(value);
     } else if (EdmSimpleType.SINGLE.equals(type)) {
-      Float fValue = value == null ? null : Float.parseFloat(value);
-      return OProperties.single(name, fValue);
+      return value == null ? null : Float.parseFloat(value);
     } else if (EdmSimpleType.DOUBLE.equals(type)) {
-      Double dValue = value == null ? null : Double.parseDouble(value);
-      return OProperties.double_(name, dValue);
+      return value == null ? null : Double.parseDouble(value);
     } else if (EdmSimpleType.DECIMAL.equals(type)) {
-      BigDecimal dValue = value == null ? null : new BigDecimal(value);
-      return OProperties.decimal(name, dValue);
+      return value == null ? null : new BigDecimal(value);
     } else if (EdmSimpleType.BINARY.equals(type)) {
-      byte[] bValue = value == null ? null : new Base64().decode(value);
-      return OProperties.binary(name, bValue);
+      return value == null ? null : new Base64().decode(value);
     } else if (EdmSimpleType.DATETIME.equals(type)) {
       LocalDateTime dValue = null;
       if (value != null) {
@@ -82,14 +83,13 @@ public class JsonTypeConverter {
           dValue = new LocalDateTime(Long.parseLong(ticks));
         }
       }
-      return OProperties.datetime(name, dValue);
+      return dValue;
     } else if (EdmSimpleType.DATETIMEOFFSET.equals(type)) {
-      return OProperties.datetimeOffset(name, InternalUtil.parseDateTime(value.substring(value.indexOf('\'') + 1, value.length() - 1)));
+      return value == null ? null : InternalUtil.parseDateTime(value.substring(value.indexOf('\'') + 1, value.length() - 1));
     } else if (EdmSimpleType.TIME.equals(type)) {
-      LocalTime tValue = value == null ? null : new LocalTime(value);
-      return OProperties.time(name, tValue);
+      return value == null ? null : new LocalTime(value);
     } else if (EdmSimpleType.STRING.equals(type) || type == null) {
-      return OProperties.string(name, value);
+      return value;
     }
     throw new UnsupportedOperationException("type:" + type);
   }
@@ -12,6 +12,7 @@ package org.odata4j.format.xml;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -27,18 +28,22 @@ import org.odata4j.core.OLink;
 import org.odata4j.core.OLinks;
 import org.odata4j.core.OProperties;
 import org.odata4j.core.OProperty;
+import org.odata4j.core.OSimpleObjects;
 import org.odata4j.edm.EdmComplexType;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmEntitySet;
 import org.odata4j.edm.EdmEntityType;
 import org.odata4j.edm.EdmFunctionImport;
 import org.odata4j.edm.EdmNavigationProperty;
+import org.odata4j.edm.EdmSimpleType;
 import org.odata4j.edm.EdmType;
 import org.odata4j.format.Entry;
 import org.odata4j.format.Feed;
 import org.odata4j.format.FormatParser;
+import org.odata4j.format.PojoEntry;
 import org.odata4j.internal.FeedCustomizationMapping;
 import org.odata4j.internal.InternalUtil;
+import org.odata4j.internal.PojoMapper;
 import org.odata4j.stax2.Attribute2;
 import org.odata4j.stax2.QName2;
 import org.odata4j.stax2.StartElement2;
@@ -53,12 +58,25 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
   protected String entitySetName;
   protected OEntityKey entityKey;
   protected FeedCustomizationMapping fcMapping;
+  protected PojoMapper<?> pojoMapper;
 
   public AtomFeedFormatParser(EdmDataServices metadata, String entitySetName, OEntityKey entityKey, FeedCustomizationMapping fcMapping) {
+    this(metadata, entitySetName, entityKey, fcMapping, null);
+  }
+
+  /**
+   * Creates a feed parser that binds the entries of the feed straight to new POJO instances,
+   * without building entities first.
+   *
+   * @param pojoMapper  binds the entries, or null to build entities
+   * @see PojoEntry
+   */
+  public AtomFeedFormatParser(EdmDataServices metadata, String entitySetName, OEntityKey entityKey, FeedCustomizationMapping fcMapping, PojoMapper<?> pojoMapper) {
     this.metadata = metadata;
     this.entitySetName = entitySetName;
     this.entityKey = entityKey;
     this.fcMapping = fcMapping;
+    this.pojoMapper = pojoMapper;
   }
 
   public static class AtomFeed implements Feed {
@@ -124,13 +142,14 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
     }
   }
 
-  public static class DataServicesAtomEntry extends AtomEntry {
+  public static class DataServicesAtomEntry extends AtomEntry implements PojoEntry {
     public String etag;
     // remove properties and links because they are already in the oentity
     public List<OProperty<?>> properties;
     public List<OLink> links;
 
     private OEntity oentity;
+    private Object pojo;
 
     @Override
     public String toString() {
@@ -145,14 +164,23 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
     void setOEntity(OEntity oentity) {
       this.oentity = oentity;
     }
+
+    @Override
+    public Object getPojo() {
+      return pojo;
+    }
   }
 
   @Override
   public AtomFeed parse(Reader reader) {
-    return parseFeed(InternalUtil.newXMLEventReader(reader));
+    return parseFeed(InternalUtil.newXMLEventReader(reader), pojoMapper);
   }
 
   AtomFeed parseFeed(XMLEventReader2 reader) {
+    return parseFeed(reader, null);
+  }
+
+  private AtomFeed parseFeed(XMLEventReader2 reader, PojoMapper<?> mapper) {
 
     AtomFeed feed = new AtomFeed();
     List<AtomEntry> rt = new ArrayList<AtomEntry>();
@@ -161,7 +189,7 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
       XMLEvent2 event = reader.nextEvent();
 
       if (isStartElement(event, ATOM_ENTRY)) {
-        rt.add(parseEntry(reader, event.asStartElement()));
+        rt.add(parseEntry(reader, event.asStartElement(), mapper));
       } else if (isStartElement(event, ATOM_LINK)) {
         if ("next".equals(event.asStartElement().getAttributeByName(new QName2("rel")).getValue())) {
           feed.next = event.asStartElement().getAttributeByName(new QName2("href")).getValue();
@@ -197,16 +225,8 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
 
         OProperty<?> op = null;
 
-        String type = null;
-        EdmType et = null;
-        if (typeAttribute != null) {
-          type = typeAttribute.getValue();
-          et = metadata.resolveType(type);
-          if (et == null) {
-            // property arrived with an unknown type
-            throw new RuntimeException("unknown property type: " + type);
-          }
-        }
+        String type = typeAttribute == null ? null : typeAttribute.getValue();
+        EdmType et = resolvePropertyType(type, metadata);
 
         if (null != et && (!et.isSimple())) {
           op = OProperties.complex(name, (EdmComplexType) et, isNull ? null : Enumerable.create(parseProperties(reader, event.asStartElement(), metadata)).toList());
@@ -222,6 +242,52 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
     throw new RuntimeException();
   }
 
+  /**
+   * Parses properties straight into a POJO, with the values {@link #parseProperties} would give the properties.
+   */
+  private static void bindProperties(XMLEventReader2 reader, StartElement2 propertiesElement, EdmDataServices metadata, PojoMapper<?> mapper, Object pojo) {
+    while (reader.hasNext()) {
+      XMLEvent2 event = reader.nextEvent();
+
+      if (event.isEndElement() && event.asEndElement().getName().equals(propertiesElement.getName())) {
+        return;
+      }
+
+      if (event.isStartElement() && event.asStartElement().getName().getNamespaceUri().equals(NS_DATASERVICES)) {
+
+        String name = event.asStartElement().getName().getLocalPart();
+        Attribute2 typeAttribute = event.asStartElement().getAttributeByName(M_TYPE);
+        Attribute2 nullAttribute = event.asStartElement().getAttributeByName(M_NULL);
+        boolean isNull = nullAttribute != null && "true".equals(nullAttribute.getValue());
+
+        String type = typeAttribute == null ? null : typeAttribute.getValue();
+        EdmType et = resolvePropertyType(type, metadata);
+
+        Object value;
+        if (null != et && (!et.isSimple())) {
+          value = isNull ? null : Enumerable.create(parseProperties(reader, event.asStartElement(), metadata)).toList();
+        } else {
+          EdmSimpleType<?> edmType = type == null ? EdmSimpleType.STRING : EdmType.getSimple(type);
+          value = OSimpleObjects.parse(edmType, isNull ? null : reader.getElementText()).getValue();
+        }
+        mapper.setProperty(pojo, name, value);
+      }
+    }
+
+    throw new RuntimeException();
+  }
+
+  private static EdmType resolvePropertyType(String type, EdmDataServices metadata) {
+    if (type == null)
+      return null;
+    EdmType rt = metadata.resolveType(type);
+    if (rt == null) {
+      // property arrived with an unknown type
+      throw new RuntimeException("unknown property type: " + type);
+    }
+    return rt;
+  }
+
   private AtomLink parseAtomLink(XMLEventReader2 reader, StartElement2 linkElement) {
     AtomLink rt = new AtomLink();
     rt.relation = getAttributeValueIfExists(linkElement, "rel");
@@ -246,16 +312,22 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
       } else if (isStartElement(event, ATOM_FEED)) {
         rt.inlineFeed = parseFeed(reader);
       } else if (isStartElement(event, ATOM_ENTRY)) {
-        rt.inlineEntry = parseEntry(reader, event.asStartElement());
+        rt.inlineEntry = parseEntry(reader, event.asStartElement(), null);
       }
     }
     return rt;
   }
 
-  private DataServicesAtomEntry parseDSAtomEntry(String etag, XMLEventReader2 reader, XMLEvent2 event) {
+  private DataServicesAtomEntry parseDSAtomEntry(String etag, XMLEventReader2 reader, XMLEvent2 event, PojoMapper<?> mapper) {
     DataServicesAtomEntry dsae = new DataServicesAtomEntry();
     dsae.etag = etag;
-    dsae.properties = Enumerable.create(parseProperties(reader, event.asStartElement(), this.metadata)).toList();
+    if (mapper != null) {
+      dsae.pojo = mapper.newInstance();
+      dsae.properties = Collections.emptyList();
+      bindProperties(reader, event.asStartElement(), this.metadata, mapper, dsae.pojo);
+    } else {
+      dsae.properties = Enumerable.create(parseProperties(reader, event.asStartElement(), this.metadata)).toList();
+    }
     return dsae;
   }
 
@@ -293,7 +365,7 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
     return OEntityKey.parse(atomEntryId.substring(m.end() - 1));
   }
 
-  private AtomEntry parseEntry(XMLEventReader2 reader, StartElement2 entryElement) {
+  private AtomEntry parseEntry(XMLEventReader2 reader, StartElement2 entryElement, PojoMapper<?> mapper) {
 
     String id = null;
     String categoryTerm = null;
@@ -335,7 +407,10 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
           }
           if (ees == null)
             throw new RuntimeException("Could not derive the entity-set for entry: " + rt.id);
-          dsae.setOEntity(entityFromAtomEntry(metadata, ees, dsae, fcMapping));
+          if (dsae.pojo != null)
+            bindAtomEntry(metadata, ees, dsae, mapper, fcMapping);
+          else
+            dsae.setOEntity(entityFromAtomEntry(metadata, ees, dsae, fcMapping));
         }
         return rt;
       }
@@ -355,7 +430,7 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
         AtomLink link = parseAtomLink(reader, event.asStartElement());
         atomLinks.add(link);
       } else if (isStartElement(event, M_PROPERTIES)) {
-        rt = parseDSAtomEntry(etag, reader, event);
+        rt = parseDSAtomEntry(etag, reader, event, mapper);
       } else if (isStartElement(event, ATOM_CONTENT)) {
         contentType = getAttributeValueIfExists(event.asStartElement(), "type");
         if (MediaType.APPLICATION_XML.equals(contentType)) {
@@ -366,7 +441,7 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
             if (valueElement == null && event2.isStartElement()) {
               valueElement = event2.asStartElement();
               if (isStartElement(event2, M_PROPERTIES)) {
-                rt = parseDSAtomEntry(etag, reader, event2);
+                rt = parseDSAtomEntry(etag, reader, event2, mapper);
               } else {
                 BasicAtomEntry bae = new BasicAtomEntry();
                 bae.content = innerText(reader, event2.asStartElement());
@@ -387,6 +462,21 @@ public class AtomFeedFormatParser extends XmlFormatParser implements FormatParse
     throw new RuntimeException();
   }
 
+  private void bindAtomEntry(
+      EdmDataServices metadata,
+      EdmEntitySet entitySet,
+      DataServicesAtomEntry dsae,
+      PojoMapper<?> mapper,
+      FeedCustomizationMapping mapping) {
+    if (mapping != null) {
+      if (mapping.titlePropName != null)
+        mapper.setProperty(dsae.pojo, mapping.titlePropName, dsae.title);
+      if (mapping.summaryPropName != null)
+        mapper.setProperty(dsae.pojo, mapping.summaryPropName, dsae.summary);
+    }
+    mapper.setLinks(dsae.pojo, toOLinks(metadata, entitySet, dsae.atomLinks, mapping));
+  }
+
   private OEntity entityFromAtomEntry(
       EdmDataServices metadata,
       EdmEntitySet entitySet,
@@ -10,12 +10,8 @@
 package org.odata4j.internal;
 
 import java.io.Reader;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.util.Collection;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.ws.rs.core.HttpHeaders;
 
@@ -35,13 +31,9 @@ import org.odata4j.core.ODataConstants;
 import org.odata4j.core.ODataVersion;
 import org.odata4j.core.OEntity;
 import org.odata4j.core.OEntityKey;
-import org.odata4j.core.OLink;
 import org.odata4j.core.OProperty;
-import org.odata4j.core.ORelatedEntitiesLinkInline;
-import org.odata4j.core.ORelatedEntityLink;
 import org.odata4j.core.Throwables;
 import org.odata4j.edm.EdmEntitySet;
-import org.odata4j.producer.inmemory.BeanModel;
 import org.odata4j.stax2.XMLEventReader2;
 import org.odata4j.stax2.XMLFactoryProvider2;
 import org.odata4j.stax2.XMLInputFactory2;
@@ -53,23 +45,11 @@ public class InternalUtil {
   // spec says:
   // Edm.DateTime: yyyy-mm-ddThh:mm[:ss[.fffffff]]
   // Edm.DateTimeOffset: yyyy-mm-ddThh:mm[:ss[.fffffff]](('+'|'-')hh':'mm)|'Z'
-  private static final Pattern DATETIME_PATTERN =
-      Pattern.compile("(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2})(:\\d{2})?(\\.\\d{1,7})?((?:(?:\\+|\\-)\\d{2}:\\d{2})|Z)?");
-
-  private static final DateTimeFormatter[] DATETIME_PARSER = new DateTimeFormatter[] {
-      // formatter for parsing of dateTime and dateTimeOffset
-      DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm"),
-      DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss"),
-      null /* illegal format @see parseDateTime */,
-      DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
-      DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mmZZ").withOffsetParsed(),
-      DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ssZZ").withOffsetParsed(),
-      null /* illegal format @see parseDateTime */,
-      DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZZ").withOffsetParsed()
-  };
+  // Both are parsed and formatted by hand: these run for every date value of every entity,
+  // and regular expressions and Joda pattern formatting show up in profiles of date-heavy feeds.
 
   private static final DateTimeFormatter[] DATETIME_FORMATTER = new DateTimeFormatter[] {
-      // formatter for formatting of dateTimeOffset
+      // formatter for formatting of dates outside the years 0 to 9999 and offsets with seconds
       DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm"),
       DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss"),
       DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
@@ -80,62 +60,151 @@ public class InternalUtil {
       DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZZ")
   };
 
+  /**
+   * Parses an Edm.DateTime or Edm.DateTimeOffset value.
+   *
+   * <p>Fractional seconds may have up to seven digits, of which the first three are used.  Values
+   * with an offset or 'Z' have a fixed-offset time zone; values without one are in the default time zone.</p>
+   *
+   * @param value  the value
+   * @return the parsed date and time
+   * @throws IllegalArgumentException if the value is not a valid date and time
+   */
   public static DateTime parseDateTime(String value) {
-    Matcher matcher = DATETIME_PATTERN.matcher(value);
-
-    if (matcher.matches()) {
-      String dateTime = matcher.group(1);
-      String seconds = matcher.group(2);
-      String nanoSeconds = matcher.group(3);
-      String timezone = matcher.group(4);
-
-      int idx = (seconds != null ? 1 : 0)
-          + (nanoSeconds != null ? 2 : 0)
-          + (timezone != null ? 4 : 0);
-
-      StringBuilder valueToParse = new StringBuilder(dateTime);
-      if (seconds != null)
-        valueToParse.append(seconds);
-
-      // we know only about milliseconds not nanoseconds
-      if (nanoSeconds != null) {
-        if (nanoSeconds.length() > 4) {
-          valueToParse.append(nanoSeconds.substring(0,
-              Math.min(nanoSeconds.length(), 4)));
-        } else {
-          valueToParse.append(nanoSeconds);
+    int length = value.length();
+    // yyyy-mm-ddThh:mm
+    if (length < 16
+        || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T' || value.charAt(13) != ':')
+      throw illegalDateTime(value);
+    int year = digits(value, 0, 4);
+    int month = digits(value, 5, 2);
+    int day = digits(value, 8, 2);
+    int hour = digits(value, 11, 2);
+    int minute = digits(value, 14, 2);
+    int second = 0;
+    int millis = 0;
+    int pos = 16;
+
+    // [:ss[.fffffff]]
+    if (pos < length && value.charAt(pos) == ':') {
+      second = digits(value, pos + 1, 2);
+      pos += 3;
+      if (pos < length && value.charAt(pos) == '.') {
+        int start = ++pos;
+        while (pos < length && pos - start < 7 && isDigit(value.charAt(pos))) {
+          // we know only about milliseconds not nanoseconds
+          if (pos - start < 3)
+            millis = millis * 10 + (value.charAt(pos) - '0');
+          pos++;
         }
+        int fractionDigits = pos - start;
+        if (fractionDigits == 0)
+          throw illegalDateTime(value);
+        for (int i = fractionDigits; i < 3; i++)
+          millis *= 10;
       }
+    }
 
-      if (timezone != null) {
-        if ("Z".equals(timezone)) {
-          timezone = "+00:00";
-        }
-        valueToParse.append(timezone);
-      }
+    // [('+'|'-')hh':'mm|'Z']
+    DateTimeZone zone;
+    if (pos == length) {
+      zone = DateTimeZone.getDefault();
+    } else if (value.charAt(pos) == 'Z' && pos + 1 == length) {
+      zone = DateTimeZone.UTC;
+    } else if ((value.charAt(pos) == '+' || value.charAt(pos) == '-') && pos + 6 == length && value.charAt(pos + 3) == ':') {
+      int offsetHours = digits(value, pos + 1, 2);
+      int offsetMinutes = digits(value, pos + 4, 2);
+      if (offsetHours > 23 || offsetMinutes > 59)
+        throw illegalDateTime(value);
+      offsetMinutes += offsetHours * 60;
+      zone = DateTimeZone.forOffsetMillis((value.charAt(pos) == '-' ? -offsetMinutes : offsetMinutes) * 60000);
+    } else {
+      throw illegalDateTime(value);
+    }
 
-      DateTimeFormatter formatter = DATETIME_PARSER[idx];
-      if (formatter != null) {
-        return formatter.parseDateTime(valueToParse.toString());
-      }
+    // out of range fields are rejected by the chronology with an IllegalArgumentException
+    return new DateTime(year, month, day, hour, minute, second, millis, zone);
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static int digits(String value, int start, int count) {
+    if (start + count > value.length())
+      throw illegalDateTime(value);
+    int rt = 0;
+    for (int i = start; i < start + count; i++) {
+      char c = value.charAt(i);
+      if (!isDigit(c))
+        throw illegalDateTime(value);
+      rt = rt * 10 + (c - '0');
     }
-    throw new IllegalArgumentException("Illegal datetime format " + value);
+    return rt;
+  }
+
+  private static IllegalArgumentException illegalDateTime(String value) {
+    return new IllegalArgumentException("Illegal datetime format " + value);
   }
 
   public static String formatDateTime(LocalDateTime dateTime) {
     if (dateTime == null)
       return null;
 
-    int idx = dateTime.getMillisOfSecond() > 0 ? 2 : 1;
-    return dateTime.toString(DATETIME_FORMATTER[idx]);
+    int year = dateTime.getYear();
+    if (year < 0 || year > 9999) {
+      int idx = dateTime.getMillisOfSecond() > 0 ? 2 : 1;
+      return dateTime.toString(DATETIME_FORMATTER[idx]);
+    }
+    StringBuilder sb = new StringBuilder(23);
+    appendDateTime(sb, year, dateTime.getMonthOfYear(), dateTime.getDayOfMonth(),
+        dateTime.getHourOfDay(), dateTime.getMinuteOfHour(), dateTime.getSecondOfMinute(), dateTime.getMillisOfSecond());
+    return sb.toString();
   }
 
   public static String formatDateTimeOffset(DateTime dateTime) {
     if (dateTime == null)
       return null;
 
-    int idx = 4 + (dateTime.getMillisOfSecond() > 0 ? 2 : 1);
-    return dateTime.toString(DATETIME_FORMATTER[idx]);
+    int year = dateTime.getYear();
+    int offset = dateTime.getZone().getOffset(dateTime.getMillis());
+    if (year < 0 || year > 9999 || offset % 60000 != 0) {
+      int idx = 4 + (dateTime.getMillisOfSecond() > 0 ? 2 : 1);
+      return dateTime.toString(DATETIME_FORMATTER[idx]);
+    }
+    StringBuilder sb = new StringBuilder(29);
+    appendDateTime(sb, year, dateTime.getMonthOfYear(), dateTime.getDayOfMonth(),
+        dateTime.getHourOfDay(), dateTime.getMinuteOfHour(), dateTime.getSecondOfMinute(), dateTime.getMillisOfSecond());
+    int offsetMinutes = Math.abs(offset / 60000);
+    sb.append(offset < 0 ? '-' : '+');
+    appendDigits(sb, offsetMinutes / 60, 2);
+    sb.append(':');
+    appendDigits(sb, offsetMinutes % 60, 2);
+    return sb.toString();
+  }
+
+  // yyyy-MM-dd'T'HH:mm:ss[.SSS]
+  private static void appendDateTime(StringBuilder sb, int year, int month, int day, int hour, int minute, int second, int millis) {
+    appendDigits(sb, year, 4);
+    sb.append('-');
+    appendDigits(sb, month, 2);
+    sb.append('-');
+    appendDigits(sb, day, 2);
+    sb.append('T');
+    appendDigits(sb, hour, 2);
+    sb.append(':');
+    appendDigits(sb, minute, 2);
+    sb.append(':');
+    appendDigits(sb, second, 2);
+    if (millis > 0) {
+      sb.append('.');
+      appendDigits(sb, millis, 3);
+    }
+  }
+
+  private static void appendDigits(StringBuilder sb, int value, int count) {
+    for (int divisor = count == 4 ? 1000 : count == 3 ? 100 : 10; divisor > 0; divisor /= 10)
+      sb.append((char) ('0' + value / divisor % 10));
   }
 
   public static XMLEventReader2 newXMLEventReader(Reader reader) {
@@ -173,72 +242,7 @@ public class InternalUtil {
   }
 
   public static <T> T toPojo(Class<T> pojoClass, OEntity oe) {
-    try {
-      Constructor<T> defaultCtor = findDefaultDeclaredConstructor(pojoClass);
-      if (defaultCtor == null)
-        throw new RuntimeException(
-            "Unable to find a default constructor for "
-                + pojoClass.getName());
-
-      if (!defaultCtor.isAccessible())
-        defaultCtor.setAccessible(true);
-
-      T rt = defaultCtor.newInstance();
-
-      final BeanModel beanModel = new BeanModel(pojoClass);
-
-      for (OProperty<?> op : oe.getProperties()) {
-        if (beanModel.canWrite(op.getName()))
-          beanModel.setPropertyValue(rt, op.getName(), op.getValue());
-      }
-
-      for (OLink l : oe.getLinks()) {
-          if (l instanceof ORelatedEntitiesLinkInline) {
-            ORelatedEntitiesLinkInline ol = (ORelatedEntitiesLinkInline) l;
-            final String collectionName = ol.getTitle();
-            if (beanModel.canWrite(ol.getTitle())) {
-              Collection<Object> relatedEntities = ol.getRelatedEntities() == null
-                  ? null
-                  : Enumerable.create(ol.getRelatedEntities())
-                      .select(new Func1<OEntity, Object>() {
-                        @Override
-                        public Object apply(OEntity input) {
-                          return toPojo(
-                              beanModel.getCollectionElementType(collectionName),
-                              input);
-                        }
-                      }).toList();
-              beanModel.setCollectionValue(rt, collectionName,
-                  relatedEntities);
-            }
-          } else if (l instanceof ORelatedEntityLink) {
-        	  ORelatedEntityLink ol = (ORelatedEntityLink) l;
-              final String propertyName = ol.getTitle();
-              if (beanModel.canWrite(ol.getTitle())) {
-            	  Object value = ol.getRelatedEntity();
-            	  if (value != null) {
-            		  beanModel.setPropertyValue(rt, propertyName, toPojo(beanModel.getPropertyType(propertyName), (OEntity) value));
-            	  }
-              }
-        	 
-          }
-        }
-
-      return rt;
-    } catch (Exception e) {
-      throw Throwables.propagate(e);
-    }
-
-  }
-
-  @SuppressWarnings("unchecked")
-  private static <T> Constructor<T> findDefaultDeclaredConstructor(
-      Class<T> pojoClass) {
-    for (Constructor<?> ctor : pojoClass.getDeclaredConstructors()) {
-      if (ctor.getParameterTypes().length == 0)
-        return (Constructor<T>) ctor;
-    }
-    return null;
+    return PojoMapper.forClass(pojoClass).toPojo(oe);
   }
 
   public static String getEntityRelId(List<String> keyPropertyNames,
@@ -0,0 +1,208 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.internal;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+import org.odata4j.core.Guid;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OProperty;
+import org.odata4j.core.ORelatedEntitiesLinkInline;
+import org.odata4j.core.ORelatedEntityLink;
+import org.odata4j.core.Throwables;
+import org.odata4j.producer.inmemory.BeanModel;
+
+/**
+ * Binds OData property values and links to instances of a POJO class.
+ *
+ * <p>The class is introspected once, and the setter of each property name is resolved on first use
+ * and then reused, so that binding a row costs no more than the setter calls themselves.  Feed parsers
+ * use a mapper to write parsed values straight into new instances, without building an {@link OEntity}
+ * first.  Mappers are shared and thread-safe.</p>
+ *
+ * @param <T> the POJO type
+ */
+public class PojoMapper<T> {
+
+  // classes are weakly held and mappers softly, as a mapper references its class: neither keeps the
+  // classes of a redeployed application, nor their class loader, from being collected
+  private static final Map<Class<?>, SoftReference<PojoMapper<?>>> MAPPERS = new WeakHashMap<Class<?>, SoftReference<PojoMapper<?>>>();
+  private static final Setter NO_SETTER = new Setter(null);
+
+  private final Class<T> pojoClass;
+  private final Constructor<T> defaultCtor;
+  private final BeanModel beanModel;
+  private final ConcurrentMap<String, Setter> setters = new ConcurrentHashMap<String, Setter>();
+
+  private PojoMapper(Class<T> pojoClass) {
+    this.pojoClass = pojoClass;
+    this.defaultCtor = findDefaultDeclaredConstructor(pojoClass);
+    if (defaultCtor != null && !defaultCtor.isAccessible())
+      defaultCtor.setAccessible(true);
+    this.beanModel = new BeanModel(pojoClass);
+  }
+
+  /**
+   * Gets the mapper for a class.
+   */
+  public static <T> PojoMapper<T> forClass(Class<T> pojoClass) {
+    PojoMapper<T> rt = get(pojoClass);
+    if (rt == null) {
+      // introspected out of the lock, the first mapper registered wins
+      rt = new PojoMapper<T>(pojoClass);
+      synchronized (MAPPERS) {
+        PojoMapper<T> existing = get(pojoClass);
+        if (existing != null)
+          return existing;
+        MAPPERS.put(pojoClass, new SoftReference<PojoMapper<?>>(rt));
+      }
+    }
+    return rt;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> PojoMapper<T> get(Class<T> pojoClass) {
+    synchronized (MAPPERS) {
+      SoftReference<PojoMapper<?>> ref = MAPPERS.get(pojoClass);
+      return ref == null ? null : (PojoMapper<T>) ref.get();
+    }
+  }
+
+  public Class<T> getPojoClass() {
+    return pojoClass;
+  }
+
+  /**
+   * Creates a new, empty instance.
+   */
+  public T newInstance() {
+    if (defaultCtor == null)
+      throw new RuntimeException("Unable to find a default constructor for " + pojoClass.getName());
+    try {
+      return defaultCtor.newInstance();
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Sets a property of an instance.  Properties the class cannot write are ignored.
+   *
+   * @param target  an instance of the class
+   * @param name  the OData property name
+   * @param value  the property value
+   */
+  public void setProperty(Object target, String name, Object value) {
+    Setter setter = setters.get(name);
+    if (setter == null) {
+      Method method = beanModel.findSetter(name);
+      setter = method == null ? NO_SETTER : new Setter(method);
+      setters.putIfAbsent(name, setter);
+    }
+    if (setter != NO_SETTER)
+      setter.set(target, value);
+  }
+
+  /**
+   * Sets the inlined related entities of an instance from its links.  Deferred links are ignored.
+   *
+   * @param target  an instance of the class
+   * @param links  the links
+   */
+  public void setLinks(Object target, Iterable<OLink> links) {
+    for (OLink l : links) {
+      if (l instanceof ORelatedEntitiesLinkInline) {
+        ORelatedEntitiesLinkInline ol = (ORelatedEntitiesLinkInline) l;
+        String collectionName = ol.getTitle();
+        if (beanModel.canWrite(collectionName)) {
+          Collection<Object> relatedEntities = null;
+          if (ol.getRelatedEntities() != null) {
+            PojoMapper<?> elementMapper = forClass(beanModel.getCollectionElementType(collectionName));
+            relatedEntities = new ArrayList<Object>(ol.getRelatedEntities().size());
+            for (OEntity relatedEntity : ol.getRelatedEntities())
+              relatedEntities.add(elementMapper.toPojo(relatedEntity));
+          }
+          beanModel.setCollectionValue(target, collectionName, relatedEntities);
+        }
+      } else if (l instanceof ORelatedEntityLink) {
+        String propertyName = l.getTitle();
+        if (beanModel.canWrite(propertyName)) {
+          OEntity relatedEntity = l.getRelatedEntity();
+          if (relatedEntity != null)
+            beanModel.setPropertyValue(target, propertyName, forClass(beanModel.getPropertyType(propertyName)).toPojo(relatedEntity));
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a new instance from an entity.
+   */
+  public T toPojo(OEntity oe) {
+    T rt = newInstance();
+    for (OProperty<?> op : oe.getProperties())
+      setProperty(rt, op.getName(), op.getValue());
+    setLinks(rt, oe.getLinks());
+    return rt;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Constructor<T> findDefaultDeclaredConstructor(Class<T> pojoClass) {
+    for (Constructor<?> ctor : pojoClass.getDeclaredConstructors()) {
+      if (ctor.getParameterTypes().length == 0)
+        return (Constructor<T>) ctor;
+    }
+    return null;
+  }
+
+  /** A resolved setter, with the conversions of {@link BeanModel#setPropertyValue(Object, String, Object)}. */
+  private static class Setter {
+
+    private final Method method;
+    private final boolean acceptsLocalDateTime;
+    private final boolean acceptsDate;
+    private final boolean acceptsString;
+
+    Setter(Method method) {
+      this.method = method;
+      Class<?> argumentType = method == null ? null : method.getParameterTypes()[0];
+      this.acceptsLocalDateTime = argumentType != null && argumentType.isAssignableFrom(LocalDateTime.class);
+      this.acceptsDate = argumentType != null && argumentType.isAssignableFrom(Date.class);
+      this.acceptsString = argumentType != null && argumentType.isAssignableFrom(String.class);
+      if (method != null && !method.isAccessible())
+        method.setAccessible(true);
+    }
+
+    void set(Object target, Object value) {
+      if (value instanceof LocalDateTime && !acceptsLocalDateTime && acceptsDate)
+        value = new Date(((LocalDateTime) value).toDateTime(DateTimeZone.UTC).getMillis());
+      else if (value instanceof Guid && acceptsString)
+        value = ((Guid) value).getValue();
+      try {
+        method.invoke(target, value);
+      } catch (Exception e) {
+        throw Throwables.propagate(e);
+      }
+    }
+  }
+
+}
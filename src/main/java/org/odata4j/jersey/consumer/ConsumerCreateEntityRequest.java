@@ -10,11 +10,13 @@
 package org.odata4j.jersey.consumer;
 
 import java.util.Arrays;
+import java.util.concurrent.Callable;
 
 import org.odata4j.consumer.AbstractConsumerEntityPayloadRequest;
 import org.odata4j.consumer.ODataClientRequest;
 import org.odata4j.core.OCreateRequest;
 import org.odata4j.core.ODataConstants;
+import org.odata4j.core.ODataFuture;
 import org.odata4j.core.ODataVersion;
 import org.odata4j.core.OEntities;
 import org.odata4j.core.OEntity;
@@ -55,6 +57,9 @@ class ConsumerCreateEntityRequest<T> extends AbstractConsumerEntityPayloadReques
 
     ODataClientRequest request = this.getRawRequest(url);
     ClientResponse response = client.createEntity(request);
+    client.invalidate(entitySetName);
+    if (parent != null)
+      client.invalidate(parent.getEntitySet().getName());
 
     ODataVersion version = InternalUtil.getDataServiceVersion(response.getHeaders().getFirst(ODataConstants.Headers.DATA_SERVICE_VERSION));
 
@@ -65,6 +70,15 @@ class ConsumerCreateEntityRequest<T> extends AbstractConsumerEntityPayloadReques
     return (T) entry.getEntity();
   }
   
+  @Override
+  public ODataFuture<T> executeAsync(final String url) {
+    return client.submit(new Callable<T>() {
+      public T call() {
+        return execute(url);
+      }
+    });
+  }
+
   /**
    * @see org.odata4j.core.OCreateRequest#getRawRequest()
    */
@@ -28,6 +28,8 @@ public class ConsumerDeleteEntityRequest extends ConsumerEntityRequestBase<Void>
   
   public Void execute(String serviceUri) {
     getClient().deleteEntity(this.getRawRequest(serviceUri));
+    if (getClient().hasResponseCache())
+      getClient().invalidate(getEntitySetNames());
     return null;
   }
   
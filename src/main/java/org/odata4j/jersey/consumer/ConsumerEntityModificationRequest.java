@@ -11,12 +11,14 @@ package org.odata4j.jersey.consumer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.lang.StringUtils;
 import org.core4j.Enumerable;
 import org.core4j.Predicate1;
 import org.odata4j.consumer.AbstractConsumerEntityPayloadRequest;
 import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.core.ODataFuture;
 import org.odata4j.core.OEntity;
 import org.odata4j.core.OEntityKey;
 import org.odata4j.core.OModifyRequest;
@@ -55,9 +57,19 @@ class ConsumerEntityModificationRequest<T> extends AbstractConsumerEntityPayload
   public boolean execute(String serviceUri) {
 	ODataClientRequest request = this.getRawRequest(serviceUri);
     boolean rt = client.updateEntity(request);
+    client.invalidate(segments.get(0).segment, entitySet.getName());
     return rt;
   }
   
+  @Override
+  public ODataFuture<Boolean> executeAsync(final String serviceUri) {
+    return client.submit(new Callable<Boolean>() {
+      public Boolean call() {
+        return execute(serviceUri);
+      }
+    });
+  }
+
   /**
    * @see org.odata4j.core.OModifyRequest#getRawRequest()
    */
@@ -11,12 +11,16 @@ package org.odata4j.jersey.consumer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
+import org.odata4j.core.ODataFuture;
 import org.odata4j.core.OEntityId;
 import org.odata4j.core.OEntityIds;
 import org.odata4j.core.OEntityKey;
 import org.odata4j.core.OEntityRequest;
 import org.odata4j.edm.EdmDataServices;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmNavigationProperty;
 import org.odata4j.format.SingleLink;
 import org.odata4j.format.SingleLinks;
 import org.odata4j.internal.EntitySegment;
@@ -55,6 +59,39 @@ abstract class ConsumerEntityRequestBase<T> implements OEntityRequest<T> {
     return serviceRootUri;
   }
 
+  /**
+   * Gets the entity sets along the path of the request, the last one being the set of the requested entity.
+   */
+  protected List<EdmEntitySet> getEntitySets() {
+    List<EdmEntitySet> rt = new ArrayList<EdmEntitySet>();
+    //  the first segment contains the entitySetName we start from
+    EdmEntitySet entitySet = metadata.getEdmEntitySet(segments.get(0).segment);
+    rt.add(entitySet);
+    for (EntitySegment segment : segments.subList(1, segments.size())) {
+      EdmNavigationProperty navProperty = entitySet.getType().findNavigationProperty(segment.segment);
+      entitySet = metadata.getEdmEntitySet(navProperty.getToRole().getType());
+      rt.add(entitySet);
+    }
+    return rt;
+  }
+
+  protected String[] getEntitySetNames() {
+    List<EdmEntitySet> entitySets = getEntitySets();
+    String[] rt = new String[entitySets.size()];
+    for (int i = 0; i < rt.length; i++)
+      rt[i] = entitySets.get(i).getName();
+    return rt;
+  }
+
+  @Override
+  public ODataFuture<T> executeAsync() {
+    return client.submit(new Callable<T>() {
+      public T call() {
+        return execute();
+      }
+    });
+  }
+
   @Override
   public OEntityRequest<T> nav(String navProperty, OEntityKey key) {
     segments.add(new EntitySegment(navProperty, key));
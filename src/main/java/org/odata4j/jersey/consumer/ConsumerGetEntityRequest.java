@@ -9,20 +9,23 @@
 
 package org.odata4j.jersey.consumer;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.core4j.Enumerable;
+import org.core4j.Func1;
 import org.odata4j.consumer.ODataClientRequest;
 import org.odata4j.core.ODataVersion;
+import org.odata4j.core.OEntity;
 import org.odata4j.core.OEntityGetRequest;
 import org.odata4j.core.OEntityKey;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmEntitySet;
-import org.odata4j.edm.EdmNavigationProperty;
 import org.odata4j.format.Entry;
 import org.odata4j.format.Feed;
 import org.odata4j.format.FormatParser;
 import org.odata4j.format.FormatParserFactory;
 import org.odata4j.format.Settings;
-import org.odata4j.internal.EntitySegment;
 import org.odata4j.internal.FeedCustomizationMapping;
 import org.odata4j.internal.InternalUtil;
 
@@ -78,28 +81,30 @@ class ConsumerGetEntityRequest<T> extends ConsumerEntityRequestBase<T> implement
   @Override
   public T execute() {
 
-    ClientResponse response = getClient().getEntity(this.getRawRequest());
-    if (response == null)
-      return null;
+    String[] entitySetNames = getEntitySetNames();
+    final EdmEntitySet entitySet = getMetadata().getEdmEntitySet(entitySetNames[entitySetNames.length - 1]);
+    final OEntityKey key = Enumerable.create(getSegments()).last().key;
 
-    //  the first segment contains the entitySetName we start from
-    EdmEntitySet entitySet = getMetadata().getEdmEntitySet(getSegments().get(0).segment);
-    for (EntitySegment segment : getSegments().subList(1, getSegments().size())) {
-      EdmNavigationProperty navProperty = entitySet.getType().findNavigationProperty(segment.segment);
-      entitySet = getMetadata().getEdmEntitySet(navProperty.getToRole().getType());
-    }
+    // expanded entities can come from any entity set
+    List<String> readEntitySetNames = expand == null ? Arrays.asList(entitySetNames) : null;
 
-    OEntityKey key = Enumerable.create(getSegments()).last().key;
+    OEntity entity = getClient().read(this.getRawRequest(), readEntitySetNames, new Func1<ClientResponse, OEntity>() {
+      public OEntity apply(ClientResponse response) {
+        if (response.getStatus() == 404 || response.getStatus() == 204)
+          return null;
 
-    // TODO determine the service version from header (and metadata?)
-    FormatParser<Feed> parser = FormatParserFactory
-        .getParser(Feed.class, getClient().getFormatType(),
-            new Settings(this.version, getMetadata(), entitySet.getName(), key, fcMapping));
+        // TODO determine the service version from header (and metadata?)
+        FormatParser<Feed> parser = FormatParserFactory
+            .getParser(Feed.class, getClient().getFormatType(),
+                new Settings(version, getMetadata(), entitySet.getName(), key, fcMapping));
 
-    Entry entry = Enumerable.create(parser.parse(getClient().getFeedReader(response)).getEntries())
-        .firstOrNull();
+        Entry entry = Enumerable.create(parser.parse(getClient().getFeedReader(response)).getEntries())
+            .firstOrNull();
+        return entry.getEntity();
+      }
+    }, 404, 200, 204);
 
-    return (T) InternalUtil.toEntity(entityType, entry.getEntity());
+    return entity == null ? null : (T) InternalUtil.toEntity(entityType, entity);
   }
 
 }
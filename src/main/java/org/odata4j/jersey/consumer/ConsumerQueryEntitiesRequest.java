@@ -9,6 +9,7 @@
 
 package org.odata4j.jersey.consumer;
 
+import java.io.Closeable;
 import java.net.URLDecoder;
 import java.util.Iterator;
 
@@ -17,16 +18,22 @@ import org.core4j.Func;
 import org.core4j.Func1;
 import org.core4j.ReadOnlyIterator;
 import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.consumer.RetryPolicy;
+import org.odata4j.consumer.streams.IteratorPublisher;
+import org.odata4j.consumer.streams.Publisher;
 import org.odata4j.core.ODataConstants;
 import org.odata4j.core.ODataVersion;
+import org.odata4j.core.OEntity;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.format.Entry;
 import org.odata4j.format.Feed;
 import org.odata4j.format.FormatParser;
 import org.odata4j.format.FormatParserFactory;
+import org.odata4j.format.PojoEntry;
 import org.odata4j.format.Settings;
 import org.odata4j.internal.FeedCustomizationMapping;
 import org.odata4j.internal.InternalUtil;
+import org.odata4j.internal.PojoMapper;
 
 import com.sun.jersey.api.client.ClientResponse;
 
@@ -34,6 +41,12 @@ class ConsumerQueryEntitiesRequest<T> extends ConsumerQueryRequestBase<T> {
 
   private final Class<T> entityType;
   private final FeedCustomizationMapping fcMapping;
+  private final Func1<Entry, T> toEntity = new Func1<Entry, T>() {
+    public T apply(Entry input) {
+      Object pojo = input instanceof PojoEntry ? ((PojoEntry) input).getPojo() : null;
+      return pojo != null ? entityType.cast(pojo) : InternalUtil.toEntity(entityType, input.getEntity());
+    }
+  };
 
   ConsumerQueryEntitiesRequest(ODataJerseyClient client, Class<T> entityType, String serviceRootUri, EdmDataServices metadata, String entitySetName, FeedCustomizationMapping fcMapping) {
     super(client, serviceRootUri, metadata, entitySetName);
@@ -46,11 +59,17 @@ class ConsumerQueryEntitiesRequest<T> extends ConsumerQueryRequestBase<T> {
     ODataClientRequest request = buildRequest(null);
     Enumerable<Entry> entries = getEntries(request);
 
-    return entries.select(new Func1<Entry, T>() {
-      public T apply(Entry input) {
-        return InternalUtil.toEntity(entityType, input.getEntity());
+    return entries.select(toEntity).cast(entityType);
+  }
+
+  @Override
+  public Publisher<T> publish() {
+    final ODataClientRequest request = buildRequest(null);
+    return new IteratorPublisher<T>(new Func<Iterator<T>>() {
+      public Iterator<T> apply() {
+        return new EntityIterator(new EntryIterator(getClient(), request));
       }
-    }).cast(entityType);
+    }, getClient().getAsyncExecutor());
   }
 
   private Enumerable<Entry> getEntries(final ODataClientRequest request) {
@@ -61,6 +80,31 @@ class ConsumerQueryEntitiesRequest<T> extends ConsumerQueryRequestBase<T> {
     });
   }
 
+  /**
+   * The entities of an {@link EntryIterator}, which can be closed to abort its read.
+   */
+  private class EntityIterator extends ReadOnlyIterator<T> implements Closeable {
+
+    private final EntryIterator entries;
+
+    EntityIterator(EntryIterator entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    protected IterationResult<T> advance() throws Exception {
+      if (!entries.hasNext())
+        return IterationResult.done();
+      return IterationResult.next(toEntity.apply(entries.next()));
+    }
+
+    @Override
+    public void close() {
+      entries.close();
+    }
+
+  }
+
   private class EntryIterator extends ReadOnlyIterator<Entry> {
 
     private ODataJerseyClient client;
@@ -69,32 +113,50 @@ class ConsumerQueryEntitiesRequest<T> extends ConsumerQueryRequestBase<T> {
     private Feed feed;
     private Iterator<Entry> feedEntries;
     private int feedEntryCount;
+    private int pageFailures;
+    private boolean reading;
+    private volatile boolean closed;
+    private volatile ClientResponse response;
 
     public EntryIterator(ODataJerseyClient client, ODataClientRequest request) {
       this.client = client;
       this.request = request;
     }
 
+    /**
+     * Stops the iteration, closing the response being read, if any, from any thread.
+     */
+    public void close() {
+      closed = true;
+      ClientResponse current = response;
+      if (current != null)
+        current.close();
+    }
+
     @Override
     protected IterationResult<Entry> advance() throws Exception {
-
-      if (feed == null) {
-        ClientResponse response = client.getEntities(request);
-
-        ODataVersion version = InternalUtil.getDataServiceVersion(response.getHeaders()
-            .getFirst(ODataConstants.Headers.DATA_SERVICE_VERSION));
-
-        parser = FormatParserFactory.getParser(Feed.class, client.getFormatType(),
-            new Settings(version, getMetadata(), getLastSegment(), null, fcMapping));
-
-        feed = parser.parse(client.getFeedReader(response));
-        feedEntries = feed.getEntries().iterator();
-        feedEntryCount = 0;
-      }
-
-      if (feedEntries.hasNext()) {
-        feedEntryCount++;
-        return IterationResult.next(feedEntries.next());
+      if (closed)
+        return IterationResult.done();
+
+      try {
+        if (feed == null)
+          openPage();
+
+        if (feedEntries.hasNext()) {
+          Entry entry = feedEntries.next();
+          feedEntryCount++;
+          pageFailures = 0;
+          return IterationResult.next(entry);
+        }
+      } catch (RuntimeException e) {
+        // resume the current page from its request, rather than failing the whole query.
+        // Failed requests were already retried by the client, only failed reads are retried here
+        RetryPolicy policy = client.getRetryPolicy();
+        if (closed || !reading || policy == null || ++pageFailures >= policy.getMaxAttempts() || !policy.isTransient(e))
+          throw e;
+        policy.backoff(pageFailures, -1);
+        feed = null;
+        return advance();
       }
 
       // old-style paging: $page and $itemsPerPage
@@ -128,10 +190,42 @@ class ConsumerQueryEntitiesRequest<T> extends ConsumerQueryRequestBase<T> {
       }
 
       feed = null;
+      feedEntryCount = 0;
 
       return advance(); // TODO stackoverflow possible here
     }
 
+    // entries of the page already returned before a failure are skipped
+    private void openPage() {
+      reading = false;
+      feed = client.read(request, getReadEntitySetNames(), new Func1<ClientResponse, Feed>() {
+        public Feed apply(ClientResponse response) {
+          reading = true;
+          EntryIterator.this.response = response;
+          if (closed)
+            response.close();
+
+          ODataVersion version = InternalUtil.getDataServiceVersion(response.getHeaders()
+              .getFirst(ODataConstants.Headers.DATA_SERVICE_VERSION));
+
+          // POJO results are bound by the feed parser, without building entities first.
+          // Cached feeds are shared, so they only hold entities and each read binds its own objects
+          PojoMapper<T> pojoMapper = entityType.equals(OEntity.class) || client.hasResponseCache() ? null : PojoMapper.forClass(entityType);
+          parser = FormatParserFactory.getParser(Feed.class, client.getFormatType(),
+              new Settings(version, getMetadata(), getLastSegment(), null, fcMapping, true, null, pojoMapper));
+
+          try {
+            return parser.parse(client.getFeedReader(response));
+          } finally {
+            EntryIterator.this.response = null;
+          }
+        }
+      }, 200);
+      feedEntries = feed.getEntries().iterator();
+      for (int i = 0; i < feedEntryCount && feedEntries.hasNext(); i++)
+        feedEntries.next();
+    }
+
   }
 
 }
@@ -10,14 +10,20 @@
 package org.odata4j.jersey.consumer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.core4j.Enumerable;
+import org.core4j.Func;
 import org.core4j.Func1;
 import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.consumer.streams.IteratorPublisher;
+import org.odata4j.consumer.streams.Publisher;
+import org.odata4j.core.ODataFuture;
 import org.odata4j.core.OEntityKey;
 import org.odata4j.core.OQueryRequest;
 import org.odata4j.edm.EdmDataServices;
@@ -63,6 +69,14 @@ public abstract class ConsumerQueryRequestBase<T> implements OQueryRequest<T> {
     return metadata;
   }
 
+  /**
+   * Gets the entity sets read by the request, or null if they are not known.
+   */
+  protected List<String> getReadEntitySetNames() {
+    // navigated and expanded entities can come from any entity set
+    return segments.isEmpty() && expand == null ? Collections.singletonList(lastSegment) : null;
+  }
+
   protected ODataClientRequest buildRequest(Func1<String, String> pathModification) {
     String path = Enumerable.create(segments).join("/");
     path += (path.length() == 0 ? "" : "/") + lastSegment;
@@ -150,6 +164,24 @@ public abstract class ConsumerQueryRequestBase<T> implements OQueryRequest<T> {
     return this;
   }
 
+  @Override
+  public ODataFuture<List<T>> executeAsync() {
+    return client.submit(new Callable<List<T>>() {
+      public List<T> call() {
+        return execute().toList();
+      }
+    });
+  }
+
+  @Override
+  public Publisher<T> publish() {
+    return new IteratorPublisher<T>(new Func<Iterator<T>>() {
+      public Iterator<T> apply() {
+        return execute().iterator();
+      }
+    }, client.getAsyncExecutor());
+  }
+
   @Override
   public Iterator<T> iterator() {
     return execute().iterator();
@@ -11,13 +11,19 @@ package org.odata4j.jersey.consumer;
 
 import java.io.StringWriter;
 import java.lang.reflect.Field;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 import java.util.Set;
+import java.util.TimeZone;
 
 import javax.ws.rs.ext.RuntimeDelegate;
 
 import org.mule.modules.odata.odata4j.extensions.BatchMultipartWriter;
 import org.odata4j.consumer.ODataClientRequest;
 import org.odata4j.consumer.behaviors.OClientBehavior;
+import org.odata4j.core.ODataConstants;
 import org.odata4j.core.ODataVersion;
 import org.odata4j.core.Throwables;
 import org.odata4j.format.Entry;
@@ -30,6 +36,7 @@ import org.odata4j.jersey.consumer.behaviors.JerseyClientBehavior;
 import org.odata4j.jersey.internal.StringProvider2;
 
 import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.config.DefaultClientConfig;
 import com.sun.jersey.core.impl.provider.header.MediaTypeProvider;
@@ -112,6 +119,32 @@ public class JerseyClientUtil {
       return (FormatWriter<Object>) (Object) FormatWriterFactory.getFormatWriter(payloadClass, null, format.toString(), null, version);
   }
   
+  /**
+   * Gets the time a response asks to wait before the next request, from its <code>Retry-After</code> header.
+   *
+   * @param response  the response
+   * @return the time to wait in milliseconds, or -1 if the response has no valid <code>Retry-After</code> header
+   */
+  public static long getRetryAfterMillis(ClientResponse response) {
+    String value = response.getHeaders().getFirst(ODataConstants.Headers.RETRY_AFTER);
+    if (value == null)
+      return -1;
+    value = value.trim();
+    try {
+      return Math.max(0, Long.parseLong(value) * 1000);
+    } catch (NumberFormatException e) {
+      // not delta-seconds, so it should be an http date
+    }
+    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    try {
+      Date date = format.parse(value);
+      return Math.max(0, date.getTime() - System.currentTimeMillis());
+    } catch (ParseException e) {
+      return -1;
+    }
+  }
+
   public static String toString(ODataClientRequest request, FormatWriter<Object> format) {
 	  StringWriter sw = new StringWriter();
       format.write(null, sw, request.getPayload());
@@ -9,29 +9,49 @@
 
 package org.odata4j.jersey.consumer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.core4j.Enumerable;
+import org.core4j.Func1;
 import org.core4j.xml.XDocument;
 import org.core4j.xml.XmlFormat;
 import org.mule.modules.odata.exception.NotAuthorizedException;
 import org.odata4j.consumer.AbstractODataClient;
 import org.odata4j.consumer.ODataClientRequest;
 import org.odata4j.consumer.ODataConsumer;
+import org.odata4j.consumer.ODataFutureTask;
+import org.odata4j.consumer.RequestCoalescer;
+import org.odata4j.consumer.ResponseCache;
+import org.odata4j.consumer.RetryPolicy;
 import org.odata4j.consumer.behaviors.OClientBehavior;
 import org.odata4j.consumer.behaviors.OClientBehaviors;
 import org.odata4j.core.ODataConstants;
+import org.odata4j.core.ODataFuture;
 import org.odata4j.core.ODataVersion;
 import org.odata4j.core.OEntities;
 import org.odata4j.core.OEntity;
@@ -52,12 +72,18 @@ import org.odata4j.format.xml.AtomWorkspaceInfo;
 import org.odata4j.format.xml.EdmxFormatParser;
 import org.odata4j.internal.BOMWorkaroundReader;
 import org.odata4j.internal.InternalUtil;
+import org.odata4j.jersey.consumer.behaviors.AsyncExecutionBehavior;
+import org.odata4j.jersey.consumer.behaviors.RequestCoalescingBehavior;
+import org.odata4j.jersey.consumer.behaviors.ResponseCacheBehavior;
+import org.odata4j.jersey.consumer.behaviors.RetryBehavior;
 import org.odata4j.stax2.XMLEventReader2;
 
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.PartialRequestBuilder;
 import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.MessageBodyWorkers;
 import com.sun.jersey.multipart.BodyPart;
 import com.sun.jersey.multipart.MultiPart;
 
@@ -66,6 +92,11 @@ public class ODataJerseyClient extends AbstractODataClient {
   private final OClientBehavior[] requiredBehaviors = new OClientBehavior[] { OClientBehaviors.methodTunneling("MERGE") }; // jersey hates MERGE, tunnel through POST
   private final OClientBehavior[] behaviors;
   private final ODataVersion version;
+  private final RetryPolicy retryPolicy;
+  private final RequestCoalescer<String, Object> coalescer;
+  private final ResponseCache responseCache;
+  private final String identity;
+  private final ExecutorService asyncExecutor;
   
   private static final Logger logger = Logger.getLogger(ODataJerseyClient.class);
 
@@ -76,12 +107,54 @@ public class ODataJerseyClient extends AbstractODataClient {
     this.behaviors = Enumerable.create(requiredBehaviors).concat(Enumerable.create(behaviors)).toArray(OClientBehavior.class);
     this.client = JerseyClientUtil.newClient(clientFactory, behaviors);
     this.version = version;
+
+    RetryPolicy retryPolicy = null;
+    RequestCoalescer<String, Object> coalescer = null;
+    ResponseCache responseCache = null;
+    ExecutorService asyncExecutor = null;
+    for (OClientBehavior behavior : this.behaviors) {
+      if (behavior instanceof RetryBehavior)
+        retryPolicy = ((RetryBehavior) behavior).getPolicy();
+      if (behavior instanceof RequestCoalescingBehavior)
+        coalescer = ((RequestCoalescingBehavior) behavior).getCoalescer();
+      if (behavior instanceof ResponseCacheBehavior)
+        responseCache = ((ResponseCacheBehavior) behavior).getCache();
+      if (behavior instanceof AsyncExecutionBehavior)
+        asyncExecutor = ((AsyncExecutionBehavior) behavior).getExecutor();
+    }
+    this.retryPolicy = retryPolicy;
+    this.coalescer = coalescer;
+    this.responseCache = responseCache;
+    // coalesced and cached reads are shared with other consumers that send the same credentials
+    this.identity = responseCache == null && coalescer == null ? null : getIdentity(this.behaviors);
+    // the default executor is looked up when needed, as it is replaced once shut down
+    this.asyncExecutor = asyncExecutor;
   }
   
   public Client getClient() {
 	return client;
   }
 
+  /**
+   * Gets the retry policy of this client's {@link RetryBehavior}, or null if it has none.
+   */
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Runs a request on the executor of this client's {@link AsyncExecutionBehavior}, or on the default one.
+   */
+  <V> ODataFuture<V> submit(Callable<V> request) {
+    ODataFutureTask<V> future = new ODataFutureTask<V>(request);
+    getAsyncExecutor().execute(future);
+    return future;
+  }
+
+  Executor getAsyncExecutor() {
+    return asyncExecutor != null ? asyncExecutor : AsyncExecutionBehavior.getDefaultExecutor();
+  }
+
   public EdmDataServices getMetadata(ODataClientRequest request) {
     ClientResponse response = doRequest(FormatType.ATOM, request, 200, 404, 400);
     if (response.getStatus() == 404 || response.getStatus() == 400)
@@ -104,7 +177,7 @@ public class ODataJerseyClient extends AbstractODataClient {
   }
 
   public ClientResponse getEntity(ODataClientRequest request) {
-    ClientResponse response = doRequest(this.getFormatType(), request, 404, 200, 204);
+    ClientResponse response = doSharedRequest(this.getFormatType(), request, 404, 200, 204);
     if (response.getStatus() == 404)
       return null;
     if (response.getStatus() == 204)
@@ -114,12 +187,88 @@ public class ODataJerseyClient extends AbstractODataClient {
   }
 
   public ClientResponse getEntities(ODataClientRequest request) {
-    ClientResponse response = doRequest(this.getFormatType(), request, 200);
+    ClientResponse response = doSharedRequest(this.getFormatType(), request, 200);
     return response;
   }
 
+  /**
+   * Reads and parses an entity or entity set, answering from the response cache when this client has a
+   * {@link ResponseCacheBehavior} and the cached read is fresh or reported unchanged by the service.
+   * The parser gets every response with one of the expected statuses, and what it returns for a
+   * <code>200 OK</code> response is cached as is, so it must never be modified.
+   *
+   * @param request  the read request
+   * @param entitySetNames  the entity sets read, or null if they are not known
+   * @param parser  parses the response
+   * @param expectedResponseStatus  the expected response statuses
+   * @return the parsed response
+   */
+  @SuppressWarnings("unchecked")
+  <V> V read(ODataClientRequest request, Collection<String> entitySetNames, Func1<ClientResponse, V> parser, Integer... expectedResponseStatus) {
+    if (responseCache == null || !"GET".equals(request.getMethod()))
+      return parser.apply(doSharedRequest(this.getFormatType(), request, expectedResponseStatus));
+
+    String key = identity + ' ' + getRequestKey(this.getFormatType(), request, expectedResponseStatus);
+    ResponseCache.Entry cached = responseCache.get(key);
+    if (cached != null && cached.isFresh()) {
+      responseCache.record(true);
+      return (V) cached.getValue();
+    }
+
+    // requests are reused for paging, don't leave the validators on them
+    ODataClientRequest conditional = new ODataClientRequest(request.getMethod(), request.getUrl(),
+        new HashMap<String, String>(request.getHeaders()), new HashMap<String, String>(request.getQueryParams()), null);
+    Integer[] statuses = expectedResponseStatus;
+    if (cached != null) {
+      if (cached.getETag() != null)
+        conditional = conditional.header(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+      if (cached.getLastModified() != null)
+        conditional = conditional.header(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+      statuses = Arrays.copyOf(expectedResponseStatus, expectedResponseStatus.length + 1);
+      statuses[expectedResponseStatus.length] = 304;
+    }
+
+    ClientResponse response = doSharedRequest(this.getFormatType(), conditional, statuses);
+    MultivaluedMap<String, String> headers = response.getHeaders();
+    if (response.getStatus() == 304) {
+      response.close();
+      responseCache.revalidated(cached, headers.getFirst(HttpHeaders.CACHE_CONTROL), headers.getFirst(HttpHeaders.EXPIRES), headers.getFirst(HttpHeaders.DATE));
+      return (V) cached.getValue();
+    }
+
+    responseCache.record(false);
+    int status = response.getStatus();
+    V value = parser.apply(response);
+    if (status == 200)
+      responseCache.put(key, value, entitySetNames, headers.getFirst(HttpHeaders.CACHE_CONTROL), headers.getFirst(HttpHeaders.EXPIRES),
+          headers.getFirst(HttpHeaders.DATE), headers.getFirst(HttpHeaders.ETAG), headers.getFirst(HttpHeaders.LAST_MODIFIED));
+    else
+      responseCache.remove(key);
+    return value;
+  }
+
+  boolean hasResponseCache() {
+    return responseCache != null;
+  }
+
+  /**
+   * Removes the cached reads of entity sets after writing to them.
+   */
+  void invalidate(String... entitySetNames) {
+    if (responseCache != null)
+      responseCache.invalidate(entitySetNames);
+  }
+
+  // writes whose entity sets are not known invalidate every cached read
+  private void invalidateAll() {
+    if (responseCache != null)
+      responseCache.invalidateAll();
+  }
+
   public ClientResponse callFunction(ODataClientRequest request) {
     ClientResponse response = doRequest(this.getFormatType(), request, 200, 204);
+    if (!"GET".equals(request.getMethod()))
+      invalidateAll();
     return response;
   }
 
@@ -128,7 +277,9 @@ public class ODataJerseyClient extends AbstractODataClient {
   }
   
   public ClientResponse batch(ODataClientRequest request) {
-	  return this.doRequest(this.getFormatType(), request, 202);
+	  ClientResponse response = this.doRequest(this.getFormatType(), request, 202);
+	  invalidateAll();
+	  return response;
   }
 
   public boolean updateEntity(ODataClientRequest request) {
@@ -143,14 +294,17 @@ public class ODataJerseyClient extends AbstractODataClient {
 
   public void deleteLink(ODataClientRequest request) {
     doRequest(this.getFormatType(), request, 204);
+    invalidateAll();
   }
 
   public void createLink(ODataClientRequest request) {
     doRequest(this.getFormatType(), request, 204);
+    invalidateAll();
   }
 
   public void updateLink(ODataClientRequest request) {
     doRequest(this.getFormatType(), request, 204);
+    invalidateAll();
   }
 
   Entry createRequestEntry(EdmEntitySet entitySet, OEntityKey entityKey, List<OProperty<?>> props, List<OLink> links) {
@@ -177,9 +331,50 @@ public class ODataJerseyClient extends AbstractODataClient {
     };
   }
 
+  /**
+   * Executes a read, sharing it with the identical reads in flight when this client has a {@link RequestCoalescingBehavior}.
+   */
+  private ClientResponse doSharedRequest(final FormatType reqType, final ODataClientRequest request, final Integer... expectedResponseStatus) {
+    if (coalescer == null || dontShareResponses || !"GET".equals(request.getMethod()))
+      return doRequest(reqType, request, expectedResponseStatus);
+
+    SharedResponse shared = (SharedResponse) coalescer.execute(identity + ' ' + getRequestKey(reqType, request, expectedResponseStatus), new Callable<Object>() {
+      public Object call() throws Exception {
+        return new SharedResponse(doRequest(reqType, request, expectedResponseStatus));
+      }
+    });
+    return shared.newResponse();
+  }
+
+  private static String getRequestKey(FormatType reqType, ODataClientRequest request, Integer... expectedResponseStatus) {
+    StringBuilder key = new StringBuilder();
+    key.append(reqType).append(' ').append(Arrays.toString(expectedResponseStatus)).append(' ').append(request.getUrl())
+        .append(' ').append(new TreeMap<String, String>(request.getQueryParams()))
+        .append(' ').append(new TreeMap<String, String>(request.getHeaders()));
+    return key.toString();
+  }
+
+  // identifies the credentials added by the behaviors, without keeping them in the keys of shared reads
+  private static String getIdentity(OClientBehavior[] behaviors) {
+    ODataClientRequest request = ODataClientRequest.get("");
+    for (OClientBehavior behavior : behaviors)
+      request = behavior.transform(request);
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      byte[] hash = digest.digest(new TreeMap<String, String>(request.getHeaders()).toString().getBytes("UTF-8"));
+      return new BigInteger(1, hash).toString(16);
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
   private ClientResponse doRequest(FormatType reqType, ODataClientRequest request, Integer... expectedResponseStatus) {
 
     if (behaviors != null) {
+      // requests are reused for paging and their headers are part of the keys of shared reads,
+      // so the behaviors get a copy to add their headers to
+      request = new ODataClientRequest(request.getMethod(), request.getUrl(), new HashMap<String, String>(request.getHeaders()),
+          new HashMap<String, String>(request.getQueryParams()), request.getPayload());
       for (OClientBehavior behavior : behaviors)
         request = behavior.transform(request);
     }
@@ -336,6 +531,55 @@ public class ODataJerseyClient extends AbstractODataClient {
   }
 
   private static boolean dontTryRequestHeaders;
+  private static boolean dontShareResponses;
+
+  private static MessageBodyWorkers getMessageBodyWorkers(ClientResponse response) {
+    try {
+      Field f = ClientResponse.class.getDeclaredField("workers");
+      f.setAccessible(true);
+      return (MessageBodyWorkers) f.get(response);
+    } catch (Exception e) {
+      logger.warn("Cannot copy responses, identical reads will not be coalesced", e);
+      dontShareResponses = true;
+      return null;
+    }
+  }
+
+  /**
+   * A response read in full, copied for every read sharing it.
+   */
+  private static class SharedResponse {
+
+    private final int status;
+    private final MultivaluedMap<String, String> headers;
+    private final byte[] entity;
+    private final MessageBodyWorkers workers;
+
+    SharedResponse(ClientResponse response) throws IOException {
+      this.status = response.getStatus();
+      this.headers = response.getHeaders();
+      this.workers = getMessageBodyWorkers(response);
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      InputStream in = response.getEntityInputStream();
+      try {
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n != -1; n = in.read(buffer))
+          out.write(buffer, 0, n);
+      } finally {
+        response.close();
+      }
+      this.entity = out.toByteArray();
+    }
+
+    ClientResponse newResponse() {
+      InBoundHeaders copy = new InBoundHeaders();
+      for (Map.Entry<String, List<String>> header : headers.entrySet())
+        copy.put(header.getKey(), new ArrayList<String>(header.getValue()));
+      return new ClientResponse(status, copy, new ByteArrayInputStream(entity), workers);
+    }
+
+  }
 
   @SuppressWarnings("unchecked")
   private MultivaluedMap<String, Object> getRequestHeaders(WebResource.Builder b) {
@@ -0,0 +1,149 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.odata4j.consumer.ODataClientRequest;
+
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.Filterable;
+
+/**
+ * A behavior that sets the executor running the requests a consumer sends asynchronously, such as with
+ * {@link org.odata4j.core.OQueryRequest#executeAsync()}.  Consumers without one share a default executor.
+ *
+ * <p>The executors created here are bounded: their threads cap the requests in flight, and their queue the
+ * requests waiting for a thread.  A request sent while the queue is full is rejected, <code>executeAsync</code>
+ * throwing a {@link java.util.concurrent.RejectedExecutionException}, rather than piling up in memory.</p>
+ *
+ * <p>The default executor lives while it is retained, such as by a connection of the connector, and is shut
+ * down once the last one releases it; requests already queued still run.  A consumer sending a request after
+ * that gets a new default executor.</p>
+ */
+public class AsyncExecutionBehavior implements JerseyClientBehavior {
+
+  private static final int DEFAULT_THREADS = 10;
+  private static final int DEFAULT_QUEUE_CAPACITY = 100;
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  private static ExecutorService defaultExecutor;
+  private static int defaultExecutorUsers;
+
+  private final ExecutorService executor;
+
+  public AsyncExecutionBehavior(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  @Override
+  public ODataClientRequest transform(ODataClientRequest request) {
+    return request;
+  }
+
+  @Override
+  public void modify(ClientConfig clientConfig) {}
+
+  @Override
+  public void modifyClientFilters(Filterable client) {}
+
+  @Override
+  public void modifyWebResourceFilters(Filterable webResource) {}
+
+  /**
+   * Creates a behavior that runs asynchronous requests on the given executor.
+   *
+   * @param executor  the executor
+   * @return a behavior that sets the executor of asynchronous requests
+   */
+  public static JerseyClientBehavior asyncExecution(ExecutorService executor) {
+    return new AsyncExecutionBehavior(executor);
+  }
+
+  /**
+   * Creates a behavior that runs asynchronous requests on a new pool of daemon threads, queueing up to
+   * 100 requests.
+   *
+   * @param threads  the number of threads, and so the maximum number of asynchronous requests in flight
+   * @return a behavior that sets the executor of asynchronous requests
+   */
+  public static JerseyClientBehavior asyncExecution(int threads) {
+    return asyncExecution(threads, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Creates a behavior that runs asynchronous requests on a new pool of daemon threads.
+   *
+   * @param threads  the number of threads, and so the maximum number of asynchronous requests in flight
+   * @param queueCapacity  the maximum number of requests waiting for a thread, further ones being rejected
+   * @return a behavior that sets the executor of asynchronous requests
+   */
+  public static JerseyClientBehavior asyncExecution(int threads, int queueCapacity) {
+    return new AsyncExecutionBehavior(newExecutor(threads, queueCapacity));
+  }
+
+  /**
+   * Gets the executor shared by the consumers without an {@link AsyncExecutionBehavior}, creating it on first use
+   * and again after it was shut down.
+   */
+  public static synchronized ExecutorService getDefaultExecutor() {
+    if (defaultExecutor == null || defaultExecutor.isShutdown())
+      defaultExecutor = newExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+    return defaultExecutor;
+  }
+
+  /**
+   * Retains the default executor, which is not shut down until every retain is matched by a
+   * {@link #releaseDefaultExecutor()}.
+   */
+  public static synchronized void retainDefaultExecutor() {
+    defaultExecutorUsers++;
+  }
+
+  /**
+   * Releases the default executor, shutting it down if nothing else retains it.
+   */
+  public static synchronized void releaseDefaultExecutor() {
+    if (defaultExecutorUsers == 0)
+      throw new IllegalStateException("the default executor is not retained");
+    if (--defaultExecutorUsers == 0 && defaultExecutor != null) {
+      defaultExecutor.shutdown();
+      defaultExecutor = null;
+    }
+  }
+
+  private static ExecutorService newExecutor(int threads, int queueCapacity) {
+    if (threads <= 0 || queueCapacity <= 0)
+      throw new IllegalArgumentException("threads and queueCapacity must be positive");
+    final AtomicInteger count = new AtomicInteger();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "odata-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        }, new ThreadPoolExecutor.AbortPolicy());
+    // idle threads go away, so an unused pool holds none
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+}
@@ -0,0 +1,90 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.consumer.behaviors.CircuitBreaker;
+import org.odata4j.consumer.behaviors.CircuitBreakerOpenException;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.api.client.filter.Filterable;
+
+/**
+ * A behavior that sends every request through a {@link CircuitBreaker}, failing with a
+ * {@link CircuitBreakerOpenException} without sending it while the breaker is open.
+ *
+ * <p>A call fails if it throws or if the service answers with a 5xx status, and its duration is
+ * measured until the response status and headers are received.  When the breaker is outside a
+ * {@link RateLimitBehavior}, so that rejected calls don't wait for the limiter, the duration is measured
+ * from when the call got through the limiter.</p>
+ */
+public class CircuitBreakerBehavior implements JerseyClientBehavior {
+
+  private final CircuitBreaker breaker;
+
+  public CircuitBreakerBehavior(CircuitBreaker breaker) {
+    this.breaker = breaker;
+  }
+
+  public CircuitBreaker getBreaker() {
+    return breaker;
+  }
+
+  @Override
+  public ODataClientRequest transform(ODataClientRequest request) {
+    return request;
+  }
+
+  @Override
+  public void modify(ClientConfig clientConfig) {}
+
+  @Override
+  public void modifyClientFilters(Filterable client) {
+    client.addFilter(new ClientFilter() {
+      @Override
+      public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+        CircuitBreaker.Permit permit = breaker.acquire();
+        request.getProperties().remove(RateLimitBehavior.SENT_AT);
+        boolean failed = true;
+        try {
+          ClientResponse response = getNext().handle(request);
+          failed = response.getStatus() >= 500;
+          return response;
+        } finally {
+          Long sentAt = (Long) request.getProperties().get(RateLimitBehavior.SENT_AT);
+          if (sentAt != null)
+            breaker.record(permit, failed, sentAt);
+          else
+            breaker.record(permit, failed);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void modifyWebResourceFilters(Filterable webResource) {}
+
+  /**
+   * Creates a behavior that guards the requests to a service with a circuit breaker.  The breaker
+   * is shared with every other behavior created for the same service.
+   *
+   * @param serviceUri  the service root uri
+   * @see CircuitBreaker#forService(String, int, int, int, long, long, int)
+   * @return a behavior that guards requests with a circuit breaker
+   */
+  public static JerseyClientBehavior circuitBreaker(String serviceUri, int failureRateThreshold, int slowCallRateThreshold, int windowSize, long slowCallDurationMillis, long openDurationMillis, int halfOpenCalls) {
+    return new CircuitBreakerBehavior(CircuitBreaker.forService(serviceUri, failureRateThreshold, slowCallRateThreshold, windowSize, slowCallDurationMillis, openDurationMillis, halfOpenCalls));
+  }
+
+}
@@ -0,0 +1,167 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.core.ODataConstants;
+import org.odata4j.core.Throwables;
+
+import com.sun.jersey.api.client.AbstractClientRequestAdapter;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientRequestAdapter;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.api.client.filter.Filterable;
+import com.sun.jersey.multipart.BodyPart;
+import com.sun.jersey.multipart.MultiPart;
+
+/**
+ * A behavior that negotiates gzip or deflate encoded responses and decodes them while they are read,
+ * so parsers consume the decompressed stream without buffering the response.
+ *
+ * <p>Optionally, request bodies of at least a given number of characters, such as large creates and
+ * $batch requests, are sent gzip encoded.  Only enable this for services that accept a request
+ * <code>Content-Encoding</code>.</p>
+ */
+public class CompressionBehavior implements JerseyClientBehavior {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final int requestThreshold;
+
+  /**
+   * Creates a new compression behavior.
+   *
+   * @param requestThreshold  the minimum number of characters of a request body to send it gzip encoded, or a negative number to never encode request bodies
+   */
+  public CompressionBehavior(int requestThreshold) {
+    this.requestThreshold = requestThreshold;
+  }
+
+  @Override
+  public ODataClientRequest transform(ODataClientRequest request) {
+    return request;
+  }
+
+  @Override
+  public void modify(ClientConfig clientConfig) {}
+
+  @Override
+  public void modifyClientFilters(Filterable client) {
+    client.addFilter(new CompressionFilter());
+  }
+
+  @Override
+  public void modifyWebResourceFilters(Filterable webResource) {}
+
+  private class CompressionFilter extends ClientFilter {
+
+    @Override
+    public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+      MultivaluedMap<String, Object> headers = request.getHeaders();
+      if (!headers.containsKey(ODataConstants.Headers.ACCEPT_ENCODING))
+        headers.add(ODataConstants.Headers.ACCEPT_ENCODING, "gzip, deflate");
+
+      if (requestThreshold >= 0 && request.getEntity() != null && !headers.containsKey(ODataConstants.Headers.CONTENT_ENCODING)
+          && sizeOf(request.getEntity()) >= requestThreshold) {
+        headers.add(ODataConstants.Headers.CONTENT_ENCODING, "gzip");
+        request.setAdapter(new GzipAdapter(request.getAdapter()));
+      }
+
+      ClientResponse response = getNext().handle(request);
+      decode(response);
+      return response;
+    }
+  }
+
+  private static class GzipAdapter extends AbstractClientRequestAdapter {
+
+    GzipAdapter(ClientRequestAdapter adapter) {
+      super(adapter);
+    }
+
+    @Override
+    public OutputStream adapt(ClientRequest request, OutputStream out) throws IOException {
+      return new GZIPOutputStream(getAdapter().adapt(request, out), BUFFER_SIZE);
+    }
+  }
+
+  private static int sizeOf(Object entity) {
+    if (entity instanceof String)
+      return ((String) entity).length();
+    if (entity instanceof MultiPart) {
+      int rt = 0;
+      for (BodyPart part : ((MultiPart) entity).getBodyParts())
+        rt += sizeOf(part.getEntity());
+      return rt;
+    }
+    // unknown sizes are assumed to be small
+    return 0;
+  }
+
+  private static void decode(ClientResponse response) {
+    String encoding = response.getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING);
+    if (encoding == null)
+      return;
+    encoding = encoding.trim();
+    boolean gzip = encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip");
+    if (!gzip && !encoding.equalsIgnoreCase("deflate"))
+      return;
+
+    // the response is decoded from here on, whether it has a body or not
+    response.getHeaders().remove(ODataConstants.Headers.CONTENT_ENCODING);
+    if (!response.hasEntity())
+      return;
+
+    try {
+      InputStream in = response.getEntityInputStream();
+      response.setEntityInputStream(gzip ? new GZIPInputStream(in, BUFFER_SIZE) : inflate(in));
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static InputStream inflate(InputStream in) throws IOException {
+    // "deflate" should be zlib wrapped, but some servers send raw deflate data
+    PushbackInputStream pin = new PushbackInputStream(in, 2);
+    int b0 = pin.read();
+    int b1 = b0 < 0 ? -1 : pin.read();
+    if (b1 >= 0)
+      pin.unread(b1);
+    if (b0 >= 0)
+      pin.unread(b0);
+    boolean zlib = b1 >= 0 && (b0 & 0x0f) == 8 && ((b0 << 8) | b1) % 31 == 0;
+    return new InflaterInputStream(pin, new Inflater(!zlib), BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a behavior that asks for gzip or deflate encoded responses, and optionally gzip encodes large request bodies.
+   *
+   * @param requestThreshold  the minimum number of characters of a request body to send it gzip encoded, or a negative number to never encode request bodies
+   * @return a behavior that negotiates compressed responses and requests
+   */
+  public static JerseyClientBehavior compression(int requestThreshold) {
+    return new CompressionBehavior(requestThreshold);
+  }
+
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import org.apache.log4j.Logger;
+import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.consumer.behaviors.RateLimiter;
+import org.odata4j.jersey.consumer.JerseyClientUtil;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.api.client.filter.Filterable;
+
+/**
+ * A behavior that sends every request through a {@link RateLimiter}.
+ *
+ * <p>A request counts as in flight until its response status and headers are received.  When the
+ * service answers <code>429 Too Many Requests</code> or <code>503 Service Unavailable</code> with a
+ * <code>Retry-After</code> header, the limiter holds back every request for that long, and a
+ * <code>429</code> without one pauses it for a second.</p>
+ */
+public class RateLimitBehavior implements JerseyClientBehavior {
+
+  /**
+   * The request property holding the {@link System#nanoTime()} at which a request got through the limiter.
+   */
+  public static final String SENT_AT = RateLimitBehavior.class.getName() + ".sentAt";
+
+  private static final Logger logger = Logger.getLogger(RateLimitBehavior.class);
+  private static final long DEFAULT_PAUSE_MILLIS = 1000;
+
+  private final RateLimiter limiter;
+
+  public RateLimitBehavior(RateLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  public RateLimiter getLimiter() {
+    return limiter;
+  }
+
+  @Override
+  public ODataClientRequest transform(ODataClientRequest request) {
+    return request;
+  }
+
+  @Override
+  public void modify(ClientConfig clientConfig) {}
+
+  @Override
+  public void modifyClientFilters(Filterable client) {
+    client.addFilter(new ClientFilter() {
+      @Override
+      public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+        limiter.acquire();
+        request.getProperties().put(SENT_AT, System.nanoTime());
+        try {
+          ClientResponse response = getNext().handle(request);
+          int status = response.getStatus();
+          if (status == 429 || status == 503) {
+            long pause = JerseyClientUtil.getRetryAfterMillis(response);
+            if (pause < 0 && status == 429)
+              pause = DEFAULT_PAUSE_MILLIS;
+            if (pause >= 0) {
+              if (logger.isDebugEnabled())
+                logger.debug(String.format("Service answered %d, holding back requests for %d ms", status, pause));
+              limiter.pauseFor(pause);
+            }
+          }
+          return response;
+        } finally {
+          limiter.release();
+        }
+      }
+    });
+  }
+
+  @Override
+  public void modifyWebResourceFilters(Filterable webResource) {}
+
+  /**
+   * Creates a behavior that limits the rate and concurrency of the requests to a service.  The limits
+   * are shared with every other behavior created for the same service.
+   *
+   * @param serviceUri  the service root uri
+   * @param permitsPerSecond  the sustained number of requests per second, or 0 for no rate limit
+   * @param burst  the maximum number of requests that can be sent at once after a quiet period
+   * @param maxConcurrent  the maximum number of requests in flight, or 0 for no concurrency limit
+   * @param fair  whether waiting requests are let through in arrival order
+   * @return a behavior that limits the rate and concurrency of requests
+   */
+  public static JerseyClientBehavior rateLimit(String serviceUri, double permitsPerSecond, int burst, int maxConcurrent, boolean fair) {
+    return new RateLimitBehavior(RateLimiter.forService(serviceUri, permitsPerSecond, burst, maxConcurrent, fair));
+  }
+
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.consumer.RequestCoalescer;
+
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.Filterable;
+
+/**
+ * A behavior that lets concurrent identical entity and entity set reads share a single request, as done
+ * by a {@link RequestCoalescer}.
+ *
+ * <p>Reads are identical when they have the same url, query, headers and credentials, so that consumers
+ * sharing a coalescer only share reads made with the same credentials.  The response body is read once
+ * and every caller parses its own copy, so that each one gets its own entities or objects.</p>
+ */
+public class RequestCoalescingBehavior implements JerseyClientBehavior {
+
+  private final RequestCoalescer<String, Object> coalescer;
+
+  public RequestCoalescingBehavior(RequestCoalescer<String, Object> coalescer) {
+    this.coalescer = coalescer;
+  }
+
+  public RequestCoalescer<String, Object> getCoalescer() {
+    return coalescer;
+  }
+
+  @Override
+  public ODataClientRequest transform(ODataClientRequest request) {
+    return request;
+  }
+
+  @Override
+  public void modify(ClientConfig clientConfig) {}
+
+  @Override
+  public void modifyClientFilters(Filterable client) {}
+
+  @Override
+  public void modifyWebResourceFilters(Filterable webResource) {}
+
+  /**
+   * Creates a behavior that lets concurrent identical reads of a service share a single request.  The
+   * reads are shared with every other behavior created for the same service.
+   *
+   * @param serviceUri  the service root uri
+   * @param resultTtlMillis  how long a response is shared after it is received, in milliseconds,
+   *        or 0 to only share it with the reads made while it was in flight
+   * @return a behavior that coalesces identical reads
+   */
+  public static JerseyClientBehavior coalesceRequests(String serviceUri, long resultTtlMillis) {
+    return new RequestCoalescingBehavior(RequestCoalescer.forService(serviceUri, resultTtlMillis));
+  }
+
+}
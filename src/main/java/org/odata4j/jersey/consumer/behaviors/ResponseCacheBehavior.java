@@ -0,0 +1,63 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.consumer.ResponseCache;
+
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.Filterable;
+
+/**
+ * A behavior that keeps the parsed entity and entity set reads of a consumer in a {@link ResponseCache}.
+ *
+ * <p>Cached reads are keyed by url, query and credentials.  Entities are cached as parsed, before being
+ * bound to the requested class, so each read still gets its own objects.  Creating, updating or deleting
+ * entities through the consumer invalidates the reads of their entity set.</p>
+ */
+public class ResponseCacheBehavior implements JerseyClientBehavior {
+
+  private final ResponseCache cache;
+
+  public ResponseCacheBehavior(ResponseCache cache) {
+    this.cache = cache;
+  }
+
+  public ResponseCache getCache() {
+    return cache;
+  }
+
+  @Override
+  public ODataClientRequest transform(ODataClientRequest request) {
+    return request;
+  }
+
+  @Override
+  public void modify(ClientConfig clientConfig) {}
+
+  @Override
+  public void modifyClientFilters(Filterable client) {}
+
+  @Override
+  public void modifyWebResourceFilters(Filterable webResource) {}
+
+  /**
+   * Creates a behavior that caches the reads of a service.  The cache is shared with every other
+   * behavior created for the same service.
+   *
+   * @param serviceUri  the service root uri
+   * @param maxEntries  the maximum number of cached reads
+   * @return a behavior that caches reads
+   */
+  public static JerseyClientBehavior responseCache(String serviceUri, int maxEntries) {
+    return new ResponseCacheBehavior(ResponseCache.forService(serviceUri, maxEntries));
+  }
+
+}
@@ -0,0 +1,102 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import org.apache.log4j.Logger;
+import org.odata4j.consumer.ODataClientRequest;
+import org.odata4j.consumer.RetryPolicy;
+import org.odata4j.core.ODataConstants;
+import org.odata4j.jersey.consumer.JerseyClientUtil;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.sun.jersey.api.client.filter.Filterable;
+
+/**
+ * A behavior that retries idempotent requests that fail with an I/O error or a retryable status,
+ * as told by a {@link RetryPolicy}.
+ *
+ * <p>Tunneled requests are judged by their tunneled method, so <code>MERGE</code> requests are never
+ * retried.  Responses asking to wait longer than the maximum backoff are returned as they are.
+ * Paged queries also use the policy to re-request the current page when reading it fails midway,
+ * skipping the entries already returned.</p>
+ */
+public class RetryBehavior implements JerseyClientBehavior {
+
+  private static final Logger logger = Logger.getLogger(RetryBehavior.class);
+
+  private final RetryPolicy policy;
+
+  public RetryBehavior(RetryPolicy policy) {
+    this.policy = policy;
+  }
+
+  public RetryPolicy getPolicy() {
+    return policy;
+  }
+
+  @Override
+  public ODataClientRequest transform(ODataClientRequest request) {
+    return request;
+  }
+
+  @Override
+  public void modify(ClientConfig clientConfig) {}
+
+  @Override
+  public void modifyClientFilters(Filterable client) {
+    client.addFilter(new ClientFilter() {
+      @Override
+      public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+        Object tunneled = request.getHeaders().getFirst(ODataConstants.Headers.X_HTTP_METHOD);
+        if (!policy.isIdempotent(tunneled != null ? tunneled.toString() : request.getMethod()))
+          return getNext().handle(request);
+
+        for (int attempt = 1;; attempt++) {
+          long retryAfter = -1;
+          try {
+            ClientResponse response = getNext().handle(request);
+            if (attempt == policy.getMaxAttempts() || !policy.isRetryableStatus(response.getStatus()))
+              return response;
+            retryAfter = JerseyClientUtil.getRetryAfterMillis(response);
+            if (!policy.canRetryAfter(retryAfter))
+              return response;
+            response.close();
+            if (logger.isDebugEnabled())
+              logger.debug(String.format("%s %s answered %d, retrying", request.getMethod(), request.getURI(), response.getStatus()));
+          } catch (ClientHandlerException e) {
+            if (attempt == policy.getMaxAttempts() || !policy.isTransient(e))
+              throw e;
+            if (logger.isDebugEnabled())
+              logger.debug(String.format("%s %s failed, retrying: %s", request.getMethod(), request.getURI(), e.getMessage()));
+          }
+          policy.backoff(attempt, retryAfter);
+        }
+      }
+    });
+  }
+
+  @Override
+  public void modifyWebResourceFilters(Filterable webResource) {}
+
+  /**
+   * Creates a behavior that retries idempotent requests as told by a policy.
+   *
+   * @param policy  the retry policy
+   * @return a behavior that retries failed idempotent requests
+   */
+  public static JerseyClientBehavior retry(RetryPolicy policy) {
+    return new RetryBehavior(policy);
+  }
+
+}
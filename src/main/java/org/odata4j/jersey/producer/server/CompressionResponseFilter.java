@@ -0,0 +1,248 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.producer.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.odata4j.core.ODataConstants;
+
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+
+/**
+ * A response filter that gzip or deflate encodes responses for clients that accept it.
+ *
+ * <p>The response is compressed while it is written, so streamed responses stay streamed.  Responses
+ * smaller than a minimum size are sent as they are: when the size isn't known up front, up to that many
+ * bytes are held back until the response turns out to be larger.  Responses that already have a
+ * <code>Content-Encoding</code> or an entity tag, such as the cached $metadata documents, are left alone.</p>
+ *
+ * <p>The minimum size and the compression level are read from the resource config properties
+ * {@link #MIN_SIZE_PROPNAME} and {@link #LEVEL_PROPNAME}, then from the system properties of the same names.</p>
+ *
+ * @see JerseyServer#addJerseyResponseFilter(Class)
+ * @see JerseyServer#setJerseyProperty(String, Object)
+ */
+public class CompressionResponseFilter implements ContainerResponseFilter {
+
+  /** The minimum size in bytes of a response to compress it.  Defaults to 1024. */
+  public static final String MIN_SIZE_PROPNAME = "odata4j.compression.minsize";
+
+  /** The compression level, from 0 to 9.  Defaults to the zlib default level. */
+  public static final String LEVEL_PROPNAME = "odata4j.compression.level";
+
+  private static final int DEFAULT_MIN_SIZE = 1024;
+  private static final int BUFFER_SIZE = 8192;
+
+  @Context
+  private ResourceConfig resourceConfig;
+
+  private volatile int[] settings;
+
+  @Override
+  public ContainerResponse filter(ContainerRequest request, ContainerResponse response) {
+    if (response.getEntity() == null || "HEAD".equals(request.getMethod()))
+      return response;
+    MultivaluedMap<String, Object> headers = response.getHttpHeaders();
+    // an entity tag identifies a single representation and is also used for concurrency checks,
+    // so tagged responses are never re-encoded
+    if (headers.containsKey(ODataConstants.Headers.CONTENT_ENCODING) || headers.containsKey(HttpHeaders.ETAG))
+      return response;
+
+    // the representation depends on Accept-Encoding whether this client gets it compressed or not
+    headers.add("Vary", "Accept-Encoding");
+    String encoding = negotiate(request.getHeaderValue(ODataConstants.Headers.ACCEPT_ENCODING));
+    if (encoding != null) {
+      int[] settings = getSettings();
+      response.setContainerResponseWriter(new CompressingWriter(response.getContainerResponseWriter(), encoding, settings[0], settings[1]));
+    }
+    return response;
+  }
+
+  /**
+   * Picks the encoding for a request: gzip if acceptable, then deflate, or null to leave the response unencoded.
+   */
+  static String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null)
+      return null;
+    boolean gzip = false;
+    boolean deflate = false;
+    boolean any = false;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      String name = parts[0].trim();
+      if (isRefused(parts))
+        continue;
+      if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip"))
+        gzip = true;
+      else if (name.equalsIgnoreCase("deflate"))
+        deflate = true;
+      else if (name.equals("*"))
+        any = true;
+    }
+    return gzip || any ? "gzip" : deflate ? "deflate" : null;
+  }
+
+  private static boolean isRefused(String[] parts) {
+    for (int i = 1; i < parts.length; i++) {
+      if (parts[i].trim().matches("[qQ]\\s*=\\s*0(\\.0*)?"))
+        return true;
+    }
+    return false;
+  }
+
+  private int[] getSettings() {
+    int[] rt = settings;
+    if (rt == null) {
+      int level = getIntProperty(LEVEL_PROPNAME, Deflater.DEFAULT_COMPRESSION);
+      if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+        throw new IllegalArgumentException(LEVEL_PROPNAME + " must be between 0 and 9");
+      rt = new int[] { Math.max(0, getIntProperty(MIN_SIZE_PROPNAME, DEFAULT_MIN_SIZE)), level };
+      settings = rt;
+    }
+    return rt;
+  }
+
+  private int getIntProperty(String name, int defaultValue) {
+    Object value = resourceConfig == null ? null : resourceConfig.getProperty(name);
+    if (value == null)
+      value = System.getProperty(name);
+    if (value == null)
+      return defaultValue;
+    return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString().trim());
+  }
+
+  /**
+   * Holds back the first bytes of a response until it is known to be large enough to compress.
+   */
+  private static class CompressingWriter implements ContainerResponseWriter {
+
+    private final ContainerResponseWriter writer;
+    private final String encoding;
+    private final int minSize;
+    private final int level;
+    private ContainerResponse response;
+    private ByteArrayOutputStream pending;
+    private OutputStream out;
+    private Deflater deflater;
+
+    CompressingWriter(ContainerResponseWriter writer, String encoding, int minSize, int level) {
+      this.writer = writer;
+      this.encoding = encoding;
+      this.minSize = minSize;
+      this.level = level;
+    }
+
+    @Override
+    public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) throws IOException {
+      this.response = response;
+      if (contentLength >= 0 && contentLength < minSize) {
+        out = writer.writeStatusAndHeaders(contentLength, response);
+        return out;
+      }
+      if (contentLength >= 0) {
+        startCompressing();
+        return out;
+      }
+
+      pending = new ByteArrayOutputStream(Math.min(minSize, BUFFER_SIZE));
+      return new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+          if (pending != null) {
+            if (pending.size() + len < minSize) {
+              pending.write(b, off, len);
+              return;
+            }
+            startCompressing();
+          }
+          out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+          // flushing before the size is known would give away the chance to compress
+          if (pending == null)
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+          // the container owns the stream, finish() completes the response
+        }
+      };
+    }
+
+    private void startCompressing() throws IOException {
+      response.getHttpHeaders().putSingle(ODataConstants.Headers.CONTENT_ENCODING, encoding);
+      OutputStream raw = writer.writeStatusAndHeaders(-1, response);
+      if (encoding.equals("gzip")) {
+        GzipStream gzip = new GzipStream(raw, level);
+        deflater = gzip.getDeflater();
+        out = gzip;
+      } else {
+        deflater = new Deflater(level);
+        out = new DeflaterOutputStream(raw, deflater, BUFFER_SIZE);
+      }
+      if (pending != null) {
+        pending.writeTo(out);
+        pending = null;
+      }
+    }
+
+    @Override
+    public void finish() throws IOException {
+      try {
+        if (pending != null) {
+          // the whole response was smaller than the minimum size
+          OutputStream raw = writer.writeStatusAndHeaders(pending.size(), response);
+          pending.writeTo(raw);
+          pending = null;
+        } else if (deflater != null) {
+          ((DeflaterOutputStream) out).finish();
+        }
+      } finally {
+        if (deflater != null)
+          deflater.end();
+      }
+      writer.finish();
+    }
+  }
+
+  private static class GzipStream extends GZIPOutputStream {
+
+    GzipStream(OutputStream out, int level) throws IOException {
+      super(out, BUFFER_SIZE);
+      def.setLevel(level);
+    }
+
+    Deflater getDeflater() {
+      return def;
+    }
+  }
+
+}
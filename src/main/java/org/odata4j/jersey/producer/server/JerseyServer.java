@@ -57,6 +57,7 @@ public class JerseyServer implements ODataServer {
   private final List<String> jerseyResponseFilters = new ArrayList<String>();
   private final List<String> jerseyResourceFilters = new ArrayList<String>();
   private final Map<String, Boolean> jerseyFeatures = new HashMap<String, Boolean>();
+  private final Map<String, Object> jerseyProperties = new HashMap<String, Object>();
   private final List<Filter> httpServerFilters = new ArrayList<Filter>();
   private Authenticator httpServerAuthenticator;
 
@@ -109,6 +110,12 @@ public class JerseyServer implements ODataServer {
     return this;
   }
 
+  /** Sets a resource config property, such as the settings of {@link CompressionResponseFilter} */
+  public JerseyServer setJerseyProperty(String name, Object value) {
+    jerseyProperties.put(name, value);
+    return this;
+  }
+
   public JerseyServer addHttpServerFilter(Filter filter) {
     httpServerFilters.add(filter);
     return this;
@@ -195,6 +202,7 @@ public class JerseyServer implements ODataServer {
     propertiesAndFeatures.put(PROPERTY_CONTAINER_RESPONSE_FILTERS, Enumerable.create(jerseyResponseFilters).toArray(String.class));
     propertiesAndFeatures.put(PROPERTY_RESOURCE_FILTER_FACTORIES, Enumerable.create(jerseyResourceFilters).toArray(String.class));
     propertiesAndFeatures.putAll(jerseyFeatures);
+    propertiesAndFeatures.putAll(jerseyProperties);
     return propertiesAndFeatures;
   }
 
@@ -119,13 +119,22 @@ public class BeanModel {
    * Returns true if the property has a setter.
    */
   public boolean canWrite(String propertyName) {
+    return findSetter(propertyName) != null;
+  }
+
+  /**
+   * Finds the setter of a property, trying each {@link PropertyNamingFormat} in turn.
+   *
+   * @param propertyName  the name of the property
+   * @return the setter, or null if the property cannot be written
+   */
+  public Method findSetter(String propertyName) {
     for (PropertyNamingFormat format : PropertyNamingFormat.values()) {
-    	if (setters.containsKey(format.toOData(propertyName))) {
-    		return true;
-    	}
+      Method method = setters.get(format.toOData(propertyName));
+      if (method != null)
+        return method;
     }
-    
-    return false;
+    return null;
   }
 
   /**
@@ -254,15 +263,10 @@ public class BeanModel {
   }
 
   private Method getSetter(String propertyName) {
-	  Method method = null;
-	  for (PropertyNamingFormat format : PropertyNamingFormat.values()) {
-    	 method = setters.get(format.toOData(propertyName));
-    	if (method != null) {
-    		return method;
-    	}
-    }
-	  
-	  throw new IllegalArgumentException("No setter found for propertyName " + propertyName);
+    Method method = findSetter(propertyName);
+    if (method == null)
+      throw new IllegalArgumentException("No setter found for propertyName " + propertyName);
+    return method;
   }
 
   private static Map<String, Class<?>> computeTypes(Map<String, Method> getters, Map<String, Method> setters) {
@@ -9,10 +9,15 @@
 
 package org.odata4j.producer.inmemory;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.core4j.Func;
 import org.core4j.Func1;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.core.OProperty;
 
 public class InMemoryEntityInfo<TEntity> {
 
@@ -24,4 +29,56 @@ public class InMemoryEntityInfo<TEntity> {
   Func1<Object, HashMap<String, Object>> id;
   PropertyModel properties;
   boolean hasStream;
+  // copy-on-write, as queries read it while indexes are declared
+  volatile Map<String, InMemoryIndexType> indexTypes;
+  volatile InMemoryIndexes indexes;
+  InMemoryEntityStore<TEntity> store;
+  BeanModel beanModel;
+
+  /**
+   * Gets the key of an object: the key property value for single keys, or the list of key
+   * property values for composite keys.
+   */
+  Object getKey(Object obj) {
+    if (keys.length == 1)
+      return properties.getPropertyValue(obj, keys[0]);
+    Object[] values = new Object[keys.length];
+    for (int i = 0; i < keys.length; i++)
+      values[i] = properties.getPropertyValue(obj, keys[i]);
+    return Arrays.asList(values);
+  }
+
+  /**
+   * Tells whether a key, in the form returned by {@link #getKey(Object)}, has a value for every key property.
+   */
+  static boolean isComplete(Object key) {
+    return key != null && !(key instanceof List && ((List<?>) key).contains(null));
+  }
+
+  /**
+   * Gets the key of an entity-key, in the form returned by {@link #getKey(Object)}.
+   *
+   * @return the key, or null if a key property is missing
+   */
+  Object getKey(OEntityKey entityKey) {
+    if (keys.length == 1)
+      return entityKey.asSingleValue();
+    Object[] values = new Object[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      for (OProperty<?> keyProp : entityKey.asComplexProperties()) {
+        if (keyProp.getName().equalsIgnoreCase(keys[i]))
+          values[i] = keyProp.getValue();
+      }
+      if (values[i] == null)
+        return null;
+    }
+    return Arrays.asList(values);
+  }
+
+  /**
+   * Gets the entity-key string of an object, as it appears in the converted OEntity.
+   */
+  String getKeyString(Object obj) {
+    return OEntityKey.create(id.apply(obj)).toKeyString();
+  }
 }
@@ -0,0 +1,402 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.producer.inmemory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.core4j.Func1;
+
+/**
+ * A concurrent, multi-versioned store for the entities of one in-memory entity set.
+ *
+ * <p>Writers are serialized per entity set and never wait for readers.  As every write commits the next version
+ * of the whole set, writes to one set do not scale across cores, unlike writes to different sets and reads.
+ * Readers only synchronize
+ * briefly to open and close snapshots: a {@link Snapshot} sees the set exactly as it was when the
+ * snapshot was taken, no matter how many writes happen while it is being iterated.  Old versions are
+ * discarded as soon as no open snapshot can see them, either by the write superseding them or by the
+ * closing of the oldest snapshot, so snapshots must be closed.  The slots of deleted entities are
+ * dropped by the next write after that.</p>
+ *
+ * <p>Entities are identified by their key: the value of the key property for single keys, or a
+ * list of the key property values (in declaration order) for composite keys.  Keys cannot be null, nor
+ * contain nulls.  Stored entities must not be mutated in place; write a new instance instead.</p>
+ *
+ * @see InMemoryProducer#registerStore(Class, String, String...)
+ */
+public class InMemoryEntityStore<TEntity> {
+
+  private static class Version<TEntity> {
+    final TEntity value;
+    final long stamp;
+    volatile Version<TEntity> previous;
+
+    Version(TEntity value, long stamp, Version<TEntity> previous) {
+      this.value = value;
+      this.stamp = stamp;
+      this.previous = previous;
+    }
+  }
+
+  private static class Slot<TEntity> {
+    final Object key;
+    final long sequence;
+    volatile Version<TEntity> head;
+    volatile Slot<TEntity> previous;
+
+    Slot(Object key, long sequence, Slot<TEntity> previous) {
+      this.key = key;
+      this.sequence = sequence;
+      this.previous = previous;
+    }
+
+    Version<TEntity> at(long stamp) {
+      Version<TEntity> rt = head;
+      while (rt != null && rt.stamp > stamp)
+        rt = rt.previous;
+      return rt;
+    }
+  }
+
+  private static class Pin implements Comparable<Pin> {
+    final long stamp;
+    final long id;
+
+    Pin(long stamp, long id) {
+      this.stamp = stamp;
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(Pin o) {
+      if (stamp != o.stamp)
+        return stamp < o.stamp ? -1 : 1;
+      return id < o.id ? -1 : (id == o.id ? 0 : 1);
+    }
+  }
+
+  private final Func1<Object, Object> keyFunction;
+  private final Object writeLock = new Object();
+  private final ConcurrentHashMap<Object, Slot<TEntity>> slots = new ConcurrentHashMap<Object, Slot<TEntity>>();
+  private final ConcurrentSkipListMap<Long, Slot<TEntity>> order = new ConcurrentSkipListMap<Long, Slot<TEntity>>();
+  // slots holding versions older than their current one, pruned when the oldest snapshot closes
+  private final ConcurrentHashMap<Slot<TEntity>, Boolean> retained = new ConcurrentHashMap<Slot<TEntity>, Boolean>();
+  // guarded by itself, along with committing writes, so that a snapshot never pins a stamp already pruned past
+  private final TreeMap<Pin, Boolean> pins = new TreeMap<Pin, Boolean>();
+  private final Queue<Slot<TEntity>> deleted = new ArrayDeque<Slot<TEntity>>();
+  private long sequence;
+  private long pinIds;
+  private volatile long committed;
+
+  InMemoryEntityStore(Func1<Object, Object> keyFunction) {
+    this.keyFunction = keyFunction;
+  }
+
+  /**
+   * Gets the key of an entity, as used by this store.
+   */
+  public Object getKey(TEntity entity) {
+    return keyFunction.apply(entity);
+  }
+
+  /**
+   * Gets the current version of an entity.
+   *
+   * @param key  the entity key
+   * @return the entity, or null if there is none
+   */
+  public TEntity get(Object key) {
+    Slot<TEntity> slot = slots.get(key);
+    Version<TEntity> version = slot == null ? null : slot.head;
+    return version == null ? null : version.value;
+  }
+
+  /**
+   * Gets the number of committed writes so far.  Changes whenever the store does.
+   */
+  public long getVersion() {
+    return committed;
+  }
+
+  /**
+   * Adds a new entity.
+   *
+   * @param entity  the entity
+   * @return false if an entity with the same key already exists, in which case nothing is written
+   * @throws IllegalArgumentException if the entity key is null or incomplete
+   */
+  public boolean add(TEntity entity) {
+    Object key = getCompleteKey(entity);
+    synchronized (writeLock) {
+      if (get(key) != null)
+        return false;
+      write(key, entity);
+      return true;
+    }
+  }
+
+  /**
+   * Adds an entity, or replaces the entity with the same key.
+   *
+   * @param entity  the entity
+   * @return the replaced entity, or null if there was none
+   * @throws IllegalArgumentException if the entity key is null or incomplete
+   */
+  public TEntity put(TEntity entity) {
+    Object key = getCompleteKey(entity);
+    synchronized (writeLock) {
+      TEntity rt = get(key);
+      write(key, entity);
+      return rt;
+    }
+  }
+
+  /**
+   * Replaces the entity with the same key, if there is one.
+   *
+   * @param entity  the entity
+   * @return the replaced entity, or null if there was none, in which case nothing is written
+   * @throws IllegalArgumentException if the entity key is null or incomplete
+   */
+  public TEntity replace(TEntity entity) {
+    Object key = getCompleteKey(entity);
+    synchronized (writeLock) {
+      TEntity rt = get(key);
+      if (rt != null)
+        write(key, entity);
+      return rt;
+    }
+  }
+
+  /**
+   * Atomically replaces the entity with the given key by a new instance computed from the current one.
+   * The update function runs while holding this store's write lock.
+   *
+   * @param key  the entity key
+   * @param update  computes the new instance, which must have the same key
+   * @return the new entity, or null if there was none, in which case nothing is written
+   * @throws IllegalArgumentException if the new instance has a different key
+   */
+  public TEntity update(Object key, Func1<TEntity, TEntity> update) {
+    synchronized (writeLock) {
+      TEntity current = get(key);
+      if (current == null)
+        return null;
+      TEntity rt = update.apply(current);
+      if (!key.equals(getKey(rt)))
+        throw new IllegalArgumentException("Entity keys cannot be changed");
+      write(key, rt);
+      return rt;
+    }
+  }
+
+  /**
+   * Removes the entity with the given key.
+   *
+   * @param key  the entity key
+   * @return the removed entity, or null if there was none
+   */
+  public TEntity remove(Object key) {
+    synchronized (writeLock) {
+      TEntity rt = get(key);
+      if (rt != null)
+        write(key, null);
+      return rt;
+    }
+  }
+
+  private Object getCompleteKey(TEntity entity) {
+    Object key = getKey(entity);
+    if (!InMemoryEntityInfo.isComplete(key))
+      throw new IllegalArgumentException("Entity key " + key + " is incomplete");
+    return key;
+  }
+
+  // callers hold the write lock
+  private void write(Object key, TEntity value) {
+    long stamp = committed + 1;
+
+    // a key that was deleted comes back as a new slot, at the end of the set
+    Slot<TEntity> slot = slots.get(key);
+    if (slot == null || slot.head.value == null) {
+      slot = new Slot<TEntity>(key, ++sequence, slot);
+      slots.put(key, slot);
+      order.put(slot.sequence, slot);
+    }
+    slot.head = new Version<TEntity>(value, stamp, slot.head);
+
+    // nothing older than the oldest open snapshot can be seen anymore.  The write is committed
+    // along with reading the pins, so that snapshots opened afterwards see it and none older
+    long horizon;
+    synchronized (pins) {
+      horizon = getHorizon(stamp);
+      committed = stamp;
+    }
+    prune(slot, horizon);
+    if (slot.head.previous != null)
+      retained.put(slot, Boolean.TRUE);
+    if (value == null)
+      deleted.add(slot);
+    while (!deleted.isEmpty() && deleted.peek().head.stamp <= horizon) {
+      Slot<TEntity> dead = deleted.poll();
+      order.remove(dead.sequence);
+      retained.remove(dead);
+      if (!slots.remove(dead.key, dead)) {
+        for (Slot<TEntity> s = slots.get(dead.key); s != null; s = s.previous) {
+          if (s.previous == dead)
+            s.previous = null;
+        }
+      }
+    }
+  }
+
+  // callers hold the pins lock
+  private long getHorizon(long stamp) {
+    return pins.isEmpty() ? stamp : Math.min(stamp, pins.firstKey().stamp);
+  }
+
+  private static <TEntity> void prune(Slot<TEntity> slot, long horizon) {
+    Version<TEntity> visible = slot.at(horizon);
+    if (visible != null)
+      visible.previous = null;
+  }
+
+  // may run along with a write, which only adds versions newer than the horizon
+  private void prune(long horizon) {
+    for (Iterator<Slot<TEntity>> it = retained.keySet().iterator(); it.hasNext();) {
+      Slot<TEntity> slot = it.next();
+      prune(slot, horizon);
+      if (slot.head.previous == null) {
+        it.remove();
+        // a write may have added a version in the meantime
+        if (slot.head.previous != null)
+          retained.put(slot, Boolean.TRUE);
+      }
+    }
+  }
+
+  /**
+   * Opens a consistent, point-in-time view of the store.  Must be closed.
+   */
+  public Snapshot snapshot() {
+    synchronized (pins) {
+      Pin pin = new Pin(committed, ++pinIds);
+      pins.put(pin, Boolean.TRUE);
+      return new Snapshot(pin);
+    }
+  }
+
+  /**
+   * Copies a consistent, point-in-time view of the store, in insertion order.
+   */
+  public List<TEntity> toList() {
+    Snapshot snapshot = snapshot();
+    try {
+      List<TEntity> rt = new ArrayList<TEntity>();
+      for (TEntity entity : snapshot)
+        rt.add(entity);
+      return rt;
+    } finally {
+      snapshot.close();
+    }
+  }
+
+  /**
+   * A point-in-time view of an {@link InMemoryEntityStore}, iterated in insertion order.
+   */
+  public class Snapshot implements Iterable<TEntity> {
+
+    private final Pin pin;
+
+    private Snapshot(Pin pin) {
+      this.pin = pin;
+    }
+
+    /**
+     * Gets the version of the store this snapshot sees.
+     */
+    public long getVersion() {
+      return pin.stamp;
+    }
+
+    /**
+     * Gets an entity as of this snapshot.
+     *
+     * @param key  the entity key
+     * @return the entity, or null if there was none
+     */
+    public TEntity get(Object key) {
+      // the key may have been deleted and added again since, so look at older incarnations too
+      for (Slot<TEntity> slot = slots.get(key); slot != null; slot = slot.previous) {
+        Version<TEntity> version = slot.at(pin.stamp);
+        if (version != null)
+          return version.value;
+      }
+      return null;
+    }
+
+    @Override
+    public Iterator<TEntity> iterator() {
+      final Iterator<Slot<TEntity>> slots = order.values().iterator();
+      return new Iterator<TEntity>() {
+        private TEntity next;
+
+        @Override
+        public boolean hasNext() {
+          while (next == null && slots.hasNext()) {
+            Version<TEntity> version = slots.next().at(pin.stamp);
+            if (version != null)
+              next = version.value;
+          }
+          return next != null;
+        }
+
+        @Override
+        public TEntity next() {
+          if (!hasNext())
+            throw new NoSuchElementException();
+          TEntity rt = next;
+          next = null;
+          return rt;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    /**
+     * Releases this snapshot, so that the versions only it could see can be discarded.
+     */
+    public void close() {
+      long horizon;
+      synchronized (pins) {
+        if (pins.isEmpty())
+          return;
+        boolean oldest = pins.firstKey() == pin;
+        if (pins.remove(pin) == null || !oldest)
+          return;
+        horizon = getHorizon(committed);
+      }
+      prune(horizon);
+    }
+  }
+
+}
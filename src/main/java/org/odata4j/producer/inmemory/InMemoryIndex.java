@@ -0,0 +1,236 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.producer.inmemory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A secondary index over one property of an in-memory entity set snapshot.
+ *
+ * <p>Index entries are ordinals into the snapshot rows, always returned in ascending order
+ * so that callers can preserve the natural order of the entity set.</p>
+ */
+class InMemoryIndex {
+
+  /**
+   * Returned by {@link #normalize(Object)} when a value cannot be looked up in the index.
+   */
+  static final Object NOT_INDEXABLE = new Object();
+
+  static final int[] EMPTY = new int[0];
+
+  private final String propertyName;
+  private final InMemoryIndexType type;
+  private final Map<Object, int[]> entries;
+  private final int rowCount;
+  private final Class<?> valueClass;
+  private final boolean homogeneous;
+
+  InMemoryIndex(String propertyName, InMemoryIndexType type, Object[] rows, PropertyModel properties) {
+    this.propertyName = propertyName;
+    this.type = type;
+
+    Map<Object, List<Integer>> building = type == InMemoryIndexType.SORTED
+        ? new TreeMap<Object, List<Integer>>()
+        : new HashMap<Object, List<Integer>>();
+    Class<?> valueClass = null;
+    boolean homogeneous = true;
+
+    try {
+      for (int i = 0; i < rows.length; i++) {
+        Object value = properties.getPropertyValue(rows[i], propertyName);
+        if (value == null) {
+          // range comparisons never match nulls, and TreeMap cannot hold them
+          if (type == InMemoryIndexType.SORTED)
+            continue;
+        } else if (valueClass == null) {
+          valueClass = value.getClass();
+        } else if (!valueClass.equals(value.getClass())) {
+          homogeneous = false;
+        }
+
+        List<Integer> ordinals = building.get(value);
+        if (ordinals == null) {
+          ordinals = new ArrayList<Integer>(1);
+          building.put(value, ordinals);
+        }
+        ordinals.add(i);
+      }
+    } catch (ClassCastException e) {
+      throw new IllegalStateException("Property " + propertyName + " cannot be sorted: values are not mutually comparable", e);
+    }
+
+    this.entries = type == InMemoryIndexType.SORTED
+        ? new TreeMap<Object, int[]>()
+        : new HashMap<Object, int[]>(building.size() * 4 / 3 + 1);
+    for (Map.Entry<Object, List<Integer>> entry : building.entrySet()) {
+      List<Integer> ordinals = entry.getValue();
+      int[] rt = new int[ordinals.size()];
+      for (int i = 0; i < rt.length; i++)
+        rt[i] = ordinals.get(i);
+      this.entries.put(entry.getKey(), rt);
+    }
+    this.rowCount = rows.length;
+    this.valueClass = valueClass;
+    this.homogeneous = homogeneous;
+  }
+
+  public String getPropertyName() {
+    return propertyName;
+  }
+
+  public InMemoryIndexType getType() {
+    return type;
+  }
+
+  /**
+   * Converts a filter literal to the class of the indexed values, following the binary numeric
+   * promotion used by {@link InMemoryEvaluation}.
+   *
+   * @param value  the literal value
+   * @return the value to look up, or {@link #NOT_INDEXABLE} if the lookup could miss matching rows
+   */
+  Object normalize(Object value) {
+    if (value == null || !homogeneous)
+      return NOT_INDEXABLE;
+    if (valueClass == null || valueClass.isInstance(value))
+      return value;
+    if (!(value instanceof Number) || !Number.class.isAssignableFrom(valueClass))
+      return NOT_INDEXABLE;
+
+    // only lossless conversions are safe, anything else falls back to a scan
+    try {
+      Object rt = InMemoryEvaluation.cast(value, valueClass);
+      return new BigDecimal(rt.toString()).compareTo(new BigDecimal(value.toString())) == 0 ? rt : NOT_INDEXABLE;
+    } catch (UnsupportedOperationException e) {
+      return NOT_INDEXABLE;
+    } catch (NumberFormatException e) {
+      return NOT_INDEXABLE;
+    }
+  }
+
+  /**
+   * Gets the ordinals of the rows whose property value equals the given (normalized) value.
+   */
+  int[] lookup(Object value) {
+    int[] rt = entries.get(value);
+    return rt == null ? EMPTY : rt;
+  }
+
+  /**
+   * Gets the ordinals of the rows whose property value lies within the given (normalized) bounds.
+   * Takes O(log n + k) time for k matches among n rows, as long as at least one row in 64 matches;
+   * sparser ranges take O(log n + k log k).
+   *
+   * @param lower  the lower bound, or null if unbounded
+   * @param lowerInclusive  whether the lower bound is included
+   * @param upper  the upper bound, or null if unbounded
+   * @param upperInclusive  whether the upper bound is included
+   * @return the ordinals in ascending order, or null if this index cannot answer range queries
+   */
+  int[] range(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+    if (type != InMemoryIndexType.SORTED)
+      return null;
+
+    NavigableMap<Object, int[]> sorted = (NavigableMap<Object, int[]>) entries;
+    if (lower != null && upper != null)
+      sorted = sorted.subMap(lower, lowerInclusive, upper, upperInclusive);
+    else if (lower != null)
+      sorted = sorted.tailMap(lower, lowerInclusive);
+    else if (upper != null)
+      sorted = sorted.headMap(upper, upperInclusive);
+    return merge(sorted.values(), rowCount);
+  }
+
+  /**
+   * Merges ascending ordinal arrays into one.  A dense result is collected through a bitmap of the rows,
+   * which costs no more than the ordinals themselves; only a sparse one is sorted.
+   */
+  static int[] merge(Collection<int[]> groups, int rowCount) {
+    int size = 0;
+    for (int[] group : groups)
+      size += group.length;
+    if (size == 0)
+      return EMPTY;
+    if (groups.size() == 1)
+      return groups.iterator().next();
+
+    int[] rt = new int[size];
+    if (size >= rowCount >>> 6) {
+      long[] bits = new long[(rowCount + 63) >>> 6];
+      for (int[] group : groups) {
+        for (int ordinal : group)
+          bits[ordinal >>> 6] |= 1L << ordinal;
+      }
+      int i = 0;
+      for (int word = 0; word < bits.length; word++) {
+        for (long b = bits[word]; b != 0; b &= b - 1)
+          rt[i++] = (word << 6) + Long.numberOfTrailingZeros(b);
+      }
+    } else {
+      int i = 0;
+      for (int[] group : groups) {
+        System.arraycopy(group, 0, rt, i, group.length);
+        i += group.length;
+      }
+      Arrays.sort(rt);
+    }
+    return rt;
+  }
+
+  /**
+   * Intersects two ascending ordinal arrays.
+   */
+  static int[] and(int[] lhs, int[] rhs) {
+    int[] rt = new int[Math.min(lhs.length, rhs.length)];
+    int i = 0, j = 0, k = 0;
+    while (i < lhs.length && j < rhs.length) {
+      if (lhs[i] < rhs[j])
+        i++;
+      else if (lhs[i] > rhs[j])
+        j++;
+      else {
+        rt[k++] = lhs[i];
+        i++;
+        j++;
+      }
+    }
+    return k == rt.length ? rt : Arrays.copyOf(rt, k);
+  }
+
+  /**
+   * Unions two ascending ordinal arrays.
+   */
+  static int[] or(int[] lhs, int[] rhs) {
+    int[] rt = new int[lhs.length + rhs.length];
+    int i = 0, j = 0, k = 0;
+    while (i < lhs.length || j < rhs.length) {
+      if (j == rhs.length || (i < lhs.length && lhs[i] < rhs[j]))
+        rt[k++] = lhs[i++];
+      else if (i == lhs.length || rhs[j] < lhs[i])
+        rt[k++] = rhs[j++];
+      else {
+        rt[k++] = lhs[i];
+        i++;
+        j++;
+      }
+    }
+    return k == rt.length ? rt : Arrays.copyOf(rt, k);
+  }
+
+}
@@ -0,0 +1,30 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.producer.inmemory;
+
+/**
+ * HASH or SORTED
+ *
+ * @see InMemoryProducer#addIndex(String, String, InMemoryIndexType)
+ */
+public enum InMemoryIndexType {
+
+  /**
+   * Answers <code>eq</code> comparisons in constant time.
+   */
+  HASH,
+
+  /**
+   * Answers <code>eq</code>, <code>gt</code>, <code>ge</code>, <code>lt</code> and <code>le</code> comparisons in logarithmic time.
+   * Property values must be mutually comparable.
+   */
+  SORTED;
+
+}
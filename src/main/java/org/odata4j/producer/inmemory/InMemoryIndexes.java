@@ -0,0 +1,208 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.producer.inmemory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.core4j.Predicate1;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.expression.AndExpression;
+import org.odata4j.expression.BinaryCommonExpression;
+import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.expression.BoolParenExpression;
+import org.odata4j.expression.CommonExpression;
+import org.odata4j.expression.EntitySimpleProperty;
+import org.odata4j.expression.EqExpression;
+import org.odata4j.expression.Expression;
+import org.odata4j.expression.GeExpression;
+import org.odata4j.expression.GtExpression;
+import org.odata4j.expression.LeExpression;
+import org.odata4j.expression.LiteralExpression;
+import org.odata4j.expression.LtExpression;
+import org.odata4j.expression.OrExpression;
+
+/**
+ * An immutable, indexed snapshot of an in-memory entity set.
+ *
+ * <p>Holds a hash index on the entity key plus the secondary indexes declared with
+ * {@link InMemoryProducer#addIndex(String, String, InMemoryIndexType)}, and plans filters against them.</p>
+ */
+class InMemoryIndexes {
+
+  private enum Op {
+    EQ, GT, GE, LT, LE;
+
+    Op flip() {
+      switch (this) {
+      case GT: return LT;
+      case GE: return LE;
+      case LT: return GT;
+      case LE: return GE;
+      default: return this;
+      }
+    }
+  }
+
+  private final InMemoryEntityInfo<?> ei;
+  private final long version;
+  private final Object[] rows;
+  private final Map<Object, Integer> keyOrdinals;
+  private final Map<String, InMemoryIndex> indexes = new HashMap<String, InMemoryIndex>();
+  private volatile Map<String, Integer> keyStringOrdinals;
+
+  /**
+   * Creates a snapshot of the given rows of an entity set.
+   *
+   * @param ei  the entity set
+   * @param source  the rows
+   * @param version  the version of the rows, when the set is backed by an {@link InMemoryEntityStore}
+   */
+  InMemoryIndexes(InMemoryEntityInfo<?> ei, Iterable<?> source, long version) {
+    List<Object> rows = new ArrayList<Object>();
+    for (Object row : source)
+      rows.add(row);
+    this.ei = ei;
+    this.version = version;
+    this.rows = rows.toArray();
+
+    this.keyOrdinals = new HashMap<Object, Integer>(this.rows.length * 4 / 3 + 1);
+    for (int i = 0; i < this.rows.length; i++) {
+      Object key = ei.getKey(this.rows[i]);
+      // first one wins, as with a scan
+      if (!keyOrdinals.containsKey(key))
+        keyOrdinals.put(key, i);
+    }
+
+    for (String key : ei.keys)
+      indexes.put(key, new InMemoryIndex(key, InMemoryIndexType.HASH, this.rows, ei.properties));
+    for (Map.Entry<String, InMemoryIndexType> entry : ei.indexTypes.entrySet())
+      indexes.put(entry.getKey(), new InMemoryIndex(entry.getKey(), entry.getValue(), this.rows, ei.properties));
+  }
+
+  long getVersion() {
+    return version;
+  }
+
+  /**
+   * Creates a cursor over the rows that pass a filter, visiting only index candidates when the filter allows it.
+   *
+   * @param filter  the filter expression, or null
+   * @param predicate  the compiled filter, or null
+   */
+  InMemoryScan scan(BoolCommonExpression filter, Predicate1<Object> predicate) {
+    return new InMemoryScan(rows, filter == null ? null : plan(filter), predicate);
+  }
+
+  /**
+   * Finds the ordinal of the row with the given entity-key string, as used in skip tokens.
+   * The lookup table is built on first use.
+   *
+   * @return the ordinal, or -1 if there is no such row
+   */
+  int ordinalOf(String keyString) {
+    Map<String, Integer> keyStringOrdinals = this.keyStringOrdinals;
+    if (keyStringOrdinals == null) {
+      keyStringOrdinals = new HashMap<String, Integer>(rows.length * 4 / 3 + 1);
+      for (int i = rows.length - 1; i >= 0; i--)
+        keyStringOrdinals.put(ei.getKeyString(rows[i]), i);
+      this.keyStringOrdinals = keyStringOrdinals;
+    }
+    Integer rt = keyStringOrdinals.get(keyString);
+    return rt == null ? -1 : rt;
+  }
+
+  /**
+   * Finds the row with the given entity-key.
+   *
+   * @param entityKey  the entity-key
+   * @return the row, or null if there is none
+   */
+  Object get(OEntityKey entityKey) {
+    Object key = ei.getKey(entityKey);
+    Integer ordinal = key == null ? null : keyOrdinals.get(key);
+    return ordinal == null ? null : rows[ordinal];
+  }
+
+  /**
+   * Narrows a filter to candidate rows using the available indexes.
+   *
+   * <p>The result is a superset of the matching rows; the filter must still be evaluated against each candidate.</p>
+   *
+   * @param filter  the filter expression
+   * @return the candidate ordinals in ascending order, or null if the filter cannot be answered from the indexes
+   */
+  int[] plan(BoolCommonExpression filter) {
+    if (filter instanceof BoolParenExpression) {
+      CommonExpression inner = ((BoolParenExpression) filter).getExpression();
+      return inner instanceof BoolCommonExpression ? plan((BoolCommonExpression) inner) : null;
+    }
+    if (filter instanceof AndExpression) {
+      AndExpression e = (AndExpression) filter;
+      int[] lhs = plan(e.getLHS());
+      int[] rhs = plan(e.getRHS());
+      if (lhs == null)
+        return rhs;
+      if (rhs == null)
+        return lhs;
+      return InMemoryIndex.and(lhs, rhs);
+    }
+    if (filter instanceof OrExpression) {
+      OrExpression e = (OrExpression) filter;
+      int[] lhs = plan(e.getLHS());
+      if (lhs == null)
+        return null;
+      int[] rhs = plan(e.getRHS());
+      return rhs == null ? null : InMemoryIndex.or(lhs, rhs);
+    }
+    if (filter instanceof EqExpression)
+      return plan((BinaryCommonExpression) filter, Op.EQ);
+    if (filter instanceof GtExpression)
+      return plan((BinaryCommonExpression) filter, Op.GT);
+    if (filter instanceof GeExpression)
+      return plan((BinaryCommonExpression) filter, Op.GE);
+    if (filter instanceof LtExpression)
+      return plan((BinaryCommonExpression) filter, Op.LT);
+    if (filter instanceof LeExpression)
+      return plan((BinaryCommonExpression) filter, Op.LE);
+    return null;
+  }
+
+  private int[] plan(BinaryCommonExpression comparison, Op op) {
+    CommonExpression property = comparison.getLHS();
+    CommonExpression literal = comparison.getRHS();
+    if (property instanceof LiteralExpression && literal instanceof EntitySimpleProperty) {
+      property = comparison.getRHS();
+      literal = comparison.getLHS();
+      op = op.flip();
+    }
+    if (!(property instanceof EntitySimpleProperty) || !(literal instanceof LiteralExpression))
+      return null;
+
+    InMemoryIndex index = indexes.get(((EntitySimpleProperty) property).getPropertyName());
+    if (index == null)
+      return null;
+    Object value = index.normalize(Expression.literalValue((LiteralExpression) literal));
+    if (value == InMemoryIndex.NOT_INDEXABLE)
+      return null;
+
+    switch (op) {
+    case EQ: return index.lookup(value);
+    case GT: return index.range(value, false, null, false);
+    case GE: return index.range(value, true, null, false);
+    case LT: return index.range(null, false, value, false);
+    case LE: return index.range(null, false, value, true);
+    default: return null;
+    }
+  }
+
+}
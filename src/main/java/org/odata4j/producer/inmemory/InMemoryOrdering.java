@@ -0,0 +1,181 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.producer.inmemory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.odata4j.expression.CommonExpression;
+import org.odata4j.expression.EntitySimpleProperty;
+import org.odata4j.expression.OrderByExpression;
+import org.odata4j.expression.OrderByExpression.Direction;
+
+/**
+ * A compiled <code>$orderby</code> clause over an in-memory entity set.
+ *
+ * <p>Sort keys are resolved once per object, simple property paths are read straight from the
+ * {@link PropertyModel}, and ties keep the original order of the entity set.</p>
+ */
+class InMemoryOrdering {
+
+  private final PropertyModel properties;
+  private final CommonExpression[] expressions;
+  private final String[] propertyNames;
+  private final int[] signs;
+
+  InMemoryOrdering(List<OrderByExpression> orderBys, PropertyModel properties) {
+    this.properties = properties;
+    this.expressions = new CommonExpression[orderBys.size()];
+    this.propertyNames = new String[expressions.length];
+    this.signs = new int[expressions.length];
+    for (int i = 0; i < expressions.length; i++) {
+      OrderByExpression orderBy = orderBys.get(i);
+      expressions[i] = orderBy.getExpression();
+      if (expressions[i] instanceof EntitySimpleProperty)
+        propertyNames[i] = ((EntitySimpleProperty) expressions[i]).getPropertyName();
+      signs[i] = orderBy.getDirection() == Direction.ASCENDING ? 1 : -1;
+    }
+  }
+
+  /**
+   * Computes the sort keys of an object.
+   */
+  Object[] keys(Object target) {
+    Object[] rt = new Object[expressions.length];
+    for (int i = 0; i < rt.length; i++) {
+      rt[i] = propertyNames[i] != null
+          ? properties.getPropertyValue(target, propertyNames[i])
+          : InMemoryEvaluation.evaluate(expressions[i], target, properties);
+    }
+    return rt;
+  }
+
+  /**
+   * Compares two sets of sort keys.  Nulls sort before any value.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  int compare(Object[] lhs, Object[] rhs) {
+    for (int i = 0; i < lhs.length; i++) {
+      int rt;
+      if (lhs[i] == null)
+        rt = rhs[i] == null ? 0 : -1;
+      else if (rhs[i] == null)
+        rt = 1;
+      else
+        rt = ((Comparable) lhs[i]).compareTo(rhs[i]);
+      if (rt != 0)
+        return signs[i] * rt;
+    }
+    return 0;
+  }
+
+  private int compare(Object[] lhs, int lhsOrdinal, Object[] rhs, int rhsOrdinal) {
+    int rt = compare(lhs, rhs);
+    return rt != 0 ? rt : (lhsOrdinal < rhsOrdinal ? -1 : (lhsOrdinal == rhsOrdinal ? 0 : 1));
+  }
+
+  /**
+   * Creates a collector that keeps the first <code>limit</code> objects of this ordering.
+   *
+   * @param limit  the number of leading objects to keep, or Long.MAX_VALUE to keep all
+   */
+  Collector collect(long limit) {
+    return new Collector(limit);
+  }
+
+  private static class Row {
+    final Object value;
+    final Object[] keys;
+    final int ordinal;
+
+    Row(Object value, Object[] keys, int ordinal) {
+      this.value = value;
+      this.keys = keys;
+      this.ordinal = ordinal;
+    }
+  }
+
+  /**
+   * Counts the objects it is given and keeps the leading ones in a bounded max-heap,
+   * so that a page of k ordered objects costs O(n log k) time and O(k) memory.
+   */
+  class Collector {
+
+    private final long limit;
+    private final PriorityQueue<Row> heap;
+    private Object[] afterKeys;
+    private int afterOrdinal;
+    private int count;
+
+    private Collector(long limit) {
+      this.limit = limit;
+      this.heap = new PriorityQueue<Row>((int) Math.min(Math.max(limit, 1), 1024), Collections.reverseOrder(new Comparator<Row>() {
+        @Override
+        public int compare(Row o1, Row o2) {
+          return InMemoryOrdering.this.compare(o1.keys, o1.ordinal, o2.keys, o2.ordinal);
+        }
+      }));
+    }
+
+    /**
+     * Only keeps objects that sort after the given one, so that a page can resume after its last object.
+     *
+     * @param obj  the last object of the previous page
+     * @param ordinal  its position in the entity set
+     */
+    void after(Object obj, int ordinal) {
+      this.afterKeys = keys(obj);
+      this.afterOrdinal = ordinal;
+    }
+
+    /**
+     * Counts an object and keeps it if it is among the leading ones so far.
+     *
+     * @param obj  the object
+     * @param ordinal  its position in the entity set, ascending from one call to the next
+     */
+    void add(Object obj, int ordinal) {
+      count++;
+      if (limit <= 0)
+        return;
+      Object[] keys = keys(obj);
+      if (afterKeys != null && compare(keys, ordinal, afterKeys, afterOrdinal) <= 0)
+        return;
+      if (heap.size() < limit) {
+        heap.add(new Row(obj, keys, ordinal));
+      } else if (compare(keys, heap.peek().keys) < 0) {
+        // a later object only displaces the largest kept one if it sorts strictly before it
+        heap.poll();
+        heap.add(new Row(obj, keys, ordinal));
+      }
+    }
+
+    /**
+     * Gets the number of objects added so far.
+     */
+    int getCount() {
+      return count;
+    }
+
+    /**
+     * Gets the kept objects, in order.
+     */
+    List<Object> toList() {
+      Object[] rt = new Object[heap.size()];
+      for (int i = rt.length - 1; i >= 0; i--)
+        rt[i] = heap.poll().value;
+      return Arrays.asList(rt);
+    }
+  }
+
+}
@@ -10,11 +10,15 @@
 package org.odata4j.producer.inmemory;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.core4j.Enumerable;
 import org.core4j.Func;
@@ -30,6 +34,8 @@ import org.odata4j.core.OLink;
 import org.odata4j.core.OLinks;
 import org.odata4j.core.OProperties;
 import org.odata4j.core.OProperty;
+import org.odata4j.core.OSimpleObjects;
+import org.odata4j.core.Throwables;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.edm.EdmDecorator;
 import org.odata4j.edm.EdmEntitySet;
@@ -41,8 +47,6 @@ import org.odata4j.edm.EdmSimpleType;
 import org.odata4j.expression.BoolCommonExpression;
 import org.odata4j.expression.EntitySimpleProperty;
 import org.odata4j.expression.Expression;
-import org.odata4j.expression.OrderByExpression;
-import org.odata4j.expression.OrderByExpression.Direction;
 import org.odata4j.producer.BaseResponse;
 import org.odata4j.producer.CountResponse;
 import org.odata4j.producer.EntitiesResponse;
@@ -54,6 +58,7 @@ import org.odata4j.producer.ODataProducer;
 import org.odata4j.producer.QueryInfo;
 import org.odata4j.producer.Responses;
 import org.odata4j.producer.edm.MetadataProducer;
+import org.odata4j.producer.exceptions.BadRequestException;
 import org.odata4j.producer.exceptions.NotFoundException;
 import org.odata4j.producer.exceptions.NotImplementedException;
 
@@ -68,8 +73,8 @@ public class InMemoryProducer implements ODataProducer {
   private final String namespace;
   private final String containerName;
   private final int maxResults;
-  private final Map<String, InMemoryEntityInfo<?>> eis = new HashMap<String, InMemoryEntityInfo<?>>();
-  private EdmDataServices metadata;
+  private final Map<String, InMemoryEntityInfo<?>> eis = new ConcurrentHashMap<String, InMemoryEntityInfo<?>>();
+  private volatile EdmDataServices metadata;
   private final EdmDecorator decorator;
   private final MetadataProducer metadataProducer;
   private final InMemoryTypeMapping typeMapping;
@@ -222,10 +227,118 @@ public class InMemoryProducer implements ODataProducer {
     metadata = null;
   }
 
+  /**
+   * Registers a new entity set backed by an {@link InMemoryEntityStore}, which supports concurrent reads and writes.
+   * Unlike sets registered with a get function, store-backed sets support createEntity, mergeEntity, updateEntity and deleteEntity.
+   *
+   * <p>Every request reads a consistent snapshot of the store, so queries never see half-applied writes.
+   * Indexes declared with {@link #addIndex(String, String, InMemoryIndexType)} are rebuilt automatically when the store changes:
+   * the first query after any write rebuilds every index of the set, in time linear in its size, so indexes
+   * only pay off for sets that are queried far more often than they are written.</p>
+   *
+   * @param entityClass  the class of the entities; must have a public no-argument constructor
+   * @param entitySetName  the alias the set will be known by; this is what is used in the OData url
+   * @param keys  one or more keys for the entity
+   * @return the store, to load or change entities directly
+   */
+  @SuppressWarnings("unchecked")
+  public <TEntity> InMemoryEntityStore<TEntity> registerStore(Class<TEntity> entityClass, String entitySetName, String... keys) {
+    final InMemoryEntityStore<TEntity>[] store = new InMemoryEntityStore[1];
+    register(entityClass, entitySetName, new Func<Iterable<TEntity>>() {
+      @Override
+      public Iterable<TEntity> apply() {
+        return store[0].toList();
+      }
+    }, keys);
+
+    final InMemoryEntityInfo<TEntity> ei = (InMemoryEntityInfo<TEntity>) eis.get(entitySetName);
+    ei.beanModel = new BeanModel(entityClass);
+    store[0] = new InMemoryEntityStore<TEntity>(new Func1<Object, Object>() {
+      @Override
+      public Object apply(Object input) {
+        return ei.getKey(input);
+      }
+    });
+    ei.store = store[0];
+    return store[0];
+  }
+
+  /**
+   * Declares a secondary index on a property of a registered entity set.  Filters made of
+   * <code>eq</code>, <code>gt</code>, <code>ge</code>, <code>lt</code>, <code>le</code>, <code>and</code> and <code>or</code>
+   * comparisons between indexed properties and literals are answered from the indexes instead of a full scan.
+   *
+   * <p>Declaring any index also indexes the entity key, so key lookups become constant time.  Indexed sets are
+   * snapshotted the first time they are queried; call {@link #reindex(String)} after the underlying data changes,
+   * unless the set is backed by an {@link InMemoryEntityStore}.</p>
+   *
+   * @param entitySetName  the name of a registered entity set
+   * @param propertyName  the property to index
+   * @param type  HASH for equality lookups only, SORTED for equality and range lookups
+   */
+  public void addIndex(String entitySetName, String propertyName, InMemoryIndexType type) {
+    InMemoryEntityInfo<?> ei = eis.get(entitySetName);
+    if (ei == null)
+      throw new IllegalArgumentException("Entity set " + entitySetName + " is not registered");
+    synchronized (ei) {
+      Map<String, InMemoryIndexType> indexTypes = ei.indexTypes == null
+          ? new LinkedHashMap<String, InMemoryIndexType>()
+          : new LinkedHashMap<String, InMemoryIndexType>(ei.indexTypes);
+      indexTypes.put(propertyName, type);
+      ei.indexTypes = Collections.unmodifiableMap(indexTypes);
+      ei.indexes = null;
+    }
+  }
+
+  /**
+   * Discards the indexed snapshot of an entity set, so that the next query rebuilds it from the set's data.
+   *
+   * @param entitySetName  the name of a registered entity set
+   */
+  public void reindex(String entitySetName) {
+    InMemoryEntityInfo<?> ei = eis.get(entitySetName);
+    if (ei == null)
+      return;
+    synchronized (ei) {
+      ei.indexes = null;
+    }
+  }
+
+  private InMemoryIndexes getIndexes(InMemoryEntityInfo<?> ei) {
+    if (ei.indexTypes == null)
+      return null;
+    InMemoryIndexes indexes = ei.indexes;
+    if (indexes != null && (ei.store == null || indexes.getVersion() == ei.store.getVersion()))
+      return indexes;
+
+    // built under the lock, so that a snapshot taken before a reindex or addIndex never replaces a later one
+    synchronized (ei) {
+      indexes = ei.indexes;
+      if (ei.store != null) {
+        if (indexes == null || indexes.getVersion() != ei.store.getVersion()) {
+          indexes = newIndexes(ei.store, ei);
+          ei.indexes = indexes;
+        }
+      } else if (indexes == null) {
+        indexes = new InMemoryIndexes(ei, ei.get.apply(), 0);
+        ei.indexes = indexes;
+      }
+      return indexes;
+    }
+  }
+
+  private static <TEntity> InMemoryIndexes newIndexes(InMemoryEntityStore<TEntity> store, InMemoryEntityInfo<?> ei) {
+    InMemoryEntityStore<TEntity>.Snapshot snapshot = store.snapshot();
+    try {
+      return new InMemoryIndexes(ei, snapshot, snapshot.getVersion());
+    } finally {
+      snapshot.close();
+    }
+  }
+
   protected OEntity toOEntity(EdmEntitySet ees, Object obj, List<EntitySimpleProperty> expand) {
     InMemoryEntityInfo<?> ei = eis.get(ees.getName());
     final List<OLink> links = new ArrayList<OLink>();
-    final List<OProperty<?>> properties = new ArrayList<OProperty<?>>();
 
     Map<String, Object> keyKVPair = new HashMap<String, Object>();
     for (String key : ei.keys) {
@@ -233,15 +346,7 @@ public class InMemoryProducer implements ODataProducer {
       keyKVPair.put(key, keyValue);
     }
 
-    for (String propName : ei.properties.getPropertyNames()) {
-      EdmSimpleType<?> type;
-      Object value = ei.properties.getPropertyValue(obj, propName);
-      Class<?> propType = ei.properties.getPropertyType(propName);
-      type = typeMapping.findEdmType(propType);
-      if (type == null) continue;
-
-      properties.add(OProperties.simple(propName, type, value));
-    }
+    Object[] propertyValues = toValues(ei, ees.getType(), obj);
 
     if (expand != null && !expand.isEmpty()) {
       EdmEntityType edmEntityType = ees.getType();
@@ -340,7 +445,45 @@ public class InMemoryProducer implements ODataProducer {
       }
     }
 
-    return OEntities.create(ees, OEntityKey.create(keyKVPair), properties, links, obj);
+    if (propertyValues != null)
+      return OEntities.createFromValues(ees, OEntityKey.create(keyKVPair), propertyValues, links, obj);
+    return OEntities.create(ees, OEntityKey.create(keyKVPair), toProperties(ei, obj), links, obj);
+  }
+
+  /**
+   * Gets the property values of an entity by slot of its entity type, so that the entity is created without
+   * allocating its properties up front.
+   *
+   * @return the values, or null if the mapped properties do not match the entity type exactly
+   */
+  private Object[] toValues(InMemoryEntityInfo<?> ei, EdmEntityType entityType, Object obj) {
+    Object[] rt = new Object[entityType.getPropertyCount()];
+    int count = 0;
+    for (String propName : ei.properties.getPropertyNames()) {
+      EdmSimpleType<?> type = typeMapping.findEdmType(ei.properties.getPropertyType(propName));
+      if (type == null) continue;
+
+      int slot = entityType.getPropertySlot(propName);
+      if (slot < 0 || !type.equals(entityType.getProperty(slot).getType()))
+        return null;
+      rt[slot] = OSimpleObjects.create(type, ei.properties.getPropertyValue(obj, propName)).getValue();
+      count++;
+    }
+    return count == rt.length ? rt : null;
+  }
+
+  private List<OProperty<?>> toProperties(InMemoryEntityInfo<?> ei, Object obj) {
+    List<OProperty<?>> properties = new ArrayList<OProperty<?>>();
+    for (String propName : ei.properties.getPropertyNames()) {
+      EdmSimpleType<?> type;
+      Object value = ei.properties.getPropertyValue(obj, propName);
+      Class<?> propType = ei.properties.getPropertyType(propName);
+      type = typeMapping.findEdmType(propType);
+      if (type == null) continue;
+
+      properties.add(OProperties.simple(propName, type, value));
+    }
+    return properties;
   }
 
   private static Predicate1<Object> filterToPredicate(final BoolCommonExpression filter, final PropertyModel properties) {
@@ -351,72 +494,110 @@ public class InMemoryProducer implements ODataProducer {
     };
   }
 
+  private InMemoryScan scan(InMemoryEntityInfo<?> ei, InMemoryIndexes indexes, QueryInfo queryInfo) {
+    BoolCommonExpression filter = queryInfo != null ? queryInfo.filter : null;
+    Predicate1<Object> predicate = filter == null ? null : filterToPredicate(filter, ei.properties);
+
+    // narrow down to index candidates when possible
+    if (indexes != null)
+      return indexes.scan(filter, predicate);
+
+    // skip tokens are resolved to a position up front, which takes an array of the rows
+    boolean seeking = queryInfo != null && queryInfo.skipToken != null;
+
+    // store-backed sets are read from a snapshot rather than a copy of the store
+    if (ei.store != null) {
+      InMemoryEntityStore<?>.Snapshot snapshot = ei.store.snapshot();
+      if (!seeking)
+        return new InMemoryScan(snapshot, predicate);
+      try {
+        return new InMemoryScan(Enumerable.create(snapshot).cast(Object.class).toArray(Object.class), null, predicate);
+      } finally {
+        snapshot.close();
+      }
+    }
+
+    if (seeking)
+      return new InMemoryScan(Enumerable.create(ei.get.apply()).cast(Object.class).toArray(Object.class), null, predicate);
+
+    return new InMemoryScan(ei.get.apply(), predicate);
+  }
+
   @Override
   public EntitiesResponse getEntities(String entitySetName, final QueryInfo queryInfo) {
     final EdmEntitySet ees = getMetadata().getEdmEntitySet(entitySetName);
     final InMemoryEntityInfo<?> ei = eis.get(entitySetName);
 
-    Enumerable<Object> objects = Enumerable.create(ei.get.apply()).cast(Object.class);
+    InMemoryIndexes indexes = getIndexes(ei);
+    InMemoryScan scan = scan(ei, indexes, queryInfo);
 
-    // apply filter
-    if (queryInfo != null && queryInfo.filter != null) {
-      objects = objects.where(filterToPredicate(queryInfo.filter, ei.properties));
-    }
-
-    // compute inlineCount, must be done after applying filter
-    Integer inlineCount = null;
-    if (queryInfo != null && queryInfo.inlineCount == InlineCount.ALLPAGES) {
-      objects = Enumerable.create(objects.toList()); // materialize up front, since we're about to count
-      inlineCount = objects.count();
+    // apply limit
+    int limit = this.maxResults;
+    if (queryInfo != null && queryInfo.top != null && queryInfo.top < limit) {
+      limit = queryInfo.top;
     }
 
-    // apply ordering
-    if (queryInfo != null && queryInfo.orderBy != null) {
-      objects = orderBy(objects, queryInfo.orderBy, ei.properties);
-    }
+    // the leading objects that can make it into the response: the skipped ones, the page and
+    // one more to detect a further page
+    int skip = queryInfo != null && queryInfo.skip != null ? queryInfo.skip : 0;
+    long needed = (long) skip + limit + 1;
 
-    // work with oentities
-    Enumerable<OEntity> entities = objects.select(new Func1<Object, OEntity>() {
-      public OEntity apply(Object input) {
-        return toOEntity(ees, input, queryInfo != null ? queryInfo.expand : null);
+    // count, order and seek in the same pass as the filter, keeping only what is needed
+    Integer inlineCount = null;
+    boolean countAll = queryInfo != null && queryInfo.inlineCount == InlineCount.ALLPAGES;
+    List<Object> objects;
+    try {
+      // resolve $skipToken to the position of the last entity of the previous page.  An unknown
+      // token is past everything, as nothing follows it.
+      int after = -1;
+      if (queryInfo != null && queryInfo.skipToken != null) {
+        after = indexes != null ? indexes.ordinalOf(queryInfo.skipToken) : scan.indexOf(queryInfo.skipToken, ei);
+        if (after < 0)
+          after = Integer.MAX_VALUE;
       }
-    });
 
-    // skip records by $skipToken
-    if (queryInfo != null && queryInfo.skipToken != null) {
-      final Boolean[] skipping = new Boolean[] { true };
-      entities = entities.skipWhile(new Predicate1<OEntity>() {
-        public boolean apply(OEntity input) {
-          if (skipping[0]) {
-            String inputKey = input.getEntityKey().toKeyString();
-            if (queryInfo.skipToken.equals(inputKey)) skipping[0] = false;
-            return true;
+      if (queryInfo != null && queryInfo.orderBy != null && !queryInfo.orderBy.isEmpty()) {
+        InMemoryOrdering ordering = new InMemoryOrdering(queryInfo.orderBy, ei.properties);
+        InMemoryOrdering.Collector collector = ordering.collect(after == Integer.MAX_VALUE ? 0 : needed);
+        if (after >= 0 && after != Integer.MAX_VALUE) {
+          collector.after(scan.get(after), after);
+        }
+        while (scan.next()) {
+          collector.add(scan.current(), scan.ordinal());
+        }
+        if (countAll) inlineCount = collector.getCount();
+        objects = collector.toList();
+      } else {
+        // without ordering the page follows the token directly, unless everything must be counted
+        if (!countAll) {
+          scan.seek(after);
+        }
+        objects = new ArrayList<Object>();
+        int count = 0;
+        while (scan.next()) {
+          count++;
+          if (objects.size() < needed) {
+            if (scan.ordinal() > after) objects.add(scan.current());
+          } else if (!countAll) {
+            break;
           }
-          return false;
         }
-      });
-    }
-
-    // skip records by $skip amount
-    if (queryInfo != null && queryInfo.skip != null) {
-      entities = entities.skip(queryInfo.skip);
+        if (countAll) inlineCount = count;
+      }
+    } finally {
+      scan.close();
     }
 
-    // apply limit
-    int limit = this.maxResults;
-    if (queryInfo != null && queryInfo.top != null && queryInfo.top < limit) {
-      limit = queryInfo.top;
+    // skip records by $skip amount, and only convert the page to OEntities
+    List<OEntity> entitiesList = new ArrayList<OEntity>();
+    for (int i = skip; i < objects.size() && i - skip < limit; i++) {
+      entitiesList.add(toOEntity(ees, objects.get(i), queryInfo != null ? queryInfo.expand : null));
     }
-    entities = entities.take(limit + 1);
-
-    // materialize OEntities
-    List<OEntity> entitiesList = entities.toList();
 
     // determine skipToken if necessary
     String skipToken = null;
-    if (entitiesList.size() > limit) {
-      entitiesList = Enumerable.create(entitiesList).take(limit).toList();
-      skipToken = entitiesList.size() == 0 ? null : Enumerable.create(entitiesList).last().getEntityKey().toKeyString();
+    if (objects.size() > (long) skip + limit && !entitiesList.isEmpty()) {
+      skipToken = entitiesList.get(entitiesList.size() - 1).getEntityKey().toKeyString();
     }
 
     return Responses.entities(entitiesList, ees, inlineCount, skipToken);
@@ -425,16 +606,9 @@ public class InMemoryProducer implements ODataProducer {
 
   @Override
   public CountResponse getEntitiesCount(String entitySetName, final QueryInfo queryInfo) {
-    final EdmEntitySet ees = getMetadata().getEdmEntitySet(entitySetName);
+    getMetadata().getEdmEntitySet(entitySetName);
     final InMemoryEntityInfo<?> ei = eis.get(entitySetName);
 
-    Enumerable<Object> objects = Enumerable.create(ei.get.apply()).cast(Object.class);
-
-    // apply filter
-    if (queryInfo != null && queryInfo.filter != null) {
-      objects = objects.where(filterToPredicate(queryInfo.filter, ei.properties));
-    }
-
     // inlineCount is not applicable to $count queries
     if (queryInfo != null && queryInfo.inlineCount == InlineCount.ALLPAGES) {
       throw new UnsupportedOperationException("$inlinecount cannot be applied to the resource segment '$count'");
@@ -442,46 +616,35 @@ public class InMemoryProducer implements ODataProducer {
 
     // ignore ordering for count
 
-    // work with oentities.
-    Enumerable<OEntity> entities = objects.select(new Func1<Object, OEntity>() {
-      public OEntity apply(Object input) {
-        return toOEntity(ees, input, queryInfo != null ? queryInfo.expand : null);
-      }
-    });
-
     // skipToken is not applicable to $count queries
     if (queryInfo != null && queryInfo.skipToken != null) {
       throw new UnsupportedOperationException("Skip tokens can only be provided for requests that return collections of entities.");
     }
 
+    // count the filtered objects as they stream by, no need to convert them
+    InMemoryScan scan = scan(ei, getIndexes(ei), queryInfo);
+    int count = 0;
+    try {
+      while (scan.next()) {
+        count++;
+      }
+    } finally {
+      scan.close();
+    }
+
     // skip records by $skip amount
     // http://services.odata.org/Northwind/Northwind.svc/Customers/$count/?$skip=5
     if (queryInfo != null && queryInfo.skip != null) {
-      entities = entities.skip(queryInfo.skip);
+      count = Math.max(0, count - queryInfo.skip);
     }
 
     // apply $top.  maxResults is not applicable to $count but $top is.
     // http://services.odata.org/Northwind/Northwind.svc/Customers/$count/?$top=55
-    int limit = Integer.MAX_VALUE;
-    if (queryInfo != null && queryInfo.top != null && queryInfo.top < limit) {
-      limit = queryInfo.top;
+    if (queryInfo != null && queryInfo.top != null && queryInfo.top < count) {
+      count = queryInfo.top;
     }
-    entities = entities.take(limit);
 
-    return Responses.count(entities.count());
-  }
-
-  private Enumerable<Object> orderBy(Enumerable<Object> iter, List<OrderByExpression> orderBys, final PropertyModel properties) {
-    for (final OrderByExpression orderBy : Enumerable.create(orderBys).reverse())
-      iter = iter.orderBy(new Comparator<Object>() {
-        @SuppressWarnings({ "unchecked", "rawtypes" })
-        public int compare(Object o1, Object o2) {
-          Comparable lhs = (Comparable) InMemoryEvaluation.evaluate(orderBy.getExpression(), o1, properties);
-          Comparable rhs = (Comparable) InMemoryEvaluation.evaluate(orderBy.getExpression(), o2, properties);
-          return (orderBy.getDirection() == Direction.ASCENDING ? 1 : -1) * lhs.compareTo(rhs);
-        }
-      });
-    return iter;
+    return Responses.count(count);
   }
 
   @SuppressWarnings("unchecked")
@@ -492,6 +655,20 @@ public class InMemoryProducer implements ODataProducer {
 
     final String[] keyList = ei.keys;
 
+    if (ei.store != null) {
+      Object key = ei.getKey(entityKey);
+      Object rt = key == null ? null : ei.store.get(key);
+      if (rt == null) throw new NotFoundException();
+      return Responses.entity(toOEntity(ees, rt, queryInfo.expand));
+    }
+
+    InMemoryIndexes indexes = getIndexes(ei);
+    if (indexes != null) {
+      Object rt = indexes.get(entityKey);
+      if (rt == null) throw new NotFoundException();
+      return Responses.entity(toOEntity(ees, rt, queryInfo.expand));
+    }
+
     Iterable<Object> iter = (Iterable<Object>) ei.get.apply();
 
     final Object rt = Enumerable.create(iter).firstOrNull(new Predicate1<Object>() {
@@ -532,22 +709,103 @@ public class InMemoryProducer implements ODataProducer {
 
   @Override
   public void mergeEntity(String entitySetName, OEntity entity) {
-    throw new NotImplementedException();
+    write(getStoreInfo(entitySetName), entity, true);
   }
 
   @Override
   public void updateEntity(String entitySetName, OEntity entity) {
-    throw new NotImplementedException();
+    write(getStoreInfo(entitySetName), entity, false);
   }
 
   @Override
   public void deleteEntity(String entitySetName, OEntityKey entityKey) {
-    throw new NotImplementedException();
+    InMemoryEntityInfo<?> ei = getStoreInfo(entitySetName);
+    Object key = ei.getKey(entityKey);
+    if (key == null || ei.store.remove(key) == null)
+      throw new NotFoundException();
   }
 
   @Override
   public EntityResponse createEntity(String entitySetName, OEntity entity) {
-    throw new NotImplementedException();
+    EdmEntitySet ees = getMetadata().getEdmEntitySet(entitySetName);
+    Object rt = create(getStoreInfo(entitySetName), entity);
+    return Responses.entity(toOEntity(ees, rt, null));
+  }
+
+  private InMemoryEntityInfo<?> getStoreInfo(String entitySetName) {
+    InMemoryEntityInfo<?> ei = eis.get(entitySetName);
+    if (ei == null)
+      throw new NotFoundException();
+    if (ei.store == null)
+      throw new NotImplementedException();
+    return ei;
+  }
+
+  private static <TEntity> TEntity create(InMemoryEntityInfo<TEntity> ei, OEntity entity) {
+    TEntity rt = toPojo(ei, null, false, entity.getProperties());
+    if (!InMemoryEntityInfo.isComplete(ei.getKey(rt)))
+      throw new BadRequestException("Entity key is missing a value for " + Arrays.asList(ei.keys));
+    if (!ei.store.add(rt))
+      throw new BadRequestException("Entity " + ei.getKeyString(rt) + " already exists");
+    return rt;
+  }
+
+  private static <TEntity> void write(final InMemoryEntityInfo<TEntity> ei, final OEntity entity, final boolean merge) {
+    Object key = ei.getKey(entity.getEntityKey());
+    if (key == null)
+      throw new NotFoundException();
+    TEntity rt;
+    try {
+      rt = ei.store.update(key, new Func1<TEntity, TEntity>() {
+        @Override
+        public TEntity apply(TEntity current) {
+          // a merge keeps the properties that are not sent, an update only keeps the key
+          return toPojo(ei, current, merge, entity.getProperties());
+        }
+      });
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+    if (rt == null)
+      throw new NotFoundException();
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static <TEntity> TEntity toPojo(InMemoryEntityInfo<TEntity> ei, TEntity base, boolean copyAll, List<OProperty<?>> properties) {
+    BeanModel beanModel = ei.beanModel;
+    TEntity rt;
+    try {
+      rt = ei.entityClass.newInstance();
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+
+    if (base != null) {
+      for (String name : copyAll ? beanModel.getPropertyNames() : Arrays.asList(ei.keys)) {
+        if (beanModel.canRead(name) && beanModel.canWrite(name))
+          beanModel.setPropertyValue(rt, name, beanModel.getPropertyValue(base, name));
+      }
+      if (copyAll) {
+        for (String name : beanModel.getCollectionNames()) {
+          Iterable<?> value = beanModel.canWrite(name) ? beanModel.getCollectionValue(base, name) : null;
+          if (value instanceof Collection)
+            beanModel.setCollectionValue(rt, name, (Collection<?>) value);
+        }
+      }
+    }
+
+    for (OProperty<?> property : properties) {
+      String name = property.getName();
+      if (!beanModel.canWrite(name))
+        continue;
+      Object value = property.getValue();
+      Class<?> type = beanModel.getPropertyType(name);
+      // enums are exposed as strings, see EnumsAsStringsPropertyModelDelegate
+      if (value instanceof String && type != null && type.isEnum())
+        value = Enum.valueOf((Class) type, (String) value);
+      beanModel.setPropertyValue(rt, name, value);
+    }
+    return rt;
   }
 
   @Override
@@ -0,0 +1,166 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.producer.inmemory;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.core4j.Predicate1;
+
+/**
+ * A forward-only cursor over the objects of an in-memory entity set that pass a filter.
+ *
+ * <p>Every object carries its ordinal, its position in the entity set, so that callers can resume
+ * after a given object without looking at the ones before it.  The cursor either streams the
+ * set's iterable, or walks an array of rows, optionally restricted to ascending candidate ordinals.
+ * Cursors must be closed, which releases the store snapshot they stream, if any.</p>
+ */
+class InMemoryScan {
+
+  private final Iterator<?> source;
+  private final Object[] rows;
+  private final int[] candidates;
+  private final Predicate1<Object> filter;
+  private InMemoryEntityStore<?>.Snapshot snapshot;
+  private int position = -1;
+  private int ordinal = -1;
+  private Object current;
+
+  /**
+   * Creates a cursor that streams an iterable.
+   *
+   * @param source  the objects of the entity set
+   * @param filter  the filter to apply, or null
+   */
+  InMemoryScan(Iterable<?> source, Predicate1<Object> filter) {
+    this.source = source.iterator();
+    this.rows = null;
+    this.candidates = null;
+    this.filter = filter;
+  }
+
+  /**
+   * Creates a cursor that streams a snapshot of an {@link InMemoryEntityStore}, closing it along with the cursor.
+   *
+   * @param snapshot  the objects of the entity set
+   * @param filter  the filter to apply, or null
+   */
+  InMemoryScan(InMemoryEntityStore<?>.Snapshot snapshot, Predicate1<Object> filter) {
+    this((Iterable<?>) snapshot, filter);
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * Creates a cursor over an array of rows.
+   *
+   * @param rows  the objects of the entity set
+   * @param candidates  the ordinals to visit in ascending order, or null to visit all rows
+   * @param filter  the filter to apply, or null
+   */
+  InMemoryScan(Object[] rows, int[] candidates, Predicate1<Object> filter) {
+    this.source = null;
+    this.rows = rows;
+    this.candidates = candidates;
+    this.filter = filter;
+  }
+
+  /**
+   * Advances to the next object that passes the filter.
+   *
+   * @return false if there are no more objects
+   */
+  boolean next() {
+    while (true) {
+      Object obj;
+      if (rows == null) {
+        if (!source.hasNext())
+          return false;
+        obj = source.next();
+        ordinal++;
+      } else {
+        position++;
+        if (position >= (candidates == null ? rows.length : candidates.length))
+          return false;
+        ordinal = candidates == null ? position : candidates[position];
+        obj = rows[ordinal];
+      }
+      if (filter == null || filter.apply(obj)) {
+        current = obj;
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Gets the current object.
+   */
+  Object current() {
+    return current;
+  }
+
+  /**
+   * Gets the ordinal of the current object.
+   */
+  int ordinal() {
+    return ordinal;
+  }
+
+  /**
+   * Moves the cursor so that {@link #next()} only visits objects with a greater ordinal.
+   * Skipped objects are not filtered.  Constant or logarithmic time over rows, linear when streaming.
+   *
+   * @param after  the ordinal to resume after
+   */
+  void seek(int after) {
+    if (rows == null) {
+      while (ordinal < after && source.hasNext()) {
+        source.next();
+        ordinal++;
+      }
+    } else if (candidates == null) {
+      position = Math.max(position, Math.min(after, rows.length));
+    } else {
+      int i = Arrays.binarySearch(candidates, after);
+      position = Math.max(position, i >= 0 ? i : -(i + 1) - 1);
+    }
+  }
+
+  /**
+   * Gets the row with the given ordinal.  Only supported over rows.
+   */
+  Object get(int ordinal) {
+    return rows[ordinal];
+  }
+
+  /**
+   * Finds the ordinal of the row with the given entity-key string by a linear search that computes
+   * keys only, without filtering or converting rows.  Only supported over rows.
+   *
+   * @return the ordinal, or -1 if there is no such row
+   */
+  int indexOf(String keyString, InMemoryEntityInfo<?> ei) {
+    for (int i = 0; i < rows.length; i++) {
+      if (keyString.equals(ei.getKeyString(rows[i])))
+        return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Releases the store snapshot this cursor streams, if any.
+   */
+  void close() {
+    if (snapshot != null) {
+      snapshot.close();
+      snapshot = null;
+    }
+  }
+
+}
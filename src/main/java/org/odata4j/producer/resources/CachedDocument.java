@@ -0,0 +1,168 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.producer.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import org.core4j.Func;
+import org.odata4j.core.ODataConstants;
+import org.odata4j.core.Throwables;
+import org.odata4j.edm.EdmDataServices;
+
+/**
+ * A rendered metadata document, such as $metadata or the service document, kept as UTF-8 bytes
+ * along with a gzip variant and strong entity tags.
+ *
+ * <p>Documents are cached per {@link EdmDataServices} instance, which producers replace whenever
+ * their metadata changes, so a new metadata instance is rendered afresh and the documents of the
+ * old one are dropped once it is no longer referenced.</p>
+ */
+class CachedDocument {
+
+  private static final int MAX_DOCUMENTS_PER_METADATA = 16;
+  private static final Map<EdmDataServices, Map<String, CachedDocument>> CACHE = new WeakHashMap<EdmDataServices, Map<String, CachedDocument>>();
+
+  private final byte[] bytes;
+  private final String contentType;
+  private final EntityTag entityTag;
+  private final EntityTag gzipEntityTag;
+  private volatile byte[] gzipBytes;
+
+  private CachedDocument(byte[] bytes, String contentType) {
+    this.bytes = bytes;
+    this.contentType = contentType;
+    String hash = hash(bytes);
+    this.entityTag = new EntityTag(hash);
+    // a different representation needs a different strong entity tag
+    this.gzipEntityTag = new EntityTag(hash + "-gzip");
+  }
+
+  /**
+   * Gets a cached document, rendering it on first use.
+   *
+   * @param metadata  the metadata the document is rendered from
+   * @param key  identifies the document and every request input that affects its content
+   * @param contentType  the content type of the document
+   * @param render  renders the document
+   */
+  static CachedDocument get(EdmDataServices metadata, String key, String contentType, Func<String> render) {
+    synchronized (CACHE) {
+      Map<String, CachedDocument> documents = CACHE.get(metadata);
+      CachedDocument rt = documents == null ? null : documents.get(key);
+      if (rt != null)
+        return rt;
+    }
+
+    // render outside the lock; two concurrent first requests render the same bytes
+    CachedDocument rt = new CachedDocument(toUtf8(render.apply()), contentType);
+    synchronized (CACHE) {
+      Map<String, CachedDocument> documents = CACHE.get(metadata);
+      if (documents == null) {
+        documents = new LinkedHashMap<String, CachedDocument>();
+        CACHE.put(metadata, documents);
+      }
+      // keys include the base uri, so bound them
+      if (documents.size() >= MAX_DOCUMENTS_PER_METADATA)
+        documents.remove(documents.keySet().iterator().next());
+      documents.put(key, rt);
+    }
+    return rt;
+  }
+
+  /**
+   * Creates the response for this document: 304 if the client's copy is current, gzip-encoded if the client accepts it.
+   */
+  Response toResponse(Request request, HttpHeaders httpHeaders, String dataServiceVersion) {
+    boolean gzip = acceptsGzip(httpHeaders);
+    EntityTag tag = gzip ? gzipEntityTag : entityTag;
+
+    ResponseBuilder rb = request.evaluatePreconditions(tag);
+    if (rb == null) {
+      rb = Response.ok(gzip ? getGzipBytes() : bytes, contentType);
+      if (gzip)
+        rb.header(ODataConstants.Headers.CONTENT_ENCODING, "gzip");
+    }
+    return rb.tag(tag)
+        .header("Vary", "Accept-Encoding")
+        .header(ODataConstants.Headers.DATA_SERVICE_VERSION, dataServiceVersion)
+        .build();
+  }
+
+  private byte[] getGzipBytes() {
+    byte[] rt = gzipBytes;
+    if (rt == null) {
+      try {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        GZIPOutputStream out = new GZIPOutputStream(buffer);
+        out.write(bytes);
+        out.close();
+        rt = buffer.toByteArray();
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+      gzipBytes = rt;
+    }
+    return rt;
+  }
+
+  static boolean acceptsGzip(HttpHeaders httpHeaders) {
+    String acceptEncoding = httpHeaders.getRequestHeaders().getFirst(ODataConstants.Headers.ACCEPT_ENCODING);
+    if (acceptEncoding == null)
+      return false;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      String name = parts[0].trim();
+      if (!name.equalsIgnoreCase("gzip") && !name.equalsIgnoreCase("x-gzip"))
+        continue;
+      for (int i = 1; i < parts.length; i++) {
+        String param = parts[i].trim();
+        if (param.matches("[qQ]\\s*=\\s*0(\\.0*)?"))
+          return false;
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static byte[] toUtf8(String value) {
+    try {
+      return value.getBytes("UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  private static String hash(byte[] bytes) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+      StringBuilder sb = new StringBuilder(digest.length * 2);
+      for (byte b : digest)
+        sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+}
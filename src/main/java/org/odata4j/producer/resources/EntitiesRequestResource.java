@@ -9,7 +9,6 @@
 
 package org.odata4j.producer.resources;
 
-import java.io.StringWriter;
 import java.net.URI;
 import java.util.List;
 import java.util.logging.Logger;
@@ -70,16 +69,11 @@ public class EntitiesRequestResource extends BaseResource {
     ODataVersion version = InternalUtil.getDataServiceVersion(httpHeaders);
     FormatWriter<EntityResponse> writer = FormatWriterFactory
         .getFormatWriter(EntityResponse.class, httpHeaders.getAcceptableMediaTypes(), null, null, version);
-    StringWriter sw = new StringWriter();
-    writer.write(uriInfo, sw, response);
-
     String relid = InternalUtil.getEntityRelId(response.getEntity());
     String entryId = uriInfo.getBaseUri().toString() + relid;
 
-    String responseEntity = sw.toString();
-
     return Response
-        .ok(responseEntity, writer.getContentType())
+        .ok(new FormatWriterOutput<EntityResponse>(writer, uriInfo, response), writer.getContentType())
         .status(Status.CREATED)
         .location(URI.create(entryId))
         .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString).build();
@@ -255,7 +249,6 @@ public class EntitiesRequestResource extends BaseResource {
     else {
       EntitiesResponse entitiesResponse = producer.getEntities(entitySetName, query);
 
-      StringWriter sw = new StringWriter();
       FormatWriter<EntitiesResponse> fw =
           FormatWriterFactory.getFormatWriter(
               EntitiesResponse.class,
@@ -265,11 +258,9 @@ public class EntitiesRequestResource extends BaseResource {
               version
               );
 
-      fw.write(uriInfo, sw, entitiesResponse);
-      String entity = sw.toString();
-
+      // serialized while Jersey writes the response, straight to the output stream
       response = Response
-          .ok(entity, fw.getContentType())
+          .ok(new FormatWriterOutput<EntitiesResponse>(fw, uriInfo, entitiesResponse), fw.getContentType())
           .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString)
           .build();
     }
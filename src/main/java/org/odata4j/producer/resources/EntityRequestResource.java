@@ -9,7 +9,6 @@
 
 package org.odata4j.producer.resources;
 
-import java.io.StringWriter;
 import java.util.logging.Logger;
 
 import javax.ws.rs.DELETE;
@@ -154,12 +153,9 @@ public class EntityRequestResource extends BaseResource {
     EntityResponse response = producer.getEntity(entitySetName, OEntityKey.parse(id), query);
     ODataVersion version = InternalUtil.getDataServiceVersion(httpHeaders);
     
-    StringWriter sw = new StringWriter();
     FormatWriter<EntityResponse> fw = FormatWriterFactory.getFormatWriter(EntityResponse.class, httpHeaders.getAcceptableMediaTypes(), format, callback, InternalUtil.getDataServiceVersion(httpHeaders));
-    fw.write(uriInfo, sw, response);
-    String entity = sw.toString();
 
-    return Response.ok(entity, fw.getContentType()).header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString).build();
+    return Response.ok(new FormatWriterOutput<EntityResponse>(fw, uriInfo, response), fw.getContentType()).header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString).build();
   }
 
   @Path("{first: \\$}links/{targetNavProp:.+?}{targetId: (\\(.+?\\))?}")
@@ -0,0 +1,63 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.producer.resources;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+
+import org.odata4j.format.FormatWriter;
+
+/**
+ * A response entity that runs a {@link FormatWriter} straight into the response stream as UTF-8,
+ * so that responses are never buffered whole in memory.
+ *
+ * <p>{@link #writeTo(Writer)} renders the response into a writer instead, for callers that embed it
+ * in another response, such as $batch.</p>
+ *
+ * @param <T> the type of the object to be written
+ */
+class FormatWriterOutput<T> implements StreamingOutput {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final FormatWriter<T> writer;
+  private final UriInfo uriInfo;
+  private final T target;
+
+  FormatWriterOutput(FormatWriter<T> writer, UriInfo uriInfo, T target) {
+    this.writer = writer;
+    this.uriInfo = uriInfo;
+    this.target = target;
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException {
+    Writer w = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"), BUFFER_SIZE);
+    writeTo(w);
+    // the container owns the stream, so flush but do not close
+    w.flush();
+  }
+
+  /**
+   * Renders the response into a writer, which is neither flushed nor closed.
+   *
+   * @param w  the writer
+   */
+  public void writeTo(Writer w) {
+    writer.write(uriInfo, w, target);
+  }
+
+}
@@ -9,13 +9,13 @@
 
 package org.odata4j.producer.resources;
 
-import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.odata4j.core.ODataConstants;
@@ -79,7 +79,7 @@ public class FunctionResource extends BaseResource {
 
     ODataVersion version = InternalUtil.getDataServiceVersion(httpHeaders);
 
-    StringWriter sw = new StringWriter();
+    StreamingOutput entity;
     FormatWriter<?> fwBase;
 
     // hmmh...we are missing an abstraction somewhere..
@@ -92,7 +92,7 @@ public class FunctionResource extends BaseResource {
               callback,
               version);
 
-      fw.write(uriInfo, sw, (ComplexObjectResponse) response);
+      entity = new FormatWriterOutput<ComplexObjectResponse>(fw, uriInfo, (ComplexObjectResponse) response);
       fwBase = fw;
     } else if (response instanceof CollectionResponse) {
       FormatWriter<CollectionResponse> fw =
@@ -103,14 +103,13 @@ public class FunctionResource extends BaseResource {
               callback,
               version);
 
-      fw.write(uriInfo, sw, (CollectionResponse<?>) response);
+      entity = new FormatWriterOutput<CollectionResponse>(fw, uriInfo, (CollectionResponse<?>) response);
       fwBase = fw;
     } else {
       // TODO add in other response types.
       throw new NotImplementedException("Unknown BaseResponse type: " + response.getClass().getName());
     }
 
-    String entity = sw.toString();
     return Response.ok(entity, fwBase.getContentType())
         .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString)
         .build();
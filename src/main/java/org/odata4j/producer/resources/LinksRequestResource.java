@@ -10,7 +10,6 @@
 package org.odata4j.producer.resources;
 
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.logging.Logger;
 
 import javax.ws.rs.DELETE;
@@ -21,6 +20,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ContextResolver;
 
@@ -129,7 +129,7 @@ public class LinksRequestResource extends BaseResource {
 
     EntityIdResponse response = producer.getLinks(sourceEntity, targetNavProp);
 
-    StringWriter sw = new StringWriter();
+    StreamingOutput entity;
     String serviceRootUri = uriInfo.getBaseUri().toString();
     String contentType;
     ODataVersion version = InternalUtil.getDataServiceVersion(httpHeaders);
@@ -137,7 +137,7 @@ public class LinksRequestResource extends BaseResource {
     if (response.getMultiplicity() == EdmMultiplicity.MANY) {
       SingleLinks links = SingleLinks.create(serviceRootUri, response.getEntities());
       FormatWriter<SingleLinks> fw = FormatWriterFactory.getFormatWriter(SingleLinks.class, httpHeaders.getAcceptableMediaTypes(), format, callback, version);
-      fw.write(uriInfo, sw, links);
+      entity = new FormatWriterOutput<SingleLinks>(fw, uriInfo, links);
       contentType = fw.getContentType();
     } else {
       OEntityId entityId = Enumerable.create(response.getEntities()).firstOrNull();
@@ -146,12 +146,10 @@ public class LinksRequestResource extends BaseResource {
 
       SingleLink link = SingleLinks.create(serviceRootUri, entityId);
       FormatWriter<SingleLink> fw = FormatWriterFactory.getFormatWriter(SingleLink.class, httpHeaders.getAcceptableMediaTypes(), format, callback, version);
-      fw.write(uriInfo, sw, link);
+      entity = new FormatWriterOutput<SingleLink>(fw, uriInfo, link);
       contentType = fw.getContentType();
     }
 
-    String entity = sw.toString();
-
     return Response.ok(entity, contentType).header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString).build();
   }
 
@@ -19,10 +19,12 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ContextResolver;
 
+import org.core4j.Func;
 import org.odata4j.core.ODataConstants;
 import org.odata4j.edm.EdmDataServices;
 import org.odata4j.format.FormatType;
@@ -42,6 +44,7 @@ public class MetadataResource {
   public Response getMetadata(
       @Context HttpHeaders httpHeaders,
       @Context UriInfo uriInfo,
+      @Context Request request,
       @Context ContextResolver<ODataProducer> producerResolver,
       @QueryParam("$format") String format) {
 
@@ -54,19 +57,23 @@ public class MetadataResource {
         throw newMetadataNotImplementedException();
       }
       ServiceDocumentResource r = new ServiceDocumentResource();
-      return r.getServiceDocument(httpHeaders, uriInfo, producerResolver, FormatType.ATOM.name(), null);
+      return r.getServiceDocument(httpHeaders, uriInfo, request, producerResolver, FormatType.ATOM.name(), null);
     } else {
-      StringWriter w = new StringWriter();
       ODataProducer source = "metamodel".equals(format) ? producer.getMetadataProducer() : producer;
       if (source == null) {
         throw newMetadataNotImplementedException();
       }
-      EdmDataServices s = source.getMetadata();
-      EdmxFormatWriter.write(s, w);
-
-      return Response.ok(w.toString(), ODataConstants.APPLICATION_XML_CHARSET_UTF8)
-          .header(ODataConstants.Headers.DATA_SERVICE_VERSION, InternalUtil.getDataServiceVersion(httpHeaders).asString)
-          .build();
+      final EdmDataServices s = source.getMetadata();
+      CachedDocument document = CachedDocument.get(s, "edmx", ODataConstants.APPLICATION_XML_CHARSET_UTF8, new Func<String>() {
+        @Override
+        public String apply() {
+          StringWriter w = new StringWriter();
+          EdmxFormatWriter.write(s, w);
+          return w.toString();
+        }
+      });
+
+      return document.toResponse(request, httpHeaders, InternalUtil.getDataServiceVersion(httpHeaders).asString);
     }
   }
 
@@ -13,6 +13,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -76,7 +77,12 @@ public class ODataBatchProvider implements MessageBodyReader<List<BatchBodyPart>
     }
 
     body.append('\n');
-    if (response.getEntity() != null) {
+    if (response.getEntity() instanceof FormatWriterOutput) {
+      // streamed responses are rendered in place
+      StringWriter entity = new StringWriter();
+      ((FormatWriterOutput<?>) response.getEntity()).writeTo(entity);
+      body.append(entity.getBuffer());
+    } else if (response.getEntity() != null) {
       body.append(response.getEntity().toString());
     }
 
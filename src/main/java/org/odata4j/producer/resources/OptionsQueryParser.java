@@ -18,10 +18,15 @@ import javax.ws.rs.core.UriInfo;
 import org.odata4j.expression.BoolCommonExpression;
 import org.odata4j.expression.CommonExpression;
 import org.odata4j.expression.EntitySimpleProperty;
-import org.odata4j.expression.ExpressionParser;
+import org.odata4j.expression.ExpressionCache;
 import org.odata4j.expression.OrderByExpression;
 import org.odata4j.producer.InlineCount;
 
+/**
+ * Parses system query options.  <code>$filter</code>, <code>$orderby</code>, <code>$expand</code> and
+ * <code>$select</code> are parsed through the {@link ExpressionCache#getDefault() default expression cache},
+ * so the lists returned for them are unmodifiable.
+ */
 public class OptionsQueryParser {
 
   public static InlineCount parseInlineCount(String inlineCount) {
@@ -46,7 +51,7 @@ public class OptionsQueryParser {
     if (filter == null) {
       return null;
     }
-    CommonExpression ce = ExpressionParser.parse(filter);
+    CommonExpression ce = ExpressionCache.getDefault().parse(filter);
     if (!(ce instanceof BoolCommonExpression)) {
       throw new RuntimeException("Bad filter");
     }
@@ -57,7 +62,7 @@ public class OptionsQueryParser {
     if (orderBy == null) {
       return null;
     }
-    return ExpressionParser.parseOrderBy(orderBy);
+    return ExpressionCache.getDefault().parseOrderBy(orderBy);
   }
 
   public static String parseSkipToken(String skipToken) {
@@ -79,14 +84,14 @@ public class OptionsQueryParser {
     if (expand == null) {
       return null;
     }
-    return ExpressionParser.parseExpand(expand);
+    return ExpressionCache.getDefault().parseExpand(expand);
   }
 
   public static List<EntitySimpleProperty> parseSelect(String select) {
     if (select == null) {
       return null;
     }
-    return ExpressionParser.parseExpand(select);
+    return ExpressionCache.getDefault().parseExpand(select);
   }
 
 }
\ No newline at end of file
@@ -9,7 +9,6 @@
 
 package org.odata4j.producer.resources;
 
-import java.io.StringWriter;
 import java.net.URI;
 import java.util.logging.Logger;
 
@@ -24,6 +23,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ContextResolver;
 
@@ -95,19 +95,16 @@ public class PropertyRequestResource extends BaseResource {
       }
 
       // get the FormatWriter for the accepted media types requested by client
-      StringWriter sw = new StringWriter();
       FormatWriter<EntityResponse> fw = FormatWriterFactory
           .getFormatWriter(EntityResponse.class, httpHeaders.getAcceptableMediaTypes(), null, null, InternalUtil.getDataServiceVersion(httpHeaders));
-      fw.write(uriInfo, sw, response);
 
       // calculate the uri for the location header
       String relid = InternalUtil.getEntityRelId(response.getEntity());
       String entryId = uriInfo.getBaseUri().toString() + relid;
 
       // create the response
-      String responseEntity = sw.toString();
       return Response
-          .ok(responseEntity, fw.getContentType())
+          .ok(new FormatWriterOutput<EntityResponse>(fw, uriInfo, response), fw.getContentType())
           .status(Status.CREATED)
           .location(URI.create(entryId))
           .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString)
@@ -200,7 +197,7 @@ public class PropertyRequestResource extends BaseResource {
 
       ODataVersion version = InternalUtil.getDataServiceVersion(httpHeaders);
 
-      StringWriter sw = new StringWriter();
+      StreamingOutput entity;
       FormatWriter<?> fwBase;
       if (response instanceof PropertyResponse) {
         FormatWriter<PropertyResponse> fw =
@@ -210,7 +207,7 @@ public class PropertyRequestResource extends BaseResource {
                 format,
                 callback,
                 version);
-        fw.write(uriInfo, sw, (PropertyResponse) response);
+        entity = new FormatWriterOutput<PropertyResponse>(fw, uriInfo, (PropertyResponse) response);
         fwBase = fw;
       } else if (response instanceof EntityResponse) {
         FormatWriter<EntityResponse> fw =
@@ -220,7 +217,7 @@ public class PropertyRequestResource extends BaseResource {
                 format,
                 callback,
                 version);
-        fw.write(uriInfo, sw, (EntityResponse) response);
+        entity = new FormatWriterOutput<EntityResponse>(fw, uriInfo, (EntityResponse) response);
         fwBase = fw;
       } else if (response instanceof EntitiesResponse) {
         FormatWriter<EntitiesResponse> fw =
@@ -230,14 +227,13 @@ public class PropertyRequestResource extends BaseResource {
                 format,
                 callback,
                 version);
-        fw.write(uriInfo, sw, (EntitiesResponse) response);
+        entity = new FormatWriterOutput<EntitiesResponse>(fw, uriInfo, (EntitiesResponse) response);
         fwBase = fw;
 
       } else {
         throw new NotImplementedException("Unknown BaseResponse type: " + response.getClass().getName());
       }
 
-      String entity = sw.toString();
       return Response
           .ok(entity, fwBase.getContentType())
           .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString)
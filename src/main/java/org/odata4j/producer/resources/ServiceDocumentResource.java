@@ -17,10 +17,12 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ContextResolver;
 
+import org.core4j.Func;
 import org.odata4j.core.ODataConstants;
 import org.odata4j.core.ODataVersion;
 import org.odata4j.edm.EdmDataServices;
@@ -36,23 +38,38 @@ public class ServiceDocumentResource {
   @Produces({ ODataConstants.APPLICATION_XML_CHARSET_UTF8, ODataConstants.TEXT_JAVASCRIPT_CHARSET_UTF8, ODataConstants.APPLICATION_JAVASCRIPT_CHARSET_UTF8 })
   public Response getServiceDocument(
       @Context HttpHeaders httpHeaders,
-      @Context UriInfo uriInfo,
+      @Context final UriInfo uriInfo,
+      @Context Request request,
       @Context ContextResolver<ODataProducer> producerResolver,
       @QueryParam("$format") String format,
       @QueryParam("$callback") String callback) {
 
     ODataProducer producer = producerResolver.getContext(ODataProducer.class);
 
-    EdmDataServices metadata = producer.getMetadata();
+    final EdmDataServices metadata = producer.getMetadata();
     ODataVersion version = InternalUtil.getDataServiceVersion(httpHeaders);
     
-    StringWriter w = new StringWriter();
-    FormatWriter<EdmDataServices> fw = FormatWriterFactory.getFormatWriter(EdmDataServices.class, httpHeaders.getAcceptableMediaTypes(), format, callback, version);
-    fw.write(uriInfo, w, metadata);
+    final FormatWriter<EdmDataServices> fw = FormatWriterFactory.getFormatWriter(EdmDataServices.class, httpHeaders.getAcceptableMediaTypes(), format, callback, version);
 
-    return Response.ok(w.toString(), fw.getContentType())
-        .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString)
-        .build();
+    // jsonp callbacks are arbitrary, so those responses are not cached
+    if (callback != null) {
+      return Response.ok(new FormatWriterOutput<EdmDataServices>(fw, uriInfo, metadata), fw.getContentType())
+          .header(ODataConstants.Headers.DATA_SERVICE_VERSION, version.asString)
+          .build();
+    }
+
+    // the service document is relative to the base uri
+    String key = "servicedocument " + fw.getContentType() + " " + version.asString + " " + uriInfo.getBaseUri();
+    CachedDocument document = CachedDocument.get(metadata, key, fw.getContentType(), new Func<String>() {
+      @Override
+      public String apply() {
+        StringWriter w = new StringWriter();
+        fw.write(uriInfo, w, metadata);
+        return w.toString();
+      }
+    });
+
+    return document.toResponse(request, httpHeaders, version.asString);
   }
 
 }
@@ -0,0 +1,61 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.odata.odata4j.extensions;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.producer.resources.BatchPartResponse;
+import org.odata4j.producer.resources.BatchResult;
+
+public class ConsumerBatchRequestTest {
+
+	private final ConsumerBatchRequest request = new ConsumerBatchRequest(null, "http://localhost/odata.svc/");
+
+	@Test
+	public void parsesOneResponsePerChangesetOperation() throws Exception {
+		BatchResult result = this.request.parseResponse(this.read("changeset-response.txt"), "batch", "changeset");
+		List<BatchPartResponse> responses = result.getPartResponses();
+
+		Assert.assertEquals(3, responses.size());
+		Assert.assertEquals(201, responses.get(0).getStatus());
+		Assert.assertEquals(204, responses.get(1).getStatus());
+		Assert.assertEquals(204, responses.get(2).getStatus());
+
+		Assert.assertTrue(responses.get(0).getMessage().contains("<d:Name>Milk</d:Name>"));
+		Assert.assertFalse("a part must end at the changeset boundary", responses.get(0).getMessage().contains("204 No Content"));
+	}
+
+	@Test
+	public void parsesSingleResponseOfFailedChangeset() throws Exception {
+		BatchResult result = this.request.parseResponse(this.read("failed-changeset-response.txt"), "batch", "changeset");
+		List<BatchPartResponse> responses = result.getPartResponses();
+
+		Assert.assertEquals(1, responses.size());
+		Assert.assertEquals(400, responses.get(0).getStatus());
+		Assert.assertTrue(responses.get(0).getMessage().contains("Resource not found"));
+	}
+
+	private String read(String resource) {
+		InputStream in = this.getClass().getResourceAsStream(resource);
+		Assert.assertNotNull(resource, in);
+		Scanner scanner = new Scanner(in, "UTF-8");
+
+		try {
+			return scanner.useDelimiter("\\A").next();
+		} finally {
+			scanner.close();
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.mule.modules.odata.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mule.modules.odata.EntityStateCache;
+import org.odata4j.core.OProperties;
+import org.odata4j.core.OProperty;
+import org.odata4j.edm.EdmCollectionType;
+import org.odata4j.edm.EdmProperty.CollectionKind;
+import org.odata4j.edm.EdmSimpleType;
+
+public class EntityStateCacheTest {
+
+	@Test
+	public void diffKeepsKeyAndChangedProperties() {
+		Map<String, Object> original = new HashMap<String, Object>();
+		original.put("Id", 1);
+		original.put("Name", "a");
+		original.put("Code", 7);
+
+		Collection<OProperty<?>> changed = EntityStateCache.diff(this.properties(
+											OProperties.int32("Id", 1),
+											OProperties.string("Name", "b"),
+											OProperties.int32("Code", 7),
+											OProperties.string("Added", "c")), original, "Id");
+
+		Assert.assertEquals(Arrays.asList("Id", "Name", "Added"), this.names(changed));
+	}
+
+	@Test
+	public void diffComparesBinaryValuesByContent() {
+		Map<String, Object> original = new HashMap<String, Object>();
+		original.put("Data", new byte[] { 1, 2 });
+
+		Assert.assertTrue(EntityStateCache.diff(this.properties(OProperties.binary("Data", new byte[] { 1, 2 })), original, "Id").isEmpty());
+		Assert.assertEquals(1, EntityStateCache.diff(this.properties(OProperties.binary("Data", new byte[] { 1, 3 })), original, "Id").size());
+	}
+
+	@Test
+	public void diffAlwaysKeepsNullAndNonSimpleProperties() {
+		Map<String, Object> original = new HashMap<String, Object>();
+		original.put("Name", "a");
+
+		Collection<OProperty<?>> changed = EntityStateCache.diff(this.properties(
+											OProperties.null_("Name", EdmSimpleType.STRING),
+											OProperties.collection("Tags", new EdmCollectionType(CollectionKind.Bag, EdmSimpleType.STRING), null)), original, "Id");
+
+		Assert.assertEquals(Arrays.asList("Name", "Tags"), this.names(changed));
+	}
+
+	@Test
+	public void putsOnlyEntitiesWithTheirKey() {
+		EntityStateCache cache = new EntityStateCache(10);
+		cache.put("Cities", "Id", this.properties(OProperties.string("Name", "a")));
+		Assert.assertEquals(0, cache.size());
+
+		cache.put("Cities", "Id", this.properties(OProperties.int32("Id", 1), OProperties.string("Name", "a"), OProperties.null_("Code", EdmSimpleType.INT32)));
+		Map<String, Object> state = cache.get("Cities", 1);
+
+		Assert.assertEquals(2, state.size());
+		Assert.assertEquals("a", state.get("Name"));
+		Assert.assertNull(cache.get("Towns", 1));
+	}
+
+	@Test
+	public void mergesWrittenProperties() {
+		EntityStateCache cache = new EntityStateCache(10);
+		cache.put("Cities", "Id", this.properties(OProperties.int32("Id", 1), OProperties.string("Name", "a"), OProperties.int32("Code", 7)));
+		cache.merge("Cities", 1, this.properties(OProperties.int32("Id", 1), OProperties.string("Name", "b")));
+
+		Map<String, Object> state = cache.get("Cities", 1);
+		Assert.assertEquals("b", state.get("Name"));
+		Assert.assertEquals(7, state.get("Code"));
+
+		cache.merge("Cities", 2, this.properties(OProperties.int32("Id", 2)));
+		Assert.assertEquals(2, cache.get("Cities", 2).get("Id"));
+
+		cache.remove("Cities", 1);
+		Assert.assertNull(cache.get("Cities", 1));
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		EntityStateCache cache = new EntityStateCache(2);
+		cache.merge("Cities", 1, this.properties(OProperties.int32("Id", 1)));
+		cache.merge("Cities", 2, this.properties(OProperties.int32("Id", 2)));
+		cache.get("Cities", 1);
+		cache.merge("Cities", 3, this.properties(OProperties.int32("Id", 3)));
+
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNotNull(cache.get("Cities", 1));
+		Assert.assertNull(cache.get("Cities", 2));
+	}
+
+	private Collection<OProperty<?>> properties(OProperty<?>... properties) {
+		return Arrays.asList(properties);
+	}
+
+	private List<String> names(Collection<OProperty<?>> properties) {
+		List<String> names = new ArrayList<String>();
+
+		for (OProperty<?> property : properties) {
+			names.add(property.getName());
+		}
+
+		return names;
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+
+package org.mule.modules.odata.tests;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mule.api.MuleMessage;
+import org.mule.modules.odata.ODataConnector;
+import org.mule.modules.odata.PropertyNamingFormat;
+import org.mule.modules.odata.factory.ODataConsumerFactory;
+import org.mule.modules.odata.tests.PartialUpdatesTest.City;
+import org.odata4j.consumer.ODataConsumer;
+import org.odata4j.consumer.behaviors.OClientBehavior;
+import org.odata4j.core.ODataVersion;
+import org.odata4j.core.OEntity;
+import org.odata4j.format.FormatType;
+import org.odata4j.jersey.consumer.FakeService;
+import org.odata4j.jersey.consumer.ODataJerseyConsumer;
+
+/**
+ * Tests the batched key lookups of {@link ODataConnector#getEntity(MuleMessage, String, String, Object)}
+ * against a {@link FakeService}
+ */
+public class KeyLookupTest {
+
+	private final FakeService service = new FakeService();
+	private final ODataConnector connector = new ODataConnector();
+
+	@Before
+	public void connect() throws Exception {
+		this.connector.setFormatType(FormatType.ATOM);
+		this.connector.setNamingFormat(PropertyNamingFormat.UPPER_CAMEL_CASE);
+		this.connector.setKeyLookupBatching(true);
+		this.connector.setKeyLookupWindow(0);
+		this.connector.setConsumerFactory(new ODataConsumerFactory() {
+
+			@Override
+			public ODataConsumer newConsumer(String baseServiceUri, FormatType formatType, String username, String password, ODataVersion version, OClientBehavior... behaviors) {
+				return ODataJerseyConsumer.newBuilder(baseServiceUri, version)
+							.setFormatType(formatType)
+							.setClientFactory(service)
+							.setClientBehaviors(behaviors)
+							.build();
+			}
+		});
+
+		this.connector.connect(null, null, FakeService.URI);
+	}
+
+	@After
+	public void disconnect() {
+		this.connector.disconnect();
+	}
+
+	@Test
+	public void readsEntityOncePerMessage() {
+		MuleMessage message = this.message();
+
+		Assert.assertEquals(1, this.getCity(message, 1).getProperty("Id").getValue());
+		Assert.assertEquals(1, this.getCity(message, 1).getProperty("Id").getValue());
+		Assert.assertNull(this.getCity(message, 9));
+		Assert.assertNull(this.getCity(message, 9));
+		Assert.assertEquals(2, this.reads());
+
+		this.getCity(this.message(), 1);
+		Assert.assertEquals(3, this.reads());
+	}
+
+	@Test
+	public void readsCompositeKeyOncePerMessage() {
+		MuleMessage message = this.message();
+		Map<String, Object> key = new LinkedHashMap<String, Object>();
+		key.put("To", 2);
+		key.put("From", 1);
+		Map<String, Object> sameKey = new LinkedHashMap<String, Object>();
+		sameKey.put("From", 1);
+		sameKey.put("To", 2);
+
+		Assert.assertNotNull(this.connector.getEntity(message, "org.odata4j.core.OEntity", "Routes", key));
+		Assert.assertNotNull(this.connector.getEntity(message, "org.odata4j.core.OEntity", "Routes", sameKey));
+
+		int reads = 0;
+		for (String request : this.service.requests) {
+			if (request.startsWith("Routes?$filter=")) {
+				reads++;
+			}
+		}
+		Assert.assertEquals(1, reads);
+	}
+
+	@Test
+	public void readsAgainAfterWrite() {
+		MuleMessage message = this.message();
+		this.getCity(message, 1);
+		this.connector.updateEntity(message, new City(1, "Paris"), "Cities", "id", null);
+		this.getCity(message, 1);
+
+		Assert.assertEquals(2, this.reads());
+	}
+
+	private OEntity getCity(MuleMessage message, int id) {
+		return (OEntity) this.connector.getEntity(message, "org.odata4j.core.OEntity", "Cities", id);
+	}
+
+	private int reads() {
+		int reads = 0;
+
+		for (String request : this.service.requests) {
+			if (request.startsWith("Cities?$filter=")) {
+				reads++;
+			}
+		}
+
+		return reads;
+	}
+
+	// a message holding invocation properties only
+	private MuleMessage message() {
+		final Map<String, Object> properties = new HashMap<String, Object>();
+
+		return (MuleMessage) Proxy.newProxyInstance(MuleMessage.class.getClassLoader(), new Class<?>[] { MuleMessage.class }, new InvocationHandler() {
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getInvocationProperty")) {
+					return properties.get(args[0]);
+				}
+
+				if (method.getName().equals("setInvocationProperty")) {
+					properties.put((String) args[0], args[1]);
+				} else if (method.getName().equals("removeProperty")) {
+					return properties.remove(args[0]);
+				}
+
+				return null;
+			}
+		});
+	}
+}
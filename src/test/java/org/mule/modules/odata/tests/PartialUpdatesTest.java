@@ -0,0 +1,216 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.mule.modules.odata.tests;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mule.api.MuleMessage;
+import org.mule.modules.odata.ODataConnector;
+import org.mule.modules.odata.PropertyNamingFormat;
+import org.mule.modules.odata.factory.ODataConsumerFactory;
+import org.odata4j.consumer.ODataConsumer;
+import org.odata4j.consumer.behaviors.OClientBehavior;
+import org.odata4j.core.ODataVersion;
+import org.odata4j.format.FormatType;
+import org.odata4j.jersey.consumer.FakeService;
+import org.odata4j.jersey.consumer.ODataJerseyConsumer;
+import org.odata4j.producer.resources.BatchBodyPart;
+
+/**
+ * Tests the partial updates of {@link ODataConnector#updateEntity(MuleMessage, Object, String, String, Object)}
+ * against a {@link FakeService}
+ */
+public class PartialUpdatesTest {
+
+	private final FakeService service = new FakeService();
+	private final ODataConnector connector = new ODataConnector();
+
+	@Before
+	public void connect() throws Exception {
+		this.connector.setFormatType(FormatType.ATOM);
+		this.connector.setNamingFormat(PropertyNamingFormat.UPPER_CAMEL_CASE);
+		this.connector.setPartialUpdates(true);
+		this.connector.setConsumerFactory(new ODataConsumerFactory() {
+
+			@Override
+			public ODataConsumer newConsumer(String baseServiceUri, FormatType formatType, String username, String password, ODataVersion version, OClientBehavior... behaviors) {
+				return ODataJerseyConsumer.newBuilder(baseServiceUri, version)
+							.setFormatType(formatType)
+							.setClientFactory(service)
+							.setClientBehaviors(behaviors)
+							.build();
+			}
+		});
+
+		this.connector.connect(null, null, FakeService.URI);
+	}
+
+	@After
+	public void disconnect() {
+		this.connector.disconnect();
+	}
+
+	@Test
+	public void skipsUnchangedEntity() {
+		this.readCities();
+		this.connector.updateEntity(this.message(null), new City(1, "City 1"), "Cities", "id", null);
+
+		Assert.assertEquals(0, this.writes());
+	}
+
+	@Test
+	public void sendsOnlyChangedProperties() {
+		this.readCities();
+		City city = new City(1, "City 1");
+		city.setPopulation(5);
+		this.connector.updateEntity(this.message(null), city, "Cities", "id", null);
+
+		Assert.assertEquals(1, this.writes());
+		String body = (String) this.service.entities.get(0);
+		Assert.assertTrue(body.contains("Population"));
+		Assert.assertFalse(body.contains("City 1"));
+	}
+
+	@Test
+	public void comparesWithGivenOriginal() {
+		this.connector.setPartialUpdates(false);
+		this.connector.updateEntity(this.message(null), new City(1, "Paris"), "Cities", "id", new City(1, "Paris"));
+
+		Assert.assertEquals(0, this.writes());
+		Assert.assertEquals(0, this.connector.getEntityStates().size());
+	}
+
+	@Test
+	public void mergesStateAfterDirectUpdate() {
+		this.connector.updateEntity(this.message(null), new City(1, "Paris"), "Cities", "id", null);
+		Assert.assertEquals(1, this.writes());
+		Assert.assertEquals("Paris", this.connector.getEntityStates().get("Cities", 1).get("Name"));
+
+		this.connector.updateEntity(this.message(null), new City(1, "Paris"), "Cities", "id", null);
+		Assert.assertEquals(1, this.writes());
+	}
+
+	@Test
+	public void forgetsStateAfterBatchedUpdate() {
+		this.readCities();
+		List<BatchBodyPart> parts = new ArrayList<BatchBodyPart>();
+		this.connector.updateEntity(this.message(parts), new City(1, "Paris"), "Cities", "id", null);
+
+		Assert.assertEquals(1, parts.size());
+		Assert.assertEquals(0, this.writes());
+		Assert.assertNull(this.connector.getEntityStates().get("Cities", 1));
+		Assert.assertNotNull(this.connector.getEntityStates().get("Cities", 2));
+	}
+
+	@Test
+	public void forgetsStateAfterDelete() {
+		this.readCities();
+		this.connector.deleteEntity(this.message(null), new City(1, "City 1"), "Cities", "id");
+
+		Assert.assertEquals(1, this.writes());
+		Assert.assertNull(this.connector.getEntityStates().get("Cities", 1));
+	}
+
+	@Test
+	public void remembersOnlyEntitiesWithSingleKey() {
+		this.connector.getEntities("org.odata4j.core.OEntity", "Routes", null, null, null, null, null, null);
+		Assert.assertEquals(0, this.connector.getEntityStates().size());
+
+		this.readCities();
+		Assert.assertEquals(3, this.connector.getEntityStates().size());
+	}
+
+	private void readCities() {
+		this.connector.getEntities("org.odata4j.core.OEntity", "Cities", "Id eq 1 or Id eq 2 or Id eq 3", null, null, null, null, null);
+	}
+
+	private int writes() {
+		int writes = 0;
+
+		for (String request : this.service.requests) {
+			if (request.matches("[A-Z]+ .*")) {
+				writes++;
+			}
+		}
+
+		return writes;
+	}
+
+	// a message holding invocation properties only, with the batch parts if given
+	private MuleMessage message(List<BatchBodyPart> parts) {
+		final Map<String, Object> properties = new HashMap<String, Object>();
+
+		if (parts != null) {
+			properties.put(ODataConnector.BATCH_PARTS, parts);
+		}
+
+		return (MuleMessage) Proxy.newProxyInstance(MuleMessage.class.getClassLoader(), new Class<?>[] { MuleMessage.class }, new InvocationHandler() {
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getInvocationProperty")) {
+					return properties.get(args[0]);
+				}
+
+				return null;
+			}
+		});
+	}
+
+	public static class City {
+
+		private Integer id;
+		private String name;
+		private Integer population;
+
+		public City() {
+		}
+
+		public City(Integer id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+
+		public Integer getId() {
+			return id;
+		}
+
+		public void setId(Integer id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Integer getPopulation() {
+			return population;
+		}
+
+		public void setPopulation(Integer population) {
+			this.population = population;
+		}
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.mule.modules.odata.tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mule.modules.odata.WriteBehindListener;
+import org.mule.modules.odata.WriteBehindQueue;
+import org.mule.modules.odata.odata4j.extensions.OBatchRequest;
+import org.odata4j.format.FormatType;
+import org.odata4j.producer.resources.BatchBodyPart;
+import org.odata4j.producer.resources.BatchPartResponse;
+import org.odata4j.producer.resources.BatchResult;
+import org.odata4j.producer.resources.ODataBatchProvider.HTTP_METHOD;
+
+public class WriteBehindQueueTest {
+
+	@Test
+	public void sendsFullBatches() throws Exception {
+		RecordingBatchRequest batchRequest = new RecordingBatchRequest(201);
+		RecordingListener listener = new RecordingListener(6);
+		WriteBehindQueue queue = new WriteBehindQueue(batchRequest, FormatType.ATOM, 100, 3, 60000, listener);
+
+		for (int i = 0; i < 6; i++) {
+			queue.add(this.part(i));
+		}
+
+		Assert.assertTrue(listener.await());
+		queue.close();
+
+		Assert.assertEquals(2, batchRequest.batches.size());
+		Assert.assertEquals(3, batchRequest.batches.get(0).size());
+		Assert.assertEquals(6, listener.successes.size());
+		Assert.assertTrue(listener.failures.isEmpty());
+	}
+
+	@Test
+	public void sendsPartialBatchAfterFlushInterval() throws Exception {
+		RecordingBatchRequest batchRequest = new RecordingBatchRequest(204);
+		RecordingListener listener = new RecordingListener(2);
+		WriteBehindQueue queue = new WriteBehindQueue(batchRequest, FormatType.ATOM, 100, 50, 50, listener);
+
+		long start = System.nanoTime();
+		queue.add(this.part(1));
+		queue.add(this.part(2));
+
+		Assert.assertTrue(listener.await());
+		Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+		queue.close();
+
+		Assert.assertEquals(1, batchRequest.batches.size());
+		Assert.assertEquals(2, listener.successes.size());
+	}
+
+	@Test
+	public void failsEveryOperationOfFailedChangeset() throws Exception {
+		// a failed changeset is answered with a single response
+		RecordingBatchRequest batchRequest = new RecordingBatchRequest(400);
+		batchRequest.responses = 1;
+		RecordingListener listener = new RecordingListener(3);
+		WriteBehindQueue queue = new WriteBehindQueue(batchRequest, FormatType.ATOM, 100, 3, 60000, listener);
+
+		for (int i = 0; i < 3; i++) {
+			queue.add(this.part(i));
+		}
+
+		Assert.assertTrue(listener.await());
+		queue.close();
+
+		Assert.assertTrue(listener.successes.isEmpty());
+		Assert.assertEquals(3, listener.failures.size());
+		Assert.assertEquals(400, listener.failures.get(0).getStatus());
+	}
+
+	@Test
+	public void failsEveryOperationOfUnsentBatch() throws Exception {
+		RecordingBatchRequest batchRequest = new RecordingBatchRequest(0);
+		RecordingListener listener = new RecordingListener(2);
+		WriteBehindQueue queue = new WriteBehindQueue(batchRequest, FormatType.ATOM, 100, 2, 60000, listener);
+
+		queue.add(this.part(1));
+		queue.add(this.part(2));
+
+		Assert.assertTrue(listener.await());
+		queue.close();
+
+		Assert.assertEquals(2, listener.causes.size());
+	}
+
+	@Test
+	public void closeSendsPendingOperations() throws Exception {
+		RecordingBatchRequest batchRequest = new RecordingBatchRequest(204);
+		RecordingListener listener = new RecordingListener(2);
+		WriteBehindQueue queue = new WriteBehindQueue(batchRequest, FormatType.ATOM, 100, 50, 60000, listener);
+
+		queue.add(this.part(1));
+		queue.add(this.part(2));
+		queue.close();
+
+		Assert.assertEquals(2, listener.successes.size());
+		Assert.assertEquals(0, queue.size());
+
+		try {
+			queue.add(this.part(3));
+			Assert.fail("closed queue accepted an operation");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void closeWaitsForBatchBeingSent() throws Exception {
+		BlockingBatchRequest batchRequest = new BlockingBatchRequest();
+		RecordingListener listener = new RecordingListener(2);
+		final WriteBehindQueue queue = new WriteBehindQueue(batchRequest, FormatType.ATOM, 100, 1, 60000, listener);
+
+		queue.add(this.part(1));
+		Assert.assertTrue(batchRequest.sending.await(10, TimeUnit.SECONDS));
+		queue.add(this.part(2));
+
+		Thread closer = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				queue.close();
+			}
+		});
+		closer.start();
+		closer.join(200);
+
+		Assert.assertTrue("close returned while a batch was being sent", closer.isAlive());
+
+		batchRequest.release.countDown();
+		closer.join(10000);
+
+		Assert.assertFalse(closer.isAlive());
+		Assert.assertEquals(2, listener.successes.size());
+		Assert.assertTrue(listener.causes.isEmpty());
+		Assert.assertFalse(batchRequest.interrupted);
+	}
+
+	private BatchBodyPart part(int id) {
+		BatchBodyPart part = new BatchBodyPart();
+		part.setHttpMethod(HTTP_METHOD.PUT);
+		part.setUri("Products(" + id + ")");
+		part.setEntity("{}");
+		return part;
+	}
+
+	/**
+	 * Answers each batch with a response of the given status per operation, or fails if the status is 0
+	 */
+	private static class RecordingBatchRequest implements OBatchRequest {
+
+		private final List<List<BatchBodyPart>> batches = Collections.synchronizedList(new ArrayList<List<BatchBodyPart>>());
+		private final int status;
+		private int responses = -1;
+
+		RecordingBatchRequest(int status) {
+			this.status = status;
+		}
+
+		@Override
+		public BatchResult execute(List<BatchBodyPart> parts, FormatType formatType) {
+			this.batches.add(new ArrayList<BatchBodyPart>(parts));
+
+			if (this.status == 0) {
+				throw new RuntimeException("connection refused");
+			}
+
+			BatchResult result = new BatchResult();
+
+			for (int i = 0; i < (this.responses < 0 ? parts.size() : this.responses); i++) {
+				BatchPartResponse response = new BatchPartResponse();
+				response.setStatus(this.status);
+				result.addPartResponse(response);
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Blocks sending the first batch until released, as an interruptible send would
+	 */
+	private static class BlockingBatchRequest implements OBatchRequest {
+
+		private final CountDownLatch sending = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private volatile boolean interrupted = false;
+
+		@Override
+		public BatchResult execute(List<BatchBodyPart> parts, FormatType formatType) {
+			this.sending.countDown();
+
+			try {
+				this.release.await();
+			} catch (InterruptedException e) {
+				this.interrupted = true;
+				throw new RuntimeException("interrupted while sending", e);
+			}
+
+			BatchResult result = new BatchResult();
+
+			for (int i = 0; i < parts.size(); i++) {
+				BatchPartResponse response = new BatchPartResponse();
+				response.setStatus(204);
+				result.addPartResponse(response);
+			}
+
+			return result;
+		}
+	}
+
+	private static class RecordingListener implements WriteBehindListener {
+
+		private final List<BatchPartResponse> successes = Collections.synchronizedList(new ArrayList<BatchPartResponse>());
+		private final List<BatchPartResponse> failures = Collections.synchronizedList(new ArrayList<BatchPartResponse>());
+		private final List<Exception> causes = Collections.synchronizedList(new ArrayList<Exception>());
+		private final CountDownLatch done;
+
+		RecordingListener(int operations) {
+			this.done = new CountDownLatch(operations);
+		}
+
+		boolean await() throws InterruptedException {
+			return this.done.await(10, TimeUnit.SECONDS);
+		}
+
+		@Override
+		public void onSuccess(BatchBodyPart part, BatchPartResponse response) {
+			this.successes.add(response);
+			this.done.countDown();
+		}
+
+		@Override
+		public void onFailure(BatchBodyPart part, BatchPartResponse response, Exception cause) {
+			if (response != null) {
+				this.failures.add(response);
+			}
+
+			if (cause != null) {
+				this.causes.add(cause);
+			}
+
+			this.done.countDown();
+		}
+	}
+
+}
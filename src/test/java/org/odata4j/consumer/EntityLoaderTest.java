@@ -0,0 +1,135 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.core.ODataVersion;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OEntityKey;
+import org.odata4j.jersey.consumer.FakeService;
+import org.odata4j.jersey.consumer.ODataJerseyConsumer;
+
+public class EntityLoaderTest {
+
+  private final FakeService service = new FakeService();
+  private final ODataConsumer consumer = ODataJerseyConsumer.newBuilder(FakeService.URI, ODataVersion.V2).setClientFactory(service).build();
+
+  @Test
+  public void batchesConcurrentLookups() throws InterruptedException {
+    EntityLoader loader = new EntityLoader("Cities", 10, 500);
+    List<Object> ids = load(loader, 1, 2, 7, 2);
+
+    Assert.assertEquals("[1, 2, null, 2]", ids.toString());
+    Assert.assertEquals(1, countFilterRequests());
+  }
+
+  @Test
+  public void sendsFullBatchWithoutWaitingForWindow() throws InterruptedException {
+    EntityLoader loader = new EntityLoader("Cities", 2, 60000);
+    long start = System.currentTimeMillis();
+    List<Object> ids = load(loader, 3, 4);
+
+    Assert.assertEquals("[3, 4]", ids.toString());
+    Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+    Assert.assertEquals(1, countFilterRequests());
+  }
+
+  @Test
+  public void loadsAloneAfterWindow() {
+    EntityLoader loader = new EntityLoader("Cities", 10, 0);
+    Assert.assertEquals(5, loader.load(consumer, OEntityKey.create(5)).getProperty("Id").getValue());
+    Assert.assertNull(loader.load(consumer, OEntityKey.create(9)));
+    Assert.assertEquals(2, countFilterRequests());
+  }
+
+  @Test
+  public void throwsFailuresToEveryLookup() {
+    EntityLoader loader = new EntityLoader("Cities", 10, 0);
+    service.failures.add("Cities?$filter=Id eq 1");
+    try {
+      loader.load(consumer, OEntityKey.create(1));
+      Assert.fail();
+    } catch (RuntimeException e) {
+      // expected
+    }
+    Assert.assertEquals(1, loader.load(consumer, OEntityKey.create(1)).getProperty("Id").getValue());
+  }
+
+  @Test
+  public void sharesLoaderBetweenConsumersWithTheSameCredentials() {
+    String uri = "http://localhost/" + EntityLoaderTest.class.getName();
+    EntityLoader loader = EntityLoader.forService(uri, "a", "Cities", 10, 10);
+
+    Assert.assertSame(loader, EntityLoader.forService(uri, "a", "Cities", 10, 10));
+    Assert.assertNotSame(loader, EntityLoader.forService(uri, "b", "Cities", 10, 10));
+    Assert.assertNotSame(loader, EntityLoader.forService(uri, "a", "Buildings", 10, 10));
+    Assert.assertNotSame(loader, EntityLoader.forService(uri, "a", "Cities", 20, 10));
+  }
+
+  @Test
+  public void readsWithTheConsumerOfTheCaller() {
+    EntityLoader loader = new EntityLoader("Cities", 10, 0);
+    FakeService other = new FakeService();
+    ODataConsumer otherConsumer = ODataJerseyConsumer.newBuilder(FakeService.URI, ODataVersion.V2).setClientFactory(other).build();
+
+    Assert.assertEquals(1, loader.load(consumer, OEntityKey.create(1)).getProperty("Id").getValue());
+    Assert.assertEquals(2, loader.load(otherConsumer, OEntityKey.create(2)).getProperty("Id").getValue());
+    Assert.assertEquals(1, countFilterRequests());
+    Assert.assertTrue(other.requests.contains("Cities?$filter=Id eq 2"));
+  }
+
+  // loads the keys from a thread each, all at once
+  private List<Object> load(final EntityLoader loader, int... keys) throws InterruptedException {
+    final CountDownLatch start = new CountDownLatch(1);
+    final Object[] ids = new Object[keys.length];
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < keys.length; i++) {
+      final int index = i;
+      final int key = keys[i];
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+            OEntity entity = loader.load(consumer, OEntityKey.create(key));
+            ids[index] = entity == null ? null : entity.getProperty("Id").getValue();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads)
+      thread.join(TimeUnit.SECONDS.toMillis(10));
+    List<Object> rt = new ArrayList<Object>();
+    for (Object id : ids)
+      rt.add(id);
+    return rt;
+  }
+
+  private int countFilterRequests() {
+    int rt = 0;
+    for (String request : service.requests) {
+      if (request.startsWith("Cities?$filter="))
+        rt++;
+    }
+    return rt;
+  }
+
+}
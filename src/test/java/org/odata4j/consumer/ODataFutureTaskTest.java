@@ -0,0 +1,134 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.core.ODataCallback;
+
+public class ODataFutureTaskTest {
+
+  @Test
+  public void notifiesCallbacksOfResult() throws Exception {
+    ODataFutureTask<String> future = new ODataFutureTask<String>(returning("result"));
+    RecordingCallback first = new RecordingCallback();
+    RecordingCallback second = new RecordingCallback();
+    future.addCallback(first).addCallback(second);
+    Assert.assertTrue(first.results.isEmpty());
+
+    future.run();
+
+    Assert.assertEquals("result", future.get());
+    Assert.assertEquals(1, first.results.size());
+    Assert.assertEquals("result", first.results.get(0));
+    Assert.assertEquals(1, second.results.size());
+    Assert.assertTrue(first.failures.isEmpty());
+  }
+
+  @Test
+  public void notifiesCallbackAddedWhenDone() throws Exception {
+    ODataFutureTask<String> future = new ODataFutureTask<String>(returning("result"));
+    future.run();
+
+    RecordingCallback callback = new RecordingCallback();
+    future.addCallback(callback);
+
+    Assert.assertEquals(1, callback.results.size());
+    Assert.assertEquals("result", callback.results.get(0));
+  }
+
+  @Test
+  public void notifiesCallbacksOfFailureCause() throws Exception {
+    final IllegalStateException failure = new IllegalStateException("failed");
+    ODataFutureTask<String> future = new ODataFutureTask<String>(new Callable<String>() {
+      public String call() throws Exception {
+        throw failure;
+      }
+    });
+    RecordingCallback callback = new RecordingCallback();
+    future.addCallback(callback);
+
+    future.run();
+
+    Assert.assertTrue(callback.results.isEmpty());
+    Assert.assertEquals(1, callback.failures.size());
+    Assert.assertSame(failure, callback.failures.get(0));
+    try {
+      future.get();
+      Assert.fail();
+    } catch (ExecutionException e) {
+      Assert.assertSame(failure, e.getCause());
+    }
+  }
+
+  @Test
+  public void notifiesCallbacksOfCancellation() throws Exception {
+    ODataFutureTask<String> future = new ODataFutureTask<String>(returning("result"));
+    RecordingCallback callback = new RecordingCallback();
+    future.addCallback(callback);
+
+    Assert.assertTrue(future.cancel(false));
+    future.run();
+
+    Assert.assertTrue(callback.results.isEmpty());
+    Assert.assertEquals(1, callback.failures.size());
+    Assert.assertTrue(callback.failures.get(0) instanceof CancellationException);
+  }
+
+  @Test
+  public void failingCallbackDoesNotStopOthers() throws Exception {
+    ODataFutureTask<String> future = new ODataFutureTask<String>(returning("result"));
+    future.addCallback(new ODataCallback<String>() {
+      public void onSuccess(String result) {
+        throw new RuntimeException("callback failed");
+      }
+
+      public void onFailure(Throwable cause) {}
+    });
+    RecordingCallback callback = new RecordingCallback();
+    future.addCallback(callback);
+
+    future.run();
+
+    Assert.assertEquals(1, callback.results.size());
+    Assert.assertEquals("result", future.get());
+  }
+
+  private static Callable<String> returning(final String result) {
+    return new Callable<String>() {
+      public String call() throws Exception {
+        return result;
+      }
+    };
+  }
+
+  private static class RecordingCallback implements ODataCallback<String> {
+
+    private final List<String> results = new ArrayList<String>();
+    private final List<Throwable> failures = new ArrayList<Throwable>();
+
+    public void onSuccess(String result) {
+      results.add(result);
+    }
+
+    public void onFailure(Throwable cause) {
+      failures.add(cause);
+    }
+
+  }
+
+}
@@ -0,0 +1,131 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+
+  private final AtomicInteger executions = new AtomicInteger();
+
+  @Test
+  public void sharesRequestInFlight() throws Exception {
+    final RequestCoalescer<String, Object> coalescer = new RequestCoalescer<String, Object>(0);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicReference<Object> first = new AtomicReference<Object>();
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        first.set(coalescer.execute("a", new Callable<Object>() {
+          public Object call() throws Exception {
+            executions.incrementAndGet();
+            started.countDown();
+            release.await();
+            return new Object();
+          }
+        }));
+      }
+    };
+    thread.start();
+    Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+
+    final AtomicReference<Object> second = new AtomicReference<Object>();
+    Thread waiter = new Thread() {
+      @Override
+      public void run() {
+        second.set(coalescer.execute("a", newRequest()));
+      }
+    };
+    waiter.start();
+    Thread.sleep(100);
+    release.countDown();
+    thread.join(1000);
+    waiter.join(1000);
+
+    Assert.assertEquals(1, executions.get());
+    Assert.assertNotNull(first.get());
+    Assert.assertSame(first.get(), second.get());
+    Assert.assertEquals(0, coalescer.size());
+  }
+
+  @Test
+  public void executesDifferentKeysApart() {
+    RequestCoalescer<String, Object> coalescer = new RequestCoalescer<String, Object>(10000);
+    Assert.assertNotSame(coalescer.execute("a", newRequest()), coalescer.execute("b", newRequest()));
+    Assert.assertEquals(2, executions.get());
+  }
+
+  @Test
+  public void sharesResultForTtl() throws InterruptedException {
+    RequestCoalescer<String, Object> coalescer = new RequestCoalescer<String, Object>(100);
+    Object result = coalescer.execute("a", newRequest());
+    Assert.assertSame(result, coalescer.execute("a", newRequest()));
+    Assert.assertEquals(1, executions.get());
+    Assert.assertEquals(1, coalescer.size());
+
+    Thread.sleep(150);
+    Assert.assertNotSame(result, coalescer.execute("a", newRequest()));
+    Assert.assertEquals(2, executions.get());
+  }
+
+  @Test
+  public void sharesResultOnlyInFlightWithoutTtl() {
+    RequestCoalescer<String, Object> coalescer = new RequestCoalescer<String, Object>(0);
+    Assert.assertNotSame(coalescer.execute("a", newRequest()), coalescer.execute("a", newRequest()));
+    Assert.assertEquals(2, executions.get());
+    Assert.assertEquals(0, coalescer.size());
+  }
+
+  @Test
+  public void doesNotKeepFailures() {
+    RequestCoalescer<String, Object> coalescer = new RequestCoalescer<String, Object>(10000);
+    try {
+      coalescer.execute("a", new Callable<Object>() {
+        public Object call() throws Exception {
+          throw new IllegalStateException("failed");
+        }
+      });
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("failed", e.getMessage());
+    }
+    Assert.assertEquals(0, coalescer.size());
+    Assert.assertNotNull(coalescer.execute("a", newRequest()));
+    Assert.assertEquals(1, executions.get());
+  }
+
+  @Test
+  public void sharesCoalescerBetweenConsumersWithTheSameSettings() {
+    String uri = "http://localhost/" + RequestCoalescerTest.class.getName();
+    RequestCoalescer<String, Object> coalescer = RequestCoalescer.forService(uri, 1000);
+
+    Assert.assertSame(coalescer, RequestCoalescer.forService(uri, 1000));
+    Assert.assertNotSame(coalescer, RequestCoalescer.forService(uri, 0));
+    Assert.assertNotSame(coalescer, RequestCoalescer.forService(uri + "/other", 1000));
+  }
+
+  private Callable<Object> newRequest() {
+    return new Callable<Object>() {
+      public Object call() {
+        executions.incrementAndGet();
+        return new Object();
+      }
+    };
+  }
+
+}
@@ -0,0 +1,143 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResponseCacheTest {
+
+  private static final long NOW = 1000000;
+  private static final String DATE = "Sun, 06 Nov 1994 08:49:37 GMT";
+
+  @Test
+  public void computesFreshnessFromCacheControl() {
+    Assert.assertEquals(NOW + 60000, ResponseCache.getFreshUntil("public, max-age=60", null, null, NOW));
+    Assert.assertEquals(NOW, ResponseCache.getFreshUntil("max-age=0", null, null, NOW));
+    Assert.assertEquals(NOW, ResponseCache.getFreshUntil("no-cache, max-age=60", null, null, NOW));
+    Assert.assertEquals(NOW, ResponseCache.getFreshUntil("max-age=soon", null, null, NOW));
+    Assert.assertEquals(-1, ResponseCache.getFreshUntil("max-age=60, No-Store", null, null, NOW));
+  }
+
+  @Test
+  public void computesFreshnessFromExpires() {
+    Assert.assertEquals(NOW + 60000, ResponseCache.getFreshUntil(null, "Sun, 06 Nov 1994 08:50:37 GMT", DATE, NOW));
+    Assert.assertEquals(NOW, ResponseCache.getFreshUntil(null, "Sun, 06 Nov 1994 08:48:37 GMT", DATE, NOW));
+    Assert.assertEquals(NOW, ResponseCache.getFreshUntil(null, "0", DATE, NOW));
+    // max-age wins over Expires
+    Assert.assertEquals(NOW + 10000, ResponseCache.getFreshUntil("max-age=10", "Sun, 06 Nov 1994 08:50:37 GMT", DATE, NOW));
+    Assert.assertEquals(NOW, ResponseCache.getFreshUntil(null, null, DATE, NOW));
+  }
+
+  @Test
+  public void cachesFreshOrValidatedResponsesOnly() {
+    ResponseCache cache = new ResponseCache(10);
+    Assert.assertTrue(cache.put("fresh", "a", null, "max-age=60", null, null, null, null));
+    Assert.assertTrue(cache.get("fresh").isFresh());
+
+    Assert.assertTrue(cache.put("validated", "b", null, "no-cache", null, null, "\"1\"", null));
+    Assert.assertFalse(cache.get("validated").isFresh());
+    Assert.assertEquals("\"1\"", cache.get("validated").getETag());
+
+    Assert.assertFalse(cache.put("stale", "c", null, null, null, null, null, null));
+    Assert.assertFalse(cache.put("fresh", "d", null, "no-store", null, null, "\"1\"", null));
+    Assert.assertNull(cache.get("fresh"));
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void refreshesRevalidatedResponses() {
+    ResponseCache cache = new ResponseCache(10);
+    cache.put("a", "a", null, "no-cache", null, null, null, "Sun, 06 Nov 1994 08:49:37 GMT");
+    ResponseCache.Entry entry = cache.get("a");
+    Assert.assertFalse(entry.isFresh());
+
+    cache.revalidated(entry, "max-age=60", null, null);
+    Assert.assertTrue(cache.get("a").isFresh());
+    Assert.assertEquals(1, cache.getRevalidatedCount());
+  }
+
+  @Test
+  public void expiresResponses() throws InterruptedException {
+    ResponseCache cache = new ResponseCache(10);
+    cache.put("a", "a", null, "max-age=1", null, null, "\"1\"", null);
+    Assert.assertTrue(cache.get("a").isFresh());
+    Thread.sleep(1100);
+    Assert.assertFalse(cache.get("a").isFresh());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    ResponseCache cache = new ResponseCache(2);
+    cache.put("a", "a", null, "max-age=60", null, null, null, null);
+    cache.put("b", "b", null, "max-age=60", null, null, null, null);
+    cache.get("a");
+    cache.put("c", "c", null, "max-age=60", null, null, null, null);
+    Assert.assertNotNull(cache.get("a"));
+    Assert.assertNull(cache.get("b"));
+    Assert.assertNotNull(cache.get("c"));
+  }
+
+  @Test
+  public void invalidatesEntitySets() {
+    ResponseCache cache = new ResponseCache(10);
+    cache.put("cities", "a", Arrays.asList("Cities"), "max-age=60", null, null, null, null);
+    cache.put("buildings", "b", Arrays.asList("Buildings", "Cities"), "max-age=60", null, null, null, null);
+    cache.put("people", "c", Arrays.asList("People"), "max-age=60", null, null, null, null);
+    cache.put("unknown", "d", null, "max-age=60", null, null, null, null);
+
+    cache.invalidate("Cities");
+    Assert.assertNull(cache.get("cities"));
+    Assert.assertNull(cache.get("buildings"));
+    Assert.assertNull(cache.get("unknown"));
+    Assert.assertEquals("c", cache.get("people").getValue());
+
+    cache.clear();
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void sharesCacheBetweenConsumersWithTheSameSettings() {
+    String uri = "http://localhost/" + ResponseCacheTest.class.getName();
+    ResponseCache cache = ResponseCache.forService(uri, 10);
+
+    Assert.assertSame(cache, ResponseCache.forService(uri, 10));
+    Assert.assertNotSame(cache, ResponseCache.forService(uri, 20));
+    Assert.assertNotSame(cache, ResponseCache.forService(uri + "/other", 10));
+  }
+
+  @Test
+  public void invalidatesEveryCacheOfTheService() {
+    String uri = "http://localhost/" + ResponseCacheTest.class.getName() + "/invalidation";
+    ResponseCache small = ResponseCache.forService(uri, 10);
+    ResponseCache large = ResponseCache.forService(uri, 20);
+    ResponseCache other = ResponseCache.forService(uri + "/other", 10);
+    for (ResponseCache cache : Arrays.asList(small, large, other)) {
+      cache.put("cities", "a", Arrays.asList("Cities"), "max-age=60", null, null, null, null);
+      cache.put("people", "c", Arrays.asList("People"), "max-age=60", null, null, null, null);
+    }
+
+    small.invalidate("Cities");
+    Assert.assertNull(small.get("cities"));
+    Assert.assertNull(large.get("cities"));
+    Assert.assertNotNull(large.get("people"));
+    Assert.assertNotNull(other.get("cities"));
+
+    large.invalidateAll();
+    Assert.assertEquals(0, small.size());
+    Assert.assertEquals(0, large.size());
+    Assert.assertEquals(2, other.size());
+
+    other.clear();
+  }
+
+}
@@ -0,0 +1,90 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+  @Test
+  public void doublesBackoffUpToMaximum() {
+    RetryPolicy policy = new RetryPolicy(10, 100, 1000, null);
+    long[] full = { 100, 200, 400, 800, 1000, 1000, 1000 };
+    for (int retry = 1; retry <= full.length; retry++) {
+      for (int i = 0; i < 1000; i++) {
+        long backoff = policy.getBackoffMillis(retry, -1);
+        Assert.assertTrue("retry " + retry + " waited " + backoff, backoff >= full[retry - 1] / 2 && backoff <= full[retry - 1]);
+      }
+    }
+  }
+
+  @Test
+  public void doesNotOverflowAfterManyRetries() {
+    RetryPolicy policy = new RetryPolicy(Integer.MAX_VALUE, 1, Long.MAX_VALUE / 2, null);
+    long backoff = policy.getBackoffMillis(1000, -1);
+    Assert.assertTrue(backoff >= Long.MAX_VALUE / 8 && backoff <= Long.MAX_VALUE / 2);
+  }
+
+  @Test
+  public void honorsRetryAfterUpToMaximum() {
+    RetryPolicy policy = new RetryPolicy(3, 100, 1000, null);
+    Assert.assertEquals(700, policy.getBackoffMillis(1, 700));
+    Assert.assertEquals(1000, policy.getBackoffMillis(1, 1000));
+    Assert.assertEquals(1000, policy.getBackoffMillis(1, 60000));
+    Assert.assertTrue(policy.getBackoffMillis(1, 0) <= 100);
+
+    Assert.assertTrue(policy.canRetryAfter(-1));
+    Assert.assertTrue(policy.canRetryAfter(1000));
+    Assert.assertFalse(policy.canRetryAfter(1001));
+  }
+
+  @Test
+  public void retriesIdempotentMethodsOnly() {
+    RetryPolicy policy = new RetryPolicy(3, 100, 1000, null);
+    for (String method : new String[] { "GET", "HEAD", "OPTIONS", "PUT", "DELETE", "get" })
+      Assert.assertTrue(method, policy.isIdempotent(method));
+    for (String method : new String[] { "POST", "MERGE", "PATCH", null })
+      Assert.assertFalse(method, policy.isIdempotent(method));
+  }
+
+  @Test
+  public void retriesIOErrorsOnly() {
+    RetryPolicy policy = new RetryPolicy(3, 100, 1000, null);
+    Assert.assertTrue(policy.isTransient(new SocketTimeoutException()));
+    Assert.assertTrue(policy.isTransient(new RuntimeException(new IllegalStateException(new IOException()))));
+    // the stax parser keeps the I/O error as nested exception only
+    @SuppressWarnings("serial")
+    XMLStreamException readError = new XMLStreamException("ParseError") {{ nested = new IOException(); }};
+    Assert.assertTrue(policy.isTransient(new RuntimeException(readError)));
+    Assert.assertFalse(policy.isTransient(new RuntimeException("Expected status 200, found 400")));
+    Assert.assertFalse(policy.isTransient(new XMLStreamException("ParseError")));
+    Assert.assertFalse(policy.isTransient(null));
+  }
+
+  @Test
+  public void retriesDefaultStatusesUnlessTold() {
+    Assert.assertTrue(new RetryPolicy(3, 100, 1000, null).isRetryableStatus(503));
+    Assert.assertFalse(new RetryPolicy(3, 100, 1000, null).isRetryableStatus(404));
+    Assert.assertFalse(new RetryPolicy(3, 100, 1000, Collections.singleton(500)).isRetryableStatus(503));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMaximumBelowInitialBackoff() {
+    new RetryPolicy(3, 1000, 100, null);
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer.behaviors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.consumer.behaviors.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+  @Test
+  public void opensClosesThroughHalfOpen() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker("test", 50, 100, 4, 10000, 100, 2);
+    Assert.assertEquals(State.CLOSED, breaker.getState());
+
+    // opens once half the window is filled with failures
+    breaker.record(breaker.acquire(), true);
+    Assert.assertEquals(State.CLOSED, breaker.getState());
+    breaker.record(breaker.acquire(), true);
+    Assert.assertEquals(State.OPEN, breaker.getState());
+    assertRejected(breaker);
+    Assert.assertEquals(1, breaker.getRejectedCount());
+
+    // lets the trial calls through after the open duration, then closes if they go well
+    Thread.sleep(150);
+    CircuitBreaker.Permit first = breaker.acquire();
+    Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+    CircuitBreaker.Permit second = breaker.acquire();
+    assertRejected(breaker);
+    breaker.record(first, false);
+    Assert.assertEquals(State.HALF_OPEN, breaker.getState());
+    breaker.record(second, false);
+    Assert.assertEquals(State.CLOSED, breaker.getState());
+
+    Assert.assertEquals(1, breaker.getTransitionCount(State.OPEN));
+    Assert.assertEquals(1, breaker.getTransitionCount(State.HALF_OPEN));
+    Assert.assertEquals(1, breaker.getTransitionCount(State.CLOSED));
+  }
+
+  @Test
+  public void opensAgainIfTrialCallsFail() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker("test", 50, 100, 2, 10000, 50, 1);
+    breaker.record(breaker.acquire(), true);
+    Assert.assertEquals(State.OPEN, breaker.getState());
+
+    Thread.sleep(100);
+    breaker.record(breaker.acquire(), true);
+    Assert.assertEquals(State.OPEN, breaker.getState());
+    assertRejected(breaker);
+    Assert.assertEquals(2, breaker.getTransitionCount(State.OPEN));
+  }
+
+  @Test
+  public void staysClosedBelowThreshold() {
+    CircuitBreaker breaker = new CircuitBreaker("test", 50, 100, 10, 10000, 100, 1);
+    for (int i = 0; i < 100; i++)
+      breaker.record(breaker.acquire(), i % 3 == 0);
+    Assert.assertEquals(State.CLOSED, breaker.getState());
+    Assert.assertEquals(40, breaker.getFailureRate());
+  }
+
+  @Test
+  public void opensOnSlowCalls() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker("test", 100, 50, 2, 50, 1000, 1);
+    CircuitBreaker.Permit permit = breaker.acquire();
+    Thread.sleep(80);
+    breaker.record(permit, false);
+    Assert.assertEquals(State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void measuresFromWhenSent() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker("test", 100, 50, 2, 50, 1000, 1);
+    CircuitBreaker.Permit permit = breaker.acquire();
+    Thread.sleep(80);
+    breaker.record(permit, false, System.nanoTime());
+    Assert.assertEquals(State.CLOSED, breaker.getState());
+    Assert.assertEquals(0, breaker.getSlowCallRate());
+  }
+
+  @Test
+  public void ignoresCallsFromBeforeLastTransition() {
+    CircuitBreaker breaker = new CircuitBreaker("test", 50, 100, 2, 10000, 10000, 1);
+    CircuitBreaker.Permit old = breaker.acquire();
+    breaker.record(breaker.acquire(), true);
+    Assert.assertEquals(State.OPEN, breaker.getState());
+    breaker.record(old, true);
+    Assert.assertEquals(0, breaker.getFailureRate());
+  }
+
+  @Test
+  public void sharesBreakerBetweenConsumersWithTheSameSettings() {
+    String uri = "http://localhost/" + CircuitBreakerTest.class.getName();
+    CircuitBreaker breaker = CircuitBreaker.forService(uri, 50, 100, 10, 1000, 1000, 1);
+
+    Assert.assertSame(breaker, CircuitBreaker.forService(uri, 50, 100, 10, 1000, 1000, 1));
+    Assert.assertNotSame(breaker, CircuitBreaker.forService(uri, 60, 100, 10, 1000, 1000, 1));
+    Assert.assertNotSame(breaker, CircuitBreaker.forService(uri, 50, 100, 10, 1000, 2000, 1));
+    Assert.assertEquals(uri, breaker.getName());
+  }
+
+  private static void assertRejected(CircuitBreaker breaker) {
+    try {
+      breaker.acquire();
+      Assert.fail();
+    } catch (CircuitBreakerOpenException e) {
+      // expected
+    }
+  }
+
+}
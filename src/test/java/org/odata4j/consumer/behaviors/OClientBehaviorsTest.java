@@ -0,0 +1,46 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.consumer.behaviors;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.consumer.ODataClientRequest;
+
+public class OClientBehaviorsTest {
+
+  @Test
+  public void rateLimitSpacesRequests() {
+    OClientBehavior behavior = OClientBehaviors.rateLimit(100);
+    ODataClientRequest request = ODataClientRequest.get("http://localhost/service/Cities");
+
+    long start = System.nanoTime();
+    Assert.assertSame(request, behavior.transform(request));
+    behavior.transform(request);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Assert.assertTrue("waited " + elapsed, elapsed >= 80);
+  }
+
+  @Test
+  public void rateLimitOfZeroOrLessLetsRequestsThrough() {
+    ODataClientRequest request = ODataClientRequest.get("http://localhost/service/Cities");
+
+    long start = System.nanoTime();
+    for (long millis = -1; millis <= 0; millis++) {
+      OClientBehavior behavior = OClientBehaviors.rateLimit(millis);
+      for (int i = 0; i < 100; i++)
+        Assert.assertSame(request, behavior.transform(request));
+    }
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+  }
+
+}
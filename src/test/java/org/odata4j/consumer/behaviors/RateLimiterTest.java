@@ -0,0 +1,122 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.consumer.behaviors;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+  @Test
+  public void sendsBurstAtOnceThenWaitsForTokens() {
+    RateLimiter limiter = new RateLimiter(10, 5, 0, false);
+
+    long start = System.nanoTime();
+    for (int i = 0; i < 5; i++)
+      limiter.acquire();
+    Assert.assertTrue(elapsedMillis(start) < 50);
+
+    limiter.acquire();
+    long elapsed = elapsedMillis(start);
+    Assert.assertTrue("waited " + elapsed, elapsed >= 80 && elapsed < 300);
+  }
+
+  @Test
+  public void refillsUpToBurstOnly() throws InterruptedException {
+    RateLimiter limiter = new RateLimiter(100, 2, 0, false);
+    Thread.sleep(200);
+
+    long start = System.nanoTime();
+    limiter.acquire();
+    limiter.acquire();
+    Assert.assertTrue(elapsedMillis(start) < 5);
+
+    limiter.acquire();
+    Assert.assertTrue(elapsedNanos(start) >= TimeUnit.MILLISECONDS.toNanos(8));
+  }
+
+  @Test
+  public void holdsBackRequestsWhilePaused() {
+    RateLimiter limiter = new RateLimiter(0, 1, 0, false);
+
+    long start = System.nanoTime();
+    limiter.pauseFor(200);
+    limiter.acquire();
+    long elapsed = elapsedMillis(start);
+    Assert.assertTrue("waited " + elapsed, elapsed >= 190 && elapsed < 500);
+  }
+
+  @Test
+  public void doesNotBurstAfterPause() {
+    RateLimiter limiter = new RateLimiter(10, 5, 0, false);
+
+    limiter.pauseFor(100);
+    long start = System.nanoTime();
+    limiter.acquire();
+    limiter.acquire();
+    long elapsed = elapsedMillis(start);
+    Assert.assertTrue("waited " + elapsed, elapsed >= 180 && elapsed < 500);
+  }
+
+  @Test
+  public void limitsRequestsInFlight() throws InterruptedException {
+    final RateLimiter limiter = new RateLimiter(0, 1, 2, false);
+    limiter.acquire();
+    limiter.acquire();
+    Assert.assertEquals(2, limiter.getInFlight());
+
+    final CountDownLatch acquired = new CountDownLatch(1);
+    Thread thread = new Thread() {
+      @Override
+      public void run() {
+        limiter.acquire();
+        acquired.countDown();
+      }
+    };
+    thread.start();
+    Assert.assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+    limiter.release();
+    Assert.assertTrue(acquired.await(1, TimeUnit.SECONDS));
+    Assert.assertEquals(2, limiter.getInFlight());
+
+    limiter.release();
+    limiter.release();
+    Assert.assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  public void sharesLimiterBetweenConsumersWithTheSameSettings() {
+    String uri = "http://localhost/" + RateLimiterTest.class.getName();
+    RateLimiter limiter = RateLimiter.forService(uri, 10, 5, 2, false);
+
+    Assert.assertSame(limiter, RateLimiter.forService(uri, 10, 5, 2, false));
+    Assert.assertNotSame(limiter, RateLimiter.forService(uri, 20, 5, 2, false));
+    Assert.assertNotSame(limiter, RateLimiter.forService(uri, 10, 5, 4, false));
+    Assert.assertNotSame(limiter, RateLimiter.forService(uri + "/other", 10, 5, 2, false));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNegativeRate() {
+    new RateLimiter(-1, 1, 0, false);
+  }
+
+  private static long elapsedNanos(long start) {
+    return System.nanoTime() - start;
+  }
+
+  private static long elapsedMillis(long start) {
+    return TimeUnit.NANOSECONDS.toMillis(elapsedNanos(start));
+  }
+
+}
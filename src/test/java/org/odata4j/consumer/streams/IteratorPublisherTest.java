@@ -0,0 +1,350 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.consumer.streams;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.core4j.Func;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IteratorPublisherTest {
+
+  private static final Executor SAME_THREAD = new Executor() {
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  private final List<CountingIterator> iterators = new ArrayList<CountingIterator>();
+
+  @Test
+  public void pullsOnlyRequestedElements() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    newPublisher(5).subscribe(subscriber);
+    Assert.assertTrue(iterators.isEmpty());
+
+    subscriber.subscription.request(2);
+    Assert.assertEquals(list(0, 1), subscriber.elements);
+    Assert.assertEquals(2, iterators.get(0).pulled);
+    Assert.assertFalse(subscriber.completed);
+
+    subscriber.subscription.request(2);
+    Assert.assertEquals(list(0, 1, 2, 3), subscriber.elements);
+    Assert.assertEquals(4, iterators.get(0).pulled);
+
+    subscriber.subscription.request(10);
+    Assert.assertEquals(list(0, 1, 2, 3, 4), subscriber.elements);
+    Assert.assertTrue(subscriber.completed);
+    Assert.assertNull(subscriber.error);
+    Assert.assertTrue(iterators.get(0).closed);
+  }
+
+  @Test
+  public void unboundedDemandDrainsIterator() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    newPublisher(3).subscribe(subscriber);
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    Assert.assertEquals(list(0, 1, 2), subscriber.elements);
+    Assert.assertTrue(subscriber.completed);
+  }
+
+  @Test
+  public void requestFromOnNextDoesNotRecurse() {
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(Integer element) {
+        super.onNext(element);
+        subscription.request(1);
+      }
+    };
+    newPublisher(100000).subscribe(subscriber);
+
+    subscriber.subscription.request(1);
+
+    Assert.assertEquals(100000, subscriber.elements.size());
+    Assert.assertTrue(subscriber.completed);
+  }
+
+  @Test
+  public void requestFromOnSubscribeWaitsForItToReturn() {
+    final List<String> signals = new ArrayList<String>();
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        super.onSubscribe(subscription);
+        subscription.request(2);
+        signals.add("subscribed");
+      }
+
+      @Override
+      public void onNext(Integer element) {
+        super.onNext(element);
+        signals.add("next " + element);
+      }
+    };
+    newPublisher(5).subscribe(subscriber);
+
+    Assert.assertEquals("[subscribed, next 0, next 1]", signals.toString());
+
+    subscriber.subscription.request(1);
+    Assert.assertEquals(list(0, 1, 2), subscriber.elements);
+  }
+
+  @Test
+  public void eachSubscriptionGetsItsOwnIterator() {
+    IteratorPublisher<Integer> publisher = newPublisher(2);
+    RecordingSubscriber first = new RecordingSubscriber();
+    RecordingSubscriber second = new RecordingSubscriber();
+    publisher.subscribe(first);
+    publisher.subscribe(second);
+
+    first.subscription.request(5);
+    second.subscription.request(5);
+
+    Assert.assertEquals(2, iterators.size());
+    Assert.assertEquals(list(0, 1), first.elements);
+    Assert.assertEquals(list(0, 1), second.elements);
+  }
+
+  @Test
+  public void cancelStopsElementsAndClosesIterator() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    newPublisher(5).subscribe(subscriber);
+
+    subscriber.subscription.request(1);
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(5);
+
+    Assert.assertEquals(list(0), subscriber.elements);
+    Assert.assertEquals(1, iterators.get(0).pulled);
+    Assert.assertTrue(iterators.get(0).closed);
+    Assert.assertFalse(subscriber.completed);
+    Assert.assertNull(subscriber.error);
+  }
+
+  @Test
+  public void cancelFromOnNextStopsElements() {
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(Integer element) {
+        super.onNext(element);
+        if (element == 1)
+          subscription.cancel();
+      }
+    };
+    newPublisher(5).subscribe(subscriber);
+
+    subscriber.subscription.request(5);
+
+    Assert.assertEquals(list(0, 1), subscriber.elements);
+    Assert.assertTrue(iterators.get(0).closed);
+    Assert.assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void cancelBeforeRequestNeverCreatesIterator() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    newPublisher(5).subscribe(subscriber);
+
+    subscriber.subscription.cancel();
+    subscriber.subscription.request(5);
+
+    Assert.assertTrue(iterators.isEmpty());
+    Assert.assertTrue(subscriber.elements.isEmpty());
+  }
+
+  @Test
+  public void nonPositiveRequestSignalsError() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    newPublisher(5).subscribe(subscriber);
+    subscriber.subscription.request(1);
+
+    subscriber.subscription.request(0);
+
+    Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+    Assert.assertEquals(list(0), subscriber.elements);
+    Assert.assertTrue(iterators.get(0).closed);
+
+    subscriber.subscription.request(5);
+    Assert.assertEquals(list(0), subscriber.elements);
+    Assert.assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void negativeRequestSignalsError() {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    newPublisher(5).subscribe(subscriber);
+
+    subscriber.subscription.request(-1);
+
+    Assert.assertTrue(subscriber.error instanceof IllegalArgumentException);
+    Assert.assertTrue(subscriber.elements.isEmpty());
+  }
+
+  @Test
+  public void iteratorFailureSignalsErrorAndClosesIterator() {
+    final IllegalStateException failure = new IllegalStateException("read failed");
+    IteratorPublisher<Integer> publisher = new IteratorPublisher<Integer>(new Func<Iterator<Integer>>() {
+      @Override
+      public Iterator<Integer> apply() {
+        CountingIterator iterator = new CountingIterator(5) {
+          @Override
+          public Integer next() {
+            if (pulled == 2)
+              throw failure;
+            return super.next();
+          }
+        };
+        iterators.add(iterator);
+        return iterator;
+      }
+    }, SAME_THREAD);
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+
+    subscriber.subscription.request(5);
+
+    Assert.assertEquals(list(0, 1), subscriber.elements);
+    Assert.assertSame(failure, subscriber.error);
+    Assert.assertTrue(iterators.get(0).closed);
+    Assert.assertFalse(subscriber.completed);
+  }
+
+  @Test
+  public void rejectedExecutionSignalsError() {
+    IteratorPublisher<Integer> publisher = new IteratorPublisher<Integer>(newSource(5), new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        throw new RejectedExecutionException("queue full");
+      }
+    });
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    publisher.subscribe(subscriber);
+
+    subscriber.subscription.request(1);
+
+    Assert.assertTrue(subscriber.error instanceof RejectedExecutionException);
+    Assert.assertTrue(subscriber.elements.isEmpty());
+  }
+
+  @Test
+  public void failingOnNextCancelsSubscription() {
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(Integer element) {
+        super.onNext(element);
+        throw new RuntimeException("subscriber failed");
+      }
+    };
+    newPublisher(5).subscribe(subscriber);
+
+    subscriber.subscription.request(5);
+
+    Assert.assertEquals(list(0), subscriber.elements);
+    Assert.assertTrue(iterators.get(0).closed);
+    Assert.assertNull(subscriber.error);
+  }
+
+  private IteratorPublisher<Integer> newPublisher(int size) {
+    return new IteratorPublisher<Integer>(newSource(size), SAME_THREAD);
+  }
+
+  private Func<Iterator<Integer>> newSource(final int size) {
+    return new Func<Iterator<Integer>>() {
+      @Override
+      public Iterator<Integer> apply() {
+        CountingIterator iterator = new CountingIterator(size);
+        iterators.add(iterator);
+        return iterator;
+      }
+    };
+  }
+
+  private static List<Integer> list(Integer... values) {
+    List<Integer> list = new ArrayList<Integer>();
+    for (Integer value : values)
+      list.add(value);
+    return list;
+  }
+
+  private static class CountingIterator implements Iterator<Integer>, Closeable {
+
+    private final int size;
+    protected int pulled;
+    private boolean closed;
+
+    CountingIterator(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return pulled < size;
+    }
+
+    @Override
+    public Integer next() {
+      return pulled++;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+    }
+
+  }
+
+  private static class RecordingSubscriber implements Subscriber<Integer> {
+
+    protected Subscription subscription;
+    private final List<Integer> elements = new ArrayList<Integer>();
+    private Throwable error;
+    private boolean completed;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(Integer element) {
+      elements.add(element);
+    }
+
+    @Override
+    public void onError(Throwable cause) {
+      error = cause;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+
+  }
+
+}
@@ -0,0 +1,73 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.edm.EdmEntityType;
+import org.odata4j.edm.EdmProperty;
+import org.odata4j.edm.EdmSimpleType;
+
+public class OEntitiesTest {
+
+  private final EdmEntitySet entitySet = EdmEntitySet.newBuilder().setName("Items").setEntityType(EdmEntityType.newBuilder()
+      .setNamespace("Test").setName("Item").addKeys("Id")
+      .addProperties(EdmProperty.newBuilder("Id").setType(EdmSimpleType.INT32), EdmProperty.newBuilder("Name").setType(EdmSimpleType.STRING)))
+      .build();
+
+  @Test
+  public void createsPropertiesFromValuesOnce() {
+    OEntity entity = OEntities.createFromValues(entitySet, OEntityKey.create(1), new Object[] { 1, "a" }, null);
+
+    Assert.assertEquals(2, entity.getProperties().size());
+    OProperty<?> name = entity.getProperty("Name");
+    Assert.assertEquals("a", name.getValue());
+    Assert.assertEquals(EdmSimpleType.STRING, name.getType());
+    Assert.assertSame(name, entity.getProperties().get(1));
+    Assert.assertEquals(1, entity.getProperty("Id").getValue());
+  }
+
+  @Test
+  public void keepsGivenProperties() {
+    List<OProperty<?>> properties = new ArrayList<OProperty<?>>();
+    properties.add(OProperties.int32("Id", 1));
+    properties.add(OProperties.string("Name", "a"));
+    OEntity entity = OEntities.create(entitySet, OEntityKey.create(1), properties, null);
+
+    Assert.assertSame(properties.get(0), entity.getProperty("Id"));
+    Assert.assertSame(properties.get(1), entity.getProperties().get(1));
+  }
+
+  @Test
+  public void keepsPropertiesNotMatchingTheType() {
+    List<OProperty<?>> properties = new ArrayList<OProperty<?>>();
+    properties.add(OProperties.string("Name", "a"));
+    OEntity entity = OEntities.create(entitySet, OEntityKey.create(1), properties, null);
+
+    Assert.assertEquals(properties, entity.getProperties());
+    Assert.assertEquals("a", entity.getProperty("Name").getValue());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMissingValues() {
+    OEntities.createFromValues(entitySet, OEntityKey.create(1), new Object[] { 1 }, null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsPropertiesAsValues() {
+    OEntities.createFromValues(entitySet, OEntityKey.create(1), new Object[] { 1, OProperties.string("Name", "a") }, null);
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.expression;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpressionCacheTest {
+
+  @Test
+  public void repeatedLookupsHit() {
+    ExpressionCache cache = new ExpressionCache(16);
+    CommonExpression first = cache.parse("Name eq 'a'");
+    CommonExpression second = cache.parse("Name eq 'a'");
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, cache.getMissCount());
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void kindsAreCachedApart() {
+    ExpressionCache cache = new ExpressionCache(1024);
+    CommonExpression expression = cache.parse("Name");
+    List<OrderByExpression> orderBy = cache.parseOrderBy("Name");
+    List<EntitySimpleProperty> expand = cache.parseExpand("Name");
+
+    Assert.assertTrue(expression instanceof EntitySimpleProperty);
+    Assert.assertEquals(1, orderBy.size());
+    Assert.assertEquals(1, expand.size());
+    Assert.assertEquals(3, cache.getMissCount());
+    Assert.assertEquals(0, cache.getHitCount());
+    Assert.assertEquals(3, cache.size());
+  }
+
+  @Test
+  public void evictsBeyondMaxSize() {
+    ExpressionCache single = new ExpressionCache(1);
+    CommonExpression a = single.parse("A");
+    single.parse("B");
+    Assert.assertEquals(1, single.size());
+    Assert.assertNotSame(a, single.parse("A"));
+    Assert.assertEquals(3, single.getMissCount());
+
+    ExpressionCache cache = new ExpressionCache(32);
+    for (int i = 0; i < 200; i++)
+      cache.parse("Id eq " + i);
+    Assert.assertTrue(cache.size() <= 32);
+    Assert.assertTrue(cache.size() > 0);
+  }
+
+  @Test
+  public void keepsRecentlyUsedEntries() {
+    ExpressionCache cache = new ExpressionCache(32);
+    CommonExpression kept = cache.parse("Kept");
+    for (int i = 0; i < 200; i++) {
+      Assert.assertSame(kept, cache.parse("Kept"));
+      cache.parse("Id eq " + i);
+    }
+  }
+
+  @Test
+  public void failuresAreNotCached() {
+    ExpressionCache cache = new ExpressionCache(16);
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.parse("Name eq");
+        Assert.fail();
+      } catch (RuntimeException e) {
+        // expected
+      }
+    }
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void clearKeepsCounts() {
+    ExpressionCache cache = new ExpressionCache(16);
+    cache.parse("A");
+    cache.parse("A");
+    cache.clear();
+
+    Assert.assertEquals(0, cache.size());
+    Assert.assertEquals(1, cache.getHitCount());
+    cache.parse("A");
+    Assert.assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void listsAreUnmodifiable() {
+    ExpressionCache cache = new ExpressionCache(16);
+    List<OrderByExpression> orderBy = cache.parseOrderBy("Name desc, Id");
+    List<EntitySimpleProperty> expand = cache.parseExpand("Orders, Customer");
+    try {
+      orderBy.remove(0);
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      expand.add(Expression.simpleProperty("Other"));
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    Assert.assertEquals(2, cache.parseOrderBy("Name desc, Id").size());
+    Assert.assertEquals(2, cache.parseExpand("Orders, Customer").size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonPositiveMaxSize() {
+    new ExpressionCache(0);
+  }
+
+}
@@ -0,0 +1,84 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.expression;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpressionParserTest {
+
+  @Test
+  public void parsesCorpus() throws Exception {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(
+        getClass().getResourceAsStream("parser-corpus.txt"), "UTF-8"));
+    List<String> failures = new ArrayList<String>();
+    int cases = 0;
+    try {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (line.length() == 0 || line.startsWith("#"))
+          continue;
+        String[] fields = line.split("\t", -1);
+        Assert.assertEquals("malformed corpus line: " + line, 3, fields.length);
+        Assert.assertTrue("unknown mode: " + line, fields[0].matches("filter|orderby|expand"));
+        String actual = parse(fields[0], fields[1]);
+        if (!actual.equals(fields[2]))
+          failures.add(fields[0] + " [" + fields[1] + "]: expected " + fields[2] + " but was " + actual);
+        cases++;
+      }
+    } finally {
+      reader.close();
+    }
+    Assert.assertTrue(cases > 0);
+    Assert.assertTrue(failures.size() + " of " + cases + " cases failed: " + failures, failures.isEmpty());
+  }
+
+  @Test
+  public void parsesLongOrChain() {
+    StringBuilder filter = new StringBuilder("Id eq 0");
+    StringBuilder expected = new StringBuilder();
+    for (int i = 1; i < 300; i++) {
+      filter.append(" or Id eq ").append(i);
+      expected.append("or(eq(simpleProperty(Id),integral(").append(i - 1).append(")),");
+    }
+    expected.append("eq(simpleProperty(Id),integral(299))");
+    for (int i = 1; i < 300; i++)
+      expected.append(')');
+
+    // operators group to the right
+    Assert.assertEquals(expected.toString(), PrintExpressionVisitor.asString(ExpressionParser.parse(filter.toString())));
+  }
+
+  private static String parse(String mode, String input) {
+    Object result;
+    try {
+      if (mode.equals("filter"))
+        result = ExpressionParser.parse(input);
+      else if (mode.equals("orderby"))
+        result = ExpressionParser.parseOrderBy(input);
+      else
+        result = ExpressionParser.parseExpand(input);
+    } catch (RuntimeException e) {
+      return "ERR";
+    }
+
+    if (result instanceof CommonExpression)
+      return PrintExpressionVisitor.asString((CommonExpression) result);
+    StringBuilder rt = new StringBuilder("[");
+    for (Object item : (List<?>) result)
+      rt.append(item == null ? "null" : PrintExpressionVisitor.asString((CommonExpression) item)).append(';');
+    return rt.append(']').toString();
+  }
+
+}
@@ -0,0 +1,245 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the hand-written date and time parsing and formatting against the Joda pattern based implementation it replaced.
+ */
+public class InternalUtilTest {
+
+  private static final String[] ZONES = { "UTC", "Europe/Berlin", "America/New_York", "Asia/Kolkata" };
+
+  private DateTimeZone defaultZone;
+  private final List<String> differences = new ArrayList<String>();
+
+  @Before
+  public void saveDefaultZone() {
+    defaultZone = DateTimeZone.getDefault();
+  }
+
+  @After
+  public void restoreDefaultZone() {
+    DateTimeZone.setDefault(defaultZone);
+  }
+
+  @Test
+  public void parsesLikeJodaPatterns() {
+    String[] values = {
+        // fractions of 1 to 7 digits, and too many
+        "2011-03-04T05:06:07.1", "2011-03-04T05:06:07.12", "2011-03-04T05:06:07.123", "2011-03-04T05:06:07.1234",
+        "2011-03-04T05:06:07.12345", "2011-03-04T05:06:07.123456", "2011-03-04T05:06:07.1234567", "2011-03-04T05:06:07.12345678",
+        "2011-03-04T05:06:07.000", "2011-03-04T05:06:07.0000001", "2011-03-04T05:06:07.5+01:00", "2011-03-04T05:06.123",
+        // Z and offsets
+        "2011-03-04T05:06Z", "2011-03-04T05:06:07Z", "2011-03-04T05:06:07+00:00", "2011-03-04T05:06:07-00:00",
+        "2011-03-04T05:06:07.1Z", "2011-03-04T05:06:07-05:30", "2011-03-04T05:06:07+05:45", "2011-03-04T05:06:07+23:59",
+        "2011-03-04T05:06:07+24:00", "2011-03-04T05:06:07-12:60",
+        // local times in and around daylight saving gaps and overlaps
+        "2011-03-27T02:30", "2011-03-27T03:00", "2011-03-13T02:30", "2011-03-13T03:00", "2011-10-30T02:30", "2011-11-06T01:30",
+        "2011-03-27T02:30Z", "2011-03-13T02:30:00-05:00",
+        // years at the bounds of four digits
+        "0000-01-01T00:00", "0001-01-01T00:00", "9999-12-31T23:59:59.999",
+        // malformed
+        "", "2011", "2011-03-04", "2011-03-04T05", "2011-03-04 05:06", "2011-3-04T05:06", "201-03-04T05:06", "2011-03-04T05:06:07.",
+        "2011-03-04T05:06:7", "2011-03-04T05:06:07z", "2011-03-04T05:06:07+0100", "2011-03-04T05:06:07+01:0", "2011-03-04T05:06:07+1:00",
+        "2011-03-04T05:06:07+01:00Z", "2011-02-30T05:06:07", "2011-13-01T00:00", "2011-03-04T24:00", "2011-03-04T23:60",
+        "2011-03-04T05:06:60", "+2011-03-04T05:06", "2011-03-04T05:06:07 ", " 2011-03-04T05:06", "\u0661\u0662\u0663\u0664-03-04T05:06" };
+
+    for (String zone : ZONES) {
+      DateTimeZone.setDefault(DateTimeZone.forID(zone));
+      for (String value : values)
+        checkParse(zone, value);
+    }
+    assertNoDifferences();
+  }
+
+  @Test
+  public void parsesRandomValuesLikeJodaPatterns() {
+    Random random = new Random(42);
+    for (String zone : ZONES) {
+      DateTimeZone.setDefault(DateTimeZone.forID(zone));
+      for (int i = 0; i < 20000; i++) {
+        StringBuilder value = new StringBuilder(String.format("%04d-%02d-%02dT%02d:%02d",
+            random.nextInt(10000), random.nextInt(14), random.nextInt(33), random.nextInt(26), random.nextInt(62)));
+        if (random.nextInt(4) > 0) {
+          value.append(String.format(":%02d", random.nextInt(62)));
+          if (random.nextBoolean()) {
+            value.append('.');
+            for (int digits = random.nextInt(9); digits > 0; digits--)
+              value.append(random.nextInt(10));
+          }
+        }
+        int offset = random.nextInt(5);
+        if (offset == 1)
+          value.append('Z');
+        else if (offset > 1)
+          value.append(String.format("%s%02d:%02d", random.nextBoolean() ? "+" : "-", random.nextInt(offset == 4 ? 30 : 15), random.nextInt(offset == 4 ? 70 : 60)));
+        if (random.nextInt(50) == 0)
+          value.setCharAt(random.nextInt(value.length()), "0:-T+Z.x".charAt(random.nextInt(8)));
+        checkParse(zone, value.toString());
+      }
+    }
+    assertNoDifferences();
+  }
+
+  @Test
+  public void formatsLikeJodaPatterns() {
+    Random random = new Random(42);
+    for (String zone : ZONES) {
+      DateTimeZone.setDefault(DateTimeZone.forID(zone));
+
+      // years outside 0 to 9999
+      for (int year : new int[] { -12345, -5, 0, 99, 9999, 10000, 12345 }) {
+        checkFormat(new LocalDateTime(year, 1, 2, 3, 4, 5, 6));
+        checkFormat(new LocalDateTime(year, 1, 2, 3, 4, 5, 0));
+        checkFormat(new DateTime(year, 1, 2, 3, 4, 5, 6, DateTimeZone.forOffsetHours(-3)));
+        checkFormat(new DateTime(year, 1, 2, 3, 4, 5, 0, DateTimeZone.UTC));
+      }
+
+      for (int i = 0; i < 20000; i++) {
+        long millis = (long) ((random.nextDouble() * 2 - 0.7) * 400L * 365 * 86400000L);
+        if (random.nextInt(3) == 0)
+          millis -= millis % 1000;
+        checkFormat(new LocalDateTime(millis, DateTimeZone.UTC));
+        // offsets of whole half hours, and now and then with seconds
+        DateTimeZone offset = random.nextBoolean()
+            ? DateTimeZone.getDefault()
+            : DateTimeZone.forOffsetMillis((random.nextInt(48) - 24) * 30 * 60000 + (random.nextInt(20) == 0 ? 30000 : 0));
+        checkFormat(new DateTime(millis, offset));
+      }
+    }
+    assertNoDifferences();
+  }
+
+  @Test
+  public void roundTripsOffsets() {
+    DateTime value = new DateTime(2011, 3, 4, 5, 6, 7, 89, DateTimeZone.forOffsetHoursMinutes(-5, 30));
+    Assert.assertEquals("2011-03-04T05:06:07.089-05:30", InternalUtil.formatDateTimeOffset(value));
+    DateTime parsed = InternalUtil.parseDateTime("2011-03-04T05:06:07.089-05:30");
+    Assert.assertEquals(value.getMillis(), parsed.getMillis());
+    Assert.assertEquals(value.getZone().getOffset(0), parsed.getZone().getOffset(0));
+    Assert.assertEquals("2011-03-04T05:06:07+00:00", InternalUtil.formatDateTimeOffset(InternalUtil.parseDateTime("2011-03-04T05:06:07Z")));
+  }
+
+  private void checkParse(String zone, String value) {
+    String expected = parse(true, value);
+    String actual = parse(false, value);
+    if (!expected.equals(actual))
+      differences.add("parse " + value + " in " + zone + ": expected " + expected + " but was " + actual);
+  }
+
+  private static String parse(boolean jodaPatterns, String value) {
+    try {
+      DateTime rt = jodaPatterns ? JodaPatterns.parseDateTime(value) : InternalUtil.parseDateTime(value);
+      return rt + " " + rt.getZone() + " " + rt.getChronology();
+    } catch (IllegalArgumentException e) {
+      return "IllegalArgumentException";
+    }
+  }
+
+  private void checkFormat(LocalDateTime value) {
+    String expected = JodaPatterns.formatDateTime(value);
+    String actual = InternalUtil.formatDateTime(value);
+    if (!expected.equals(actual))
+      differences.add("format " + value + ": expected " + expected + " but was " + actual);
+  }
+
+  private void checkFormat(DateTime value) {
+    String expected = JodaPatterns.formatDateTimeOffset(value);
+    String actual = InternalUtil.formatDateTimeOffset(value);
+    if (!expected.equals(actual))
+      differences.add("format " + value + ": expected " + expected + " but was " + actual);
+  }
+
+  private void assertNoDifferences() {
+    Assert.assertTrue(differences.size() + " differences, such as " + differences.subList(0, Math.min(10, differences.size())),
+        differences.isEmpty());
+  }
+
+  /**
+   * The previous, regular expression and Joda pattern based implementation.
+   */
+  private static class JodaPatterns {
+
+    private static final Pattern DATETIME_PATTERN =
+        Pattern.compile("(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2})(:\\d{2})?(\\.\\d{1,7})?((?:(?:\\+|\\-)\\d{2}:\\d{2})|Z)?");
+
+    private static final DateTimeFormatter[] DATETIME_PARSER = new DateTimeFormatter[] {
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm"),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss"),
+        null,
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mmZZ").withOffsetParsed(),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ssZZ").withOffsetParsed(),
+        null,
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZZ").withOffsetParsed()
+    };
+
+    private static final DateTimeFormatter[] DATETIME_FORMATTER = new DateTimeFormatter[] {
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm"),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss"),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mmZZ"),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ssZZ"),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZZ"),
+        DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZZ")
+    };
+
+    static DateTime parseDateTime(String value) {
+      Matcher matcher = DATETIME_PATTERN.matcher(value);
+      if (matcher.matches()) {
+        String dateTime = matcher.group(1);
+        String seconds = matcher.group(2);
+        String nanoSeconds = matcher.group(3);
+        String timezone = matcher.group(4);
+
+        int idx = (seconds != null ? 1 : 0) + (nanoSeconds != null ? 2 : 0) + (timezone != null ? 4 : 0);
+
+        StringBuilder valueToParse = new StringBuilder(dateTime);
+        if (seconds != null)
+          valueToParse.append(seconds);
+        if (nanoSeconds != null)
+          valueToParse.append(nanoSeconds.length() > 4 ? nanoSeconds.substring(0, 4) : nanoSeconds);
+        if (timezone != null)
+          valueToParse.append("Z".equals(timezone) ? "+00:00" : timezone);
+
+        DateTimeFormatter formatter = DATETIME_PARSER[idx];
+        if (formatter != null)
+          return formatter.parseDateTime(valueToParse.toString());
+      }
+      throw new IllegalArgumentException("Illegal datetime format " + value);
+    }
+
+    static String formatDateTime(LocalDateTime dateTime) {
+      return dateTime.toString(DATETIME_FORMATTER[dateTime.getMillisOfSecond() > 0 ? 2 : 1]);
+    }
+
+    static String formatDateTimeOffset(DateTime dateTime) {
+      return dateTime.toString(DATETIME_FORMATTER[4 + (dateTime.getMillisOfSecond() > 0 ? 2 : 1)]);
+    }
+  }
+
+}
@@ -0,0 +1,77 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.consumer.ODataConsumer;
+import org.odata4j.consumer.RetryPolicy;
+import org.odata4j.core.ODataVersion;
+import org.odata4j.core.OEntity;
+import org.odata4j.jersey.consumer.behaviors.RetryBehavior;
+
+public class ConsumerQueryEntitiesRequestTest {
+
+  private final FakeService service = new FakeService();
+
+  @Test
+  public void resumesPageThatFailsWhileRead() {
+    service.failures.add("Cities");
+    Assert.assertEquals("[1, 2, 3, 4, 5, 6]", ids(newConsumer(3).getEntities("Cities").execute()));
+    Assert.assertEquals("[$metadata, Cities, Cities, Cities?$skiptoken=3]", service.requests.toString());
+  }
+
+  @Test
+  public void resumesLaterPageWithoutRepeatingEntries() {
+    service.failures.add("Cities?$skiptoken=3");
+    service.failures.add("Cities?$skiptoken=3");
+    Assert.assertEquals("[1, 2, 3, 4, 5, 6]", ids(newConsumer(3).getEntities("Cities").execute()));
+    Assert.assertEquals("[$metadata, Cities, Cities?$skiptoken=3, Cities?$skiptoken=3, Cities?$skiptoken=3]", service.requests.toString());
+  }
+
+  @Test
+  public void failsAfterMaxAttempts() {
+    service.failures.add("Cities?$skiptoken=3");
+    service.failures.add("Cities?$skiptoken=3");
+    List<Object> ids = new ArrayList<Object>();
+    try {
+      for (OEntity entity : newConsumer(2).getEntities("Cities").execute())
+        ids.add(entity.getProperty("Id").getValue());
+      Assert.fail();
+    } catch (RuntimeException e) {
+      // expected
+    }
+    Assert.assertEquals("[1, 2, 3]", ids.toString());
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void failsWithoutRetryPolicy() {
+    service.failures.add("Cities");
+    ids(ODataJerseyConsumer.newBuilder(FakeService.URI, ODataVersion.V2).setClientFactory(service).build().getEntities("Cities").execute());
+  }
+
+  private ODataConsumer newConsumer(int maxAttempts) {
+    return ODataJerseyConsumer.newBuilder(FakeService.URI, ODataVersion.V2)
+        .setClientFactory(service)
+        .setClientBehaviors(RetryBehavior.retry(new RetryPolicy(maxAttempts, 1, 10, null)))
+        .build();
+  }
+
+  private static String ids(Iterable<OEntity> entities) {
+    List<Object> ids = new ArrayList<Object>();
+    for (OEntity entity : entities)
+      ids.add(entity.getProperty("Id").getValue());
+    return ids.toString();
+  }
+
+}
@@ -0,0 +1,165 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+/**
+ * A service answering the requests of the consumers it creates the clients of, without a network.
+ *
+ * <p>It has an entity set, <code>Cities</code>, of two pages of three cities, which can be filtered by
+ * <code>Id eq</code> conditions.  Reading a page listed in {@link #failures} fails midway, once per listing.
+ * A second set, <code>Routes</code>, has a single route with a composite key.</p>
+ */
+public class FakeService implements JerseyClientFactory, ClientHandler {
+
+  public static final String URI = "http://localhost/service/";
+
+  private static final String METADATA = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+      + "<edmx:Edmx Version=\"1.0\" xmlns:edmx=\"http://schemas.microsoft.com/ado/2007/06/edmx\">"
+      + "<edmx:DataServices m:DataServiceVersion=\"1.0\" xmlns:m=\"http://schemas.microsoft.com/ado/2007/08/dataservices/metadata\">"
+      + "<Schema Namespace=\"Test\" xmlns=\"http://schemas.microsoft.com/ado/2008/09/edm\">"
+      + "<EntityType Name=\"City\"><Key><PropertyRef Name=\"Id\"/></Key>"
+      + "<Property Name=\"Id\" Type=\"Edm.Int32\" Nullable=\"false\"/><Property Name=\"Name\" Type=\"Edm.String\"/></EntityType>"
+      + "<EntityType Name=\"Route\"><Key><PropertyRef Name=\"From\"/><PropertyRef Name=\"To\"/></Key>"
+      + "<Property Name=\"From\" Type=\"Edm.Int32\" Nullable=\"false\"/><Property Name=\"To\" Type=\"Edm.Int32\" Nullable=\"false\"/></EntityType>"
+      + "<EntityContainer Name=\"Container\" m:IsDefaultEntityContainer=\"true\"><EntitySet Name=\"Cities\" EntityType=\"Test.City\"/>"
+      + "<EntitySet Name=\"Routes\" EntityType=\"Test.Route\"/></EntityContainer>"
+      + "</Schema></edmx:DataServices></edmx:Edmx>";
+
+  private static final String SERVICE_DOCUMENT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+      + "<service xml:base=\"" + URI + "\" xmlns=\"http://www.w3.org/2007/app\" xmlns:atom=\"http://www.w3.org/2005/Atom\">"
+      + "<workspace><atom:title>Default</atom:title>"
+      + "<collection href=\"Cities\"><atom:title>Cities</atom:title></collection>"
+      + "<collection href=\"Routes\"><atom:title>Routes</atom:title></collection>"
+      + "</workspace></service>";
+
+  /** The paths and queries of the requests received. */
+  public final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+  /** The bodies of the requests received, for those having one. */
+  public final List<Object> entities = Collections.synchronizedList(new ArrayList<Object>());
+
+  /** The paths and queries of the pages to fail while read. */
+  public final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+  /** The <code>Cache-Control</code> header of the pages, or null. */
+  public volatile String cacheControl;
+
+  public Client createClient(ClientConfig clientConfig) {
+    return new Client(this, clientConfig);
+  }
+
+  public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+    String path;
+    byte[] entity;
+    try {
+      path = URLDecoder.decode(request.getURI().toString().substring(URI.length()), "UTF-8");
+      requests.add(request.getMethod().equals("GET") ? path : request.getMethod() + " " + path);
+      if (request.getEntity() != null)
+        entities.add(request.getEntity());
+      entity = (path.equals("$metadata") ? METADATA : path.length() == 0 ? SERVICE_DOCUMENT : getFeed(path)).getBytes("UTF-8");
+    } catch (IOException e) {
+      throw new ClientHandlerException(e);
+    }
+    InputStream in = failures.remove(path) ? new FailingInputStream(entity, entity.length / 2) : new ByteArrayInputStream(entity);
+    InBoundHeaders headers = new InBoundHeaders();
+    if (cacheControl != null && !path.equals("$metadata"))
+      headers.putSingle("Cache-Control", cacheControl);
+    return new ClientResponse(200, headers, in, null);
+  }
+
+  private static String getFeed(String path) {
+    if (path.startsWith("Routes"))
+      return "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+          + "<feed xml:base=\"" + URI + "\" xmlns=\"http://www.w3.org/2005/Atom\""
+          + " xmlns:d=\"http://schemas.microsoft.com/ado/2007/08/dataservices\""
+          + " xmlns:m=\"http://schemas.microsoft.com/ado/2007/08/dataservices/metadata\">"
+          + "<title type=\"text\">Routes</title><id>" + URI + "Routes</id><updated>2011-01-01T00:00:00Z</updated>"
+          + "<entry><id>" + URI + "Routes(From=1,To=2)</id><title type=\"text\"/><updated>2011-01-01T00:00:00Z</updated>"
+          + "<author><name/></author><link rel=\"edit\" title=\"Route\" href=\"Routes(From=1,To=2)\"/>"
+          + "<category term=\"Test.Route\" scheme=\"http://schemas.microsoft.com/ado/2007/08/dataservices/scheme\"/>"
+          + "<content type=\"application/xml\"><m:properties><d:From m:type=\"Edm.Int32\">1</d:From>"
+          + "<d:To m:type=\"Edm.Int32\">2</d:To></m:properties></content></entry></feed>";
+    List<Integer> ids = new ArrayList<Integer>();
+    if (path.contains("$filter=")) {
+      Matcher matcher = Pattern.compile("Id eq (\\d+)").matcher(path);
+      while (matcher.find()) {
+        int id = Integer.parseInt(matcher.group(1));
+        if (id >= 1 && id <= 6)
+          ids.add(id);
+      }
+    } else {
+      int first = path.contains("$skiptoken=3") ? 4 : 1;
+      for (int id = first; id < first + 3; id++)
+        ids.add(id);
+    }
+    StringBuilder feed = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+        + "<feed xml:base=\"" + URI + "\" xmlns=\"http://www.w3.org/2005/Atom\""
+        + " xmlns:d=\"http://schemas.microsoft.com/ado/2007/08/dataservices\""
+        + " xmlns:m=\"http://schemas.microsoft.com/ado/2007/08/dataservices/metadata\">"
+        + "<title type=\"text\">Cities</title><id>" + URI + "Cities</id><updated>2011-01-01T00:00:00Z</updated>");
+    for (int id : ids)
+      feed.append("<entry><id>" + URI + "Cities(" + id + ")</id><title type=\"text\"/><updated>2011-01-01T00:00:00Z</updated>"
+          + "<author><name/></author><link rel=\"edit\" title=\"City\" href=\"Cities(" + id + ")\"/>"
+          + "<category term=\"Test.City\" scheme=\"http://schemas.microsoft.com/ado/2007/08/dataservices/scheme\"/>"
+          + "<content type=\"application/xml\"><m:properties><d:Id m:type=\"Edm.Int32\">" + id + "</d:Id>"
+          + "<d:Name>City " + id + "</d:Name></m:properties></content></entry>");
+    if (path.equals("Cities"))
+      feed.append("<link rel=\"next\" href=\"" + URI + "Cities?$skiptoken=3\"/>");
+    return feed.append("</feed>").toString();
+  }
+
+  // a connection reset after some bytes
+  private static class FailingInputStream extends InputStream {
+
+    private final InputStream in;
+    private int remaining;
+
+    FailingInputStream(byte[] buf, int failAt) {
+      this.in = new ByteArrayInputStream(buf);
+      this.remaining = failAt;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining-- <= 0)
+        throw new IOException("Connection reset");
+      return in.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0)
+        throw new IOException("Connection reset");
+      int n = in.read(b, off, Math.min(len, remaining));
+      remaining -= n;
+      return n;
+    }
+
+  }
+
+}
@@ -0,0 +1,75 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.consumer.ODataConsumer;
+import org.odata4j.consumer.behaviors.OClientBehavior;
+import org.odata4j.consumer.behaviors.OClientBehaviors;
+import org.odata4j.core.ODataVersion;
+import org.odata4j.jersey.consumer.behaviors.RequestCoalescingBehavior;
+import org.odata4j.jersey.consumer.behaviors.ResponseCacheBehavior;
+
+public class ODataJerseyClientTest {
+
+  private final FakeService service = new FakeService();
+
+  @Test
+  public void sharesCoalescedReadsBetweenConsumers() {
+    String uri = FakeService.URI + "?" + ODataJerseyClientTest.class.getName();
+    read(newConsumer(RequestCoalescingBehavior.coalesceRequests(uri, 10000)));
+    read(newConsumer(RequestCoalescingBehavior.coalesceRequests(uri, 10000)));
+    Assert.assertEquals("[$metadata, Cities, Cities?$skiptoken=3, $metadata]", service.requests.toString());
+  }
+
+  @Test
+  public void doesNotShareCoalescedReadsBetweenCredentials() {
+    String uri = FakeService.URI + "?" + ODataJerseyClientTest.class.getName() + "/credentials";
+    read(newConsumer(RequestCoalescingBehavior.coalesceRequests(uri, 10000), OClientBehaviors.basicAuth("a", "secret")));
+    read(newConsumer(RequestCoalescingBehavior.coalesceRequests(uri, 10000), OClientBehaviors.basicAuth("b", "secret")));
+    read(newConsumer(RequestCoalescingBehavior.coalesceRequests(uri, 10000), OClientBehaviors.basicAuth("a", "secret")));
+    Assert.assertEquals("[$metadata, Cities, Cities?$skiptoken=3, $metadata, Cities, Cities?$skiptoken=3, $metadata]", service.requests.toString());
+  }
+
+  @Test
+  public void sharesCachedReadsBetweenConsumers() {
+    String uri = FakeService.URI + "?" + ODataJerseyClientTest.class.getName();
+    service.cacheControl = "max-age=60";
+    read(newConsumer(ResponseCacheBehavior.responseCache(uri, 10)));
+    read(newConsumer(ResponseCacheBehavior.responseCache(uri, 10)));
+    read(newConsumer(ResponseCacheBehavior.responseCache(uri, 10), OClientBehaviors.basicAuth("a", "secret")));
+    Assert.assertEquals("[$metadata, Cities, Cities?$skiptoken=3, $metadata, $metadata, Cities, Cities?$skiptoken=3]", service.requests.toString());
+  }
+
+  @Test
+  public void invalidatesCachedReadsOnWrite() {
+    String uri = FakeService.URI + "?" + ODataJerseyClientTest.class.getName() + "/write";
+    service.cacheControl = "max-age=60";
+    ODataConsumer consumer = newConsumer(ResponseCacheBehavior.responseCache(uri, 10));
+    read(consumer);
+    read(consumer);
+    consumer.deleteEntity("Cities", 1, false).execute(FakeService.URI);
+    read(consumer);
+    Assert.assertEquals("[$metadata, Cities, Cities?$skiptoken=3, DELETE Cities(1), Cities, Cities?$skiptoken=3]", service.requests.toString());
+  }
+
+  private ODataConsumer newConsumer(OClientBehavior... behaviors) {
+    return ODataJerseyConsumer.newBuilder(FakeService.URI, ODataVersion.V2)
+        .setClientFactory(service)
+        .setClientBehaviors(behaviors)
+        .build();
+  }
+
+  private static void read(ODataConsumer consumer) {
+    Assert.assertEquals(6, consumer.getEntities("Cities").execute().count());
+  }
+
+}
@@ -0,0 +1,85 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AsyncExecutionBehaviorTest {
+
+  @Test
+  public void rejectsRequestsBeyondQueue() throws Exception {
+    ExecutorService executor = ((AsyncExecutionBehavior) AsyncExecutionBehavior.asyncExecution(1, 1)).getExecutor();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    try {
+      executor.execute(new Runnable() {
+        public void run() {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+      final CountDownLatch queuedRan = new CountDownLatch(1);
+      executor.execute(new Runnable() {
+        public void run() {
+          queuedRan.countDown();
+        }
+      });
+      try {
+        executor.execute(new Runnable() {
+          public void run() {}
+        });
+        Assert.fail();
+      } catch (RejectedExecutionException e) {
+        // expected
+      }
+      release.countDown();
+      Assert.assertTrue(queuedRan.await(1, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shutsDownDefaultExecutorOnLastRelease() {
+    AsyncExecutionBehavior.retainDefaultExecutor();
+    AsyncExecutionBehavior.retainDefaultExecutor();
+    ExecutorService executor = AsyncExecutionBehavior.getDefaultExecutor();
+
+    AsyncExecutionBehavior.releaseDefaultExecutor();
+    Assert.assertFalse(executor.isShutdown());
+    Assert.assertSame(executor, AsyncExecutionBehavior.getDefaultExecutor());
+
+    AsyncExecutionBehavior.releaseDefaultExecutor();
+    Assert.assertTrue(executor.isShutdown());
+
+    ExecutorService replacement = AsyncExecutionBehavior.getDefaultExecutor();
+    Assert.assertNotSame(executor, replacement);
+    Assert.assertFalse(replacement.isShutdown());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectsUnmatchedRelease() {
+    AsyncExecutionBehavior.releaseDefaultExecutor();
+  }
+
+}
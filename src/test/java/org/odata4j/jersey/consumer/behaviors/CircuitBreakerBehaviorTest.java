@@ -0,0 +1,79 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.consumer.behaviors.CircuitBreaker;
+import org.odata4j.consumer.behaviors.CircuitBreakerOpenException;
+import org.odata4j.consumer.behaviors.RateLimiter;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+public class CircuitBreakerBehaviorTest {
+
+  private static final String URI = "http://localhost/service/Cities";
+
+  private int status = 200;
+  private int requests;
+
+  @Test
+  public void doesNotCountRateLimiterWaitsAsSlow() {
+    CircuitBreaker breaker = new CircuitBreaker(URI, 100, 50, 4, 100, 10000, 1);
+    Client client = newClient(breaker, new RateLimiter(5, 1, 0, false));
+
+    for (int i = 0; i < 3; i++)
+      Assert.assertEquals(200, client.resource(URI).get(ClientResponse.class).getStatus());
+    Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    Assert.assertEquals(0, breaker.getSlowCallRate());
+  }
+
+  @Test
+  public void rejectsWithoutWaitingForRateLimiter() {
+    CircuitBreaker breaker = new CircuitBreaker(URI, 50, 100, 2, 10000, 10000, 1);
+    RateLimiter limiter = new RateLimiter(0.1, 1, 0, false);
+    Client client = newClient(breaker, limiter);
+    status = 503;
+
+    Assert.assertEquals(503, client.resource(URI).get(ClientResponse.class).getStatus());
+    Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    long start = System.currentTimeMillis();
+    try {
+      client.resource(URI).get(ClientResponse.class);
+      Assert.fail();
+    } catch (CircuitBreakerOpenException e) {
+      // expected
+    }
+    Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+    Assert.assertEquals(1, requests);
+  }
+
+  // the breaker outside the limiter, as the connector adds them
+  private Client newClient(CircuitBreaker breaker, RateLimiter limiter) {
+    Client client = new Client(new ClientHandler() {
+      public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+        requests++;
+        return new ClientResponse(status, new InBoundHeaders(), new ByteArrayInputStream(new byte[0]), null);
+      }
+    });
+    new RateLimitBehavior(limiter).modifyClientFilters(client);
+    new CircuitBreakerBehavior(breaker).modifyClientFilters(client);
+    return client;
+  }
+
+}
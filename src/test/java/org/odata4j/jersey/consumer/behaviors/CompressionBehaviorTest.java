@@ -0,0 +1,223 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.MediaType;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.consumer.RetryPolicy;
+import org.odata4j.core.ODataConstants;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.multipart.BodyPart;
+import com.sun.jersey.multipart.MultiPart;
+
+public class CompressionBehaviorTest {
+
+  private static final String URI = "http://localhost/service/Cities";
+  private static final String BODY = "<entry><content>City</content></entry>";
+
+  private final RecordingHandler handler = new RecordingHandler();
+  private final Client client = new Client(handler);
+
+  @Test
+  public void decodesGzip() throws IOException {
+    handler.respond(200, "gzip", gzip(BODY.getBytes("UTF-8")));
+    CompressionBehavior.compression(-1).modifyClientFilters(client);
+
+    ClientResponse response = client.resource(URI).get(ClientResponse.class);
+
+    Assert.assertEquals("gzip, deflate", handler.requests.get(0).getHeaders().getFirst(ODataConstants.Headers.ACCEPT_ENCODING));
+    Assert.assertEquals(BODY, read(response.getEntityInputStream()));
+    Assert.assertNull(response.getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING));
+  }
+
+  @Test
+  public void decodesZlibDeflate() throws IOException {
+    handler.respond(200, "deflate", deflate(BODY.getBytes("UTF-8"), false));
+    CompressionBehavior.compression(-1).modifyClientFilters(client);
+
+    ClientResponse response = client.resource(URI).get(ClientResponse.class);
+
+    Assert.assertEquals(BODY, read(response.getEntityInputStream()));
+    Assert.assertNull(response.getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING));
+  }
+
+  @Test
+  public void decodesRawDeflate() throws IOException {
+    handler.respond(200, "Deflate", deflate(BODY.getBytes("UTF-8"), true));
+    CompressionBehavior.compression(-1).modifyClientFilters(client);
+
+    ClientResponse response = client.resource(URI).get(ClientResponse.class);
+
+    Assert.assertEquals(BODY, read(response.getEntityInputStream()));
+  }
+
+  @Test
+  public void keepsOtherEncodingsAndAcceptEncoding() throws IOException {
+    handler.respond(200, "br", BODY.getBytes("UTF-8"));
+    CompressionBehavior.compression(-1).modifyClientFilters(client);
+
+    ClientResponse response = client.resource(URI).header(ODataConstants.Headers.ACCEPT_ENCODING, "br").get(ClientResponse.class);
+
+    Assert.assertEquals("br", handler.requests.get(0).getHeaders().getFirst(ODataConstants.Headers.ACCEPT_ENCODING));
+    Assert.assertEquals("br", response.getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertEquals(BODY, read(response.getEntityInputStream()));
+  }
+
+  @Test
+  public void removesEncodingOfEmptyResponses() {
+    handler.respond(204, "gzip", null);
+    CompressionBehavior.compression(-1).modifyClientFilters(client);
+
+    ClientResponse response = client.resource(URI).get(ClientResponse.class);
+
+    Assert.assertEquals(204, response.getStatus());
+    Assert.assertNull(response.getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING));
+  }
+
+  @Test
+  public void encodesStringBodiesFromThreshold() throws IOException {
+    CompressionBehavior.compression(BODY.length()).modifyClientFilters(client);
+
+    client.resource(URI).post(ClientResponse.class, BODY.substring(1));
+    client.resource(URI).post(ClientResponse.class, BODY);
+
+    Assert.assertNull(handler.requests.get(0).getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertEquals(BODY.substring(1), new String(handler.bodies.get(0), "UTF-8"));
+    Assert.assertEquals("gzip", handler.requests.get(1).getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertEquals(BODY, read(new GZIPInputStream(new ByteArrayInputStream(handler.bodies.get(1)))));
+  }
+
+  @Test
+  public void neverEncodesWithNegativeThreshold() {
+    CompressionBehavior.compression(-1).modifyClientFilters(client);
+
+    client.resource(URI).post(ClientResponse.class, BODY);
+
+    Assert.assertNull(handler.requests.get(0).getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING));
+  }
+
+  @Test
+  public void sizesMultiPartBodiesByTheirParts() {
+    CompressionBehavior.compression(2 * BODY.length()).modifyClientFilters(client);
+
+    client.resource(URI).type("multipart/mixed").post(ClientResponse.class, multiPart(BODY));
+    client.resource(URI).type("multipart/mixed").post(ClientResponse.class, multiPart(BODY, BODY));
+
+    Assert.assertNull(handler.requests.get(0).getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertEquals("gzip", handler.requests.get(1).getHeaders().getFirst(ODataConstants.Headers.CONTENT_ENCODING));
+  }
+
+  @Test
+  public void encodesRetriedRequestsOnce() throws IOException {
+    handler.respond(503, null, null);
+    // added last, as the connector does, so that every attempt goes through compression
+    CompressionBehavior.compression(0).modifyClientFilters(client);
+    RetryBehavior.retry(new RetryPolicy(2, 0, 0, Collections.singleton(503))).modifyClientFilters(client);
+
+    ClientResponse response = client.resource(URI).put(ClientResponse.class, BODY);
+
+    Assert.assertEquals(200, response.getStatus());
+    Assert.assertEquals(2, handler.bodies.size());
+    for (byte[] body : handler.bodies)
+      Assert.assertEquals(BODY, read(new GZIPInputStream(new ByteArrayInputStream(body))));
+    Assert.assertEquals(1, handler.requests.get(1).getHeaders().get(ODataConstants.Headers.CONTENT_ENCODING).size());
+  }
+
+  private static MultiPart multiPart(String... entities) {
+    MultiPart rt = new MultiPart();
+    for (String entity : entities)
+      rt.bodyPart(new BodyPart(entity, MediaType.TEXT_PLAIN_TYPE));
+    return rt;
+  }
+
+  private static byte[] gzip(byte[] data) throws IOException {
+    ByteArrayOutputStream rt = new ByteArrayOutputStream();
+    OutputStream out = new GZIPOutputStream(rt);
+    out.write(data);
+    out.close();
+    return rt.toByteArray();
+  }
+
+  private static byte[] deflate(byte[] data, boolean raw) throws IOException {
+    ByteArrayOutputStream rt = new ByteArrayOutputStream();
+    OutputStream out = new DeflaterOutputStream(rt, new Deflater(Deflater.DEFAULT_COMPRESSION, raw));
+    out.write(data);
+    out.close();
+    return rt.toByteArray();
+  }
+
+  private static String read(InputStream in) throws IOException {
+    ByteArrayOutputStream rt = new ByteArrayOutputStream();
+    byte[] buf = new byte[256];
+    for (int n; (n = in.read(buf)) > 0;)
+      rt.write(buf, 0, n);
+    return rt.toString("UTF-8");
+  }
+
+  /**
+   * Records the requests and the bytes their string bodies are written as, answering the queued responses, then 200.
+   */
+  private static class RecordingHandler implements ClientHandler {
+
+    final List<ClientRequest> requests = new ArrayList<ClientRequest>();
+    final List<byte[]> bodies = new ArrayList<byte[]>();
+    private final LinkedList<Object[]> responses = new LinkedList<Object[]>();
+
+    void respond(int status, String encoding, byte[] entity) {
+      responses.add(new Object[] { status, encoding, entity });
+    }
+
+    public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+      requests.add(request);
+      try {
+        if (request.getEntity() instanceof String) {
+          ByteArrayOutputStream body = new ByteArrayOutputStream();
+          OutputStream out = request.getAdapter().adapt(request, body);
+          out.write(((String) request.getEntity()).getBytes("UTF-8"));
+          out.close();
+          bodies.add(body.toByteArray());
+        }
+      } catch (IOException e) {
+        throw new ClientHandlerException(e);
+      }
+
+      Object[] response = responses.isEmpty() ? new Object[] { 200, null, null } : responses.removeFirst();
+      InBoundHeaders headers = new InBoundHeaders();
+      if (response[1] != null)
+        headers.putSingle(ODataConstants.Headers.CONTENT_ENCODING, (String) response[1]);
+      InputStream in = new ByteArrayInputStream(response[2] == null ? new byte[0] : (byte[]) response[2]);
+      return new ClientResponse((Integer) response[0], headers, in, null);
+    }
+  }
+
+}
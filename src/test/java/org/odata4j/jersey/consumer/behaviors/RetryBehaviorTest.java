@@ -0,0 +1,124 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.jersey.consumer.behaviors;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.consumer.RetryPolicy;
+import org.odata4j.core.ODataConstants;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.core.header.InBoundHeaders;
+
+public class RetryBehaviorTest {
+
+  private static final String URI = "http://localhost/service/Cities";
+
+  private final List<String> requests = new ArrayList<String>();
+
+  @Test
+  public void retriesRetryableStatuses() {
+    Client client = newClient(3, null, 503, 500, 200);
+    Assert.assertEquals(200, client.resource(URI).get(ClientResponse.class).getStatus());
+    Assert.assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void returnsLastResponseAfterMaxAttempts() {
+    Client client = newClient(3, null, 503);
+    Assert.assertEquals(503, client.resource(URI).get(ClientResponse.class).getStatus());
+    Assert.assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void doesNotRetryOtherStatuses() {
+    Client client = newClient(3, null, 404, 200);
+    Assert.assertEquals(404, client.resource(URI).get(ClientResponse.class).getStatus());
+    Assert.assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void retriesIOErrors() {
+    Client client = newClient(3, null, -1, -1, 200);
+    Assert.assertEquals(200, client.resource(URI).get(ClientResponse.class).getStatus());
+    Assert.assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void doesNotRetryPost() {
+    Client client = newClient(3, null, 503);
+    Assert.assertEquals(503, client.resource(URI).post(ClientResponse.class).getStatus());
+    Assert.assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void doesNotRetryTunneledMerge() {
+    Client client = newClient(3, null, 503);
+    ClientResponse response = client.resource(URI + "(1)")
+        .header(ODataConstants.Headers.X_HTTP_METHOD, "MERGE")
+        .post(ClientResponse.class);
+    Assert.assertEquals(503, response.getStatus());
+    Assert.assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void retriesTunneledDelete() {
+    Client client = newClient(3, null, 503, 204);
+    ClientResponse response = client.resource(URI + "(1)")
+        .header(ODataConstants.Headers.X_HTTP_METHOD, "DELETE")
+        .post(ClientResponse.class);
+    Assert.assertEquals(204, response.getStatus());
+    Assert.assertEquals(2, requests.size());
+  }
+
+  @Test
+  public void doesNotRetryAfterLongerThanMaxBackoff() {
+    Client client = newClient(3, "120", 503, 200);
+    ClientResponse response = client.resource(URI).get(ClientResponse.class);
+    Assert.assertEquals(503, response.getStatus());
+    Assert.assertEquals("120", response.getHeaders().getFirst(ODataConstants.Headers.RETRY_AFTER));
+    Assert.assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void retriesAfterShorterThanMaxBackoff() {
+    Client client = newClient(3, "0", 503, 200);
+    Assert.assertEquals(200, client.resource(URI).get(ClientResponse.class).getStatus());
+    Assert.assertEquals(2, requests.size());
+  }
+
+  // answers with the given statuses in turn, repeating the last one; -1 fails with an I/O error
+  private Client newClient(int maxAttempts, final String retryAfter, final int... statuses) {
+    Client client = new Client(new ClientHandler() {
+      public ClientResponse handle(ClientRequest request) throws ClientHandlerException {
+        int status = statuses[Math.min(requests.size(), statuses.length - 1)];
+        requests.add(request.getMethod() + " " + request.getURI());
+        if (status == -1)
+          throw new ClientHandlerException(new IOException("Connection reset"));
+        InBoundHeaders headers = new InBoundHeaders();
+        if (retryAfter != null)
+          headers.putSingle(ODataConstants.Headers.RETRY_AFTER, retryAfter);
+        return new ClientResponse(status, headers, new ByteArrayInputStream(new byte[0]), null);
+      }
+    });
+    RetryBehavior.retry(new RetryPolicy(maxAttempts, 1, 10, null)).modifyClientFilters(client);
+    return client;
+  }
+
+}
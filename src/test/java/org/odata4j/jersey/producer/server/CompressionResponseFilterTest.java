@@ -0,0 +1,270 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.jersey.producer.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HEAD;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.core.ODataConstants;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+import com.sun.jersey.spi.container.WebApplication;
+import com.sun.jersey.spi.container.WebApplicationFactory;
+
+public class CompressionResponseFilterTest {
+
+  @Test
+  public void negotiatesGzipThenDeflate() {
+    Assert.assertNull(CompressionResponseFilter.negotiate(null));
+    Assert.assertNull(CompressionResponseFilter.negotiate("identity"));
+    Assert.assertEquals("gzip", CompressionResponseFilter.negotiate("gzip"));
+    Assert.assertEquals("gzip", CompressionResponseFilter.negotiate("x-gzip"));
+    Assert.assertEquals("gzip", CompressionResponseFilter.negotiate("deflate, GZIP;q=0.5"));
+    Assert.assertEquals("gzip", CompressionResponseFilter.negotiate("*"));
+    Assert.assertEquals("deflate", CompressionResponseFilter.negotiate("deflate"));
+  }
+
+  @Test
+  public void skipsRefusedEncodings() {
+    Assert.assertEquals("deflate", CompressionResponseFilter.negotiate("gzip;q=0, deflate"));
+    Assert.assertNull(CompressionResponseFilter.negotiate("gzip; Q = 0.0, deflate;q=0"));
+    Assert.assertNull(CompressionResponseFilter.negotiate("*;q=0"));
+    Assert.assertEquals("gzip", CompressionResponseFilter.negotiate("gzip;q=0.01"));
+  }
+
+  @Test
+  public void compressesLargeResponses() throws IOException {
+    Result result = get("known/4096", "gzip, deflate");
+
+    Assert.assertEquals("gzip", result.header(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertEquals("Accept-Encoding", result.header("Vary"));
+    Assert.assertEquals(-1, result.contentLength);
+    Assert.assertArrayEquals(data(4096), read(new GZIPInputStream(new ByteArrayInputStream(result.body))));
+  }
+
+  @Test
+  public void compressesWithDeflate() throws IOException {
+    Result result = get("known/4096", "deflate");
+
+    Assert.assertEquals("deflate", result.header(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertArrayEquals(data(4096), read(new InflaterInputStream(new ByteArrayInputStream(result.body))));
+  }
+
+  @Test
+  public void sendsResponsesAsTheyAreWithoutAcceptEncoding() {
+    Result result = get("known/4096", null);
+
+    Assert.assertNull(result.header(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertEquals("Accept-Encoding", result.header("Vary"));
+    Assert.assertArrayEquals(data(4096), result.body);
+  }
+
+  @Test
+  public void sendsSmallResponsesOfKnownLengthAsTheyAre() {
+    Result result = get("known/100", "gzip");
+
+    Assert.assertNull(result.header(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertEquals(100, result.contentLength);
+    Assert.assertArrayEquals(data(100), result.body);
+  }
+
+  @Test
+  public void holdsBackStreamedResponsesUntilLargeEnough() throws IOException {
+    Result small = get("streamed/1000", "gzip");
+
+    Assert.assertNull(small.header(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertEquals(1000, small.contentLength);
+    Assert.assertArrayEquals(data(1000), small.body);
+
+    Result large = get("streamed/5000", "gzip");
+
+    Assert.assertEquals("gzip", large.header(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertEquals(-1, large.contentLength);
+    Assert.assertArrayEquals(data(5000), read(new GZIPInputStream(new ByteArrayInputStream(large.body))));
+  }
+
+  @Test
+  public void leavesTaggedResponsesAlone() {
+    Result result = get("tagged", "gzip");
+
+    Assert.assertNull(result.header(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertNull(result.header("Vary"));
+    Assert.assertArrayEquals(data(4096), result.body);
+  }
+
+  @Test
+  public void leavesEncodedResponsesAlone() {
+    Result result = get("encoded", "gzip");
+
+    Assert.assertEquals("identity", result.header(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertNull(result.header("Vary"));
+    Assert.assertArrayEquals(data(4096), result.body);
+  }
+
+  @Test
+  public void leavesHeadResponsesAlone() {
+    Result result = request("HEAD", "known/4096", "gzip", newConfig());
+
+    Assert.assertNull(result.header(ODataConstants.Headers.CONTENT_ENCODING));
+  }
+
+  @Test
+  public void readsMinSizeAndLevelFromConfig() throws IOException {
+    ResourceConfig config = newConfig();
+    config.getProperties().put(CompressionResponseFilter.MIN_SIZE_PROPNAME, "50");
+    config.getProperties().put(CompressionResponseFilter.LEVEL_PROPNAME, 0);
+    Result stored = request("GET", "known/100", "gzip", config);
+
+    Assert.assertEquals("gzip", stored.header(ODataConstants.Headers.CONTENT_ENCODING));
+    Assert.assertTrue(stored.body.length > 100);
+    Assert.assertArrayEquals(data(100), read(new GZIPInputStream(new ByteArrayInputStream(stored.body))));
+
+    config = newConfig();
+    config.getProperties().put(CompressionResponseFilter.MIN_SIZE_PROPNAME, 50);
+    config.getProperties().put(CompressionResponseFilter.LEVEL_PROPNAME, "9");
+    Result best = request("GET", "known/100", "gzip", config);
+
+    Assert.assertTrue(best.body.length < stored.body.length);
+  }
+
+  @Path("/")
+  public static class Resource {
+
+    @GET
+    @Path("known/{size}")
+    public byte[] known(@PathParam("size") int size) {
+      return data(size);
+    }
+
+    @GET
+    @Path("streamed/{size}")
+    public StreamingOutput streamed(@PathParam("size") final int size) {
+      return new StreamingOutput() {
+        @Override
+        public void write(OutputStream out) throws IOException {
+          byte[] data = data(size);
+          for (int i = 0; i < size; i += 100) {
+            out.write(data, i, Math.min(100, size - i));
+            out.flush();
+          }
+        }
+      };
+    }
+
+    @HEAD
+    @Path("known/{size}")
+    public Response head(@PathParam("size") int size) {
+      return Response.ok(data(size)).build();
+    }
+
+    @GET
+    @Path("tagged")
+    public Response tagged() {
+      return Response.ok(data(4096)).tag(new EntityTag("v1")).build();
+    }
+
+    @GET
+    @Path("encoded")
+    public Response encoded() {
+      return Response.ok(data(4096)).header(ODataConstants.Headers.CONTENT_ENCODING, "identity").build();
+    }
+  }
+
+  private static byte[] data(int size) {
+    byte[] rt = new byte[size];
+    for (int i = 0; i < size; i++)
+      rt[i] = (byte) ('a' + i % 26);
+    return rt;
+  }
+
+  private static ResourceConfig newConfig() {
+    ResourceConfig rt = new DefaultResourceConfig(Resource.class);
+    rt.getProperties().put(ResourceConfig.PROPERTY_CONTAINER_RESPONSE_FILTERS, CompressionResponseFilter.class.getName());
+    return rt;
+  }
+
+  private static Result get(String path, String acceptEncoding) {
+    return request("GET", path, acceptEncoding, newConfig());
+  }
+
+  private static Result request(String method, String path, String acceptEncoding, ResourceConfig config) {
+    WebApplication app = WebApplicationFactory.createWebApplication();
+    app.initiate(config);
+    InBoundHeaders headers = new InBoundHeaders();
+    if (acceptEncoding != null)
+      headers.putSingle(ODataConstants.Headers.ACCEPT_ENCODING, acceptEncoding);
+    Result rt = new Result();
+    try {
+      app.handleRequest(new ContainerRequest(app, method, URI.create("http://localhost/"), URI.create("http://localhost/" + path), headers,
+          new ByteArrayInputStream(new byte[0])), rt);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      app.destroy();
+    }
+    return rt;
+  }
+
+  private static byte[] read(InputStream in) throws IOException {
+    ByteArrayOutputStream rt = new ByteArrayOutputStream();
+    byte[] buf = new byte[256];
+    for (int n; (n = in.read(buf)) > 0;)
+      rt.write(buf, 0, n);
+    return rt.toByteArray();
+  }
+
+  private static class Result implements ContainerResponseWriter {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private ContainerResponse response;
+    private long contentLength;
+    private byte[] body;
+
+    @Override
+    public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) {
+      this.contentLength = contentLength;
+      this.response = response;
+      return out;
+    }
+
+    @Override
+    public void finish() {
+      body = out.toByteArray();
+    }
+
+    String header(String name) {
+      Object rt = response.getHttpHeaders().getFirst(name);
+      return rt == null ? null : rt.toString();
+    }
+  }
+
+}
@@ -0,0 +1,185 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+package org.odata4j.producer.inmemory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.core4j.Func1;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InMemoryEntityStoreTest {
+
+  private static final int KEYS = 4;
+
+  public static class Item {
+    final int id;
+    final int value;
+
+    Item(int id, int value) {
+      this.id = id;
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+      return id + "=" + value;
+    }
+  }
+
+  private static InMemoryEntityStore<Item> newStore() {
+    return new InMemoryEntityStore<Item>(new Func1<Object, Object>() {
+      public Object apply(Object input) {
+        return ((Item) input).id;
+      }
+    });
+  }
+
+  @Test
+  public void snapshotSeesPointInTime() {
+    InMemoryEntityStore<Item> store = newStore();
+    store.add(new Item(1, 1));
+    store.add(new Item(2, 1));
+
+    InMemoryEntityStore<Item>.Snapshot snapshot = store.snapshot();
+    try {
+      store.put(new Item(1, 2));
+      store.remove(2);
+      store.add(new Item(3, 1));
+
+      Assert.assertEquals(1, snapshot.get(1).value);
+      Assert.assertEquals(1, snapshot.get(2).value);
+      Assert.assertNull(snapshot.get(3));
+      Assert.assertEquals("[1=1, 2=1]", toList(snapshot).toString());
+    } finally {
+      snapshot.close();
+    }
+    Assert.assertEquals("[1=2, 3=1]", store.toList().toString());
+  }
+
+  @Test
+  public void closingOldestSnapshotDiscardsVersionsOfEverySlot() {
+    InMemoryEntityStore<Item> store = newStore();
+    Item old = new Item(1, 1);
+    store.add(old);
+    store.add(new Item(2, 1));
+    WeakReference<Item> ref = new WeakReference<Item>(old);
+    old = null;
+
+    InMemoryEntityStore<Item>.Snapshot snapshot = store.snapshot();
+    store.put(new Item(1, 2));
+    // only slot 2 is written once the snapshot is closed
+    snapshot.close();
+    store.put(new Item(2, 2));
+
+    for (int i = 0; i < 50 && ref.get() != null; i++) {
+      System.gc();
+      Thread.yield();
+    }
+    Assert.assertNull("the superseded version is still reachable", ref.get());
+  }
+
+  @Test
+  public void snapshotsStayConsistentUnderConcurrentWrites() throws Exception {
+    final InMemoryEntityStore<Item> store = newStore();
+    for (int i = 0; i < KEYS; i++)
+      store.add(new Item(i, 0));
+
+    final AtomicBoolean stop = new AtomicBoolean();
+    final AtomicReference<String> failure = new AtomicReference<String>();
+    final CountDownLatch done = new CountDownLatch(6);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int w = 0; w < 2; w++) {
+      final int seed = w;
+      threads.add(new Thread() {
+        public void run() {
+          Random random = new Random(seed);
+          try {
+            for (int n = 1; !stop.get(); n++)
+              store.put(new Item(random.nextInt(KEYS), n));
+          } finally {
+            done.countDown();
+          }
+        }
+      });
+    }
+    for (int r = 0; r < 4; r++) {
+      threads.add(new Thread() {
+        public void run() {
+          try {
+            while (!stop.get() && failure.get() == null) {
+              InMemoryEntityStore<Item>.Snapshot snapshot = store.snapshot();
+              try {
+                List<Item> first = toList(snapshot);
+                List<Item> second = toList(snapshot);
+                if (first.size() != KEYS || !first.toString().equals(second.toString()))
+                  failure.compareAndSet(null, "snapshot " + snapshot.getVersion() + " saw " + first + " then " + second);
+              } finally {
+                snapshot.close();
+              }
+            }
+          } finally {
+            done.countDown();
+          }
+        }
+      });
+    }
+    for (Thread thread : threads)
+      thread.start();
+    Thread.sleep(2000);
+    stop.set(true);
+    done.await();
+
+    Assert.assertNull(failure.get(), failure.get());
+  }
+
+  @Test
+  public void rejectsIncompleteKeys() {
+    InMemoryEntityStore<Item> store = new InMemoryEntityStore<Item>(new Func1<Object, Object>() {
+      public Object apply(Object input) {
+        Item item = (Item) input;
+        if (item.id < 0)
+          return null;
+        return Arrays.asList(item.id, item.value < 0 ? null : item.value);
+      }
+    });
+    for (Item item : new Item[] { new Item(-1, 1), new Item(1, -1) }) {
+      try {
+        store.add(item);
+        Assert.fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+      try {
+        store.put(item);
+        Assert.fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+    Assert.assertTrue(store.toList().isEmpty());
+    Assert.assertEquals(0, store.getVersion());
+  }
+
+  private static List<Item> toList(Iterable<Item> items) {
+    List<Item> rt = new ArrayList<Item>();
+    for (Item item : items)
+      rt.add(item);
+    return rt;
+  }
+
+}
@@ -0,0 +1,260 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.producer.inmemory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.core4j.Func;
+import org.core4j.Func1;
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.core.OEntity;
+import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.expression.ExpressionParser;
+import org.odata4j.producer.QueryInfo;
+
+public class InMemoryIndexesTest {
+
+  public static class Row {
+    private final int id;
+    private final Integer score;
+    private final String name;
+
+    public Row(int id, Integer score, String name) {
+      this.id = id;
+      this.score = score;
+      this.name = name;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public Integer getScore() {
+      return score;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  private static List<Row> newRows(int count) {
+    return newRows(count, true);
+  }
+
+  private static List<Row> newRows(int count, boolean nulls) {
+    List<Row> rows = new ArrayList<Row>();
+    for (int i = 0; i < count; i++)
+      rows.add(new Row(i, nulls && i % 23 == 0 ? null : Integer.valueOf(i % 17), "n" + (i % 5)));
+    return rows;
+  }
+
+  private static InMemoryIndexes newIndexes(List<Row> rows) {
+    InMemoryEntityInfo<Row> ei = new InMemoryEntityInfo<Row>();
+    ei.keys = new String[] { "Id" };
+    ei.properties = new BeanBasedPropertyModel(Row.class);
+    ei.id = new Func1<Object, HashMap<String, Object>>() {
+      public HashMap<String, Object> apply(Object input) {
+        HashMap<String, Object> rt = new HashMap<String, Object>();
+        rt.put("Id", ((Row) input).getId());
+        return rt;
+      }
+    };
+    Map<String, InMemoryIndexType> indexTypes = new LinkedHashMap<String, InMemoryIndexType>();
+    indexTypes.put("Score", InMemoryIndexType.SORTED);
+    indexTypes.put("Name", InMemoryIndexType.HASH);
+    ei.indexTypes = indexTypes;
+    return new InMemoryIndexes(ei, rows, 0);
+  }
+
+  private static BoolCommonExpression filter(String filter) {
+    return (BoolCommonExpression) ExpressionParser.parse(filter);
+  }
+
+  private static int[] plan(InMemoryIndexes indexes, String filter) {
+    return indexes.plan(filter(filter));
+  }
+
+  private static int[] expected(List<Row> rows, Func1<Row, Boolean> predicate) {
+    List<Integer> rt = new ArrayList<Integer>();
+    for (int i = 0; i < rows.size(); i++) {
+      if (predicate.apply(rows.get(i)))
+        rt.add(i);
+    }
+    int[] array = new int[rt.size()];
+    for (int i = 0; i < array.length; i++)
+      array[i] = rt.get(i);
+    return array;
+  }
+
+  @Test
+  public void equalityUsesHashIndex() {
+    List<Row> rows = newRows(50);
+    int[] rt = plan(newIndexes(rows), "Name eq 'n2'");
+    Assert.assertArrayEquals(expected(rows, new Func1<Row, Boolean>() {
+      public Boolean apply(Row input) {
+        return input.getName().equals("n2");
+      }
+    }), rt);
+  }
+
+  @Test
+  public void rangeUsesSortedIndexInRowOrder() {
+    List<Row> rows = newRows(200);
+    int[] rt = plan(newIndexes(rows), "Score ge 3 and Score lt 5");
+    Assert.assertArrayEquals(expected(rows, new Func1<Row, Boolean>() {
+      public Boolean apply(Row input) {
+        return input.getScore() != null && input.getScore() >= 3 && input.getScore() < 5;
+      }
+    }), rt);
+  }
+
+  @Test
+  public void literalOnTheLeftIsFlipped() {
+    InMemoryIndexes indexes = newIndexes(newRows(100));
+    Assert.assertArrayEquals(plan(indexes, "Score gt 5"), plan(indexes, "5 lt Score"));
+    Assert.assertArrayEquals(plan(indexes, "Score ge 5"), plan(indexes, "5 le Score"));
+    Assert.assertArrayEquals(plan(indexes, "Score lt 5"), plan(indexes, "5 gt Score"));
+    Assert.assertArrayEquals(plan(indexes, "Score le 5"), plan(indexes, "5 ge Score"));
+    Assert.assertArrayEquals(plan(indexes, "Name eq 'n1'"), plan(indexes, "'n1' eq Name"));
+  }
+
+  @Test
+  public void andIntersectsIndexedSides() {
+    List<Row> rows = newRows(100);
+    int[] rt = plan(newIndexes(rows), "Name eq 'n1' and (Score gt 10)");
+    Assert.assertArrayEquals(expected(rows, new Func1<Row, Boolean>() {
+      public Boolean apply(Row input) {
+        return input.getName().equals("n1") && input.getScore() != null && input.getScore() > 10;
+      }
+    }), rt);
+  }
+
+  @Test
+  public void andKeepsIndexedSideOfUnindexedComparison() {
+    InMemoryIndexes indexes = newIndexes(newRows(100));
+    Assert.assertArrayEquals(plan(indexes, "Name eq 'n1'"), plan(indexes, "Name eq 'n1' and Id add 1 eq 3"));
+    Assert.assertArrayEquals(plan(indexes, "Name eq 'n1'"), plan(indexes, "substringof('1', Name) and Name eq 'n1'"));
+  }
+
+  @Test
+  public void orUnionsIndexedSides() {
+    List<Row> rows = newRows(100);
+    int[] rt = plan(newIndexes(rows), "Name eq 'n1' or Score eq 3");
+    Assert.assertArrayEquals(expected(rows, new Func1<Row, Boolean>() {
+      public Boolean apply(Row input) {
+        return input.getName().equals("n1") || Integer.valueOf(3).equals(input.getScore());
+      }
+    }), rt);
+  }
+
+  @Test
+  public void orWithUnindexedSideIsNotPlanned() {
+    InMemoryIndexes indexes = newIndexes(newRows(100));
+    Assert.assertNull(plan(indexes, "Name eq 'n1' or substringof('1', Name)"));
+    Assert.assertNull(plan(indexes, "substringof('1', Name) or Name eq 'n1'"));
+  }
+
+  @Test
+  public void unindexedPropertyIsNotPlanned() {
+    InMemoryIndexes indexes = newIndexes(newRows(10));
+    Assert.assertNull(plan(indexes, "Score ne 3"));
+    Assert.assertNull(plan(indexes, "Name eq Name"));
+  }
+
+  @Test
+  public void lossyLiteralIsNotIndexable() {
+    InMemoryIndex index = new InMemoryIndex("Score", InMemoryIndexType.SORTED, newRows(30).toArray(), new BeanBasedPropertyModel(Row.class));
+    Assert.assertEquals(Integer.valueOf(5), index.normalize(5L));
+    Assert.assertSame(InMemoryIndex.NOT_INDEXABLE, index.normalize(5.5d));
+    Assert.assertSame(InMemoryIndex.NOT_INDEXABLE, index.normalize(Long.MAX_VALUE));
+    Assert.assertSame(InMemoryIndex.NOT_INDEXABLE, index.normalize("5"));
+    Assert.assertSame(InMemoryIndex.NOT_INDEXABLE, index.normalize(null));
+
+    InMemoryIndexes indexes = newIndexes(newRows(30));
+    Assert.assertNull(plan(indexes, "Score eq 5.5"));
+    Assert.assertNotNull(plan(indexes, "Score eq 5L"));
+  }
+
+  @Test
+  public void mixedValueClassesAreNotIndexable() {
+    Object[] rows = new Object[] { new Row(0, 1, "a"), new Row(1, 2, "b") };
+    PropertyModel mixed = new BeanBasedPropertyModel(Row.class) {
+      @Override
+      public Object getPropertyValue(Object target, String propertyName) {
+        Object rt = super.getPropertyValue(target, propertyName);
+        return ((Row) target).getId() == 0 ? rt : Long.valueOf(((Integer) rt).longValue());
+      }
+    };
+    InMemoryIndex index = new InMemoryIndex("Score", InMemoryIndexType.HASH, rows, mixed);
+    Assert.assertSame(InMemoryIndex.NOT_INDEXABLE, index.normalize(1));
+  }
+
+  @Test
+  public void mergeKeepsRowOrderWhenDenseOrSparse() {
+    List<int[]> groups = Arrays.asList(new int[] { 3, 70, 130 }, new int[] { 1, 64, 200 }, new int[] { 0, 63 });
+    int[] expected = new int[] { 0, 1, 3, 63, 64, 70, 130, 200 };
+    // 8 of 256 rows go through the bitmap, 8 of 1024 are sorted
+    Assert.assertArrayEquals(expected, InMemoryIndex.merge(groups, 256));
+    Assert.assertArrayEquals(expected, InMemoryIndex.merge(groups, 1024));
+    Assert.assertArrayEquals(InMemoryIndex.EMPTY, InMemoryIndex.merge(Collections.<int[]>emptyList(), 10));
+  }
+
+  @Test
+  public void indexedResultsMatchFullScan() {
+    // a scan cannot compare nulls
+    final List<Row> rows = newRows(300, false);
+    Func<Iterable<Row>> get = new Func<Iterable<Row>>() {
+      public Iterable<Row> apply() {
+        return rows;
+      }
+    };
+    InMemoryProducer scanned = new InMemoryProducer("Test", 1000);
+    scanned.register(Row.class, "Rows", get, "Id");
+    InMemoryProducer indexed = new InMemoryProducer("Test", 1000);
+    indexed.register(Row.class, "Rows", get, "Id");
+    indexed.addIndex("Rows", "Score", InMemoryIndexType.SORTED);
+    indexed.addIndex("Rows", "Name", InMemoryIndexType.HASH);
+
+    String[] filters = new String[] {
+        "Id eq 7",
+        "Score eq 4",
+        "Score eq 4L",
+        "Score eq 4.5",
+        "Score gt 12",
+        "3 ge Score",
+        "Score ge 2 and Score le 6 and Name eq 'n3'",
+        "Name eq 'n0' or Name eq 'n4' or Score lt 2",
+        "(Score gt 15 or Score lt 1) and Id gt 100",
+        "Name eq 'n2' and substringof('2', Name)",
+        "Name eq 'zz'",
+        "Score ne 4 and Name eq 'n1'",
+    };
+    for (String filter : filters)
+      Assert.assertEquals(filter, ids(scanned, filter), ids(indexed, filter));
+  }
+
+  private static List<Object> ids(InMemoryProducer producer, String filter) {
+    QueryInfo query = new QueryInfo(null, null, null, filter(filter), null, null, null, null, null);
+    List<Object> rt = new ArrayList<Object>();
+    for (OEntity entity : producer.getEntities("Rows", query).getEntities())
+      rt.add(entity.getEntityKey().asSingleValue());
+    return rt;
+  }
+
+}
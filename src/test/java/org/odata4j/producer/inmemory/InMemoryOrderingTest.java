@@ -0,0 +1,192 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.producer.inmemory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.core4j.Func;
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.core.OEntity;
+import org.odata4j.expression.ExpressionParser;
+import org.odata4j.producer.EntitiesResponse;
+import org.odata4j.producer.InlineCount;
+import org.odata4j.producer.QueryInfo;
+
+public class InMemoryOrderingTest {
+
+  public static class Item {
+    private final int id;
+    private final Integer score;
+
+    public Item(int id, Integer score) {
+      this.id = id;
+      this.score = score;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public Integer getScore() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return id + "=" + score;
+    }
+  }
+
+  private static final PropertyModel PROPERTIES = new BeanBasedPropertyModel(Item.class);
+
+  private static List<Item> newItems(int count) {
+    List<Item> items = new ArrayList<Item>();
+    for (int i = 0; i < count; i++)
+      items.add(new Item(i, i % 11 == 0 ? null : Integer.valueOf(i * 7 % 5)));
+    return items;
+  }
+
+  // a stable sort, so ties keep the order of the set
+  private static List<Item> sorted(List<Item> items, final boolean descending) {
+    List<Item> rt = new ArrayList<Item>(items);
+    Collections.sort(rt, new Comparator<Item>() {
+      @Override
+      public int compare(Item o1, Item o2) {
+        int rt;
+        if (o1.getScore() == null)
+          rt = o2.getScore() == null ? 0 : -1;
+        else
+          rt = o2.getScore() == null ? 1 : o1.getScore().compareTo(o2.getScore());
+        return descending ? -rt : rt;
+      }
+    });
+    return rt;
+  }
+
+  private static InMemoryOrdering ordering(String orderBy) {
+    return new InMemoryOrdering(ExpressionParser.parseOrderBy(orderBy), PROPERTIES);
+  }
+
+  private static List<Object> collect(InMemoryOrdering.Collector collector, List<Item> items) {
+    for (int i = 0; i < items.size(); i++)
+      collector.add(items.get(i), i);
+    return collector.toList();
+  }
+
+  @Test
+  public void keepsLeadingObjectsWithTiesInSetOrder() {
+    List<Item> items = newItems(100);
+    for (int limit : new int[] { 1, 7, 25, 100, 150 }) {
+      List<Object> rt = collect(ordering("Score").collect(limit), items);
+      Assert.assertEquals(sorted(items, false).subList(0, Math.min(limit, items.size())), rt);
+    }
+  }
+
+  @Test
+  public void descendingKeepsTiesInSetOrder() {
+    List<Item> items = newItems(60);
+    List<Object> rt = collect(ordering("Score desc").collect(20), items);
+    Assert.assertEquals(sorted(items, true).subList(0, 20), rt);
+  }
+
+  @Test
+  public void nullsSortFirst() {
+    List<Item> items = newItems(40);
+    List<Object> rt = collect(ordering("Score").collect(4), items);
+    for (Object item : rt)
+      Assert.assertNull(((Item) item).getScore());
+    Assert.assertEquals(0, ((Item) rt.get(0)).getId());
+    Assert.assertEquals(11, ((Item) rt.get(1)).getId());
+  }
+
+  @Test
+  public void countsEveryObject() {
+    List<Item> items = newItems(30);
+    InMemoryOrdering.Collector collector = ordering("Score").collect(3);
+    collect(collector, items);
+    Assert.assertEquals(30, collector.getCount());
+
+    InMemoryOrdering.Collector counting = ordering("Score").collect(0);
+    Assert.assertTrue(collect(counting, items).isEmpty());
+    Assert.assertEquals(30, counting.getCount());
+  }
+
+  @Test
+  public void resumesAfterObject() {
+    List<Item> items = newItems(50);
+    List<Item> expected = sorted(items, false);
+    Item last = expected.get(9);
+
+    InMemoryOrdering.Collector collector = ordering("Score").collect(10);
+    collector.after(last, items.indexOf(last));
+    Assert.assertEquals(expected.subList(10, 20), collect(collector, items));
+  }
+
+  @Test
+  public void pagesMatchFullSort() {
+    final List<Item> items = newItems(73);
+    InMemoryProducer producer = newProducer(items);
+    List<Item> expected = sorted(items, true);
+
+    // $skip and $top select a window of the ordering
+    Assert.assertEquals(ids(expected.subList(5, 15)), ids(producer.getEntities("Items", query(5, 10, null, false))));
+
+    // $inlinecount counts every match, not just the page
+    EntitiesResponse counted = producer.getEntities("Items", query(0, 3, null, true));
+    Assert.assertEquals(Integer.valueOf(73), counted.getInlineCount());
+    Assert.assertEquals(ids(expected.subList(0, 3)), ids(counted));
+
+    // skip tokens resume the ordering after the last entity of a page
+    List<Object> paged = new ArrayList<Object>();
+    String skipToken = null;
+    do {
+      EntitiesResponse page = producer.getEntities("Items", query(0, null, skipToken, false));
+      paged.addAll(ids(page));
+      skipToken = page.getSkipToken();
+    } while (skipToken != null);
+    Assert.assertEquals(ids(expected), paged);
+  }
+
+  private static InMemoryProducer newProducer(final List<Item> items) {
+    InMemoryProducer producer = new InMemoryProducer("Test", 10);
+    producer.register(Item.class, "Items", new Func<Iterable<Item>>() {
+      @Override
+      public Iterable<Item> apply() {
+        return items;
+      }
+    }, "Id");
+    return producer;
+  }
+
+  private static QueryInfo query(Integer skip, Integer top, String skipToken, boolean inlineCount) {
+    return new QueryInfo(inlineCount ? InlineCount.ALLPAGES : null, top, skip, null,
+        ExpressionParser.parseOrderBy("Score desc"), skipToken, null, null, null);
+  }
+
+  private static List<Object> ids(List<Item> items) {
+    List<Object> rt = new ArrayList<Object>();
+    for (Item item : items)
+      rt.add(item.getId());
+    return rt;
+  }
+
+  private static List<Object> ids(EntitiesResponse response) {
+    List<Object> rt = new ArrayList<Object>();
+    for (OEntity entity : response.getEntities())
+      rt.add(entity.getEntityKey().asSingleValue());
+    return rt;
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.producer.inmemory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.core.OEntities;
+import org.odata4j.core.OEntity;
+import org.odata4j.core.OLink;
+import org.odata4j.core.OProperties;
+import org.odata4j.core.OProperty;
+import org.odata4j.edm.EdmEntitySet;
+import org.odata4j.producer.QueryInfo;
+import org.odata4j.producer.exceptions.BadRequestException;
+
+public class InMemoryProducerStoreTest {
+
+  public static class City {
+    private Integer id;
+    private String name;
+
+    public City() {}
+
+    public City(Integer id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    public Integer getId() {
+      return id;
+    }
+
+    public void setId(Integer id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  private final InMemoryProducer producer = new InMemoryProducer("Test");
+  private final InMemoryEntityStore<City> store = producer.registerStore(City.class, "Cities", "Id");
+
+  private OEntity newEntity(OProperty<?>... properties) {
+    EdmEntitySet ees = producer.getMetadata().getEdmEntitySet("Cities");
+    List<OProperty<?>> list = new ArrayList<OProperty<?>>();
+    for (OProperty<?> property : properties)
+      list.add(property);
+    return OEntities.createRequest(ees, list, new ArrayList<OLink>());
+  }
+
+  @Test
+  public void createsEntity() {
+    producer.createEntity("Cities", newEntity(OProperties.int32("Id", 1), OProperties.string("Name", "Paris")));
+    Assert.assertEquals("Paris", store.get(1).getName());
+  }
+
+  @Test
+  public void rejectsEntityWithoutKey() {
+    try {
+      producer.createEntity("Cities", newEntity(OProperties.string("Name", "Paris")));
+      Assert.fail();
+    } catch (BadRequestException e) {
+      // expected
+    }
+    Assert.assertTrue(store.toList().isEmpty());
+  }
+
+  @Test
+  public void queriesReleaseTheirSnapshot() {
+    City old = new City(1, "Paris");
+    store.add(old);
+    store.add(new City(2, "Rome"));
+    WeakReference<City> ref = new WeakReference<City>(old);
+    old = null;
+
+    // a query that stops early and a count both read the store through a snapshot
+    QueryInfo top = new QueryInfo(null, 1, null, null, null, null, null, null, null);
+    Assert.assertEquals(1, producer.getEntities("Cities", top).getEntities().size());
+    Assert.assertEquals(2, producer.getEntitiesCount("Cities", null).getCount());
+
+    store.put(new City(1, "Lyon"));
+    for (int i = 0; i < 50 && ref.get() != null; i++) {
+      System.gc();
+      Thread.yield();
+    }
+    Assert.assertNull("a query left its snapshot open", ref.get());
+  }
+
+}
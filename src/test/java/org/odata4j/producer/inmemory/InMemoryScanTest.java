@@ -0,0 +1,233 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.producer.inmemory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.core4j.Func;
+import org.core4j.Func1;
+import org.core4j.Predicate1;
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.core.OEntity;
+import org.odata4j.expression.BoolCommonExpression;
+import org.odata4j.expression.ExpressionParser;
+import org.odata4j.producer.EntitiesResponse;
+import org.odata4j.producer.QueryInfo;
+
+public class InMemoryScanTest {
+
+  public static class Item {
+    private final int id;
+    private final int group;
+
+    public Item(int id, int group) {
+      this.id = id;
+      this.group = group;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public int getGroup() {
+      return group;
+    }
+  }
+
+  private static final Object[] ROWS = new Object[] { "r0", "r1", "r2", "r3", "r4", "r5", "r6", "r7", "r8", "r9" };
+
+  private static List<Integer> visit(InMemoryScan scan) {
+    List<Integer> rt = new ArrayList<Integer>();
+    while (scan.next())
+      rt.add(scan.ordinal());
+    return rt;
+  }
+
+  @Test
+  public void seekOverCandidatesResumesAfterOrdinal() {
+    int[] candidates = new int[] { 2, 5, 9 };
+    // found, between, before the first, on the last and past the last candidate
+    Assert.assertEquals(Arrays.asList(9), visit(seek(new InMemoryScan(ROWS, candidates, null), 5)));
+    Assert.assertEquals(Arrays.asList(5, 9), visit(seek(new InMemoryScan(ROWS, candidates, null), 4)));
+    Assert.assertEquals(Arrays.asList(5, 9), visit(seek(new InMemoryScan(ROWS, candidates, null), 2)));
+    Assert.assertEquals(Arrays.asList(2, 5, 9), visit(seek(new InMemoryScan(ROWS, candidates, null), 1)));
+    Assert.assertEquals(Arrays.asList(2, 5, 9), visit(seek(new InMemoryScan(ROWS, candidates, null), -1)));
+    Assert.assertEquals(Arrays.<Integer>asList(), visit(seek(new InMemoryScan(ROWS, candidates, null), 9)));
+    Assert.assertEquals(Arrays.<Integer>asList(), visit(seek(new InMemoryScan(ROWS, candidates, null), Integer.MAX_VALUE)));
+  }
+
+  @Test
+  public void seekOverRowsResumesAfterOrdinal() {
+    Assert.assertEquals(Arrays.asList(4, 5, 6, 7, 8, 9), visit(seek(new InMemoryScan(ROWS, null, null), 3)));
+    Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), visit(seek(new InMemoryScan(ROWS, null, null), -1)));
+    Assert.assertEquals(Arrays.<Integer>asList(), visit(seek(new InMemoryScan(ROWS, null, null), 9)));
+    Assert.assertEquals(Arrays.<Integer>asList(), visit(seek(new InMemoryScan(ROWS, null, null), Integer.MAX_VALUE)));
+  }
+
+  @Test
+  public void seekOverStreamResumesAfterOrdinal() {
+    Assert.assertEquals(Arrays.asList(4, 5, 6, 7, 8, 9), visit(seek(new InMemoryScan(Arrays.asList(ROWS), null), 3)));
+    Assert.assertEquals(Arrays.<Integer>asList(), visit(seek(new InMemoryScan(Arrays.asList(ROWS), null), Integer.MAX_VALUE)));
+  }
+
+  @Test
+  public void seekNeverMovesBack() {
+    InMemoryScan scan = new InMemoryScan(ROWS, new int[] { 2, 5, 9 }, null);
+    Assert.assertTrue(scan.next());
+    Assert.assertTrue(scan.next());
+    Assert.assertEquals(5, scan.ordinal());
+    scan.seek(1);
+    Assert.assertEquals(Arrays.asList(9), visit(scan));
+  }
+
+  @Test
+  public void seekSkipsWithoutFiltering() {
+    final List<Object> filtered = new ArrayList<Object>();
+    InMemoryScan scan = new InMemoryScan(ROWS, new int[] { 1, 3, 6, 8 }, new Predicate1<Object>() {
+      @Override
+      public boolean apply(Object input) {
+        filtered.add(input);
+        return true;
+      }
+    });
+    scan.seek(6);
+    Assert.assertEquals(Arrays.asList(8), visit(scan));
+    Assert.assertEquals(Arrays.<Object>asList("r8"), filtered);
+  }
+
+  private static InMemoryScan seek(InMemoryScan scan, int after) {
+    scan.seek(after);
+    return scan;
+  }
+
+  @Test
+  public void resolvesKeyStringsToFirstOrdinal() {
+    List<Item> items = Arrays.asList(new Item(3, 0), new Item(7, 0), new Item(3, 1));
+    InMemoryEntityInfo<Item> ei = newInfo();
+    ei.indexTypes = new HashMap<String, InMemoryIndexType>();
+    InMemoryIndexes indexes = new InMemoryIndexes(ei, items, 0);
+    InMemoryScan scan = new InMemoryScan(items.toArray(), null, null);
+
+    Assert.assertEquals(0, indexes.ordinalOf(keyString(3)));
+    Assert.assertEquals(1, indexes.ordinalOf(keyString(7)));
+    Assert.assertEquals(-1, indexes.ordinalOf(keyString(8)));
+    Assert.assertEquals(0, scan.indexOf(keyString(3), ei));
+    Assert.assertEquals(1, scan.indexOf(keyString(7), ei));
+    Assert.assertEquals(-1, scan.indexOf(keyString(8), ei));
+  }
+
+  private static InMemoryEntityInfo<Item> newInfo() {
+    InMemoryEntityInfo<Item> ei = new InMemoryEntityInfo<Item>();
+    ei.keys = new String[] { "Id" };
+    ei.properties = new BeanBasedPropertyModel(Item.class);
+    ei.id = new Func1<Object, HashMap<String, Object>>() {
+      @Override
+      public HashMap<String, Object> apply(Object input) {
+        HashMap<String, Object> rt = new HashMap<String, Object>();
+        rt.put("Id", ((Item) input).getId());
+        return rt;
+      }
+    };
+    return ei;
+  }
+
+  private static String keyString(int id) {
+    return newInfo().getKeyString(new Item(id, 0));
+  }
+
+  @Test
+  public void pagesWithSkipTokens() {
+    final List<Item> items = new ArrayList<Item>();
+    for (int i = 0; i < 47; i++)
+      items.add(new Item(i * 3, i % 4));
+
+    for (boolean indexed : new boolean[] { false, true }) {
+      InMemoryProducer producer = newProducer(items, indexed, 5);
+      InMemoryProducer unpaged = newProducer(items, indexed, 1000);
+      for (String filter : new String[] { null, "Group eq 1", "Group ge 2", "Id lt 60 or Group eq 3" }) {
+        for (String orderBy : new String[] { null, "Group desc", "Group,Id desc" }) {
+          List<Object> all = ids(unpaged.getEntities("Items", query(filter, orderBy, null)));
+          List<Object> paged = new ArrayList<Object>();
+          String skipToken = null;
+          do {
+            EntitiesResponse page = producer.getEntities("Items", query(filter, orderBy, skipToken));
+            paged.addAll(ids(page));
+            skipToken = page.getSkipToken();
+          } while (skipToken != null);
+          Assert.assertEquals(indexed + " " + filter + " " + orderBy, all, paged);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void unknownSkipTokenIsPastEverything() {
+    List<Item> items = new ArrayList<Item>();
+    for (int i = 0; i < 20; i++)
+      items.add(new Item(i, i % 2));
+
+    for (boolean indexed : new boolean[] { false, true }) {
+      InMemoryProducer producer = newProducer(items, indexed);
+      Assert.assertTrue(producer.getEntities("Items", query(null, null, keyString(999))).getEntities().isEmpty());
+      Assert.assertTrue(producer.getEntities("Items", query("Group eq 1", null, keyString(999))).getEntities().isEmpty());
+      Assert.assertTrue(producer.getEntities("Items", query(null, "Group", keyString(999))).getEntities().isEmpty());
+    }
+  }
+
+  @Test
+  public void skipTokenOfFilteredOutRowResumesAfterIt() {
+    List<Item> items = new ArrayList<Item>();
+    for (int i = 0; i < 10; i++)
+      items.add(new Item(i, i % 2));
+
+    for (boolean indexed : new boolean[] { false, true }) {
+      InMemoryProducer producer = newProducer(items, indexed);
+      // (4) does not pass the filter, the page still starts right after it
+      Assert.assertEquals(Arrays.<Object>asList(5, 7, 9), ids(producer.getEntities("Items", query("Group eq 1", null, keyString(4)))));
+    }
+  }
+
+  private static InMemoryProducer newProducer(List<Item> items, boolean indexed) {
+    return newProducer(items, indexed, 5);
+  }
+
+  private static InMemoryProducer newProducer(final List<Item> items, boolean indexed, int maxResults) {
+    InMemoryProducer producer = new InMemoryProducer("Test", maxResults);
+    producer.register(Item.class, "Items", new Func<Iterable<Item>>() {
+      @Override
+      public Iterable<Item> apply() {
+        return items;
+      }
+    }, "Id");
+    if (indexed)
+      producer.addIndex("Items", "Group", InMemoryIndexType.SORTED);
+    return producer;
+  }
+
+  private static QueryInfo query(String filter, String orderBy, String skipToken) {
+    return new QueryInfo(null, null, null,
+        filter == null ? null : (BoolCommonExpression) ExpressionParser.parse(filter),
+        orderBy == null ? null : ExpressionParser.parseOrderBy(orderBy),
+        skipToken, null, null, null);
+  }
+
+  private static List<Object> ids(EntitiesResponse response) {
+    List<Object> rt = new ArrayList<Object>();
+    for (OEntity entity : response.getEntities())
+      rt.add(entity.getEntityKey().asSingleValue());
+    return rt;
+  }
+
+}
@@ -0,0 +1,94 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.producer.resources;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.format.FormatWriter;
+
+public class FormatWriterOutputTest {
+
+  private static class RepeatingWriter implements FormatWriter<String> {
+
+    private int writes;
+
+    @Override
+    public void write(UriInfo uriInfo, Writer w, String target) {
+      writes++;
+      try {
+        for (int i = 0; i < 5000; i++)
+          w.write(target);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public String getContentType() {
+      return "text/plain";
+    }
+  }
+
+  private static String expected(String target) {
+    StringBuilder rt = new StringBuilder();
+    for (int i = 0; i < 5000; i++)
+      rt.append(target);
+    return rt.toString();
+  }
+
+  @Test
+  public void rendersOnlyWhenWritten() {
+    RepeatingWriter writer = new RepeatingWriter();
+    new FormatWriterOutput<String>(writer, null, "x");
+    Assert.assertEquals(0, writer.writes);
+  }
+
+  @Test
+  public void streamsUtf8WithoutClosing() throws Exception {
+    final boolean[] closed = new boolean[1];
+    ByteArrayOutputStream output = new ByteArrayOutputStream() {
+      @Override
+      public void close() throws IOException {
+        closed[0] = true;
+      }
+    };
+    new FormatWriterOutput<String>(new RepeatingWriter(), null, "caf\u00e9 ").write(output);
+
+    Assert.assertEquals(expected("caf\u00e9 "), new String(output.toByteArray(), "UTF-8"));
+    Assert.assertEquals(5000 * 6, output.size());
+    Assert.assertFalse(closed[0]);
+  }
+
+  @Test
+  public void writesToWriter() {
+    StringWriter w = new StringWriter();
+    new FormatWriterOutput<String>(new RepeatingWriter(), null, "ab").writeTo(w);
+    Assert.assertEquals(expected("ab"), w.toString());
+  }
+
+  @Test
+  public void batchPartsRenderStreamedResponses() {
+    Response response = Response.ok(new FormatWriterOutput<String>(new RepeatingWriter(), null, "z"), "text/plain").build();
+    String part = ODataBatchProvider.createResponseBodyPart(new BatchBodyPart(), response);
+
+    Assert.assertTrue(part, part.startsWith("\nHTTP/1.1 200 OK\n"));
+    Assert.assertTrue(part, part.endsWith("\n\n" + expected("z") + "\n"));
+  }
+
+}
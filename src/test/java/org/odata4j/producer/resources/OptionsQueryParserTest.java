@@ -0,0 +1,72 @@
+/**
+ *
+ * Copyright (c) MuleSoft, Inc.  All rights reserved.  http://www.mulesoft.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+
+
+package org.odata4j.producer.resources;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.odata4j.expression.EntitySimpleProperty;
+import org.odata4j.expression.EqExpression;
+import org.odata4j.expression.Expression;
+import org.odata4j.expression.OrderByExpression;
+
+public class OptionsQueryParserTest {
+
+  @Test
+  public void sharesParsedOptions() {
+    Assert.assertSame(OptionsQueryParser.parseFilter("Id eq 1"), OptionsQueryParser.parseFilter("Id eq 1"));
+    Assert.assertTrue(OptionsQueryParser.parseFilter("Id eq 1") instanceof EqExpression);
+    Assert.assertSame(OptionsQueryParser.parseOrderBy("Id desc"), OptionsQueryParser.parseOrderBy("Id desc"));
+    Assert.assertSame(OptionsQueryParser.parseExpand("Orders"), OptionsQueryParser.parseExpand("Orders"));
+    Assert.assertSame(OptionsQueryParser.parseSelect("Name"), OptionsQueryParser.parseSelect("Name"));
+  }
+
+  @Test
+  public void returnsUnmodifiableLists() {
+    List<OrderByExpression> orderBy = OptionsQueryParser.parseOrderBy("Name, Id desc");
+    List<EntitySimpleProperty> expand = OptionsQueryParser.parseExpand("Orders");
+    List<EntitySimpleProperty> select = OptionsQueryParser.parseSelect("Name,Id");
+    try {
+      orderBy.clear();
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      expand.add(Expression.simpleProperty("Customer"));
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    try {
+      select.remove(0);
+      Assert.fail();
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+    Assert.assertEquals(2, OptionsQueryParser.parseOrderBy("Name, Id desc").size());
+  }
+
+  @Test
+  public void missingOptionsAreNull() {
+    Assert.assertNull(OptionsQueryParser.parseFilter(null));
+    Assert.assertNull(OptionsQueryParser.parseOrderBy(null));
+    Assert.assertNull(OptionsQueryParser.parseExpand(null));
+    Assert.assertNull(OptionsQueryParser.parseSelect(null));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void rejectsNonBooleanFilter() {
+    OptionsQueryParser.parseFilter("Name");
+  }
+
+}